@@ -70,6 +70,14 @@ public interface DioriteConfig
      */
     int getNetworkCompressionThreshold();
 
+    /**
+     * Returns amount of bytes waiting to be sent to player, after which packets are sent before end of tick. <br>
+     * 0 - every packet is sent immediately.
+     *
+     * @return network flush threshold.
+     */
+    int getNetworkFlushThreshold();
+
     /**
      * Returns how many threads netty should use.
      *
@@ -91,6 +99,34 @@ public interface DioriteConfig
      */
     void setOnlineMode(OnlineMode onlineMode);
 
+    /**
+     * Returns amount of threads used to authorize players.
+     *
+     * @return amount of threads used to authorize players.
+     */
+    int getAuthThreads();
+
+    /**
+     * Returns max amount of players waiting for authorization.
+     *
+     * @return max amount of players waiting for authorization.
+     */
+    int getAuthQueueSize();
+
+    /**
+     * Returns time in seconds for which responses of session servers are cached, 0 if cache is disabled.
+     *
+     * @return time in seconds for which responses of session servers are cached.
+     */
+    int getAuthCacheTime();
+
+    /**
+     * Returns max amount of connections from single address in one second, 0 if there is no limit.
+     *
+     * @return max amount of connections from single address in one second.
+     */
+    int getHandshakeRateLimit();
+
     /**
      * Returns max amount of players on server.
      *
@@ -168,6 +204,21 @@ public interface DioriteConfig
      */
     void setViewDistance(int viewDistance);
 
+    /**
+     * Returns max amount of chunks sent to one player in one tick.
+     *
+     * @return max amount of chunks sent to player in one tick.
+     */
+    int getChunkSendRate();
+
+    /**
+     * Returns max amount of modified chunks queued to save in one tick by autosave. <br>
+     * 0 - all chunks are queued at once.
+     *
+     * @return max amount of chunks saved in one tick by autosave.
+     */
+    int getAutosaveChunksPerTick();
+
     /**
      * Returns amount of threads used to process basic input actions, like player messages, commands, tab-complete.
      *
@@ -175,6 +226,20 @@ public interface DioriteConfig
      */
     int getInputThreadPoolSize();
 
+    /**
+     * Returns amount of threads used to tick worlds when there is more than one tick group, 0 means amount of available processors.
+     *
+     * @return amount of threads used to tick worlds.
+     */
+    int getTickThreads();
+
+    /**
+     * Returns true if tick groups are automatically split and merged based on their tick times.
+     *
+     * @return true if tick groups are balanced.
+     */
+    boolean isTickBalancing();
+
     /**
      * Returns name/location of file used to store administrators uuids/nicknames.
      *
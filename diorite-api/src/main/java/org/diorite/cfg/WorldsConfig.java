@@ -110,6 +110,15 @@ public interface WorldsConfig
          */
         boolean isVanillaCompatible();
 
+        /**
+         * Returns if chunk sections should be saved in diorite format, that is faster to save and load than vanilla
+         * one, but can't be read by vanilla servers. <br>
+         * Ignored if world is vanilla compatible.
+         *
+         * @return if chunk sections should be saved in diorite format.
+         */
+        boolean isNativeChunkFormat();
+
         /**
          * Returns default gamemode for this world.
          *
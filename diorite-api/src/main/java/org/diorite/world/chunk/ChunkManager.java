@@ -69,6 +69,47 @@ public interface ChunkManager
      */
     boolean isChunkInUse(int x, int z);
 
+    /**
+     * Add ticket on all chunks in given radius around given chunk, chunks with tickets are never unloaded. <br>
+     * Tickets are counted, so chunk is kept loaded until every added ticket is removed by
+     * {@link #removeChunkTicket(int, int, int)}. Chunks aren't loaded by this method.
+     *
+     * @param x      The X coordinate of center chunk.
+     * @param z      The Z coordinate of center chunk.
+     * @param radius radius in chunks, 0 for only center chunk.
+     */
+    void addChunkTicket(int x, int z, int radius);
+
+    /**
+     * Remove ticket added by {@link #addChunkTicket(int, int, int)} from all chunks in given radius around given chunk.
+     *
+     * @param x      The X coordinate of center chunk.
+     * @param z      The Z coordinate of center chunk.
+     * @param radius radius in chunks, 0 for only center chunk.
+     */
+    void removeChunkTicket(int x, int z, int radius);
+
+    /**
+     * Set if chunk should be always loaded, forced chunk is loaded by this method and isn't unloaded until it is no
+     * longer forced. <br>
+     * Chunk is either forced or not, so single call with false releases chunk.
+     *
+     * @param x      The X coordinate.
+     * @param z      The Z coordinate.
+     * @param forced if chunk should be always loaded.
+     */
+    void setForceLoaded(int x, int z, boolean forced);
+
+    /**
+     * Checks if chunk is always loaded, see {@link #setForceLoaded(int, int, boolean)}.
+     *
+     * @param x The X coordinate.
+     * @param z The Z coordinate.
+     *
+     * @return true if chunk is forced to be loaded.
+     */
+    boolean isForceLoaded(int x, int z);
+
     /**
      * Call the ChunkIOService to load a chunk, optionally generating the chunk.
      *
@@ -31,12 +31,10 @@ import java.net.Proxy;
 import java.security.KeyPair;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
@@ -53,6 +51,7 @@ import org.fusesource.jansi.AnsiConsole;
 import org.reflections.Reflections;
 import org.slf4j.LoggerFactory;
 
+import org.diorite.impl.auth.CachedSessionService;
 import org.diorite.impl.auth.SessionService;
 import org.diorite.impl.auth.yggdrasil.YggdrasilSessionService;
 import org.diorite.impl.cfg.DioriteConfigImpl;
@@ -94,7 +93,10 @@ import org.diorite.impl.plugin.CoreJarPluginLoader;
 import org.diorite.impl.plugin.FakePluginLoader;
 import org.diorite.impl.plugin.JarPluginLoader;
 import org.diorite.impl.plugin.PluginManagerImpl;
+import org.diorite.impl.scheduler.ISynchronizable;
 import org.diorite.impl.scheduler.SchedulerImpl;
+import org.diorite.impl.scheduler.SyncMailbox;
+import org.diorite.impl.scheduler.SyncQueue;
 import org.diorite.impl.world.WorldsManagerImpl;
 import org.diorite.impl.world.tick.TickGroups;
 import org.diorite.Core;
@@ -151,7 +153,7 @@ import jline.UnsupportedTerminal;
 import jline.console.ConsoleReader;
 import joptsimple.OptionSet;
 
-public class DioriteCore implements Core
+public class DioriteCore implements Core, ISynchronizable
 {
 
     private static final CoreInitPipeline  initPipeline;
@@ -160,34 +162,6 @@ public class DioriteCore implements Core
 
     private static final org.slf4j.Logger coreLogger = LoggerFactory.getLogger("");
 
-    private static class SimpleSyncTask
-    {
-        private final Synchronizable sync;
-        private final Runnable       runnable;
-
-        private SimpleSyncTask(final Synchronizable sync, final Runnable runnable)
-        {
-            this.sync = sync;
-            this.runnable = runnable;
-        }
-
-        public Synchronizable getSynchronizable()
-        {
-            return this.sync;
-        }
-
-        public void run()
-        {
-            runSync(this.runnable);
-        }
-
-        @Override
-        public String toString()
-        {
-            return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("sync", this.sync).append("runnable", this.runnable).toString();
-        }
-    }
-
     static
     {
         ClassPool.getDefault().appendClassPath(new LoaderClassPath(DioriteCore.class.getClassLoader()));
@@ -281,7 +255,8 @@ public class DioriteCore implements Core
     protected final CommandMapImpl                        commandMap  = new CommandMapImpl();
     protected final TickGroups                            ticker      = new TickGroups(this);
     protected final SchedulerImpl                         scheduler   = new SchedulerImpl();
-    protected final ConcurrentLinkedQueue<SimpleSyncTask> syncQueue   = new ConcurrentLinkedQueue<>();
+    protected final SyncQueue                             syncQueue   = new SyncQueue();
+    protected final SyncMailbox                           mailbox     = new SyncMailbox(this);
     protected final ItemFactory                           itemFactory = new ItemFactoryImpl();
     protected final Thread mainThread;
     protected final double[] recentTps = new double[3];
@@ -293,7 +268,7 @@ public class DioriteCore implements Core
     protected int    waitTime           = DEFAULT_WAIT_TIME;
     protected int    connectionThrottle = 1000;
     protected double mutli              = 1; // it can be used with TPS, like make 10 TPS but change this to 2, so server will scale to new TPS.
-    protected YggdrasilSessionService  sessionService;
+    protected SessionService           sessionService;
     protected ConnectionHandler        connectionHandler;
     protected PlayersManagerImpl       playersManager;
     protected WorldsManagerImpl        worldsManager;
@@ -350,26 +325,15 @@ public class DioriteCore implements Core
         this.config.setNetworkCompressionThreshold(compressionThreshold);
     }
 
-    private static void runSync(final Runnable runnable)
-    {
-        try
-        {
-            runnable.run();
-        } catch (final Throwable throwable)
-        {
-            throwable.printStackTrace();
-        }
-    }
-
     public void sync(final Runnable runnable, final Synchronizable sync)
     {
         //noinspection ObjectEquality
         if (Thread.currentThread() == sync.getLastTickThread())
         {
-            runSync(runnable);
+            SyncQueue.run(runnable);
             return;
         }
-        this.syncQueue.add(new SimpleSyncTask(sync, runnable));
+        this.syncQueue.add(runnable, sync);
     }
 
     public void sync(final Runnable runnable)
@@ -377,7 +341,7 @@ public class DioriteCore implements Core
         //noinspection ObjectEquality
         if (Thread.currentThread() == this.mainThread)
         {
-            runSync(runnable);
+            SyncQueue.run(runnable);
             return;
         }
         this.sync(runnable, this);
@@ -385,7 +349,7 @@ public class DioriteCore implements Core
 
     public void addSync(final Runnable runnable, final Synchronizable sync)
     {
-        this.syncQueue.add(new SimpleSyncTask(sync, runnable));
+        this.syncQueue.add(runnable, sync);
     }
 
     public void addSync(final Runnable runnable)
@@ -395,16 +359,23 @@ public class DioriteCore implements Core
 
     public void runSync()
     {
-        for (final Iterator<SimpleSyncTask> it = this.syncQueue.iterator(); it.hasNext(); )
+        //noinspection ObjectEquality
+        if (Thread.currentThread() == this.mainThread)
         {
-            final SimpleSyncTask st = it.next();
-            //noinspection ObjectEquality
-            if (st.getSynchronizable().getLastTickThread() == Thread.currentThread())
-            {
-                st.run();
-                it.remove();
-            }
+            this.syncQueue.scheduleWaiting();
         }
+        this.syncQueue.runPending();
+    }
+
+    public SyncQueue getSyncQueue()
+    {
+        return this.syncQueue;
+    }
+
+    @Override
+    public SyncMailbox getMailbox()
+    {
+        return this.mailbox;
     }
 
     @Override
@@ -888,6 +859,7 @@ public class DioriteCore implements Core
         {
             this.connectionHandler.close();
         }
+        this.ticker.shutdown();
         if (this.worldsManager != null)
         {
             this.worldsManager.getWorlds().stream().forEach(w -> {
@@ -1016,7 +988,7 @@ public class DioriteCore implements Core
         return this.sessionService;
     }
 
-    public void setSessionService(final YggdrasilSessionService sessionService)
+    public void setSessionService(final SessionService sessionService)
     {
         this.sessionService = sessionService;
     }
@@ -1083,6 +1055,7 @@ public class DioriteCore implements Core
 
                     this.playersManager.doTick(this.tps);
                     this.ticker.doTick(this.tps);
+                    this.playersManager.flushPackets();
                 }
             }
         } catch (final Throwable e)
@@ -1149,7 +1122,10 @@ public class DioriteCore implements Core
         initPipeline.addLast("DioriteCore|registerTemplateElements", (s, p, d) -> TemplateElements.getElements().addAfter(Locale.class.getName(), BaseComponent.class.getName(), BaseComponentTemplateElement.INSTANCE));
         initPipeline.addLast("DioriteCore|registerEvents", (s, p, d) -> s.registerEvents());
         initPipeline.addLast("DioriteCore|initTimings", (s, p, d) -> s.timings = new TimingsManagerImpl());
-        initPipeline.addLast("DioriteCore|initSessionService", (s, p, d) -> s.sessionService = new YggdrasilSessionService(d.proxy, UUID.randomUUID().toString()));
+        initPipeline.addLast("DioriteCore|initSessionService", (s, p, d) -> {
+            final SessionService service = new YggdrasilSessionService(d.proxy, UUID.randomUUID().toString());
+            s.sessionService = (s.config.getAuthCacheTime() > 0) ? new CachedSessionService(service, s.config.getAuthCacheTime()) : service;
+        });
         initPipeline.addLast("DioriteCore|addShutdownHook", (s, p, d) -> Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try
             {
@@ -1162,6 +1138,8 @@ public class DioriteCore implements Core
         initPipeline.addLast("DioriteCore|RegisterDefaultCommands", (s, p, d) -> RegisterDefaultCommands.init(s.commandMap));
         initPipeline.addLast("DioriteCore|initInputThread", (s, p, d) -> s.inputThread = InputThread.start(s.config.getInputThreadPoolSize()));
         initPipeline.addLast("DioriteCore|initGame", (s, p, d) -> {
+            s.ticker.setPoolSize(s.config.getTickThreads());
+            s.ticker.setBalancing(s.config.isTickBalancing());
             s.serverManager = new ServerManagerImpl(s);
             s.playersManager = new PlayersManagerImpl(s);
             s.worldsManager = new WorldsManagerImpl(s);
@@ -39,6 +39,7 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 
 import org.diorite.impl.auth.GameProfileImpl;
 import org.diorite.impl.connection.CoreNetworkManager;
+import org.diorite.impl.connection.packets.BroadcastPacket;
 import org.diorite.impl.connection.packets.Packet;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundKeepAlive;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundPlayerInfo;
@@ -117,20 +118,31 @@ public class PlayersManagerImpl implements Tickable
         final long curr = System.currentTimeMillis();
         if ((curr - this.lastKeepAlive) > this.keepAliveTimer)
         {
-            this.players.values().parallelStream().forEach(p -> p.getNetworkManager().sendPacket(new PacketPlayClientboundKeepAlive(p.getId())));
+            this.players.values().parallelStream().forEach(p -> p.getNetworkManager().sendPacket(new PacketPlayClientboundKeepAlive(p.getId()), true));
             this.lastKeepAlive = curr;
         }
     }
 
+    /**
+     * Flush packets sent to players in this tick.
+     */
+    public void flushPackets()
+    {
+        for (final IPlayer player : this.players.values())
+        {
+            player.getNetworkManager().flush();
+        }
+    }
+
     public void forEach(final Packet<?> packet)
     {
-        this.forEach(player -> player.getNetworkManager().sendPacket(packet));
+        this.forEach(p -> true, packet);
     }
 
     public void forEachExcept(final Player except, final Packet<?> packet)
     {
         //noinspection ObjectEquality
-        this.forEach(p -> p != except, player -> player.getNetworkManager().sendPacket(packet));
+        this.forEach(p -> p != except, packet);
     }
 
     public void forEach(final Packet<?>[] packets)
@@ -151,13 +163,26 @@ public class PlayersManagerImpl implements Tickable
 
     public void forEach(final Predicate<IPlayer> predicate, final Packet<?> packet)
     {
-        this.forEach(predicate, player -> player.getNetworkManager().sendPacket(packet));
+        if (this.players.size() < BroadcastPacket.MIN_RECEIVERS)
+        {
+            this.forEach(predicate, player -> player.getNetworkManager().sendPacket(packet));
+            return;
+        }
+        // packet is encoded only once for all players.
+        final BroadcastPacket broadcastPacket = new BroadcastPacket(packet);
+        try
+        {
+            this.forEach(predicate, player -> player.getNetworkManager().sendPacket(broadcastPacket));
+        } finally
+        {
+            broadcastPacket.release();
+        }
     }
 
     public void forEachExcept(final Player except, final Predicate<IPlayer> predicate, final Packet<?> packet)
     {
         //noinspection ObjectEquality
-        this.forEach(p -> (p != except) && predicate.test(p), player -> player.getNetworkManager().sendPacket(packet));
+        this.forEach(p -> (p != except) && predicate.test(p), packet);
     }
 
     public void forEach(final Predicate<IPlayer> predicate, final Packet<?>[] packets)
@@ -0,0 +1,173 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.auth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import org.diorite.impl.auth.exceptions.AuthenticationException;
+import org.diorite.impl.auth.exceptions.AuthenticationUnavailableException;
+import org.diorite.auth.GameProfile;
+import org.diorite.utils.collections.maps.CaseInsensitiveMap;
+
+/**
+ * Session service that caches successful responses of other session service for given time, so players that
+ * reconnect many times, or plugins asking for same profiles, don't need to wait for session servers again. <br>
+ * Join checks are always sent to session servers, but verified profiles are cached for other lookups. <br>
+ * Failed lookups and exceptions are never cached.
+ */
+public class CachedSessionService implements SessionService
+{
+    private static final int MAX_SIZE = 10_000;
+
+    private final SessionService             service;
+    private final Cache<String, GameProfile> byName;
+    private final Cache<UUID, GameProfile>   byUUID;
+
+    /**
+     * Construct new cache for given session service.
+     *
+     * @param service   session service to use when value isn't cached.
+     * @param cacheTime time in seconds for which responses are cached.
+     */
+    public CachedSessionService(final SessionService service, final int cacheTime)
+    {
+        this.service = service;
+        this.byName = CacheBuilder.newBuilder().expireAfterWrite(cacheTime, TimeUnit.SECONDS).maximumSize(MAX_SIZE).build();
+        this.byUUID = CacheBuilder.newBuilder().expireAfterWrite(cacheTime, TimeUnit.SECONDS).maximumSize(MAX_SIZE).build();
+    }
+
+    public SessionService getService()
+    {
+        return this.service;
+    }
+
+    @Override
+    public CaseInsensitiveMap<GameProfile> getUUIDsFromUsernames(final String... names) throws AuthenticationException
+    {
+        final CaseInsensitiveMap<GameProfile> result = new CaseInsensitiveMap<>(names.length);
+        final List<String> missing = new ArrayList<>(names.length);
+        for (final String name : names)
+        {
+            final GameProfile profile = this.byName.getIfPresent(name.toLowerCase(Locale.ENGLISH));
+            if (profile == null)
+            {
+                missing.add(name);
+            }
+            else
+            {
+                result.put(name, profile);
+            }
+        }
+        if (missing.isEmpty())
+        {
+            return result;
+        }
+        final CaseInsensitiveMap<GameProfile> found = this.service.getUUIDsFromUsernames(missing.toArray(new String[missing.size()]));
+        for (final GameProfile profile : found.values())
+        {
+            this.byName.put(profile.getName().toLowerCase(Locale.ENGLISH), profile);
+        }
+        result.putAll(found);
+        return result;
+    }
+
+    @Override
+    public GameProfile getGameProfile(final String name) throws AuthenticationException
+    {
+        final String key = name.toLowerCase(Locale.ENGLISH);
+        GameProfile profile = this.byName.getIfPresent(key);
+        if (profile != null)
+        {
+            return profile;
+        }
+        profile = this.service.getGameProfile(name);
+        if (profile != null)
+        {
+            this.byName.put(key, profile);
+            this.byUUID.put(profile.getId(), profile);
+        }
+        return profile;
+    }
+
+    @Override
+    public GameProfile getGameProfile(final UUID uuid) throws AuthenticationException
+    {
+        GameProfile profile = this.byUUID.getIfPresent(uuid);
+        if (profile != null)
+        {
+            return profile;
+        }
+        profile = this.service.getGameProfile(uuid);
+        if (profile != null)
+        {
+            this.byUUID.put(uuid, profile);
+        }
+        return profile;
+    }
+
+    @Override
+    public void joinServer(final GameProfileImpl gameProfile, final String authenticationToken, final String serverId) throws AuthenticationException
+    {
+        this.service.joinServer(gameProfile, authenticationToken, serverId);
+    }
+
+    @Override
+    public GameProfileImpl hasJoinedServer(final GameProfileImpl gameProfile, final String serverID) throws AuthenticationUnavailableException
+    {
+        // server id is unique for each login, so response can't be reused, but verified profile can be used by other lookups.
+        final GameProfileImpl profile = this.service.hasJoinedServer(gameProfile, serverID);
+        if (profile != null)
+        {
+            this.byName.put(profile.getName().toLowerCase(Locale.ENGLISH), profile);
+            this.byUUID.put(profile.getId(), profile);
+        }
+        return profile;
+    }
+
+    /**
+     * Remove all cached responses.
+     */
+    public void invalidateAll()
+    {
+        this.byName.invalidateAll();
+        this.byUUID.invalidateAll();
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("service", this.service).append("byName", this.byName.size()).append("byUUID", this.byUUID.size()).toString();
+    }
+}
@@ -76,22 +76,35 @@ public class YggdrasilSessionService implements SessionService
 {
     public static final int CONNECT_TIMEOUT = 15000;
 
-    private static final String BASE_URL       = "https://sessionserver.mojang.com/session/minecraft/";
-    private static final URL    JOIN_URL       = DioriteURLUtils.createURL(BASE_URL + "join");
-    private static final URL    CHECK_URL      = DioriteURLUtils.createURL(BASE_URL + "hasJoined");
-    private static final URL    PROFILE_URL    = DioriteURLUtils.createURL(BASE_URL + "profile/");
-    private static final String API_BASE_URL   = "https://api.mojang.com/";
-    private static final URL    NAMES_TO_UUIDS = DioriteURLUtils.createURL(API_BASE_URL + "profiles/minecraft");
+    public static final String BASE_URL     = "https://sessionserver.mojang.com/session/minecraft/";
+    public static final String API_BASE_URL = "https://api.mojang.com/";
 
     private final Gson gson = new GsonBuilder().registerTypeAdapter(UUID.class, new JsonUUIDAdapter(false)).registerTypeAdapter(ProfileSearchRequest.class, new ProfileSearchRequest.Serializer()).registerTypeAdapter(GameProfileImpl.class, new GameProfileImpl.Serializer()).registerTypeAdapter(PropertyMap.class, new PropertyMapSerializer()).registerTypeAdapter(ProfileSearchResultsResponse.class, new ProfileSearchResultsResponse.Serializer()).create();
     private final Proxy     proxy;
     private final String    clientToken;
     private final PublicKey publicKey;
+    private final URL       joinUrl;
+    private final URL       checkUrl;
+    private final URL       profileUrl;
+    private final URL       namesToUUIDsUrl;
 
-    public YggdrasilSessionService(final Proxy proxy, final String clientToken)
+    /**
+     * Construct session service using given servers, it can be used to connect to other servers than Mojang ones,
+     * like local server in tests.
+     *
+     * @param proxy       proxy to use.
+     * @param clientToken client token.
+     * @param baseUrl     base url of session server, like {@link #BASE_URL}.
+     * @param apiBaseUrl  base url of api server, like {@link #API_BASE_URL}.
+     */
+    public YggdrasilSessionService(final Proxy proxy, final String clientToken, final String baseUrl, final String apiBaseUrl)
     {
         this.proxy = proxy;
         this.clientToken = clientToken;
+        this.joinUrl = DioriteURLUtils.createURL(baseUrl + "join");
+        this.checkUrl = DioriteURLUtils.createURL(baseUrl + "hasJoined");
+        this.profileUrl = DioriteURLUtils.createURL(baseUrl + "profile/");
+        this.namesToUUIDsUrl = DioriteURLUtils.createURL(apiBaseUrl + "profiles/minecraft");
         try
         {
             //noinspection HardcodedFileSeparator
@@ -105,6 +118,11 @@ public class YggdrasilSessionService implements SessionService
         }
     }
 
+    public YggdrasilSessionService(final Proxy proxy, final String clientToken)
+    {
+        this(proxy, clientToken, BASE_URL, API_BASE_URL);
+    }
+
     public YggdrasilSessionService(final Proxy proxy)
     {
         this(proxy, UUID.randomUUID().toString());
@@ -128,7 +146,7 @@ public class YggdrasilSessionService implements SessionService
     @Override
     public CaseInsensitiveMap<GameProfile> getUUIDsFromUsernames(final String... names) throws AuthenticationException
     {
-        final ProfileSearchResultsResponse response = this.makeRequest(NAMES_TO_UUIDS, new ProfileSearchRequest(names), ProfileSearchResultsResponse.class);
+        final ProfileSearchResultsResponse response = this.makeRequest(this.namesToUUIDsUrl, new ProfileSearchRequest(names), ProfileSearchResultsResponse.class);
         if ((response != null) && (response.getProfiles() != null))
         {
             final GameProfileImpl[] results = response.getProfiles();
@@ -176,7 +194,7 @@ public class YggdrasilSessionService implements SessionService
     {
         try
         {
-            final URL url = new URL(PROFILE_URL, StringUtils.remove(uuid.toString(), '-') + "?unsigned=false");
+            final URL url = new URL(this.profileUrl, StringUtils.remove(uuid.toString(), '-') + "?unsigned=false");
             final ProfileResponse response = this.makeRequest(url, null, ProfileResponse.class);
             if ((response != null) && (response.getId() != null))
             {
@@ -212,7 +230,7 @@ public class YggdrasilSessionService implements SessionService
     @Override
     public void joinServer(final GameProfileImpl gameProfile, final String authenticationToken, final String serverId) throws AuthenticationException
     {
-        this.makeRequest(JOIN_URL, new JoinServerRequest(authenticationToken, gameProfile.getId(), serverId), Response.class);
+        this.makeRequest(this.joinUrl, new JoinServerRequest(authenticationToken, gameProfile.getId(), serverId), Response.class);
     }
 
     @Override
@@ -223,7 +241,7 @@ public class YggdrasilSessionService implements SessionService
         arguments.put("username", gameProfile.getName());
         arguments.put("serverId", serverID);
 
-        final URL url = DioriteURLUtils.createURL(CHECK_URL, DioriteURLUtils.buildQuery(arguments));
+        final URL url = DioriteURLUtils.createURL(this.checkUrl, DioriteURLUtils.buildQuery(arguments));
         try
         {
             final HasJoinedResponse response = this.makeRequest(url, null, HasJoinedResponse.class);
@@ -84,6 +84,10 @@ public class DioriteConfigImpl implements DioriteConfig
     @CfgIntDefault(Core.DEFAULT_PACKET_COMPRESSION_THRESHOLD)
     private int networkCompressionThreshold;
 
+    @CfgComment("Amount of bytes waiting to be sent to player, after which packets are sent before end of tick. Packets are always sent at end of tick, use 0 to send every packet immediately.")
+    @CfgIntDefault(32768)
+    private int networkFlushThreshold;
+
     @CfgComment("Amount of netty event loop threads.")
     @CfgByteDefault(4)
     private int nettyThreads;
@@ -92,6 +96,22 @@ public class DioriteConfigImpl implements DioriteConfig
     @CfgOnlineModeDefault(OnlineMode.TRUE)
     private OnlineMode onlineMode;
 
+    @CfgComment("Amount of threads used to authorize players with Mojang.")
+    @CfgIntDefault(4)
+    private int authThreads;
+
+    @CfgComment("Max amount of players waiting for authorization, when queue is full, new players wait in login state until there is free space.")
+    @CfgIntDefault(128)
+    private int authQueueSize;
+
+    @CfgComment("Time in seconds for which responses of Mojang session servers are cached. Use 0 to disable cache.")
+    @CfgIntDefault(60)
+    private int authCacheTime;
+
+    @CfgComment("Max amount of connections from single address in one second, additional connections are closed before they are handled. Use 0 to disable limit.")
+    @CfgIntDefault(10)
+    private int handshakeRateLimit;
+
     @CfgComment("The maximum number of players that can play on the server at the same time.")
     @CfgIntDefault(10)
     private int maxPlayers;
@@ -116,10 +136,26 @@ public class DioriteConfigImpl implements DioriteConfig
     @CfgIntDefault(8)
     private int viewDistance;
 
+    @CfgComment("Max amount of chunks sent to one player in one tick, chunks are also sent only when connection can accept more data. Closest chunks in front of player are sent first.")
+    @CfgIntDefault(8)
+    private int chunkSendRate;
+
+    @CfgComment("Max amount of modified chunks queued to save in one tick by autosave, so autosave is spread across many ticks. Use 0 to queue all chunks at once.")
+    @CfgIntDefault(32)
+    private int autosaveChunksPerTick;
+
     @CfgComment("How many threads are used by diorite to handle command, chat and tab-complete input.")
     @CfgIntDefault(2)
     private int inputThreadPoolSize;
 
+    @CfgComment("How many threads are used to tick worlds when there is more than one tick group, 0 means amount of available processors.")
+    @CfgIntDefault(0)
+    private int tickThreads;
+
+    @CfgComment("If tick groups should be automatically split and merged based on their tick times.")
+    @CfgBooleanDefault(true)
+    private boolean tickBalancing;
+
     @CfgComment("Path to file with administrators UUIDs/nicknames and settings. (Users that have most of permissions by default.)")
     @CfgStringDefault("adms.yml")
     private File administratorsFile;
@@ -217,6 +253,17 @@ public class DioriteConfigImpl implements DioriteConfig
         this.networkCompressionThreshold = networkCompressionThreshold;
     }
 
+    @Override
+    public int getNetworkFlushThreshold()
+    {
+        return this.networkFlushThreshold;
+    }
+
+    public void setNetworkFlushThreshold(final int networkFlushThreshold)
+    {
+        this.networkFlushThreshold = networkFlushThreshold;
+    }
+
     @Override
     public int getNettyThreads()
     {
@@ -240,6 +287,50 @@ public class DioriteConfigImpl implements DioriteConfig
         this.onlineMode = onlineMode;
     }
 
+    @Override
+    public int getAuthThreads()
+    {
+        return this.authThreads;
+    }
+
+    public void setAuthThreads(final int authThreads)
+    {
+        this.authThreads = authThreads;
+    }
+
+    @Override
+    public int getAuthQueueSize()
+    {
+        return this.authQueueSize;
+    }
+
+    public void setAuthQueueSize(final int authQueueSize)
+    {
+        this.authQueueSize = authQueueSize;
+    }
+
+    @Override
+    public int getAuthCacheTime()
+    {
+        return this.authCacheTime;
+    }
+
+    public void setAuthCacheTime(final int authCacheTime)
+    {
+        this.authCacheTime = authCacheTime;
+    }
+
+    @Override
+    public int getHandshakeRateLimit()
+    {
+        return this.handshakeRateLimit;
+    }
+
+    public void setHandshakeRateLimit(final int handshakeRateLimit)
+    {
+        this.handshakeRateLimit = handshakeRateLimit;
+    }
+
     @Override
     public int getMaxPlayers()
     {
@@ -311,6 +402,28 @@ public class DioriteConfigImpl implements DioriteConfig
         this.viewDistance = viewDistance;
     }
 
+    @Override
+    public int getChunkSendRate()
+    {
+        return this.chunkSendRate;
+    }
+
+    public void setChunkSendRate(final int chunkSendRate)
+    {
+        this.chunkSendRate = chunkSendRate;
+    }
+
+    @Override
+    public int getAutosaveChunksPerTick()
+    {
+        return this.autosaveChunksPerTick;
+    }
+
+    public void setAutosaveChunksPerTick(final int autosaveChunksPerTick)
+    {
+        this.autosaveChunksPerTick = autosaveChunksPerTick;
+    }
+
     @Override
     public int getInputThreadPoolSize()
     {
@@ -322,6 +435,28 @@ public class DioriteConfigImpl implements DioriteConfig
         this.inputThreadPoolSize = inputThreadPoolSize;
     }
 
+    @Override
+    public int getTickThreads()
+    {
+        return this.tickThreads;
+    }
+
+    public void setTickThreads(final int tickThreads)
+    {
+        this.tickThreads = tickThreads;
+    }
+
+    @Override
+    public boolean isTickBalancing()
+    {
+        return this.tickBalancing;
+    }
+
+    public void setTickBalancing(final boolean tickBalancing)
+    {
+        this.tickBalancing = tickBalancing;
+    }
+
     @Override
     public File getAdministratorsFile()
     {
@@ -441,10 +576,30 @@ public class DioriteConfigImpl implements DioriteConfig
         {
             return false;
         }
+        if (this.networkFlushThreshold != that.networkFlushThreshold)
+        {
+            return false;
+        }
         if (this.nettyThreads != that.nettyThreads)
         {
             return false;
         }
+        if (this.authThreads != that.authThreads)
+        {
+            return false;
+        }
+        if (this.authQueueSize != that.authQueueSize)
+        {
+            return false;
+        }
+        if (this.authCacheTime != that.authCacheTime)
+        {
+            return false;
+        }
+        if (this.handshakeRateLimit != that.handshakeRateLimit)
+        {
+            return false;
+        }
         if (this.maxPlayers != that.maxPlayers)
         {
             return false;
@@ -461,10 +616,26 @@ public class DioriteConfigImpl implements DioriteConfig
         {
             return false;
         }
+        if (this.chunkSendRate != that.chunkSendRate)
+        {
+            return false;
+        }
+        if (this.autosaveChunksPerTick != that.autosaveChunksPerTick)
+        {
+            return false;
+        }
         if (this.inputThreadPoolSize != that.inputThreadPoolSize)
         {
             return false;
         }
+        if (this.tickThreads != that.tickThreads)
+        {
+            return false;
+        }
+        if (this.tickBalancing != that.tickBalancing)
+        {
+            return false;
+        }
         if (this.whiteListEnabled != that.whiteListEnabled)
         {
             return false;
@@ -514,15 +685,24 @@ public class DioriteConfigImpl implements DioriteConfig
         result = (31 * result) + this.rconPort;
         result = (31 * result) + ((this.rconPassword != null) ? this.rconPassword.hashCode() : 0);
         result = (31 * result) + this.networkCompressionThreshold;
+        result = (31 * result) + this.networkFlushThreshold;
         result = (31 * result) + this.nettyThreads;
         result = (31 * result) + ((this.onlineMode != null) ? this.onlineMode.hashCode() : 0);
+        result = (31 * result) + this.authThreads;
+        result = (31 * result) + this.authQueueSize;
+        result = (31 * result) + this.authCacheTime;
+        result = (31 * result) + this.handshakeRateLimit;
         result = (31 * result) + this.maxPlayers;
         result = (31 * result) + this.playerIdleTimeout;
         result = (31 * result) + ((this.resourcePack != null) ? this.resourcePack.hashCode() : 0);
         result = (31 * result) + ((this.resourcePackHash != null) ? this.resourcePackHash.hashCode() : 0);
         result = (31 * result) + (this.useNativeTransport ? 1 : 0);
         result = (31 * result) + this.viewDistance;
+        result = (31 * result) + this.chunkSendRate;
+        result = (31 * result) + this.autosaveChunksPerTick;
         result = (31 * result) + this.inputThreadPoolSize;
+        result = (31 * result) + this.tickThreads;
+        result = (31 * result) + (this.tickBalancing ? 1 : 0);
         result = (31 * result) + ((this.administratorsFile != null) ? this.administratorsFile.hashCode() : 0);
         result = (31 * result) + (this.whiteListEnabled ? 1 : 0);
         result = (31 * result) + ((this.whiteListFile != null) ? this.whiteListFile.hashCode() : 0);
@@ -542,7 +722,7 @@ public class DioriteConfigImpl implements DioriteConfig
     @Override
     public String toString()
     {
-        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("hostname", this.hostname).append("port", this.port).append("queryPort", this.queryPort).append("rconPort", this.rconPort).append("rconPassword", this.rconPassword).append("networkCompressionThreshold", this.networkCompressionThreshold).append("onlineMode", this.onlineMode).append("maxPlayers", this.maxPlayers).append("playerIdleTimeout", this.playerIdleTimeout).append("resourcePack", this.resourcePack).append("resourcePackHash", this.resourcePackHash).append("useNativeTransport", this.useNativeTransport).append("viewDistance", this.viewDistance).append("inputThreadPoolSize", this.inputThreadPoolSize).append("administratorsFile", this.administratorsFile).append("whiteListEnabled", this.whiteListEnabled).append("whiteListFile", this.whiteListFile).append("motd", this.motd).append("worlds", this.worlds).toString();
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("hostname", this.hostname).append("port", this.port).append("queryPort", this.queryPort).append("rconPort", this.rconPort).append("rconPassword", this.rconPassword).append("networkCompressionThreshold", this.networkCompressionThreshold).append("networkFlushThreshold", this.networkFlushThreshold).append("onlineMode", this.onlineMode).append("authThreads", this.authThreads).append("authQueueSize", this.authQueueSize).append("authCacheTime", this.authCacheTime).append("handshakeRateLimit", this.handshakeRateLimit).append("maxPlayers", this.maxPlayers).append("playerIdleTimeout", this.playerIdleTimeout).append("resourcePack", this.resourcePack).append("resourcePackHash", this.resourcePackHash).append("useNativeTransport", this.useNativeTransport).append("viewDistance", this.viewDistance).append("chunkSendRate", this.chunkSendRate).append("autosaveChunksPerTick", this.autosaveChunksPerTick).append("inputThreadPoolSize", this.inputThreadPoolSize).append("tickThreads", this.tickThreads).append("tickBalancing", this.tickBalancing).append("administratorsFile", this.administratorsFile).append("whiteListEnabled", this.whiteListEnabled).append("whiteListFile", this.whiteListFile).append("motd", this.motd).append("worlds", this.worlds).toString();
     }
 
     private static WorldsConfigImpl defaultWorldsConfigImpl()
@@ -37,6 +37,9 @@ import java.util.Map;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
+import org.diorite.impl.world.chunk.ChunkManagerImpl;
+import org.diorite.impl.world.io.ChunkIOSettings;
+import org.diorite.impl.world.io.ChunkIOSettings.Durability;
 import org.diorite.Difficulty;
 import org.diorite.GameMode;
 import org.diorite.cfg.WorldsConfig;
@@ -232,6 +235,38 @@ public class WorldsConfigImpl implements WorldsConfig
         @CfgBooleanDefault(false)
         private boolean vanillaCompatible;
 
+        @CfgComment("If chunk sections should be saved in diorite format, as they are stored in memory, it makes saving and loading faster, but vanilla servers can't read such world. Ignored if world is vanilla compatible.")
+        @CfgBooleanDefault(false)
+        private boolean nativeChunkFormat;
+
+        @CfgComment("Amount of threads used to load and save chunks, if bigger than 1, region files are spread between multiple threads.")
+        @CfgIntDefault(1)
+        private int chunkIOThreads;
+
+        @CfgComment("When saved chunks are forced to disk: PER_CHUNK - after every chunk, PER_BATCH - when there is no more chunks to save or when flush interval elapsed, ON_CLOSE - only when region file is closed.")
+        @CfgDurabilityDefault(Durability.PER_BATCH)
+        private Durability chunkIODurability;
+
+        @CfgComment("Max time in milliseconds between region file flushes in PER_BATCH mode.")
+        @CfgIntDefault(ChunkIOSettings.DEFAULT_FLUSH_INTERVAL)
+        private int chunkIOFlushInterval;
+
+        @CfgComment("If region files should be memory mapped when reading chunks, it removes copying of chunk data, but uses more virtual memory.")
+        @CfgBooleanDefault(false)
+        private boolean chunkIOMemoryMapped;
+
+        @CfgComment("Compression level of saved chunks, from 0 (no compression) to 9 (smallest files, but slowest).")
+        @CfgIntDefault(ChunkIOSettings.DEFAULT_COMPRESSION_LEVEL)
+        private int chunkIOCompressionLevel;
+
+        @CfgComment("Amount of recently unloaded chunks kept in memory, so they don't need to be read from disk when loaded again soon.")
+        @CfgIntDefault(ChunkManagerImpl.DEFAULT_CACHE_SIZE)
+        private int chunkCacheSize;
+
+        @CfgComment("Time in seconds for which chunks that aren't used by players, spawn or plugins are kept loaded, so chunks on border of view distance aren't loaded and unloaded all the time.")
+        @CfgIntDefault(ChunkManagerImpl.DEFAULT_UNLOAD_DELAY)
+        private int chunkUnloadDelay;
+
         @CfgComment("Default gamemode for new players.")
         @CfgDelegateDefault("org.diorite.GameMode::SURVIVAL")
         private GameMode gamemode;
@@ -324,6 +359,92 @@ public class WorldsConfigImpl implements WorldsConfig
             return this.vanillaCompatible;
         }
 
+        @Override
+        public boolean isNativeChunkFormat()
+        {
+            return this.nativeChunkFormat;
+        }
+
+        public void setNativeChunkFormat(final boolean nativeChunkFormat)
+        {
+            this.nativeChunkFormat = nativeChunkFormat;
+        }
+
+        public int getChunkIOThreads()
+        {
+            return this.chunkIOThreads;
+        }
+
+        public void setChunkIOThreads(final int chunkIOThreads)
+        {
+            this.chunkIOThreads = chunkIOThreads;
+        }
+
+        public Durability getChunkIODurability()
+        {
+            return this.chunkIODurability;
+        }
+
+        public void setChunkIODurability(final Durability chunkIODurability)
+        {
+            this.chunkIODurability = chunkIODurability;
+        }
+
+        public int getChunkIOFlushInterval()
+        {
+            return this.chunkIOFlushInterval;
+        }
+
+        public void setChunkIOFlushInterval(final int chunkIOFlushInterval)
+        {
+            this.chunkIOFlushInterval = chunkIOFlushInterval;
+        }
+
+        public boolean isChunkIOMemoryMapped()
+        {
+            return this.chunkIOMemoryMapped;
+        }
+
+        public void setChunkIOMemoryMapped(final boolean chunkIOMemoryMapped)
+        {
+            this.chunkIOMemoryMapped = chunkIOMemoryMapped;
+        }
+
+        public int getChunkIOCompressionLevel()
+        {
+            return this.chunkIOCompressionLevel;
+        }
+
+        public void setChunkIOCompressionLevel(final int chunkIOCompressionLevel)
+        {
+            this.chunkIOCompressionLevel = chunkIOCompressionLevel;
+        }
+
+        public int getChunkCacheSize()
+        {
+            return this.chunkCacheSize;
+        }
+
+        public void setChunkCacheSize(final int chunkCacheSize)
+        {
+            this.chunkCacheSize = chunkCacheSize;
+        }
+
+        public int getChunkUnloadDelay()
+        {
+            return this.chunkUnloadDelay;
+        }
+
+        public void setChunkUnloadDelay(final int chunkUnloadDelay)
+        {
+            this.chunkUnloadDelay = chunkUnloadDelay;
+        }
+
+        public ChunkIOSettings getChunkIOSettings()
+        {
+            return new ChunkIOSettings(this.chunkIODurability, this.chunkIOFlushInterval, this.chunkIOMemoryMapped, this.chunkIOCompressionLevel);
+        }
+
         @Override
         public GameMode getGamemode()
         {
@@ -535,6 +656,38 @@ public class WorldsConfigImpl implements WorldsConfig
             {
                 return false;
             }
+            if (this.nativeChunkFormat != that.nativeChunkFormat)
+            {
+                return false;
+            }
+            if (this.chunkIOThreads != that.chunkIOThreads)
+            {
+                return false;
+            }
+            if (this.chunkIOFlushInterval != that.chunkIOFlushInterval)
+            {
+                return false;
+            }
+            if (this.chunkIODurability != that.chunkIODurability)
+            {
+                return false;
+            }
+            if (this.chunkIOMemoryMapped != that.chunkIOMemoryMapped)
+            {
+                return false;
+            }
+            if (this.chunkIOCompressionLevel != that.chunkIOCompressionLevel)
+            {
+                return false;
+            }
+            if (this.chunkCacheSize != that.chunkCacheSize)
+            {
+                return false;
+            }
+            if (this.chunkUnloadDelay != that.chunkUnloadDelay)
+            {
+                return false;
+            }
             if (this.forceGamemode != that.forceGamemode)
             {
                 return false;
@@ -611,6 +764,14 @@ public class WorldsConfigImpl implements WorldsConfig
             result = this.name.hashCode();
             result = (31 * result) + (this.enabled ? 1 : 0);
             result = (31 * result) + (this.vanillaCompatible ? 1 : 0);
+            result = (31 * result) + (this.nativeChunkFormat ? 1 : 0);
+            result = (31 * result) + this.chunkIOThreads;
+            result = (31 * result) + ((this.chunkIODurability != null) ? this.chunkIODurability.hashCode() : 0);
+            result = (31 * result) + this.chunkIOFlushInterval;
+            result = (31 * result) + (this.chunkIOMemoryMapped ? 1 : 0);
+            result = (31 * result) + this.chunkIOCompressionLevel;
+            result = (31 * result) + this.chunkCacheSize;
+            result = (31 * result) + this.chunkUnloadDelay;
             result = (31 * result) + this.gamemode.hashCode();
             result = (31 * result) + (this.forceGamemode ? 1 : 0);
             result = (31 * result) + this.difficulty.hashCode();
@@ -673,6 +834,14 @@ public class WorldsConfigImpl implements WorldsConfig
         HardcoreAction value();
     }
 
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.FIELD)
+    @CfgCustomDefault(Durability.class)
+    public @interface CfgDurabilityDefault
+    {
+        Durability value();
+    }
+
     @Override
     public String toString()
     {
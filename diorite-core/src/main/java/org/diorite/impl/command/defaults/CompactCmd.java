@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.command.defaults;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+import org.diorite.impl.command.SystemCommandImpl;
+import org.diorite.impl.world.WorldImpl;
+import org.diorite.impl.world.io.ChunkIOService;
+import org.diorite.impl.world.io.requests.RegionCompactRequest;
+import org.diorite.Diorite;
+import org.diorite.cfg.messages.DioriteMessages;
+import org.diorite.command.CommandPriority;
+import org.diorite.world.World;
+
+public class CompactCmd extends SystemCommandImpl
+{
+    public CompactCmd()
+    {
+        super("compact", Pattern.compile("(compact)(:(?<world>([a-z0-9_]*))|)", Pattern.CASE_INSENSITIVE), CommandPriority.LOW);
+        this.setDescription("Compacts region files of worlds");
+        this.setCommandExecutor((sender, command, label, matchedPattern, args) -> {
+            final Collection<World> worlds;
+            final String parWorld = matchedPattern.group("world");
+            if (parWorld == null)
+            {
+                worlds = new ArrayList<>(sender.getCore().getWorldsManager().getWorlds());
+            }
+            else
+            {
+                final World world = Diorite.getWorldsManager().getWorld(parWorld);
+                if (world == null)
+                {
+                    DioriteMessages.sendMessage(DioriteMessages.MSG_CMD_NO_WORLD, sender);
+                    return;
+                }
+                worlds = new ArrayList<>(1);
+                worlds.add(world);
+            }
+            sender.sendSimpleColoredMessage("&7Compacting region files of &3" + worlds.size() + "&7 world(s)...");
+            ForkJoinPool.commonPool().submit(() -> {
+                for (final World world : worlds)
+                {
+                    try
+                    {
+                        long reclaimed = 0;
+                        int failed = 0;
+                        final Collection<RegionCompactRequest> requests = ((WorldImpl) world).getChunkManager().getService().queueRegionsCompact(ChunkIOService.LOW_PRIORITY);
+                        for (final RegionCompactRequest request : requests)
+                        {
+                            final Integer result = request.await();
+                            if (result == null)
+                            {
+                                failed++;
+                                sender.sendSimpleColoredMessage("&cFailed to compact region &3" + request.getRegionX() + ", " + request.getRegionZ() + "&c of &3" + world.getName() + "&c: " + request.getError());
+                                continue;
+                            }
+                            reclaimed += result;
+                        }
+                        sender.sendSimpleColoredMessage("&7Compacted &3" + (requests.size() - failed) + "&7 regions of &3" + world.getName() + "&7, reclaimed &3" + (reclaimed << 2) + "&7 KiB" + ((failed == 0) ? "." : (", &c" + failed + "&7 regions failed.")));
+                    } catch (final Throwable e)
+                    {
+                        e.printStackTrace();
+                        sender.sendSimpleColoredMessage("&cFailed to compact region files of &3" + world.getName() + "&c: " + e);
+                    }
+                }
+            });
+        });
+    }
+}
@@ -32,6 +32,14 @@ import java.util.regex.Pattern;
 
 import org.diorite.impl.DioriteCore;
 import org.diorite.impl.command.SystemCommandImpl;
+import org.diorite.impl.entity.IPlayer;
+import org.diorite.impl.entity.PendingMovement;
+import org.diorite.impl.entity.tracker.EntityTrackers;
+import org.diorite.impl.scheduler.SyncQueue;
+import org.diorite.impl.world.WorldImpl;
+import org.diorite.impl.world.chunk.ChunkManagerImpl;
+import org.diorite.impl.world.tick.TickGroupImpl;
+import org.diorite.impl.world.tick.TickGroups.TickTime;
 import org.diorite.command.CommandPriority;
 import org.diorite.command.sender.CommandSender;
 
@@ -239,6 +247,51 @@ public class PerformanceMonitorCmd extends SystemCommandImpl
 //            sb.append("&7    Available Processors: &3").append(rt.availableProcessors()).append("\n");
             sb.append("&7  == &3Diorite &7==\n");
             sb.append("&7    Waiting input actions: &3").append(DioriteCore.getInstance().getInputThread().getActionsSize());
+            final SyncQueue syncQueue = DioriteCore.getInstance().getSyncQueue();
+            sb.append("\n&7    Waiting sync tasks: &3").append(syncQueue.getPendingTasks());
+            for (final Map.Entry<Thread, TickTime> entry : syncQueue.getDrainTimes().entrySet())
+            {
+                final TickTime time = entry.getValue();
+                sb.append("\n&7    Sync tasks of ").append(entry.getKey().getName()).append(": last: &3").append(TpsCmd.format.format(time.getLast() / 1_000_000.0));
+                sb.append("&7 ms, avg: &3").append(TpsCmd.format.format(time.getAverage() / 1_000_000.0));
+                sb.append("&7 ms, max: &3").append(TpsCmd.format.format(time.getMax() / 1_000_000.0)).append("&7 ms");
+            }
+            long updates = 0;
+            long coalesced = 0;
+            long rejected = 0;
+            for (final IPlayer player : DioriteCore.getInstance().getPlayersManager().getRawPlayers().values())
+            {
+                final PendingMovement movement = player.getPendingMovement();
+                updates += movement.getUpdates();
+                coalesced += movement.getCoalesced();
+                rejected += movement.getRejected();
+            }
+            sb.append("\n&7    Movement updates of online players: &3").append(updates).append("&7, coalesced: &3").append(coalesced).append("&7, rejected: &3").append(rejected);
+            sb.append("\n&7  == &3Tick groups &7==");
+            for (final Map.Entry<TickGroupImpl, TickTime> entry : DioriteCore.getInstance().getTicker().getTickTimes().entrySet())
+            {
+                final TickTime time = entry.getValue();
+                sb.append("\n&7    ").append(entry.getKey().getName()).append(": last: &3").append(TpsCmd.format.format(time.getLast() / 1_000_000.0));
+                sb.append("&7 ms, avg: &3").append(TpsCmd.format.format(time.getAverage() / 1_000_000.0));
+                sb.append("&7 ms, max: &3").append(TpsCmd.format.format(time.getMax() / 1_000_000.0)).append("&7 ms");
+            }
+            sb.append("\n&7  == &3Chunks &7==");
+            for (final WorldImpl world : DioriteCore.getInstance().getWorldsManager().getWorlds())
+            {
+                final ChunkManagerImpl cm = world.getChunkManager();
+                sb.append("\n&7    ").append(world.getName()).append(": &3").append(cm.getChunksCount()).append(" &7chunks (&3").append(cm.getChunksMemory() >> 10).append(" &7KiB)");
+                sb.append("&7, cached: &3").append(cm.getCachedChunksCount()).append(" &7chunks (&3").append(cm.getCachedChunksMemory() >> 10).append(" &7KiB)");
+                final long hits = cm.getMapChunkPacketHits();
+                final long total = hits + cm.getMapChunkPacketMisses();
+                sb.append("&7, packets: &3").append(total).append(" &7(hit rate: &3").append(TpsCmd.format.format((total == 0) ? 0 : ((hits * 100.0) / total))).append("&7%)");
+                sb.append("&7, loads: &3").append(cm.getChunkLoads()).append(" &7(&3").append(cm.getChunkRestores()).append(" &7from cache), unloads: &3").append(cm.getChunkUnloads());
+            }
+            sb.append("\n&7  == &3Entity trackers &7==");
+            for (final WorldImpl world : DioriteCore.getInstance().getWorldsManager().getWorlds())
+            {
+                final EntityTrackers trackers = world.getEntityTrackers();
+                sb.append("\n&7    ").append(world.getName()).append(": &3").append(trackers.size()).append(" &7trackers, &3").append(trackers.getSentPackets()).append(" &7packets in last tick");
+            }
         }
         sb.append('\n');
         sender.sendSimpleColoredMessage(sb.toString());
@@ -42,6 +42,7 @@ public final class RegisterDefaultCommands
 
         cmds.registerCommand(new BroadcastCmd());
         cmds.registerCommand(new ColoredConsoleCmd());
+        cmds.registerCommand(new CompactCmd());
         cmds.registerCommand(new FlyCmd());
         cmds.registerCommand(new GamemodeCmd());
         cmds.registerCommand(new GiveCmd());
@@ -26,10 +26,12 @@ package org.diorite.impl.connection;
 
 import javax.crypto.SecretKey;
 
+import java.io.IOException;
 import java.net.SocketAddress;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.google.common.collect.Queues;
 
@@ -40,6 +42,7 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 import org.diorite.impl.CoreMain;
 import org.diorite.impl.DioriteCore;
 import org.diorite.impl.connection.listeners.PacketPlayListener;
+import org.diorite.impl.connection.packets.BroadcastPacket;
 import org.diorite.impl.connection.packets.Packet;
 import org.diorite.impl.connection.packets.PacketCompression;
 import org.diorite.impl.connection.packets.PacketEncryptor;
@@ -51,10 +54,13 @@ import org.diorite.chat.component.BaseComponent;
 import org.diorite.chat.component.TextComponent;
 import org.diorite.chat.component.TranslatableComponent;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
@@ -63,6 +69,22 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
 {
     protected final DioriteCore core;
     protected final Queue<QueuedPacket> packetQueue = Queues.newConcurrentLinkedQueue();
+    /**
+     * Packets ({@link QueuedPacket}) and encoded packets ({@link ByteBuf}) waiting to be written by event loop, used
+     * only if packets are batched.
+     */
+    protected final Queue<Object>       outboundQueue  = Queues.newConcurrentLinkedQueue();
+    private final   AtomicBoolean       drainScheduled = new AtomicBoolean();
+    private final   Runnable            drainTask      = this::drainOutboundQueue;
+    private volatile boolean            flushRequested;
+    /**
+     * True when draining waits for listeners of written packet, only used by event loop.
+     */
+    private          boolean            drainBlocked;
+    /**
+     * Amount of pending bytes after which packets are flushed before end of tick, 0 if every packet is flushed.
+     */
+    protected final int            flushThreshold;
     protected final int            playerTimeout;
     protected       Channel        channel;
     protected       SocketAddress  address;
@@ -74,6 +96,7 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
     {
         this.core = core;
         this.playerTimeout = (int) TimeUnit.SECONDS.toMillis(this.core.getPlayerTimeout());
+        this.flushThreshold = Math.max(this.core.getConfig().getNetworkFlushThreshold(), 0);
     }
 
     private long lastKeepAlive = System.currentTimeMillis();
@@ -135,7 +158,135 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
             return;
         }
         this.nextPacket();
-        this.channel.flush();
+        this.flush();
+    }
+
+    /**
+     * Returns true if packets are written to channel in batches, and flushed once per tick or when there is enough
+     * pending bytes.
+     *
+     * @return true if packets are batched.
+     */
+    public boolean isBatching()
+    {
+        return this.flushThreshold > 0;
+    }
+
+    /**
+     * Flush all packets sent to this connection, invoked at end of every tick.
+     */
+    public void flush()
+    {
+        if (! this.isChannelOpen())
+        {
+            return;
+        }
+        if (this.isBatching())
+        {
+            this.flushRequested = true;
+            this.scheduleDrain();
+        }
+        else
+        {
+            this.channel.flush();
+        }
+    }
+
+    private void scheduleDrain()
+    {
+        if (this.drainScheduled.compareAndSet(false, true))
+        {
+            this.channel.eventLoop().execute(this.drainTask);
+        }
+    }
+
+    /**
+     * Write all queued packets to channel, executed by event loop.
+     */
+    private void drainOutboundQueue()
+    {
+        // packets added while draining will schedule next drain.
+        this.drainScheduled.set(false);
+        if (this.drainBlocked)
+        {
+            return;
+        }
+        if (! this.isChannelOpen())
+        {
+            this.releaseOutboundQueue();
+            return;
+        }
+        Object msg;
+        while ((msg = this.outboundQueue.poll()) != null)
+        {
+            if (msg instanceof ByteBuf)
+            {
+                final ChannelHandlerContext context = this.channel.pipeline().context("sizer");
+                if (context == null)
+                {
+                    ((ByteBuf) msg).release();
+                    continue;
+                }
+                context.write(msg).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+            }
+            else
+            {
+                final QueuedPacket queuedPacket = (QueuedPacket) msg;
+                final Packet<?> packet = queuedPacket.getPacket();
+                final EnumProtocol protocol = EnumProtocol.getByPacketClass(packet);
+                if (protocol != this.channel.attr(this.core.getConnectionHandler().getProtocolKey()).get())
+                {
+                    this.setProtocol(protocol);
+                }
+                final ChannelFuture channelFuture = this.channel.write(packet);
+                if (queuedPacket.getListeners() != null)
+                {
+                    channelFuture.addListeners(queuedPacket.getListeners());
+                }
+                channelFuture.addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+                if ((queuedPacket.getListeners() != null) || (protocol != EnumProtocol.PLAY))
+                {
+                    // listeners might change pipeline (compression, encryption, protocol), so next packets can't be
+                    // encoded before they are invoked.
+                    this.channel.flush();
+                    if (! channelFuture.isDone())
+                    {
+                        this.drainBlocked = true;
+                        channelFuture.addListener(future -> {
+                            this.drainBlocked = false;
+                            this.drainOutboundQueue();
+                        });
+                        return;
+                    }
+                    continue;
+                }
+            }
+            final ChannelOutboundBuffer outboundBuffer = this.channel.unsafe().outboundBuffer();
+            if ((outboundBuffer != null) && (outboundBuffer.totalPendingWriteBytes() >= this.flushThreshold))
+            {
+                this.channel.flush();
+            }
+        }
+        if (this.flushRequested)
+        {
+            this.flushRequested = false;
+            this.channel.flush();
+        }
+    }
+
+    /**
+     * Release encoded packets that will never be written, as channel is closed.
+     */
+    private void releaseOutboundQueue()
+    {
+        Object msg;
+        while ((msg = this.outboundQueue.poll()) != null)
+        {
+            if (msg instanceof ByteBuf)
+            {
+                ((ByteBuf) msg).release();
+            }
+        }
     }
 
     public void sendPackets(final Packet<?>[] packets)
@@ -150,7 +301,7 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
             this.nextPacket();
             for (final Packet<?> packet : packets)
             {
-                this.sendPacket(packet, null);
+                this.sendPacket(packet, null, false);
             }
         }
         else
@@ -163,6 +314,17 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
     }
 
     public void sendPacket(final Packet<?> packet)
+    {
+        this.sendPacket(packet, false);
+    }
+
+    /**
+     * Send packet to this connection.
+     *
+     * @param packet packet to send.
+     * @param flush  if packet should be flushed immediately, even if packets are batched.
+     */
+    public void sendPacket(final Packet<?> packet, final boolean flush)
     {
         if (this.closed)
         {
@@ -172,7 +334,7 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
         if (this.isChannelOpen())
         {
             this.nextPacket();
-            this.sendPacket(packet, null);
+            this.sendPacket(packet, null, flush);
         }
         else
         {
@@ -191,7 +353,7 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
         if (this.isChannelOpen())
         {
             this.nextPacket();
-            this.sendPacket(packet, ArrayUtils.add(listeners, 0, listener));
+            this.sendPacket(packet, ArrayUtils.add(listeners, 0, listener), true);
         }
         else
         {
@@ -199,7 +361,7 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
         }
     }
 
-    private void sendPacket(final Packet<?> packet, final GenericFutureListener<? extends Future<? super Void>>[] listeners)
+    private void sendPacket(final Packet<?> packet, final GenericFutureListener<? extends Future<? super Void>>[] listeners, final boolean flush)
     {
         if (this.closed)
         {
@@ -210,6 +372,17 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
         {
             this.sentAlive = System.currentTimeMillis();
         }
+        if (this.isBatching())
+        {
+            // listeners might wait for packet to be sent, and protocol changes must be sent before client expect them.
+            this.outboundQueue.add(new QueuedPacket(packet, listeners));
+            if (flush || (listeners != null) || (EnumProtocol.getByPacketClass(packet) != EnumProtocol.PLAY))
+            {
+                this.flushRequested = true;
+            }
+            this.scheduleDrain();
+            return;
+        }
         final EnumProtocol ep1 = EnumProtocol.getByPacketClass(packet);
         final EnumProtocol ep2 = this.channel.attr(this.core.getConnectionHandler().getProtocolKey()).get();
         if (ep2 != ep1)
@@ -246,6 +419,57 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
         }
     }
 
+    /**
+     * Send packet that is already encoded, so only encryption is done by this connection. <br>
+     * If this connection isn't ready to use it, packet is sent in normal way.
+     *
+     * @param packet packet to send.
+     */
+    public void sendPacket(final BroadcastPacket packet)
+    {
+        if (this.closed)
+        {
+            this.handleClosed();
+            return;
+        }
+        final ChannelHandlerContext context = this.isChannelOpen() ? this.channel.pipeline().context("sizer") : null;
+        if ((context == null) || (this.channel.attr(this.core.getConnectionHandler().getProtocolKey()).get() != packet.getProtocol()))
+        {
+            this.sendPacket(packet.getPacket());
+            return;
+        }
+        final ChannelHandler compression = this.channel.pipeline().get("compression");
+        final ByteBuf data;
+        try
+        {
+            data = packet.retainEncoded((compression instanceof PacketCompression) ? ((PacketCompression) compression).getThreshold() : - 1);
+        } catch (final IOException e)
+        {
+            e.printStackTrace();
+            return;
+        }
+        if (data == null) // packet was released in meantime, send it in normal way.
+        {
+            this.sendPacket(packet.getPacket());
+            return;
+        }
+        this.nextPacket();
+        // encoded packet skips codec, compression and sizer, as it is written from context of sizer.
+        if (this.isBatching())
+        {
+            this.outboundQueue.add(data);
+            this.scheduleDrain();
+        }
+        else if (this.channel.eventLoop().inEventLoop())
+        {
+            context.writeAndFlush(data).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+        }
+        else
+        {
+            this.channel.eventLoop().execute(() -> context.writeAndFlush(data).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE));
+        }
+    }
+
     private void nextPacket()
     {
         if (this.closed)
@@ -258,7 +482,7 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
             while (! this.packetQueue.isEmpty())
             {
                 final QueuedPacket queuedpacket = this.packetQueue.poll();
-                this.sendPacket(queuedpacket.getPacket(), queuedpacket.getListeners());
+                this.sendPacket(queuedpacket.getPacket(), queuedpacket.getListeners(), queuedpacket.getListeners() != null);
             }
         }
     }
@@ -342,6 +566,7 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
     @Override
     public void channelInactive(final ChannelHandlerContext channelHandlerContext)
     {
+        this.releaseOutboundQueue();
         if (this.closed)
         {
             this.handleClosed();
@@ -373,6 +598,17 @@ public abstract class CoreNetworkManager extends SimpleChannelInboundHandler<Pac
         return this.channel == null;
     }
 
+    /**
+     * Returns true if channel of this connection can accept more data without exceeding write buffer of netty,
+     * used to throttle sending of big packets like chunks.
+     *
+     * @return true if more data can be sent.
+     */
+    public boolean isWritable()
+    {
+        return this.isChannelOpen() && this.channel.isWritable();
+    }
+
     public boolean isChannelOpen()
     {
         return (this.channel != null) && this.channel.isOpen();
@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.connection.packets;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import org.diorite.impl.connection.EnumProtocol;
+import org.diorite.impl.connection.EnumProtocolDirection;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Packet sent to many connections, it is serialized, compressed and prefixed with size only once, and the same buffer is
+ * written to each connection, so only encryption is done for every connection. <br>
+ * Buffers are reference counted, {@link #release()} must be invoked after packet was sent to all connections.
+ */
+public final class BroadcastPacket
+{
+    /**
+     * Minimal amount of receivers for which broadcast packet should be used.
+     */
+    public static final int MIN_RECEIVERS = 2;
+
+    private static final ThreadLocal<Deflater> deflater = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<byte[]>   bytes    = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    private final Packet<?>    packet;
+    private final EnumProtocol protocol;
+    private       ByteBuf      data; // packet id and fields
+    private       ByteBuf      uncompressed;
+    private       ByteBuf      compressed;
+    private       int          compressionThreshold;
+    private       boolean      released;
+
+    public BroadcastPacket(final Packet<?> packet)
+    {
+        this.packet = packet;
+        this.protocol = EnumProtocol.getByPacketClass(packet);
+    }
+
+    public Packet<?> getPacket()
+    {
+        return this.packet;
+    }
+
+    public EnumProtocol getProtocol()
+    {
+        return this.protocol;
+    }
+
+    private ByteBuf getData() throws IOException
+    {
+        if (this.data == null)
+        {
+            final Integer id = this.protocol.getPacketID(EnumProtocolDirection.CLIENTBOUND, this.packet);
+            if (id == null)
+            {
+                throw new IOException("Can't serialize unregistered packet, " + this.packet);
+            }
+            final PacketDataSerializer dataSerializer = new PacketDataSerializer(PooledByteBufAllocator.DEFAULT.heapBuffer(Packet.INITIAL_CAPACITY));
+            dataSerializer.writeVarInt(id);
+            if (this.packet.getCachedData() != null)
+            {
+                this.packet.writePacket(dataSerializer);
+            }
+            else
+            {
+                // fields are written directly, so packet don't keep own copy of data.
+                this.packet.writeFields(dataSerializer);
+            }
+            this.data = dataSerializer;
+        }
+        return this.data;
+    }
+
+    /**
+     * Release raw packet data after it was framed, it is serialized again if packet is needed with other compression.
+     */
+    private void releaseData()
+    {
+        if (this.data != null)
+        {
+            this.data.release();
+            this.data = null;
+        }
+    }
+
+    /**
+     * Returns encoded packet, ready to be encrypted and sent to connection. <br>
+     * Returned buffer is shared, receiver must use duplicate of it and retain it.
+     *
+     * @param compressionThreshold compression threshold of connection, or -1 if connection don't use compression.
+     *
+     * @return encoded packet.
+     *
+     * @throws IOException if packet can't be serialized.
+     */
+    public synchronized ByteBuf getEncoded(final int compressionThreshold) throws IOException
+    {
+        final ByteBuf data = this.getData();
+        if (compressionThreshold < 0)
+        {
+            if (this.uncompressed == null)
+            {
+                this.uncompressed = PooledByteBufAllocator.DEFAULT.ioBuffer(data.readableBytes() + 3);
+                PacketSizer.writeSized(data, this.uncompressed);
+                this.releaseData();
+            }
+            return this.uncompressed;
+        }
+        if ((this.compressed != null) && (this.compressionThreshold != compressionThreshold))
+        {
+            this.compressed.release();
+            this.compressed = null;
+        }
+        if (this.compressed == null)
+        {
+            final ByteBuf compressedData = PooledByteBufAllocator.DEFAULT.heapBuffer(data.readableBytes() + 5);
+            try
+            {
+                PacketCompression.compress(data.duplicate(), compressedData, compressionThreshold, deflater.get(), bytes.get());
+                this.compressed = PooledByteBufAllocator.DEFAULT.ioBuffer(compressedData.readableBytes() + 3);
+                PacketSizer.writeSized(compressedData, this.compressed);
+                this.compressionThreshold = compressionThreshold;
+            } finally
+            {
+                compressedData.release();
+                this.releaseData();
+            }
+        }
+        return this.compressed;
+    }
+
+    /**
+     * Returns retained duplicate of encoded packet, see {@link #getEncoded(int)}. <br>
+     * Receiver must release returned buffer, or pass it to netty that will release it after write.
+     *
+     * @param compressionThreshold compression threshold of connection, or -1 if connection don't use compression.
+     *
+     * @return retained encoded packet, or null if this packet was already released.
+     *
+     * @throws IOException if packet can't be serialized.
+     */
+    public synchronized ByteBuf retainEncoded(final int compressionThreshold) throws IOException
+    {
+        if (this.released)
+        {
+            return null;
+        }
+        return this.getEncoded(compressionThreshold).duplicate().retain();
+    }
+
+    /**
+     * Release all encoded buffers, connections that still didn't write this packet keep their own references.
+     */
+    public synchronized void release()
+    {
+        this.released = true;
+        this.releaseData();
+        if (this.uncompressed != null)
+        {
+            this.uncompressed.release();
+            this.uncompressed = null;
+        }
+        if (this.compressed != null)
+        {
+            this.compressed.release();
+            this.compressed = null;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("packet", this.packet).append("protocol", this.protocol).toString();
+    }
+}
@@ -166,31 +166,47 @@ public class PacketCompression extends PacketByteBufByteToMessageCodec
         }
     }
 
-    @Override
-    protected void encode(final ChannelHandlerContext channelHandlerContext, final ByteBuf srcByteBuf, final ByteBuf byteBuf)
+    /**
+     * Write given data to target buffer in compressed packet format, data is only compressed if its size isn't lower than threshold.
+     *
+     * @param srcByteBuf source data, all readable bytes are read.
+     * @param byteBuf    target buffer.
+     * @param threshold  compression threshold.
+     * @param deflater   deflater to use, it is reset after use.
+     * @param bytes      temporary buffer used by deflater.
+     */
+    public static void compress(final ByteBuf srcByteBuf, final ByteBuf byteBuf, final int threshold, final Deflater deflater, final byte[] bytes)
     {
         final int i = srcByteBuf.readableBytes();
         final PacketDataSerializer localPacketDataSerializer = new PacketDataSerializer(byteBuf);
-        if (i < this.threshold)
+        if (i < threshold)
         {
             localPacketDataSerializer.writeVarInt(0);
             localPacketDataSerializer.writeBytes(srcByteBuf);
+            return;
         }
-        else
-        {
-            final byte[] arrayOfByte = new byte[i];
-            srcByteBuf.readBytes(arrayOfByte);
+        final byte[] arrayOfByte = new byte[i];
+        srcByteBuf.readBytes(arrayOfByte);
 
-            localPacketDataSerializer.writeVarInt(arrayOfByte.length);
+        localPacketDataSerializer.writeVarInt(arrayOfByte.length);
 
-            this.deflater.setInput(arrayOfByte, 0, i);
-            this.deflater.finish();
-            while (! this.deflater.finished())
-            {
-                final int j = this.deflater.deflate(this.bytes);
-                localPacketDataSerializer.writeBytes(this.bytes, 0, j);
-            }
+        deflater.setInput(arrayOfByte, 0, i);
+        deflater.finish();
+        while (! deflater.finished())
+        {
+            final int j = deflater.deflate(bytes);
+            localPacketDataSerializer.writeBytes(bytes, 0, j);
+        }
+        deflater.reset();
+    }
 
+    @Override
+    protected void encode(final ChannelHandlerContext channelHandlerContext, final ByteBuf srcByteBuf, final ByteBuf byteBuf)
+    {
+        final int i = srcByteBuf.readableBytes();
+        compress(srcByteBuf, byteBuf, this.threshold, this.deflater, this.bytes);
+        if (i >= this.threshold)
+        {
             if (i > 127)
             {
                 final int sizesKey = getKey(i);
@@ -210,7 +226,6 @@ public class PacketCompression extends PacketByteBufByteToMessageCodec
 //                    CoreMain.debug("Updated " + sizesKey + ", to: " + newSize + ", bytes: " + byteBuf.readableBytes());
                 }
             }
-            this.deflater.reset();
         }
     }
 
@@ -249,6 +264,11 @@ public class PacketCompression extends PacketByteBufByteToMessageCodec
         }
     }
 
+    public int getThreshold()
+    {
+        return this.threshold;
+    }
+
     public void setThreshold(final int threshold)
     {
         this.threshold = threshold;
@@ -39,6 +39,17 @@ public class PacketSizer extends PacketByteBufByteToMessageCodec
 {
     @Override
     protected void encode(final ChannelHandlerContext context, final ByteBuf srcByteBuf, final ByteBuf byteBuf)
+    {
+        writeSized(srcByteBuf, byteBuf);
+    }
+
+    /**
+     * Write readable bytes of source buffer to target buffer, prefixed by their size.
+     *
+     * @param srcByteBuf source data, reader index isn't changed.
+     * @param byteBuf    target buffer.
+     */
+    public static void writeSized(final ByteBuf srcByteBuf, final ByteBuf byteBuf)
     {
         final int readableBytes = srcByteBuf.readableBytes();
         final int neededBytes = DioriteMathUtils.varintSize(readableBytes);
@@ -35,6 +35,7 @@ import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboun
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundDisconnect;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntity;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityDestroy;
+import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityHeadRotation;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityLook;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityMetadata;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityTeleport;
@@ -136,6 +137,8 @@ public interface PacketPlayClientboundListener extends PacketPlayListener
 
     void handle(PacketPlayClientboundEntityLook packet);
 
+    void handle(PacketPlayClientboundEntityHeadRotation packet);
+
     void handle(PacketPlayClientboundRelEntityMoveLook packet);
 
     void handle(PacketPlayClientboundEntityTeleport packet);
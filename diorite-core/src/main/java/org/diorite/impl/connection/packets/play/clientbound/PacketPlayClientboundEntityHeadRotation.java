@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.connection.packets.play.clientbound;
+
+import java.io.IOException;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import org.diorite.impl.connection.EnumProtocol;
+import org.diorite.impl.connection.EnumProtocolDirection;
+import org.diorite.impl.connection.packets.PacketClass;
+import org.diorite.impl.connection.packets.PacketDataSerializer;
+import org.diorite.impl.connection.packets.play.PacketPlayClientboundListener;
+
+@PacketClass(id = 0x34, protocol = EnumProtocol.PLAY, direction = EnumProtocolDirection.CLIENTBOUND, size = 6)
+public class PacketPlayClientboundEntityHeadRotation extends PacketPlayClientbound
+{
+    private int  entityId; // ~5 bytes
+    private byte headRotation; // 1 byte
+
+    public PacketPlayClientboundEntityHeadRotation()
+    {
+    }
+
+    public PacketPlayClientboundEntityHeadRotation(final int entityId, final byte headRotation)
+    {
+        this.entityId = entityId;
+        this.headRotation = headRotation;
+    }
+
+    @Override
+    public void readPacket(final PacketDataSerializer data) throws IOException
+    {
+        this.entityId = data.readVarInt();
+        this.headRotation = data.readByte();
+    }
+
+    @Override
+    public void writeFields(final PacketDataSerializer data) throws IOException
+    {
+        data.writeVarInt(this.entityId);
+        data.writeByte(this.headRotation);
+    }
+
+    @Override
+    public void handle(final PacketPlayClientboundListener listener)
+    {
+        listener.handle(this);
+    }
+
+    public int getEntityId()
+    {
+        return this.entityId;
+    }
+
+    public void setEntityId(final int entityId)
+    {
+        this.entityId = entityId;
+    }
+
+    public byte getHeadRotation()
+    {
+        return this.headRotation;
+    }
+
+    public void setHeadRotation(final byte headRotation)
+    {
+        this.headRotation = headRotation;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("entityId", this.entityId).append("headRotation", this.headRotation).toString();
+    }
+}
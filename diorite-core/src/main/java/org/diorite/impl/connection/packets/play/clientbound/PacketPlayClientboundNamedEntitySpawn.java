@@ -50,6 +50,7 @@ public class PacketPlayClientboundNamedEntitySpawn extends PacketPlayClientbound
     private byte                             yaw; // 1 byte
     private byte                             pitch; // 1 byte
     private Iterable<EntityMetadataEntry<?>> metadata; // ~not more than 128 bytes
+    private byte[]                           encodedMetadata; // cached metadata block, used instead of metadata if present
 
     public PacketPlayClientboundNamedEntitySpawn()
     {
@@ -66,8 +67,8 @@ public class PacketPlayClientboundNamedEntitySpawn extends PacketPlayClientbound
         this.yaw = (byte) ((entity.getYaw() * 256.0F) / 360.0F);
         this.pitch = (byte) ((entity.getPitch() * 256.0F) / 360.0F);
 
-        // TODO pasre metadata from entity, or get it if possible
         this.metadata = entity.getMetadata().getEntries();
+        this.encodedMetadata = entity.getMetadata().getEncodedEntries();
     }
 
     @Override
@@ -93,7 +94,14 @@ public class PacketPlayClientboundNamedEntitySpawn extends PacketPlayClientbound
         data.writeInt(this.z);
         data.writeByte(this.yaw);
         data.writeByte(this.pitch);
-        data.writeEntityMetadata(this.metadata);
+        if (this.encodedMetadata != null)
+        {
+            data.writeBytes(this.encodedMetadata);
+        }
+        else
+        {
+            data.writeEntityMetadata(this.metadata);
+        }
     }
 
     @Override
@@ -180,6 +188,7 @@ public class PacketPlayClientboundNamedEntitySpawn extends PacketPlayClientbound
     public void setMetadata(final Iterable<EntityMetadataEntry<?>> metadata)
     {
         this.metadata = metadata;
+        this.encodedMetadata = null;
     }
 
     @Override
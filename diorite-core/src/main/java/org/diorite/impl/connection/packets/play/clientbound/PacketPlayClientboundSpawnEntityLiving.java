@@ -58,6 +58,7 @@ public class PacketPlayClientboundSpawnEntityLiving extends PacketPlayClientboun
     private short                            movY; // 2 bytes
     private short                            movZ; // 2 bytes
     private Iterable<EntityMetadataEntry<?>> metadata; // ~not more than 128 bytes
+    private byte[]                           encodedMetadata; // cached metadata block, used instead of metadata if present
 
     public PacketPlayClientboundSpawnEntityLiving()
     {
@@ -82,8 +83,8 @@ public class PacketPlayClientboundSpawnEntityLiving extends PacketPlayClientboun
         this.movX = (short) (vel.x * 8000); // IDK why 8000
         this.movY = (short) (vel.y * 8000);
         this.movZ = (short) (vel.z * 8000);
-        // TODO pasre metadata from entity, or get it if possible
         this.metadata = entity.getMetadata().getEntries();
+        this.encodedMetadata = entity.getMetadata().getEncodedEntries();
     }
 
     @Override
@@ -120,7 +121,14 @@ public class PacketPlayClientboundSpawnEntityLiving extends PacketPlayClientboun
         data.writeShort(this.movX);
         data.writeShort(this.movY);
         data.writeShort(this.movZ);
-        data.writeEntityMetadata(this.metadata);
+        if (this.encodedMetadata != null)
+        {
+            data.writeBytes(this.encodedMetadata);
+        }
+        else
+        {
+            data.writeEntityMetadata(this.metadata);
+        }
     }
 
     @Override
@@ -247,6 +255,7 @@ public class PacketPlayClientboundSpawnEntityLiving extends PacketPlayClientboun
     public void setMetadata(final Iterable<EntityMetadataEntry<?>> metadata)
     {
         this.metadata = metadata;
+        this.encodedMetadata = null;
     }
 
     @Override
@@ -25,6 +25,7 @@
 package org.diorite.impl.connection.packets.status.clientbound;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -47,11 +48,14 @@ import org.diorite.chat.component.serialize.ComponentSerializer;
 import org.diorite.chat.component.serialize.TextComponentSerializer;
 import org.diorite.chat.component.serialize.TranslatableComponentSerializer;
 
+import io.netty.handler.codec.EncoderException;
+
 @PacketClass(id = 0x00, protocol = EnumProtocol.STATUS, direction = EnumProtocolDirection.CLIENTBOUND, size = 512)
 public class PacketStatusClientboundServerInfo extends PacketStatusClientbound
 {
     private static final Gson GSON = new GsonBuilder().registerTypeAdapter(ServerPingServerData.class, new ServerPingServerData.Serializer()).registerTypeAdapter(ServerPingPlayerSample.class, new ServerPingPlayerSample.Serializer()).registerTypeAdapter(ServerPing.class, new ServerPing.Serializer()).registerTypeAdapter(BaseComponent.class, new ComponentSerializer()).registerTypeAdapter(TextComponent.class, new TextComponentSerializer()).registerTypeAdapter(TranslatableComponent.class, new TranslatableComponentSerializer()).create();
     private ServerPing serverPing;
+    private byte[]     encodedServerPing; // json of server ping encoded in UTF-8, if present it is used instead of serializing ping again.
 
     public PacketStatusClientboundServerInfo()
     {
@@ -62,18 +66,54 @@ public class PacketStatusClientboundServerInfo extends PacketStatusClientbound
         this.serverPing = serverPing;
     }
 
+    /**
+     * Construct new packet with already encoded server ping, see {@link #encode(ServerPing)}, encoded data isn't
+     * copied and must not be changed later.
+     *
+     * @param serverPing        server ping.
+     * @param encodedServerPing server ping encoded by {@link #encode(ServerPing)}.
+     */
+    public PacketStatusClientboundServerInfo(final ServerPing serverPing, final byte[] encodedServerPing)
+    {
+        this.serverPing = serverPing;
+        this.encodedServerPing = encodedServerPing;
+    }
+
     @Override
     public void readPacket(final PacketDataSerializer data) throws IOException
     {
         this.serverPing = GSON.fromJson(data.readText(Short.MAX_VALUE), ServerPing.class);
+        this.encodedServerPing = null;
     }
 
     @Override
     public void writeFields(final PacketDataSerializer data) throws IOException
     {
+        if (this.encodedServerPing != null)
+        {
+            data.writeByteWord(this.encodedServerPing);
+            return;
+        }
         data.writeText(GSON.toJson(this.serverPing));
     }
 
+    /**
+     * Serialize given server ping to json and encode it, so it can be reused by many packets.
+     *
+     * @param serverPing server ping to encode.
+     *
+     * @return json of server ping encoded in UTF-8.
+     */
+    public static byte[] encode(final ServerPing serverPing)
+    {
+        final byte[] bytes = GSON.toJson(serverPing).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE)
+        {
+            throw new EncoderException("Server ping too big (was " + bytes.length + " bytes encoded, max " + Short.MAX_VALUE + ")");
+        }
+        return bytes;
+    }
+
     @Override
     public void handle(final PacketStatusClientboundListener listener)
     {
@@ -88,6 +128,7 @@ public class PacketStatusClientboundServerInfo extends PacketStatusClientbound
     public void setServerPing(final ServerPing serverPing)
     {
         this.serverPing = serverPing;
+        this.encodedServerPing = null;
     }
 
     @Override
@@ -43,6 +43,13 @@ public interface IPlayer extends IHuman, Player
 
     PlayerChunksImpl getPlayerChunks();
 
+    /**
+     * Returns latest movement received from client, applied on next tick of player.
+     *
+     * @return pending movement of player.
+     */
+    PendingMovement getPendingMovement();
+
     @Override
     PlayerInventoryImpl getInventory();
 
@@ -0,0 +1,224 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.entity;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Latest movement of player received from client and not yet applied. <br>
+ * Network thread only overwrites this state, and tick thread of player applies it once per tick, so packets received
+ * between ticks are coalesced to single update, without creating any sync tasks.
+ */
+public class PendingMovement
+{
+    public static final double MAX_COORDINATE = 3.0E7; // same limit as vanilla, more than max size of world border
+    public static final float  MAX_PITCH      = 90;
+
+    private static final int POSITION = 1;
+    private static final int ROTATION = 2;
+
+    private int    changes; // mask of pending changes
+    private double x;
+    private double y;
+    private double z;
+    private float  yaw;
+    private float  pitch;
+    private long   updates;
+    private long   coalesced;
+    private long   rejected;
+
+    public synchronized void setPosition(final double x, final double y, final double z)
+    {
+        this.onUpdate(POSITION);
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public synchronized void setRotation(final float yaw, final float pitch)
+    {
+        this.onUpdate(ROTATION);
+        this.yaw = yaw;
+        this.pitch = pitch;
+    }
+
+    public synchronized void setPositionAndRotation(final double x, final double y, final double z, final float yaw, final float pitch)
+    {
+        this.onUpdate(POSITION | ROTATION);
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.yaw = yaw;
+        this.pitch = pitch;
+    }
+
+    private void onUpdate(final int change)
+    {
+        this.updates++;
+        if ((this.changes & change) != 0)
+        {
+            this.coalesced++;
+        }
+        this.changes |= change;
+    }
+
+    /**
+     * Apply pending movement to given player, must be invoked from tick thread of player.
+     *
+     * @param player player to move.
+     */
+    public void apply(final IPlayer player)
+    {
+        int changes;
+        final double x, y, z;
+        final float yaw, pitch;
+        synchronized (this)
+        {
+            changes = this.changes;
+            if (changes == 0)
+            {
+                return;
+            }
+            this.changes = 0;
+            x = this.x;
+            y = this.y;
+            z = this.z;
+            yaw = this.yaw;
+            pitch = this.pitch;
+        }
+        if (((changes & POSITION) != 0) && ! this.isValidPosition(player, x, y, z))
+        {
+            changes &= ~ POSITION;
+        }
+        if (((changes & ROTATION) != 0) && ! this.isValidRotation(player, yaw, pitch))
+        {
+            changes &= ~ ROTATION;
+        }
+        if (((changes & POSITION) != 0) && (player.getX() == x) && (player.getY() == y) && (player.getZ() == z))
+        {
+            changes &= ~ POSITION;
+        }
+        if (((changes & ROTATION) != 0) && (player.getYaw() == yaw) && (player.getPitch() == pitch))
+        {
+            changes &= ~ ROTATION;
+        }
+        switch (changes)
+        {
+            case POSITION:
+                player.setPosition(x, y, z);
+                break;
+            case ROTATION:
+                player.setRotation(yaw, pitch);
+                break;
+            case POSITION | ROTATION:
+                player.setPositionAndRotation(x, y, z, yaw, pitch);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Check if player can move to given position, invalid positions are ignored.
+     *
+     * @param player player to check.
+     * @param x      new x coordinate.
+     * @param y      new y coordinate.
+     * @param z      new z coordinate.
+     *
+     * @return true if player can move to given position.
+     */
+    protected boolean isValidPosition(final IPlayer player, final double x, final double y, final double z)
+    {
+        if (Double.isFinite(x) && Double.isFinite(y) && Double.isFinite(z) && (Math.abs(x) < MAX_COORDINATE) && (Math.abs(z) < MAX_COORDINATE))
+        {
+            return true;
+        }
+        synchronized (this)
+        {
+            this.rejected++;
+        }
+        return false;
+    }
+
+    /**
+     * Check if player can rotate to given rotation, invalid rotations are ignored.
+     *
+     * @param player player to check.
+     * @param yaw    new yaw.
+     * @param pitch  new pitch.
+     *
+     * @return true if player can rotate to given rotation.
+     */
+    protected boolean isValidRotation(final IPlayer player, final float yaw, final float pitch)
+    {
+        if (Float.isFinite(yaw) && Float.isFinite(pitch) && (Math.abs(pitch) <= MAX_PITCH))
+        {
+            return true;
+        }
+        synchronized (this)
+        {
+            this.rejected++;
+        }
+        return false;
+    }
+
+    /**
+     * Returns amount of received movement updates.
+     *
+     * @return amount of received movement updates.
+     */
+    public synchronized long getUpdates()
+    {
+        return this.updates;
+    }
+
+    /**
+     * Returns amount of movement updates overwritten by newer ones before they were applied.
+     *
+     * @return amount of coalesced movement updates.
+     */
+    public synchronized long getCoalesced()
+    {
+        return this.coalesced;
+    }
+
+    /**
+     * Returns amount of movement updates ignored by validation.
+     *
+     * @return amount of rejected movement updates.
+     */
+    public synchronized long getRejected()
+    {
+        return this.rejected;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("changes", this.changes).append("updates", this.updates).append("coalesced", this.coalesced).append("rejected", this.rejected).toString();
+    }
+}
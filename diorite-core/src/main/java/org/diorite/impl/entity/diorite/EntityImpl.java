@@ -43,10 +43,11 @@ import org.diorite.impl.entity.IEntity;
 import org.diorite.impl.entity.meta.EntityMetadata;
 import org.diorite.impl.entity.meta.entry.EntityMetadataBooleanEntry;
 import org.diorite.impl.entity.meta.entry.EntityMetadataByteEntry;
-import org.diorite.impl.entity.meta.entry.EntityMetadataEntry;
 import org.diorite.impl.entity.meta.entry.EntityMetadataIntEntry;
 import org.diorite.impl.entity.meta.entry.EntityMetadataStringEntry;
 import org.diorite.impl.entity.tracker.BaseTracker;
+import org.diorite.impl.scheduler.ISynchronizable;
+import org.diorite.impl.scheduler.SyncMailbox;
 import org.diorite.impl.world.WorldImpl;
 import org.diorite.impl.world.chunk.ChunkImpl;
 import org.diorite.ILocation;
@@ -62,7 +63,7 @@ import org.diorite.utils.math.geometry.EntityBoundingBox;
 import org.diorite.utils.others.Resetable;
 import org.diorite.world.chunk.Chunk;
 
-abstract class EntityImpl extends GameObjectImpl implements IEntity
+abstract class EntityImpl extends GameObjectImpl implements IEntity, ISynchronizable
 {
     static final double PHYSIC_GRAVITY_CONST_1 = 0.98D;
     static final double PHYSIC_GRAVITY_CONST_2 = 0.08D;
@@ -72,6 +73,7 @@ abstract class EntityImpl extends GameObjectImpl implements IEntity
     final            DioriteCore       core;
     private          WorldImpl         world;
     private volatile Thread            lastTickThread;
+    private final    SyncMailbox       mailbox = new SyncMailbox(this);
     private          EntityBoundingBox aabb;
     private          int               id;
     protected        EntityMetadata    metadata;
@@ -308,7 +310,7 @@ abstract class EntityImpl extends GameObjectImpl implements IEntity
     public void setMetadata(final EntityMetadata metadata)
     {
         this.metadata = metadata;
-        metadata.getEntries().forEach(EntityMetadataEntry::setDirty);
+        metadata.setAllDirty();
     }
 
     @Override
@@ -504,6 +506,12 @@ abstract class EntityImpl extends GameObjectImpl implements IEntity
         return this.lastTickThread;
     }
 
+    @Override
+    public SyncMailbox getMailbox()
+    {
+        return this.mailbox;
+    }
+
     @Override
     public void doTick(final int tps)
     {
@@ -44,6 +44,7 @@ import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboun
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundWorldParticles;
 import org.diorite.impl.entity.IItem;
 import org.diorite.impl.entity.IPlayer;
+import org.diorite.impl.entity.PendingMovement;
 import org.diorite.impl.entity.tracker.BaseTracker;
 import org.diorite.impl.world.WorldBorderImpl;
 import org.diorite.impl.world.chunk.ChunkImpl;
@@ -74,6 +75,7 @@ class PlayerImpl extends HumanImpl implements IPlayer
 
     private final CoreNetworkManager networkManager;
     private final PlayerChunksImpl   playerChunks;
+    private final PendingMovement    pendingMovement = new PendingMovement();
     private       byte               viewDistance;
     private       byte               renderDistance;
     private       Locale             preferedLocale;
@@ -122,6 +124,10 @@ class PlayerImpl extends HumanImpl implements IPlayer
     @Override
     public void doTick(final int tps)
     {
+        if (this.pendingMovement != null)
+        {
+            this.pendingMovement.apply(this);
+        }
         super.doTick(tps);
         if (this.playerChunks == null) // sometimes it is null on first tick o.O
         {
@@ -208,6 +214,12 @@ class PlayerImpl extends HumanImpl implements IPlayer
         return this.playerChunks;
     }
 
+    @Override
+    public PendingMovement getPendingMovement()
+    {
+        return this.pendingMovement;
+    }
+
     @Override
     public boolean isVisibleChunk(final int x, final int z)
     {
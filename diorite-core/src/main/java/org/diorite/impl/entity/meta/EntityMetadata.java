@@ -26,13 +26,17 @@ package org.diorite.impl.entity.meta;
 
 import javax.vecmath.Vector3f;
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
+import org.diorite.impl.connection.packets.PacketDataSerializer;
 import org.diorite.impl.entity.meta.entry.EntityMetadataBlockLocationEntry;
 import org.diorite.impl.entity.meta.entry.EntityMetadataBooleanEntry;
 import org.diorite.impl.entity.meta.entry.EntityMetadataByteEntry;
@@ -50,57 +54,154 @@ import org.diorite.chat.component.BaseComponent;
 import org.diorite.inventory.item.ItemStack;
 import org.diorite.material.Material;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
 public class EntityMetadata
 {
     public static final int END_MARKER = 0xff;
 
-    private final EntityMetadataEntry<?>[] data;
+    private static final int BITS_PER_WORD = 64;
+    private static final int WORD_SHIFT    = 6;
+
+    private final    EntityMetadataEntry<?>[]             data;
+    private final    AtomicLongArray                      dirty; // bit per index, set when entry must be send on next update tick
+    private final    AtomicInteger                        entriesVersion = new AtomicInteger(); // incremented after entry is added
+    private final    AtomicInteger                        version        = new AtomicInteger(); // incremented after any entry is added or changed
+    private volatile Cached<List<EntityMetadataEntry<?>>> entries; // non-null entries in index order, valid for single entries version
+    private volatile Cached<byte[]>                       encoded; // all entries encoded with end marker, valid for single version
 
     public EntityMetadata(final int size)
     {
         this.data = new EntityMetadataEntry<?>[size];
+        this.dirty = new AtomicLongArray(((size + BITS_PER_WORD) - 1) >> WORD_SHIFT);
     }
 
     public void add(final EntityMetadataEntry<?> entry)
     {
         this.data[entry.getIndex()] = entry;
+        this.entriesVersion.incrementAndGet();
+        this.setDirty(entry);
+    }
+
+    private void setDirty(final EntityMetadataEntry<?> entry)
+    {
+        final int index = entry.getIndex();
         entry.setDirty();
+        // entries may be changed from other threads while tracker is collecting them, so bit must be set atomically.
+        final int word = index >> WORD_SHIFT;
+        final long bit = 1L << index;
+        long current;
+        do
+        {
+            current = this.dirty.get(word);
+            if ((current & bit) != 0)
+            {
+                break;
+            }
+        } while (! this.dirty.compareAndSet(word, current, current | bit));
+        this.version.incrementAndGet();
     }
 
-    public Collection<EntityMetadataEntry<?>> getOutdatedEntries()
+    /**
+     * Mark all entries as outdated, so they will be send again on next update tick.
+     */
+    public void setAllDirty()
     {
-        final Collection<EntityMetadataEntry<?>> result = new HashSet<>(this.data.length);
         for (final EntityMetadataEntry<?> entry : this.data)
         {
-            if ((entry != null) && entry.isDirty())
+            if (entry != null)
             {
-                result.add(entry);
+                this.setDirty(entry);
             }
         }
-        return result;
+    }
+
+    /**
+     * @return true if any entry was changed since last {@link #popOutdatedEntries()}
+     */
+    public boolean isDirty()
+    {
+        for (int i = 0, length = this.dirty.length(); i < length; i++)
+        {
+            if (this.dirty.get(i) != 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int countDirty()
+    {
+        int count = 0;
+        for (int i = 0, length = this.dirty.length(); i < length; i++)
+        {
+            count += Long.bitCount(this.dirty.get(i));
+        }
+        return count;
+    }
+
+    public List<EntityMetadataEntry<?>> getOutdatedEntries()
+    {
+        return this.collectOutdated(false);
     }
 
     /**
      * WARN: this method will mark all entires as updated again
      *
-     * @return outdated entires of metadata.
+     * @return outdated entires of metadata in index order, empty immutable list if nothing changed.
      */
-    public Collection<EntityMetadataEntry<?>> popOutdatedEntries()
+    public List<EntityMetadataEntry<?>> popOutdatedEntries()
     {
-        final Collection<EntityMetadataEntry<?>> result = new HashSet<>(this.data.length);
-        for (final EntityMetadataEntry<?> entry : this.data)
+        return this.collectOutdated(true);
+    }
+
+    private List<EntityMetadataEntry<?>> collectOutdated(final boolean clean)
+    {
+        final int count = this.countDirty();
+        if (count == 0)
+        {
+            return Collections.emptyList();
+        }
+        final List<EntityMetadataEntry<?>> result = new ArrayList<>(count);
+        for (int i = 0, length = this.dirty.length(); i < length; i++)
         {
-            if ((entry != null) && entry.setClean())
+            // word is cleared in same atomic operation, so bits set after this point are kept for next update.
+            long word = clean ? this.dirty.getAndSet(i, 0) : this.dirty.get(i);
+            while (word != 0)
             {
+                final EntityMetadataEntry<?> entry = this.data[(i << WORD_SHIFT) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+                if (entry == null)
+                {
+                    continue;
+                }
+                if (clean)
+                {
+                    entry.setClean();
+                }
                 result.add(entry);
             }
         }
         return result;
     }
 
-    public Collection<EntityMetadataEntry<?>> getEntries()
+    /**
+     * Returned list is cached and shared, it must not be modified.
+     *
+     * @return all entries of metadata in index order.
+     */
+    public List<EntityMetadataEntry<?>> getEntries()
     {
-        final Collection<EntityMetadataEntry<?>> result = new HashSet<>(this.data.length);
+        // version is read before entries, so list built while entry is added is never used after this call.
+        final int version = this.entriesVersion.get();
+        final Cached<List<EntityMetadataEntry<?>>> cached = this.entries;
+        if ((cached != null) && (cached.version == version))
+        {
+            return cached.value;
+        }
+        List<EntityMetadataEntry<?>> result = new ArrayList<>(this.data.length);
         for (final EntityMetadataEntry<?> entry : this.data)
         {
             if (entry != null)
@@ -108,6 +209,38 @@ public class EntityMetadata
                 result.add(entry);
             }
         }
+        result = Collections.unmodifiableList(result);
+        this.entries = new Cached<>(version, result);
+        return result;
+    }
+
+    /**
+     * Returns all entries encoded in packet format with end marker, ready to be written to spawn packets.
+     * Encoded block is cached until any entry is changed. Returned array must not be modified.
+     *
+     * @return encoded metadata block.
+     */
+    public byte[] getEncodedEntries()
+    {
+        // version is read before entries are encoded, so block encoded while entry is changed is never used again.
+        final int version = this.version.get();
+        final Cached<byte[]> cached = this.encoded;
+        if ((cached != null) && (cached.version == version))
+        {
+            return cached.value;
+        }
+        final byte[] result;
+        final ByteBuf buf = Unpooled.buffer(this.data.length << 2);
+        try
+        {
+            new PacketDataSerializer(buf).writeEntityMetadata(this.getEntries());
+            result = new byte[buf.readableBytes()];
+            buf.readBytes(result);
+        } finally
+        {
+            buf.release();
+        }
+        this.encoded = new Cached<>(version, result);
         return result;
     }
 
@@ -123,7 +256,7 @@ public class EntityMetadata
             throw new IllegalArgumentException("Metadata type mismatch excepted byte but found: " + entry);
         }
         ((EntityMetadataByteEntry) entry).setValue(value);
-        entry.setDirty();
+        this.setDirty(entry);
     }
 
     public void setInt(final byte index, final int value)
@@ -134,7 +267,7 @@ public class EntityMetadata
             throw new IllegalArgumentException("Metadata type mismatch excepted int but found: " + entry);
         }
         ((EntityMetadataIntEntry) entry).setValue(value);
-        entry.setDirty();
+        this.setDirty(entry);
     }
 
     public void setFloat(final byte index, final float value)
@@ -145,7 +278,7 @@ public class EntityMetadata
             throw new IllegalArgumentException("Metadata type mismatch excepted float but found: " + entry);
         }
         ((EntityMetadataFloatEntry) entry).setValue(value);
-        entry.setDirty();
+        this.setDirty(entry);
     }
 
     public void setBoolean(final byte index, final int flagIndex, final boolean bool)
@@ -162,7 +295,7 @@ public class EntityMetadata
             {
                 e.setValue((byte) (e.getValue() & ~ (1 << flagIndex)));
             }
-            e.setDirty();
+            this.setDirty(e);
             return;
         }
         if (entry instanceof EntityMetadataIntEntry)
@@ -176,7 +309,7 @@ public class EntityMetadata
             {
                 e.setValue((byte) (e.getValue() & ~ (1 << flagIndex)));
             }
-            e.setDirty();
+            this.setDirty(e);
             return;
         }
         throw new IllegalArgumentException("Metadata type mismatch excepted byte or int but found: " + entry);
@@ -189,14 +322,14 @@ public class EntityMetadata
         {
             final EntityMetadataByteEntry e = (EntityMetadataByteEntry) entry;
             e.setValue((byte) (e.getValue() ^ (1 << flagIndex)));
-            e.setDirty();
+            this.setDirty(e);
             return;
         }
         if (entry instanceof EntityMetadataIntEntry)
         {
             final EntityMetadataIntEntry e = (EntityMetadataIntEntry) entry;
             e.setValue((byte) (e.getValue() ^ (1 << flagIndex)));
-            e.setDirty();
+            this.setDirty(e);
             return;
         }
         throw new IllegalArgumentException("Metadata type mismatch excepted byte or int but found: " + entry);
@@ -209,12 +342,12 @@ public class EntityMetadata
         if (entry instanceof EntityMetadataByteEntry)
         {
             ((EntityMetadataByteEntry) entry).setValue(value ? 1 : 0);
-            entry.setDirty();
+            this.setDirty(entry);
         }
         else if (entry instanceof EntityMetadataBooleanEntry)
         {
             ((EntityMetadataBooleanEntry) entry).setValue(value);
-            entry.setDirty();
+            this.setDirty(entry);
         }
         else throw new IllegalArgumentException("Metadata type mismatch excepted boolean but found: " + entry);
     }
@@ -228,7 +361,7 @@ public class EntityMetadata
         }
         final EntityMetadataBooleanEntry boolEntry = (EntityMetadataBooleanEntry) entry;
         boolEntry.setValue(! boolEntry.getValue());
-        entry.setDirty();
+        this.setDirty(entry);
     }
 
     public void setString(final byte index, final String value)
@@ -240,7 +373,7 @@ public class EntityMetadata
         }
         //noinspection OverlyStrongTypeCast instanceof will block it anyway.
         ((EntityMetadataStringEntry) entry).setData(value);
-        entry.setDirty();
+        this.setDirty(entry);
     }
 
     public void setChatComponent(final byte index, final BaseComponent value)
@@ -252,7 +385,7 @@ public class EntityMetadata
         }
         //noinspection OverlyStrongTypeCast instanceof will block it anyway.
         ((EntityMetadataChatEntry) entry).setData(value);
-        entry.setDirty();
+        this.setDirty(entry);
     }
 
     public void setItemStack(final byte index, final ItemStack value)
@@ -264,7 +397,7 @@ public class EntityMetadata
         }
         //noinspection OverlyStrongTypeCast instanceof will block it anyway.
         ((EntityMetadataItemStackEntry) entry).setData(value);
-        entry.setDirty();
+        this.setDirty(entry);
     }
 
     public void setBlockLocation(final byte index, final BlockLocation value)
@@ -276,7 +409,7 @@ public class EntityMetadata
         }
         //noinspection OverlyStrongTypeCast instanceof will block it anyway.
         ((EntityMetadataBlockLocationEntry) entry).setData(value);
-        entry.setDirty();
+        this.setDirty(entry);
     }
 
     public void setMaterial(final byte index, final Material value)
@@ -288,7 +421,7 @@ public class EntityMetadata
         }
         //noinspection OverlyStrongTypeCast instanceof will block it anyway.
         ((EntityMetadataMaterialEntry) entry).setData(value);
-        entry.setDirty();
+        this.setDirty(entry);
     }
 
     public void setVector3F(final byte index, final Vector3f value)
@@ -300,7 +433,7 @@ public class EntityMetadata
         }
         //noinspection OverlyStrongTypeCast instanceof will block it anyway.
         ((EntityMetadataVector3FEntry) entry).setData(value);
-        entry.setDirty();
+        this.setDirty(entry);
     }
 
     public void setUUID(final byte index, final UUID value)
@@ -312,7 +445,7 @@ public class EntityMetadata
         }
         //noinspection OverlyStrongTypeCast instanceof will block it anyway.
         ((EntityMetadataUUIDEntry) entry).setData(value);
-        entry.setDirty();
+        this.setDirty(entry);
     }
 
     /*
@@ -683,6 +816,21 @@ public class EntityMetadata
         return this.getVector3F((byte) index);
     }
 
+    /**
+     * Cached value with version of metadata that it was built from.
+     */
+    private static final class Cached<T>
+    {
+        private final int version;
+        private final T   value;
+
+        private Cached(final int version, final T value)
+        {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -32,51 +32,92 @@ import java.util.Iterator;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
+import org.diorite.impl.connection.packets.BroadcastPacket;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientbound;
+import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityHeadRotation;
+import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityLook;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityMetadata;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityTeleport;
+import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundRelEntityMove;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundRelEntityMoveLook;
 import org.diorite.impl.entity.IEntity;
-import org.diorite.impl.entity.IPlayer;
-import org.diorite.impl.entity.meta.entry.EntityMetadataEntry;
+import org.diorite.impl.entity.meta.EntityMetadata;
 import org.diorite.utils.collections.sets.ConcurrentSet;
 
 @SuppressWarnings({"ObjectEquality"})
 public abstract class BaseTracker<T extends IEntity>
 {
-    protected final T      tracker;
-    protected final int    id;
-    protected       double xLoc;
-    protected       double yLoc;
-    protected       double zLoc;
-    protected final float  yaw;
-    protected final float  pitch;
-    protected final float  headRot;
-    protected       float  velX;
-    protected       float  velY;
-    protected       float  velZ;
+    /**
+     * Amount of ticks between teleport packets, sent even if entity can be moved by relative move packets, to correct
+     * any client side errors.
+     */
+    public static final int TELEPORT_INTERVAL = 400;
+
+    protected final T       tracker;
+    protected final int     id;
+    // last location sent to players, as fixed-point numbers used by packets.
+    protected       int     xLoc;
+    protected       int     yLoc;
+    protected       int     zLoc;
+    protected       byte    yaw;
+    protected       byte    pitch;
+    protected       byte    headRot;
+    protected       boolean onGround;
+    protected       float   velX;
+    protected       float   velY;
+    protected       float   velZ;
 
     protected boolean isMoving;
     protected boolean forceLocationUpdate;
+    protected int     ticksToTeleport;
 
-    protected final Collection<IPlayer> tracked = new ConcurrentSet<>(5, .3F, 3);
+    /**
+     * Amount of packets sent to players by this tracker, since last {@link #pollSentPackets()}.
+     */
+    protected int sentPackets;
+
+    protected final Collection<PlayerTracker> tracked = new ConcurrentSet<>(5, .3F, 3);
+
+    /**
+     * Players that received spawn packets of entity since last tick of this tracker, spawn packets contain current
+     * location of entity, so relative movement must not be sent to them.
+     */
+    protected final Collection<PlayerTracker> spawned = new ConcurrentSet<>(5, .3F, 3);
+
+    /**
+     * Cell of entity in {@link EntityTrackers}, updated every tick.
+     */
+    long cell = EntityTrackers.NO_CELL;
 
     public BaseTracker(final T entity)
     {
         this.tracker = entity;
         this.id = entity.getId();
-        this.xLoc = entity.getX();
-        this.yLoc = entity.getY();
-        this.zLoc = entity.getZ();
-        this.yaw = entity.getYaw();
-        this.pitch = entity.getPitch();
-        this.headRot = entity.getHeadPitch();
+        this.xLoc = toFixedPoint(entity.getX());
+        this.yLoc = toFixedPoint(entity.getY());
+        this.zLoc = toFixedPoint(entity.getZ());
+        this.yaw = toAngle(entity.getYaw());
+        this.pitch = toAngle(entity.getPitch());
+        this.headRot = toAngle(entity.getHeadPitch());
+        this.onGround = entity.isOnGround();
         final Vector3f vel = entity.getVelocity();
         this.velX = vel.x;
         this.velY = vel.y;
         this.velZ = vel.z;
     }
 
+    @SuppressWarnings("MagicNumber")
+    private static int toFixedPoint(final double coordinate)
+    {
+        return (int) (coordinate * 32);
+    }
+
+    @SuppressWarnings("MagicNumber")
+    private static byte toAngle(final float angle)
+    {
+        return (byte) ((angle * 256.0F) / 360.0F);
+    }
+
     public T getTracker()
     {
         return this.tracker;
@@ -92,72 +133,177 @@ public abstract class BaseTracker<T extends IEntity>
         this.forceLocationUpdate = true;
     }
 
+    /**
+     * Returns amount of packets sent to players by this tracker since last invocation of this method.
+     *
+     * @return amount of sent packets.
+     */
+    public int pollSentPackets()
+    {
+        final int sent = this.sentPackets;
+        this.sentPackets = 0;
+        return sent;
+    }
+
     private boolean first = true;
 
-    public void tick(final int tps, final Iterable<IPlayer> players)
+    public void tick(final int tps)
     {
-        if (this.first)
+        if (this.tracker.getId() == - 1)
         {
-            this.first = false;
-            this.xLoc = this.tracker.getX();
-            this.yLoc = this.tracker.getY();
-            this.zLoc = this.tracker.getZ();
-            final Vector3f vel = this.tracker.getVelocity();
-            this.velX = vel.x;
-            this.velY = vel.y;
-            this.velZ = vel.z;
-            this.updatePlayers(players);
-            this.sendToAllExceptOwn(new PacketPlayClientboundEntityTeleport(this.tracker));
+            this.tracked.forEach(p -> p.getTracker().removeEntityFromView(this));
+            this.spawned.clear();
             return;
         }
-        double deltaX = 0;
-        double deltaY = 0;
-        double deltaZ = 0;
-        this.isMoving = this.forceLocationUpdate || (this.velY != 0) || (this.velZ != 0) || (this.velX != 0);
-//        if (this.isMoving) // TODO: rethink
+
+        final int x = toFixedPoint(this.tracker.getX());
+        final int y = toFixedPoint(this.tracker.getY());
+        final int z = toFixedPoint(this.tracker.getZ());
+        final byte yaw = toAngle(this.tracker.getYaw());
+        final byte pitch = toAngle(this.tracker.getPitch());
+        final byte headRot = toAngle(this.tracker.getHeadPitch());
+        final boolean onGround = this.tracker.isOnGround();
+        final Vector3f vel = this.tracker.getVelocity();
+        this.velX = vel.x;
+        this.velY = vel.y;
+        this.velZ = vel.z;
+
+        // deltas are computed from last sent location, so rounding errors don't accumulate.
+        final int deltaX = x - this.xLoc;
+        final int deltaY = y - this.yLoc;
+        final int deltaZ = z - this.zLoc;
+        final boolean moved = (deltaX != 0) || (deltaY != 0) || (deltaZ != 0) || (onGround != this.onGround);
+        final boolean rotated = (yaw != this.yaw) || (pitch != this.pitch);
+        final boolean headRotated = this.first || (headRot != this.headRot);
+        this.isMoving = moved || rotated;
+
+        if (this.first || this.forceLocationUpdate || (--this.ticksToTeleport <= 0) || ! isRelative(deltaX) || ! isRelative(deltaY) || ! isRelative(deltaZ))
         {
+            this.first = false;
             this.forceLocationUpdate = false;
-            deltaX = this.tracker.getX() - this.xLoc;
-            deltaY = this.tracker.getY() - this.yLoc;
-            deltaZ = this.tracker.getZ() - this.zLoc;
-            this.xLoc = this.tracker.getX();
-            this.yLoc = this.tracker.getY();
-            this.zLoc = this.tracker.getZ();
-            final Vector3f vel = this.tracker.getVelocity();
-            this.velX = vel.x;
-            this.velY = vel.y;
-            this.velZ = vel.z;
-            this.updatePlayers(players);
+            this.ticksToTeleport = TELEPORT_INTERVAL;
+            this.sendToAllExceptOwn(new PacketPlayClientboundEntityTeleport(this.id, x, y, z, yaw, pitch, onGround));
         }
-        if (this.tracker.getId() == - 1)
+        else if (moved && rotated)
+        {
+            this.sendToAll(new PacketPlayClientboundRelEntityMoveLook(this.id, (byte) deltaX, (byte) deltaY, (byte) deltaZ, yaw, pitch, onGround), this.spawned);
+        }
+        else if (moved)
         {
-            this.tracked.forEach(p -> p.removeEntityFromView(this));
+            this.sendToAll(new PacketPlayClientboundRelEntityMove(this.id, (byte) deltaX, (byte) deltaY, (byte) deltaZ, onGround), this.spawned);
         }
+        else if (rotated)
+        {
+            this.sendToAllExceptOwn(new PacketPlayClientboundEntityLook(this.id, yaw, pitch, onGround));
+        }
+        if (headRotated)
+        {
+            this.sendToAllExceptOwn(new PacketPlayClientboundEntityHeadRotation(this.id, headRot));
+        }
+        this.xLoc = x;
+        this.yLoc = y;
+        this.zLoc = z;
+        this.yaw = yaw;
+        this.pitch = pitch;
+        this.headRot = headRot;
+        this.onGround = onGround;
+        this.spawned.clear();
+
+        // meta update, dirty bitmask check first so clean metadata does not allocate anything.
+        final EntityMetadata meta = this.tracker.getMetadata();
+        if ((meta != null) && meta.isDirty())
+        {
+            this.sendToAll(new PacketPlayClientboundEntityMetadata(this.tracker.getId(), meta.popOutdatedEntries()));
+        }
+
+    }
 
-//        if (this.isMoving && ! this.tracked.isEmpty()) // TODO: rethink
+    private static boolean isRelative(final int delta)
+    {
+        return (delta >= Byte.MIN_VALUE) && (delta <= Byte.MAX_VALUE);
+    }
+
+    public void sendToAll(final PacketPlayClientbound packet)
+    {
+        final int size = this.tracked.size();
+        this.sentPackets += size;
+        if (size < BroadcastPacket.MIN_RECEIVERS)
         {
-            if ((deltaX < 4) && (deltaX > - 4) && (deltaY < 4) && (deltaY > - 4) && (deltaZ < 4) && (deltaZ > - 4))
+            this.tracked.forEach(p -> this.sendPacket(p, packet));
+            return;
+        }
+        final BroadcastPacket broadcastPacket = new BroadcastPacket(packet);
+        try
+        {
+            this.tracked.forEach(p -> p.getTracker().getNetworkManager().sendPacket(broadcastPacket));
+        } finally
+        {
+            broadcastPacket.release();
+        }
+    }
+
+    /**
+     * Send packet to all players tracking this entity, except given ones.
+     *
+     * @param packet packet to send.
+     * @param except players that should not receive packet.
+     */
+    public void sendToAll(final PacketPlayClientbound packet, final Collection<PlayerTracker> except)
+    {
+        if (except.isEmpty())
+        {
+            this.sendToAll(packet);
+            return;
+        }
+        if ((this.tracked.size() - except.size()) < BroadcastPacket.MIN_RECEIVERS)
+        {
+            for (final PlayerTracker p : this.tracked)
             {
-                this.sendToAllExceptOwn(new PacketPlayClientboundRelEntityMoveLook(this.tracker, deltaX, deltaY, deltaZ));
+                if (! except.contains(p))
+                {
+                    this.sentPackets++;
+                    this.sendPacket(p, packet);
+                }
             }
-            else
+            return;
+        }
+        final BroadcastPacket broadcastPacket = new BroadcastPacket(packet);
+        try
+        {
+            for (final PlayerTracker p : this.tracked)
             {
-                this.sendToAllExceptOwn(new PacketPlayClientboundEntityTeleport(this.tracker));
+                if (! except.contains(p))
+                {
+                    this.sentPackets++;
+                    p.getTracker().getNetworkManager().sendPacket(broadcastPacket);
+                }
             }
-        }
-
-        // meta update
-        final Collection<EntityMetadataEntry<?>> meta = this.tracker.getMetadata().popOutdatedEntries();
-        if ((meta != null) && ! meta.isEmpty())
+        } finally
         {
-            this.sendToAll(new PacketPlayClientboundEntityMetadata(this.tracker, meta));
+            broadcastPacket.release();
         }
+    }
 
+    /**
+     * Send packet to single player, used for packets that aren't shared by multiple players.
+     *
+     * @param player player to send packet to.
+     * @param packet packet to send.
+     */
+    protected void sendPacket(final PlayerTracker player, final PacketPlayClientbound packet)
+    {
+        player.getTracker().getNetworkManager().sendPacket(packet);
     }
 
-    public void sendToAll(final PacketPlayClientbound packet)
+    /**
+     * Send packets to single player.
+     *
+     * @param player  player to send packets to.
+     * @param packets packets to send.
+     */
+    protected void sendPackets(final PlayerTracker player, final PacketPlayClientbound[] packets)
     {
-        this.tracked.forEach(p -> p.getNetworkManager().sendPacket(packet));
+        player.getTracker().getNetworkManager().sendPackets(packets);
     }
 
     public void sendToAllExceptOwn(final PacketPlayClientbound packet)
@@ -167,7 +313,16 @@ public abstract class BaseTracker<T extends IEntity>
 
     public void sendToAll(final PacketPlayClientbound[] packet)
     {
-        this.tracked.forEach(p -> p.getNetworkManager().sendPackets(packet));
+        if (this.tracked.size() < BroadcastPacket.MIN_RECEIVERS)
+        {
+            this.sentPackets += this.tracked.size() * packet.length;
+            this.tracked.forEach(p -> this.sendPackets(p, packet));
+            return;
+        }
+        for (final PacketPlayClientbound p : packet)
+        {
+            this.sendToAll(p);
+        }
     }
 
     public void sendToAllExceptOwn(final PacketPlayClientbound[] packet)
@@ -175,28 +330,39 @@ public abstract class BaseTracker<T extends IEntity>
         this.sendToAll(packet);
     }
 
-    public void updatePlayers(final Iterable<IPlayer> players)
+    /**
+     * Returns players tracking this entity.
+     *
+     * @return players tracking this entity.
+     */
+    public Collection<PlayerTracker> getTracked()
     {
-        players.forEach(this::updatePlayer);
+        return this.tracked;
     }
 
-    public void updatePlayer(final IPlayer player)
+    /**
+     * Start or stop tracking given player, depending on distance between cells of player and entity.
+     *
+     * @param player tracker of player to update.
+     */
+    public void updatePlayer(final PlayerTracker player)
     {
-        final int range = this.getTrackRange();
-        if (player != this.tracker)
+        if (player == this)
         {
-            final double dX = player.getX() - (this.xLoc / 32);
-            final double dZ = player.getZ() - (this.zLoc / 32);
-            if (((dX < - range) || (dX > range) || (dZ < - range) || (dZ > range)))
-            {
-                this.remove(player);
-                return;
-            }
-            if (! this.tracked.contains(player))
-            {
-                this.tracked.add(player);
-                this.spawn();
-            }
+            return;
+        }
+        if (! EntityTrackers.isInRange(this.cell, player.cell, this.getCellRange()))
+        {
+            this.remove(player);
+            return;
+        }
+        if (this.tracked.add(player))
+        {
+            player.getViewed().add(this);
+            this.spawned.add(player);
+            final PacketPlayClientbound[] spawnPackets = this.tracker.getSpawnPackets();
+            this.sentPackets += spawnPackets.length;
+            this.sendPackets(player, spawnPackets);
         }
     }
 
@@ -210,6 +376,16 @@ public abstract class BaseTracker<T extends IEntity>
         return this.tracker.getTrackRange();
     }
 
+    /**
+     * Returns track range in cells of {@link EntityTrackers}, rounded up.
+     *
+     * @return track range in cells.
+     */
+    public int getCellRange()
+    {
+        return (this.getTrackRange() + ((1 << EntityTrackers.CELL_SHIFT) - 1)) >> EntityTrackers.CELL_SHIFT;
+    }
+
     @Override
     public boolean equals(final Object o)
     {
@@ -230,19 +406,23 @@ public abstract class BaseTracker<T extends IEntity>
 
     public void despawn()
     {
-        for (final Iterator<IPlayer> iterator = this.tracked.iterator(); iterator.hasNext(); )
+        for (final Iterator<PlayerTracker> iterator = this.tracked.iterator(); iterator.hasNext(); )
         {
-            final IPlayer p = iterator.next();
+            final PlayerTracker p = iterator.next();
             iterator.remove();
-            p.removeEntityFromView(this.tracker);
+            this.spawned.remove(p);
+            p.getViewed().remove(this);
+            p.getTracker().removeEntityFromView(this.tracker);
         }
     }
 
-    public void remove(final IPlayer player)
+    public void remove(final PlayerTracker player)
     {
         if (this.tracked.remove(player))
         {
-            player.removeEntityFromView(this.tracker);
+            this.spawned.remove(player);
+            player.getViewed().remove(this);
+            player.getTracker().removeEntityFromView(this.tracker);
         }
     }
 
@@ -24,33 +24,83 @@
 
 package org.diorite.impl.entity.tracker;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 import org.diorite.impl.CoreMain;
-import org.diorite.impl.DioriteCore;
 import org.diorite.impl.Tickable;
 import org.diorite.impl.entity.IEntity;
 import org.diorite.impl.entity.IPlayer;
 import org.diorite.impl.world.WorldImpl;
 import org.diorite.entity.Entity;
+import org.diorite.utils.math.DioriteMathUtils;
+import org.diorite.utils.math.endian.BigEndianUtils;
 
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import it.unimi.dsi.fastutil.shorts.Short2IntMap;
 import it.unimi.dsi.fastutil.shorts.Short2IntOpenHashMap;
 
+/**
+ * Trackers of all entities in world. <br>
+ * Trackers and players are stored in chunk sized cells, player is tracked by entity if cell of player is within
+ * track range of cell of entity, so tracked players only change when entity or player moves to other cell. <br>
+ * Trackers may be added and removed from any thread (chunks of split world are ticked by multiple threads), but
+ * these changes are only queued and applied on start of {@link #doTick(int)}, so all structures of this class are
+ * only changed by thread that ticks trackers.
+ */
 public class EntityTrackers implements Tickable
 {
-    private final Int2ObjectMap<BaseTracker<?>> trackers = new Int2ObjectOpenHashMap<>(1000, 0.25F);
+    /**
+     * Cells of trackers are chunk sized.
+     */
+    public static final int  CELL_SHIFT = 4;
+    /**
+     * Cell of tracker that wasn't added to any cell yet.
+     */
+    static final        long NO_CELL    = Long.MIN_VALUE;
+
+    private final Int2ObjectMap<BaseTracker<?>>                trackers     = new Int2ObjectOpenHashMap<>(1000, 0.25F);
+    /**
+     * Trackers stored by cells, see {@link #getCell(IEntity)}
+     */
+    private final Long2ObjectMap<Collection<BaseTracker<?>>>   trackerCells = new Long2ObjectOpenHashMap<>(256, .5f);
+    /**
+     * Trackers of players stored by cells, see {@link #getCell(IEntity)}
+     */
+    private final Long2ObjectMap<Collection<PlayerTracker>>    playerCells  = new Long2ObjectOpenHashMap<>(64, .5f);
+    /**
+     * Trackers that changed cell in current tick, reused between ticks.
+     */
+    private final List<BaseTracker<?>>                         moved        = new ArrayList<>(100);
+    /**
+     * Added and removed trackers, applied in order on start of next tick.
+     */
+    private final Queue<Runnable>                              pending      = new ConcurrentLinkedQueue<>();
+    /**
+     * Biggest track range in cells of all trackers, used to find trackers that might track player.
+     */
+    private       int                                          maxCellRange;
+    /**
+     * Amount of packets sent by trackers in last tick.
+     */
+    private       int                                          sentPackets;
     /**
      * Maps entity type id and amount of entity of that type. <br>
      * Used by statisitcs and performance commands.
      */
-    private final Short2IntMap                  stats    = new Short2IntOpenHashMap(50, 0.1f); // only for stats, performance commands etc.
-    private final WorldImpl world;
+    private final Short2IntMap                                 stats        = new Short2IntOpenHashMap(50, 0.1f); // only for stats, performance commands etc.
+    private final WorldImpl                                    world;
 
     public EntityTrackers(final WorldImpl world)
     {
@@ -104,10 +154,8 @@ public class EntityTrackers implements Tickable
 
     public PlayerTracker addTracked(final IPlayer trackable)
     {
-        final PlayerTracker pt = new PlayerTracker(trackable);
-        this.trackers.put(trackable.getId(), pt);
-        this.updatePlayer(trackable);
-        this.incrementStat(trackable);
+        final PlayerTracker pt = this.createTracker(trackable);
+        this.pending.add(() -> this.addTracker(pt));
         return pt;
     }
 
@@ -118,46 +166,223 @@ public class EntityTrackers implements Tickable
 
     public EntityTracker addTracked(final IEntity trackable)
     {
-        final EntityTracker et = new EntityTracker(trackable);
-        this.trackers.put(trackable.getId(), et);
-        this.incrementStat(trackable);
+        final EntityTracker et = this.createTracker(trackable);
+        this.pending.add(() -> this.addTracker(et));
         return et;
     }
 
-    public boolean removeTracked(final IEntity trackable)
+    protected PlayerTracker createTracker(final IPlayer trackable)
+    {
+        return new PlayerTracker(trackable);
+    }
+
+    protected EntityTracker createTracker(final IEntity trackable)
+    {
+        return new EntityTracker(trackable);
+    }
+
+    private void addTracker(final BaseTracker<?> tracker)
     {
-        final BaseTracker<?> tracker = this.trackers.remove(trackable.getId());
+        // tracker is added to cell and tracked players are found in this tick.
+        this.trackers.put(tracker.getId(), tracker);
+        this.maxCellRange = Math.max(this.maxCellRange, tracker.getCellRange());
+        this.incrementStat(tracker.getTracker());
+    }
+
+    /**
+     * Queue removal of tracker of given entity, it will be removed on start of next tick.
+     *
+     * @param trackable entity to remove.
+     */
+    public void removeTracked(final IEntity trackable)
+    {
+        final int id = trackable.getId();
+        this.pending.add(() -> this.removeTracker(id, trackable));
+    }
+
+    private void removeTracker(final int id, final IEntity trackable)
+    {
+        final BaseTracker<?> tracker = this.trackers.remove(id);
         if (tracker == null)
         {
-            return false;
+            return;
         }
         tracker.despawn();
-        if (trackable instanceof IPlayer)
+        if (tracker instanceof PlayerTracker)
         {
-            final IPlayer player = (IPlayer) trackable;
-            this.trackers.values().forEach((t) -> t.remove(player));
+            final PlayerTracker player = (PlayerTracker) tracker;
+            player.getViewed().forEach(t -> t.remove(player));
         }
+        this.moveTracker(tracker, NO_CELL);
         this.decrementStat(trackable);
-        return true;
     }
 
-    public void updatePlayer(final IPlayer player)
+    /**
+     * Returns cell of given entity, cell is a chunk sized square.
+     *
+     * @param entity entity to check.
+     *
+     * @return cell of entity.
+     */
+    public static long getCell(final IEntity entity)
+    {
+        return BigEndianUtils.toLong(DioriteMathUtils.floor(entity.getX()) >> CELL_SHIFT, DioriteMathUtils.floor(entity.getZ()) >> CELL_SHIFT);
+    }
+
+    /**
+     * Returns true if distance between given cells isn't bigger than given range.
+     *
+     * @param cellA first cell.
+     * @param cellB second cell.
+     * @param range range in cells.
+     *
+     * @return true if cells are in range.
+     */
+    static boolean isInRange(final long cellA, final long cellB, final int range)
+    {
+        if ((cellA == NO_CELL) || (cellB == NO_CELL))
+        {
+            return false;
+        }
+        final int dX = BigEndianUtils.getIntA(cellA) - BigEndianUtils.getIntA(cellB);
+        final int dZ = BigEndianUtils.getIntB(cellA) - BigEndianUtils.getIntB(cellB);
+        return (dX >= - range) && (dX <= range) && (dZ >= - range) && (dZ <= range);
+    }
+
+    private static <T> void addToCell(final Long2ObjectMap<Collection<T>> cells, final long cell, final T element)
     {
-        this.trackers.values().forEach((t) -> t.updatePlayer(player));
+        Collection<T> collection = cells.get(cell);
+        if (collection == null)
+        {
+            collection = new ReferenceOpenHashSet<>(4);
+            cells.put(cell, collection);
+        }
+        collection.add(element);
+    }
+
+    private static <T> void removeFromCell(final Long2ObjectMap<Collection<T>> cells, final long cell, final T element)
+    {
+        final Collection<T> collection = cells.get(cell);
+        if ((collection != null) && collection.remove(element) && collection.isEmpty())
+        {
+            cells.remove(cell);
+        }
+    }
+
+    /**
+     * Invoke given action for each element stored in cells in given range from center cell. <br>
+     * If there is less non-empty cells than cells in range, only non-empty cells are checked.
+     */
+    private static <T> void forEachInRange(final Long2ObjectMap<Collection<T>> cells, final long center, final int range, final Consumer<? super T> action)
+    {
+        if (cells.isEmpty() || (center == NO_CELL))
+        {
+            return;
+        }
+        final int side = (range << 1) + 1;
+        if ((side * side) > cells.size())
+        {
+            for (final Long2ObjectMap.Entry<Collection<T>> entry : cells.long2ObjectEntrySet())
+            {
+                if (isInRange(center, entry.getLongKey(), range))
+                {
+                    entry.getValue().forEach(action);
+                }
+            }
+            return;
+        }
+        final int cX = BigEndianUtils.getIntA(center);
+        final int cZ = BigEndianUtils.getIntB(center);
+        for (int x = cX - range; x <= (cX + range); x++)
+        {
+            for (int z = cZ - range; z <= (cZ + range); z++)
+            {
+                final Collection<T> collection = cells.get(BigEndianUtils.toLong(x, z));
+                if (collection != null)
+                {
+                    collection.forEach(action);
+                }
+            }
+        }
+    }
+
+    private void moveTracker(final BaseTracker<?> tracker, final long cell)
+    {
+        final boolean isPlayer = tracker instanceof PlayerTracker;
+        if (tracker.cell != NO_CELL)
+        {
+            removeFromCell(this.trackerCells, tracker.cell, tracker);
+            if (isPlayer)
+            {
+                removeFromCell(this.playerCells, tracker.cell, (PlayerTracker) tracker);
+            }
+        }
+        tracker.cell = cell;
+        if (cell != NO_CELL)
+        {
+            addToCell(this.trackerCells, cell, tracker);
+            if (isPlayer)
+            {
+                addToCell(this.playerCells, cell, (PlayerTracker) tracker);
+            }
+        }
     }
 
     @Override
     public void doTick(final int tps)
     {
-        //noinspection ObjectEquality
-        final Collection<IPlayer> players = DioriteCore.getInstance().getPlayersManager().getOnlinePlayers(p -> p.getWorld() == this.world);
-        this.trackers.values().forEach((t) -> t.tick(tps, players));
+        for (Runnable change = this.pending.poll(); change != null; change = this.pending.poll())
+        {
+            change.run();
+        }
+        // move trackers to new cells first, so all of them are in valid cells when tracked players are updated.
+        for (final BaseTracker<?> tracker : this.trackers.values())
+        {
+            final long cell = getCell(tracker.getTracker());
+            if (cell != tracker.cell)
+            {
+                this.moveTracker(tracker, cell);
+                this.moved.add(tracker);
+            }
+        }
+        for (final BaseTracker<?> tracker : this.moved)
+        {
+            // players tracked by this tracker.
+            tracker.getTracked().forEach(tracker::updatePlayer);
+            forEachInRange(this.playerCells, tracker.cell, tracker.getCellRange(), tracker::updatePlayer);
+
+            // trackers that track this player.
+            if (tracker instanceof PlayerTracker)
+            {
+                final PlayerTracker player = (PlayerTracker) tracker;
+                player.getViewed().forEach(t -> t.updatePlayer(player));
+                forEachInRange(this.trackerCells, player.cell, this.maxCellRange, t -> t.updatePlayer(player));
+            }
+        }
+        this.moved.clear();
+        int sentPackets = 0;
+        for (final BaseTracker<?> tracker : this.trackers.values())
+        {
+            tracker.tick(tps);
+            sentPackets += tracker.pollSentPackets();
+        }
+        this.sentPackets = sentPackets;
+    }
+
+    /**
+     * Returns amount of packets sent by trackers in last tick.
+     *
+     * @return amount of packets sent by trackers in last tick.
+     */
+    public int getSentPackets()
+    {
+        return this.sentPackets;
     }
 
     @Override
     public String toString()
     {
-        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("trackers", this.trackers).append("world", this.world).toString();
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("trackers", this.trackers).append("cells", this.trackerCells.size()).append("world", this.world).toString();
     }
 
     public void spawn(final IPlayer player)
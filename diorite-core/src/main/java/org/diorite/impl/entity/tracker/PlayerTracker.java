@@ -24,37 +24,41 @@
 
 package org.diorite.impl.entity.tracker;
 
-import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientbound;
+import java.util.Collection;
+
 import org.diorite.impl.entity.IPlayer;
+import org.diorite.utils.collections.sets.ConcurrentSet;
 
 @SuppressWarnings({"ObjectEquality"})
 public class PlayerTracker extends BaseTracker<IPlayer>
 {
+    /**
+     * Trackers of entities tracked by this player.
+     */
+    private final Collection<BaseTracker<?>> viewed = new ConcurrentSet<>(20, .3F, 3);
+
     public PlayerTracker(final IPlayer entity)
     {
         super(entity);
     }
 
+    /**
+     * Returns trackers of entities tracked by this player.
+     *
+     * @return trackers of entities tracked by this player.
+     */
+    public Collection<BaseTracker<?>> getViewed()
+    {
+        return this.viewed;
+    }
+
 //    @Override
-//    public void tick(final int tps, final Iterable<IPlayer> players)
+//    public void tick(final int tps)
 //    {
-//        super.tick(tps, players);
+//        super.tick(tps);
 //        if (this.isMoving)
 //        {
 //            this.tracker.getWorld().getEntityTrackers().updatePlayer(this.tracker);
 //        }
 //    }
-
-    @Override
-    public void sendToAllExceptOwn(final PacketPlayClientbound packet)
-    {
-        this.tracked.stream().filter(p -> p != this.tracker).forEach(p -> p.getNetworkManager().sendPacket(packet));
-    }
-
-
-    @Override
-    public void sendToAllExceptOwn(final PacketPlayClientbound[] packet)
-    {
-        this.tracked.stream().filter(p -> p != this.tracker).forEach(p -> p.getNetworkManager().sendPackets(packet));
-    }
 }
@@ -44,9 +44,15 @@ public class ChunkLoadPipelineImpl extends SimpleEventPipeline<ChunkLoadEvent> i
             final int x = evt.getChunkPos().getX();
             final int z = evt.getChunkPos().getZ();
             final WorldImpl impl = (WorldImpl) evt.getWorld();
-            final ChunkImpl chunk = impl.getChunkManager().getChunk(x, z);
+            final ChunkImpl chunk = impl.getChunkManager().getChunkForLoad(x, z);
             try
             {
+                if (impl.getChunkManager().restoreCached(chunk))
+                {
+                    evt.setNeedBeGenerated(false);
+                    evt.setLoadedChunk(chunk);
+                    return;
+                }
                 evt.setNeedBeGenerated(impl.getChunkManager().getService().queueChunkLoadAndGet(chunk, ChunkIOService.INSTANT_PRIORITY) == null);
             } catch (final Exception e)
             {
@@ -56,6 +62,9 @@ public class ChunkLoadPipelineImpl extends SimpleEventPipeline<ChunkLoadEvent> i
                 // (i.e. double initialization errors), so it's forcibly unloaded here
                 chunk.unload(false, false);
                 evt.cancel();
+            } finally
+            {
+                chunk.onLoadFinished();
             }
             evt.setLoadedChunk(chunk);
         });
@@ -58,6 +58,10 @@ public class ChunkUnloadPipelineImpl extends SimpleEventPipeline<ChunkUnloadEven
                 return;
             }
             final ChunkImpl chunk = (ChunkImpl) evt.getChunk();
+            if (evt.isSafe())
+            {
+                chunk.getWorld().getChunkManager().cacheUnloaded(chunk);
+            }
             chunk.setChunkParts(null);
             chunk.setBiomes(null);
             chunk.getTileEntities().clear();
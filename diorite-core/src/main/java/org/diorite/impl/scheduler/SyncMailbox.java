@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.scheduler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import org.diorite.scheduler.Synchronizable;
+
+/**
+ * Queue of tasks synchronized with single {@link Synchronizable}, tasks can be added from any thread, but they are
+ * executed only by last tick thread of owner. <br>
+ * Mailbox with tasks is scheduled only once in queue of that thread, see {@link SyncQueue}.
+ */
+public class SyncMailbox
+{
+    private final Synchronizable  owner;
+    private final Queue<Runnable> tasks     = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean   scheduled = new AtomicBoolean();
+
+    public SyncMailbox(final Synchronizable owner)
+    {
+        this.owner = owner;
+    }
+
+    public Synchronizable getOwner()
+    {
+        return this.owner;
+    }
+
+    /**
+     * Add task to this mailbox.
+     *
+     * @param task task to add.
+     *
+     * @return true if mailbox must be scheduled, as it wasn't waiting for any thread yet.
+     */
+    boolean add(final Runnable task)
+    {
+        this.tasks.add(task);
+        return this.scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Returns next task of this mailbox, or null if it is empty.
+     *
+     * @return next task or null.
+     */
+    Runnable poll()
+    {
+        return this.tasks.poll();
+    }
+
+    /**
+     * Mark this mailbox as not scheduled, it must be done before it is drained, so tasks added in meantime will
+     * schedule it again.
+     */
+    void unschedule()
+    {
+        this.scheduled.set(false);
+    }
+
+    public boolean isEmpty()
+    {
+        return this.tasks.isEmpty();
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("owner", this.owner).append("scheduled", this.scheduled.get()).toString();
+    }
+}
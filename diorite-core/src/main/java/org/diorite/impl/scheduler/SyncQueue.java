@@ -0,0 +1,199 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.scheduler;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import org.diorite.impl.world.tick.TickGroups.TickTime;
+import org.diorite.scheduler.Synchronizable;
+
+/**
+ * Tasks that must be executed by tick thread of given {@link Synchronizable}. <br>
+ * Each tick thread have own queue of mailboxes with tasks, so it only drains mailboxes of objects ticked by it,
+ * without looking at tasks of other threads. <br>
+ * If owner of mailbox was moved to other thread before mailbox was drained, mailbox is moved to queue of that thread,
+ * and mailboxes of objects that wasn't ticked yet wait in separate queue, checked by main thread. <br>
+ * Tick thread might not drain its queue in next tick (it didn't get any group, or all groups are ticked by main thread),
+ * so main thread runs all remaining tasks at end of each tick, see {@link #runAll()}.
+ */
+public class SyncQueue
+{
+    private final Map<Thread, Queue<SyncMailbox>> queues     = new ConcurrentHashMap<>(8);
+    private final Queue<SyncMailbox>              waiting    = new ConcurrentLinkedQueue<>(); // mailboxes without tick thread
+    private final Map<Thread, TickTime>           drainTimes = new ConcurrentHashMap<>(8);
+    private final AtomicInteger                   pending    = new AtomicInteger();
+
+    /**
+     * Add task that will be executed by tick thread of given object.
+     *
+     * @param task task to add.
+     * @param sync object to synchronize with.
+     */
+    public void add(final Runnable task, final Synchronizable sync)
+    {
+        final SyncMailbox mailbox = (sync instanceof ISynchronizable) ? ((ISynchronizable) sync).getMailbox() : new SyncMailbox(sync);
+        this.pending.incrementAndGet();
+        if (mailbox.add(task))
+        {
+            this.schedule(mailbox);
+        }
+    }
+
+    private void schedule(final SyncMailbox mailbox)
+    {
+        final Thread thread = mailbox.getOwner().getLastTickThread();
+        if (thread == null)
+        {
+            this.waiting.add(mailbox);
+            return;
+        }
+        this.queues.computeIfAbsent(thread, t -> new ConcurrentLinkedQueue<>()).add(mailbox);
+    }
+
+    /**
+     * Move mailboxes waiting for first tick of its owner to queue of its tick thread, if it is already known.
+     */
+    public void scheduleWaiting()
+    {
+        for (int i = this.waiting.size(); i > 0; i--)
+        {
+            final SyncMailbox mailbox = this.waiting.poll();
+            if (mailbox == null)
+            {
+                return;
+            }
+            this.schedule(mailbox);
+        }
+    }
+
+    /**
+     * Execute all tasks synchronized with objects ticked by current thread.
+     */
+    public void runPending()
+    {
+        final Thread thread = Thread.currentThread();
+        final Queue<SyncMailbox> queue = this.queues.get(thread);
+        if ((queue == null) || queue.isEmpty())
+        {
+            return;
+        }
+        final long start = System.nanoTime();
+        SyncMailbox mailbox;
+        while ((mailbox = queue.poll()) != null)
+        {
+            //noinspection ObjectEquality
+            if (mailbox.getOwner().getLastTickThread() != thread)
+            {
+                this.schedule(mailbox);
+                continue;
+            }
+            this.drain(mailbox);
+        }
+        this.drainTimes.computeIfAbsent(thread, t -> new TickTime()).update(System.nanoTime() - start);
+    }
+
+    /**
+     * Execute all tasks from queues of all threads, including mailboxes without tick thread. <br>
+     * Must be invoked only when no object is ticked, as tasks are executed by current thread instead of tick thread of
+     * their objects.
+     */
+    public void runAll()
+    {
+        if (this.pending.get() == 0)
+        {
+            return;
+        }
+        final long start = System.nanoTime();
+        for (final Queue<SyncMailbox> queue : this.queues.values())
+        {
+            SyncMailbox mailbox;
+            while ((mailbox = queue.poll()) != null)
+            {
+                this.drain(mailbox);
+            }
+        }
+        SyncMailbox mailbox;
+        while ((mailbox = this.waiting.poll()) != null)
+        {
+            this.drain(mailbox);
+        }
+        this.drainTimes.computeIfAbsent(Thread.currentThread(), t -> new TickTime()).update(System.nanoTime() - start);
+    }
+
+    private void drain(final SyncMailbox mailbox)
+    {
+        mailbox.unschedule();
+        Runnable task;
+        while ((task = mailbox.poll()) != null)
+        {
+            this.pending.decrementAndGet();
+            run(task);
+        }
+    }
+
+    /**
+     * Returns amount of tasks waiting for execution.
+     *
+     * @return amount of waiting tasks.
+     */
+    public int getPendingTasks()
+    {
+        return this.pending.get();
+    }
+
+    /**
+     * Returns statistics of time spent on executing tasks, per tick thread, only ticks with any task are counted.
+     *
+     * @return drain time statistics of each tick thread.
+     */
+    public Map<Thread, TickTime> getDrainTimes()
+    {
+        return this.drainTimes;
+    }
+
+    public static void run(final Runnable runnable)
+    {
+        try
+        {
+            runnable.run();
+        } catch (final Throwable throwable)
+        {
+            throwable.printStackTrace();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("pending", this.pending.get()).append("waiting", this.waiting.size()).toString();
+    }
+}
@@ -26,6 +26,8 @@ package org.diorite.impl.world;
 
 import javax.vecmath.Vector3d;
 
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.util.Optional;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -45,7 +47,11 @@ public class BlockImpl implements Block
     private final byte                   x; // x pos on chunk, not map
     private final int                    y;
     private final byte                   z; // z pos on chunk, not map
-    private final ChunkImpl              chunk;
+    private final WorldImpl              world;
+    private final int                    chunkX;
+    private final int                    chunkZ;
+    // chunk may be evicted from chunk manager when unloaded, so block only keeps weak handle and looks it up again when needed.
+    private       Reference<ChunkImpl>   chunk;
     private       BlockMaterialData      type;
     private final LazyValue<BoundingBox> lazyBox;
 
@@ -54,16 +60,19 @@ public class BlockImpl implements Block
         this.x = (byte) x;
         this.y = y;
         this.z = (byte) z;
-        this.chunk = chunk;
+        this.world = chunk.getWorld();
+        this.chunkX = chunk.getX();
+        this.chunkZ = chunk.getZ();
+        this.chunk = new WeakReference<>(chunk);
         this.type = type;
         this.lazyBox = new LazyValue<>(() -> {
-            final int x1 = this.x + (this.chunk.getX() << 4);
+            final int x1 = this.x + (this.chunkX << 4);
             final int x2 = (x1 >= 0) ? (x1 + 1) : (x1 - 1);
 
-            final int y1 = this.z + (this.chunk.getZ() << 4);
+            final int y1 = this.z + (this.chunkZ << 4);
             final int y2 = y1 + 1;
 
-            final int z1 = this.z + (this.chunk.getZ() << 4);
+            final int z1 = this.z + (this.chunkZ << 4);
             final int z2 = (z1 >= 0) ? (z1 + 1) : (z1 - 1);
 
             return BoundingBox.fromCorners(new Vector3d(x1, y1, z1), new Vector3d(x2, y2, z2));
@@ -75,27 +84,46 @@ public class BlockImpl implements Block
         this.x = (byte) x;
         this.y = y;
         this.z = (byte) z;
-        this.chunk = chunk;
+        this.world = chunk.getWorld();
+        this.chunkX = chunk.getX();
+        this.chunkZ = chunk.getZ();
+        this.chunk = new WeakReference<>(chunk);
         if (! chunk.isLoaded())
         {
             chunk.load();
         }
         this.type = chunk.getBlockType(x, y, z);
         this.lazyBox = new LazyValue<>(() -> {
-            final int x1 = this.x + (this.chunk.getX() << 4);
+            final int x1 = this.x + (this.chunkX << 4);
             final int x2 = (x1 >= 0) ? (x1 + 1) : (x1 - 1);
 
-            final int z1 = this.z + (this.chunk.getZ() << 4);
+            final int z1 = this.z + (this.chunkZ << 4);
             final int z2 = (z1 >= 0) ? (z1 + 1) : (z1 - 1);
 
             return BoundingBox.fromCorners(new Vector3d(x1, this.y, z1), new Vector3d(x2, this.y + 1, z2));
         });
     }
 
+    /**
+     * Returns chunk of this block, if chunk was evicted since block was created, new instance is used.
+     *
+     * @return chunk of this block.
+     */
+    public ChunkImpl getChunk()
+    {
+        ChunkImpl chunk = this.chunk.get();
+        if ((chunk == null) || chunk.isEvicted())
+        {
+            chunk = this.world.getChunkAt(this.chunkX, this.chunkZ);
+            this.chunk = new WeakReference<>(chunk);
+        }
+        return chunk;
+    }
+
     @Override
     public int getX()
     {
-        return this.x + (this.chunk.getX() << 4);
+        return this.x + (this.chunkX << 4);
     }
 
     @Override
@@ -107,13 +135,13 @@ public class BlockImpl implements Block
     @Override
     public int getZ()
     {
-        return this.z + (this.chunk.getZ() << 4);
+        return this.z + (this.chunkZ << 4);
     }
 
     @Override
     public World getWorld()
     {
-        return this.chunk.getWorld();
+        return this.world;
     }
 
     @Override
@@ -125,14 +153,14 @@ public class BlockImpl implements Block
     @Override
     public Optional<TileEntity> getTileEntity()
     {
-        return Optional.ofNullable(this.chunk.getTileEntities().get(this.getLocation().asLong()));
+        return Optional.ofNullable(this.getChunk().getTileEntities().get(this.getLocation().asLong()));
     }
 
     @Override
     public void setType(final BlockMaterialData type)
     {
         this.type = type;
-        this.chunk.setBlock(this.x, this.y, this.z, this.type);
+        this.getChunk().setBlock(this.x, this.y, this.z, this.type);
 
 //        final PacketPlayOutBlockChange packet = new PacketPlayOutBlockChange(new BlockLocation(this.getX(), this.y, this.getZ(), this.getWorld()), type);
 //        ServerImpl.getInstance().getPlayersManager().forEach(p -> p.getWorld().equals(this.getWorld()) && p.isVisibleChunk(this.x, this.z), packet);
@@ -141,19 +169,19 @@ public class BlockImpl implements Block
     @Override
     public Biome getBiome()
     {
-        return this.chunk.getBiome(this.x, this.y, this.z);
+        return this.getChunk().getBiome(this.x, this.y, this.z);
     }
 
     @Override
     public void update()
     {
-        this.type = this.chunk.getBlockType(this.x, this.y, this.z);
+        this.type = this.getChunk().getBlockType(this.x, this.y, this.z);
     }
 
     @Override
     public Block getRelative(final int x, final int y, final int z)
     {
-        return this.chunk.getWorld().getBlock(this.getX() + x, this.y + y, this.getZ() + z);
+        return this.world.getBlock(this.getX() + x, this.y + y, this.getZ() + z);
     }
 
     @Override
@@ -176,7 +204,7 @@ public class BlockImpl implements Block
 
         final BlockImpl block = (BlockImpl) o;
 
-        return (this.x == block.x) && (this.y == block.y) && (this.z == block.z) && ! ((this.chunk != null) ? ! this.chunk.equals(block.chunk) : (block.chunk != null)) && ! ((this.type != null) ? ! this.type.equals(block.type) : (block.type != null));
+        return (this.x == block.x) && (this.y == block.y) && (this.z == block.z) && (this.chunkX == block.chunkX) && (this.chunkZ == block.chunkZ) && this.world.equals(block.world) && ! ((this.type != null) ? ! this.type.equals(block.type) : (block.type != null));
     }
 
     @Override
@@ -185,7 +213,9 @@ public class BlockImpl implements Block
         int result = (int) this.x;
         result = (31 * result) + this.y;
         result = (31 * result) + (int) this.z;
-        result = (31 * result) + ((this.chunk != null) ? this.chunk.hashCode() : 0);
+        result = (31 * result) + this.chunkX;
+        result = (31 * result) + this.chunkZ;
+        result = (31 * result) + this.world.hashCode();
         return result;
     }
 
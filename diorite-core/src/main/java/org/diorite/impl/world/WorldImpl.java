@@ -26,6 +26,8 @@ package org.diorite.impl.world;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -49,11 +51,11 @@ import org.diorite.impl.entity.tracker.EntityTrackers;
 import org.diorite.impl.world.chunk.ChunkImpl;
 import org.diorite.impl.world.chunk.ChunkManagerImpl;
 import org.diorite.impl.world.chunk.ChunkManagerImpl.ChunkLock;
+import org.diorite.impl.world.chunk.ChunkTicketType;
 import org.diorite.impl.world.io.ChunkIOService;
 import org.diorite.impl.world.io.requests.Request;
 import org.diorite.BlockLocation;
 import org.diorite.Difficulty;
-import org.diorite.Diorite;
 import org.diorite.GameMode;
 import org.diorite.ILocation;
 import org.diorite.ImmutableLocation;
@@ -91,6 +93,7 @@ public class WorldImpl implements World, Tickable
     private static final double ITEM_DROP_MOD_2       = 0.35D;
     private static final int    CHUNK_FLAG            = (Chunk.CHUNK_SIZE - 1);
     public static final  int    DEFAULT_AUTOSAVE_TIME = 20 * 60 * 5; // 5 min, TODO: load it from config
+    public static final  int    UNLOAD_CHECK_TIME     = 20 * 5; // 5 s, chunks are unloaded after unload delay of chunk manager
 
     private final   DioriteCore      core;
     private final   Logger           worldLoaderLogger;
@@ -102,6 +105,7 @@ public class WorldImpl implements World, Tickable
     protected final EntityTrackers   entityTrackers;
     protected final WorldBorderImpl  worldBorder = new WorldBorderImpl(this);
     protected     boolean          vanillaCompatible = false;
+    protected     boolean          nativeChunkFormat = false;
     protected     Difficulty       difficulty        = Difficulty.NORMAL;
     protected     HardcoreSettings hardcore          = new HardcoreSettings(false);
     protected     GameMode         defaultGameMode   = GameMode.SURVIVAL;
@@ -121,7 +125,12 @@ public class WorldImpl implements World, Tickable
     protected       boolean       noUpdateMode = true;
     protected final DioriteRandom random       = DioriteRandomUtils.newRandom();
     protected       int           saveTimer    = DEFAULT_AUTOSAVE_TIME;
+    protected       int           unloadTimer  = UNLOAD_CHECK_TIME;
     protected       boolean       autosave     = true;
+    /**
+     * Chunks waiting to be saved by current autosave, only limited amount of chunks is saved in each tick.
+     */
+    protected final Deque<ChunkImpl> autosaveQueue = new ArrayDeque<>(256);
 
 
     // TODO: add some method allowing to set multiple blocks without calling getChunk so often
@@ -137,7 +146,7 @@ public class WorldImpl implements World, Tickable
         this.generator = WorldGenerators.getGenerator(generator, this, generatorOptions);
         this.chunkManager = new ChunkManagerImpl(core, this, chunkIO, WorldGenerators.getGenerator(generator, this, generatorOptions));
 
-        this.spawnLock = this.createLock("spawn loader");
+        this.spawnLock = this.createLock(ChunkTicketType.SPAWN, "spawn loader");
         this.entityTrackers = new EntityTrackers(this);
 
         chunkIO.start(this);
@@ -183,9 +192,9 @@ public class WorldImpl implements World, Tickable
         }
     }
 
-    public ChunkLock createLock(final String desc)
+    public ChunkLock createLock(final ChunkTicketType type, final String desc)
     {
-        return new ChunkLock(this.chunkManager, this.name + ": " + desc);
+        return new ChunkLock(this.chunkManager, type, this.name + ": " + desc);
     }
 
     @SuppressWarnings("MagicNumber")
@@ -218,6 +227,7 @@ public class WorldImpl implements World, Tickable
         {
 //            final CountDownLatch latch = new CountDownLatch(toLoad);
 //            final ForkJoinPool pool = new ForkJoinPool();
+            this.spawnLock.acquire(BigEndianUtils.toLong(center.getX(), center.getZ()), chunkRadius);
             int i = toLoad;
             final int sx = center.getX() - chunkRadius;
             final int ex = center.getX() + chunkRadius;
@@ -232,7 +242,6 @@ public class WorldImpl implements World, Tickable
 //                    pool.submit(() -> {
                     final ChunkPos pos = new ChunkPos(x, z, this);
                     this.loadChunk(pos);
-                    this.spawnLock.acquire(pos.asLong());
                     final int chunkNum = info.loadedChunks.incrementAndGet();
                     if ((chunkNum % 10) == 0)
                     {
@@ -306,6 +315,7 @@ public class WorldImpl implements World, Tickable
         this.random.setSeed(this.seed);
         this.time = tag.getLong("Time", 0);
         this.vanillaCompatible = cfg.isVanillaCompatible();
+        this.nativeChunkFormat = ! this.vanillaCompatible && cfg.isNativeChunkFormat();
 
         this.hardcore = new HardcoreSettings(cfg.isHardcore(), cfg.getHardcoreAction());
         this.forceLoadedRadius = cfg.getForceLoadedRadius();
@@ -403,6 +413,17 @@ public class WorldImpl implements World, Tickable
         return this.vanillaCompatible;
     }
 
+    /**
+     * Returns true if chunk sections of this world are saved in diorite format, see
+     * {@link org.diorite.impl.world.chunk.ChunkPartSerializer}.
+     *
+     * @return true if chunk sections are saved in diorite format.
+     */
+    public boolean isNativeChunkFormat()
+    {
+        return this.nativeChunkFormat;
+    }
+
     @Override
     public void loadChunk(final Chunk chunk)
     {
@@ -803,7 +824,6 @@ public class WorldImpl implements World, Tickable
     public void doTick(final int tps)
     {
         this.worldBorder.doTick(tps);
-        this.entityTrackers.doTick(tps);
         this.activeChunks.clear();
         for (final Player entity : this.getPlayersInWorld())
         {
@@ -827,7 +847,6 @@ public class WorldImpl implements World, Tickable
                 }
             }
             //}
-            this.chunkManager.doTick(tps);
         }
 
         {
@@ -841,12 +860,60 @@ public class WorldImpl implements World, Tickable
         if (this.saveTimer-- <= 0)
         {
             this.saveTimer = DEFAULT_AUTOSAVE_TIME;
-            this.chunkManager.unloadOldChunks();
             if (this.autosave)
             {
-                this.save(true);
+                this.startAutosave();
             }
         }
+        this.continueAutosave();
+    }
+
+    /**
+     * Tick entity trackers and unload unused chunks of this world. <br>
+     * Must be invoked after all chunks of this world were ticked, when no other thread is ticking them, see
+     * {@link org.diorite.impl.world.tick.TickGroupImpl#afterTick(int)}.
+     *
+     * @param tps current tps.
+     */
+    public void doPostTick(final int tps)
+    {
+        this.entityTrackers.doTick(tps);
+        if (this.unloadTimer-- <= 0)
+        {
+            this.unloadTimer = UNLOAD_CHECK_TIME;
+            this.chunkManager.unloadOldChunks();
+        }
+    }
+
+    private void startAutosave()
+    {
+        if (this.core.getConfig().getAutosaveChunksPerTick() <= 0)
+        {
+            this.save(true);
+            return;
+        }
+        this.autosaveQueue.clear();
+        for (final ChunkImpl chunk : this.chunkManager.getLoadedChunks())
+        {
+            if (chunk.isModified())
+            {
+                this.autosaveQueue.add(chunk);
+            }
+        }
+        this.saveLevelData();
+    }
+
+    private void continueAutosave()
+    {
+        if (this.autosaveQueue.isEmpty())
+        {
+            return;
+        }
+        ChunkImpl chunk;
+        for (int i = this.core.getConfig().getAutosaveChunksPerTick(); (i > 0) && ((chunk = this.autosaveQueue.poll()) != null); i--)
+        {
+            this.chunkManager.save(chunk, ChunkIOService.HIGH_PRIORITY - 1);
+        }
     }
 
     @Override
@@ -879,32 +946,37 @@ public class WorldImpl implements World, Tickable
         else
         {
             int p = ChunkIOService.HIGH_PRIORITY - 1;
-            final ChunkIOService io = this.chunkManager.getService();
             Request<Void> request = null;
             for (final ChunkImpl chunk : this.chunkManager.getLoadedChunks())
             {
-                request = io.queueChunkSave(chunk, p--);
+                if (chunk.isModified())
+                {
+                    request = this.chunkManager.queueSave(chunk, p--);
+                }
             }
             if (request != null)
             {
                 request.await();
             }
         }
+        this.saveLevelData();
+    }
 
-        { // write level.dat // TODO temp code
-            try (final NbtOutputStream os = NbtOutputStream.getCompressed(new File(this.getWorldFile(), "level.dat")))
-            {
-                final NbtTagCompound nbt = new NbtTagCompound();
-                this.writeTo(nbt);
-                final NbtNamedTagContainer nbtData = new NbtTagCompound();
-                nbtData.setTag("data", nbt);
-                os.write(nbtData);
-                os.flush();
-                os.close();
-            } catch (final IOException e)
-            {
-                e.printStackTrace();
-            }
+    private void saveLevelData()
+    {
+        // TODO temp code
+        try (final NbtOutputStream os = NbtOutputStream.getCompressed(new File(this.getWorldFile(), "level.dat")))
+        {
+            final NbtTagCompound nbt = new NbtTagCompound();
+            this.writeTo(nbt);
+            final NbtNamedTagContainer nbtData = new NbtTagCompound();
+            nbtData.setTag("data", nbt);
+            os.write(nbtData);
+            os.flush();
+            os.close();
+        } catch (final IOException e)
+        {
+            e.printStackTrace();
         }
     }
 
@@ -932,6 +1004,6 @@ public class WorldImpl implements World, Tickable
     public void broadcastPacketInWorld(final Packet<?> packet)
     {
         //noinspection ObjectEquality
-        Diorite.getCore().getOnlinePlayers().stream().filter(p -> p.getWorld() == this).forEach(player -> ((IPlayer) player).getNetworkManager().sendPacket(packet));
+        this.core.getPlayersManager().forEach(p -> p.getWorld() == this, packet);
     }
 }
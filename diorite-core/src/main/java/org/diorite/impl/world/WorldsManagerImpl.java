@@ -45,11 +45,13 @@ import org.slf4j.LoggerFactory;
 import org.diorite.impl.DioriteCore;
 import org.diorite.impl.cfg.DioriteConfigImpl;
 import org.diorite.impl.cfg.WorldsConfigImpl;
+import org.diorite.impl.cfg.WorldsConfigImpl.WorldGroupConfigImpl;
+import org.diorite.impl.world.io.ChunkIOService;
+import org.diorite.impl.world.io.anvil.parallel.AnvilParallelIOService;
 import org.diorite.impl.world.io.anvil.serial.AnvilSerialIOService;
 import org.diorite.impl.world.tick.TickGroupImpl;
 import org.diorite.impl.world.tick.WorldTickGroup;
 import org.diorite.cfg.WorldsConfig.WorldConfig;
-import org.diorite.cfg.WorldsConfig.WorldGroupConfig;
 import org.diorite.entity.Player;
 import org.diorite.nbt.NbtInputStream;
 import org.diorite.nbt.NbtLimiter;
@@ -190,13 +192,16 @@ public class WorldsManagerImpl implements WorldsManager
         }
 
         final Collection<Runnable> loaders = new LinkedHashSet<>(10);
-        for (final WorldGroupConfig wgc : this.config.getGroups())
+        for (final WorldGroupConfigImpl wgc : this.config.getGroups())
         {
             final WorldGroupImpl wgImpl = new WorldGroupImpl(wgc.getName(), new File(worldsFile, wgc.getName()));
             this.groups.put(wgc.getName(), wgImpl);
             loaders.addAll(wgc.getWorlds().stream().filter(WorldConfig::isEnabled).map(wc -> (Runnable) () -> {
                 final File wFile = new File(wgImpl.getDataFolder(), wc.getName());
-                final WorldImpl wImpl = new WorldImpl(this.core, new AnvilSerialIOService(wFile, wc.getName()), wc.getName(), wgImpl, wc.getDimension(), wc.getWorldType(), wc.getGenerator(), wc.getGeneratorSettings());
+                final ChunkIOService io = (wc.getChunkIOThreads() > 1) ? new AnvilParallelIOService(wFile, wc.getName(), wc.getChunkIOThreads(), wc.getChunkIOSettings()) : new AnvilSerialIOService(wFile, wc.getName(), wc.getChunkIOSettings());
+                final WorldImpl wImpl = new WorldImpl(this.core, io, wc.getName(), wgImpl, wc.getDimension(), wc.getWorldType(), wc.getGenerator(), wc.getGeneratorSettings());
+                wImpl.getChunkManager().setCacheSize(wc.getChunkCacheSize());
+                wImpl.getChunkManager().setUnloadDelay(wc.getChunkUnloadDelay());
                 this.loadWorld(wImpl, wc);
                 wgImpl.addWorld(wImpl);
             }).collect(Collectors.toList()));
@@ -59,6 +59,23 @@ public class ChunkBlockData
         this.blocksArray = new long[roundToMultiple(size * bitsPerBlock, BITS_PER_ENTRY) / BITS_PER_ENTRY];
     }
 
+    /**
+     * Construct block data backed by given array, used when loading data saved as is.
+     *
+     * @param blocksArray  array with packed blocks.
+     * @param bitsPerBlock amount of bits used by each block.
+     * @param size         amount of blocks.
+     */
+    public ChunkBlockData(final long[] blocksArray, final int bitsPerBlock, final int size)
+    {
+        Validate.inclusiveBetween(MIN_BITS_PER_BLOCK, MAX_BITS_PER_BLOCK, bitsPerBlock);
+        Validate.isTrue(blocksArray.length == (roundToMultiple(size * bitsPerBlock, BITS_PER_ENTRY) / BITS_PER_ENTRY), "Invalid length of block data: ", blocksArray.length);
+        this.blocksArray = blocksArray;
+        this.bitsPerBlock = bitsPerBlock;
+        this.typeSize = (1L << bitsPerBlock) - 1L;
+        this.size = size;
+    }
+
     private static int roundToMultiple(final int i, int multipleOf)
     {
         if (multipleOf == 0)
@@ -24,25 +24,27 @@
 
 package org.diorite.impl.world.chunk;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
+import org.diorite.impl.connection.packets.BroadcastPacket;
+import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundMapChunk;
 import org.diorite.impl.entity.IEntity;
+import org.diorite.impl.entity.IPlayer;
+import org.diorite.impl.scheduler.ISynchronizable;
+import org.diorite.impl.scheduler.SyncMailbox;
 import org.diorite.impl.world.TileEntityImpl;
 import org.diorite.impl.world.WorldImpl;
-import org.diorite.impl.world.chunk.palette.PaletteImpl;
 import org.diorite.event.EventType;
 import org.diorite.event.chunk.ChunkUnloadEvent;
 import org.diorite.material.BlockMaterialData;
 import org.diorite.material.Material;
-import org.diorite.nbt.NbtTag;
 import org.diorite.nbt.NbtTagCompound;
-import org.diorite.utils.collections.arrays.NibbleArray;
 import org.diorite.utils.collections.sets.ConcurrentSet;
 import org.diorite.world.Biome;
 import org.diorite.world.Block;
@@ -53,16 +55,22 @@ import org.diorite.world.chunk.ChunkPos;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
-public class ChunkImpl implements Chunk
+public class ChunkImpl implements Chunk, ISynchronizable
 {
     private final Object lock = new Object();
 
     protected volatile Thread   lastTickThread;
     protected final    ChunkPos pos;
     protected final    short[]  heightMap;
-    protected final AtomicBoolean populated = new AtomicBoolean(false);
+    protected final AtomicBoolean populated    = new AtomicBoolean(false);
+    protected final AtomicBoolean modified     = new AtomicBoolean(false); // if true, chunk was changed since it was loaded or saved
+    protected final AtomicInteger pendingLoads = new AtomicInteger();
+    protected volatile boolean evicted;
     protected byte[]          biomes;
     protected ChunkPartImpl[] chunkParts; // size of 16, parts can be null
+    private final AtomicInteger dataVersion = new AtomicInteger(); // incremented after any change of blocks, biomes or light
+    private volatile MapChunkPacket mapChunkPacket; // encoded full chunk packet shared by all players, null if chunk has no viewers
+    protected final SyncMailbox mailbox = new SyncMailbox(this);
 
     protected final Long2ObjectMap<TileEntityImpl> tileEntities = new Long2ObjectOpenHashMap<>(1, .2f);
     protected final Set<IEntity>                   entities     = new ConcurrentSet<>(4, .3f, 2);
@@ -84,6 +92,12 @@ public class ChunkImpl implements Chunk
         this.lastTickThread = lastTickThread;
     }
 
+    @Override
+    public SyncMailbox getMailbox()
+    {
+        return this.mailbox;
+    }
+
     public ChunkImpl(final ChunkPos pos, final byte[] biomes, final ChunkPartImpl[] chunkParts, final short[] heightMap)
     {
         this.pos = pos;
@@ -130,6 +144,8 @@ public class ChunkImpl implements Chunk
             return;
         }
         this.biomes[((z * Chunk.CHUNK_SIZE) + x)] = (byte) biome.getBiomeId();
+        this.modified.set(true);
+        this.invalidateMapChunkPacket();
     }
 
     @Override
@@ -183,14 +199,160 @@ public class ChunkImpl implements Chunk
         {
             this.biomes = biomes;
         }
+        if (biomes != null)
+        {
+            this.modified.set(true);
+        }
+        this.invalidateMapChunkPacket();
     }
 
     public void setChunkParts(final ChunkPartImpl[] chunkParts)
     {
+        final boolean wasLoaded;
         synchronized (this.lock)
         {
+            wasLoaded = this.chunkParts != null;
             this.chunkParts = chunkParts;
         }
+        if (chunkParts != null)
+        {
+            this.modified.set(true);
+        }
+        this.invalidateMapChunkPacket();
+        this.updateTicked();
+        this.loadChanged(wasLoaded, false);
+    }
+
+    /**
+     * Restore data of this chunk from cache of recently unloaded chunks.
+     *
+     * @param chunkParts chunk parts of chunk.
+     * @param biomes     biomes of chunk.
+     * @param heightMap  height map of chunk.
+     * @param populated  if chunk was populated.
+     * @param modified   if chunk was changed since it was saved.
+     */
+    void restore(final ChunkPartImpl[] chunkParts, final byte[] biomes, final short[] heightMap, final boolean populated, final boolean modified)
+    {
+        final boolean wasLoaded;
+        synchronized (this.lock)
+        {
+            wasLoaded = this.chunkParts != null;
+            if (heightMap != this.heightMap)
+            {
+                System.arraycopy(heightMap, 0, this.heightMap, 0, this.heightMap.length);
+            }
+            this.biomes = biomes;
+            this.populated.set(populated);
+            this.modified.set(modified);
+            this.chunkParts = chunkParts;
+        }
+        this.invalidateMapChunkPacket();
+        this.updateTicked();
+        this.loadChanged(wasLoaded, true);
+    }
+
+    short[] getHeightMap()
+    {
+        return this.heightMap;
+    }
+
+    /**
+     * Returns true if this chunk was removed from chunk manager, so it will not be loaded again. <br>
+     * Objects that store chunk for longer time should get new instance from world in that case.
+     *
+     * @return true if this chunk was removed from chunk manager.
+     */
+    public boolean isEvicted()
+    {
+        return this.evicted;
+    }
+
+    /**
+     * Mark this chunk as evicted if it {@link #canBeEvicted() can be evicted}, invoked by chunk manager while it holds
+     * lock of map segment of this chunk, so chunk can't be found and pinned again in the meantime.
+     *
+     * @return true if chunk is now evicted and must be removed from chunk manager.
+     */
+    boolean tryEvict()
+    {
+        synchronized (this.lock)
+        {
+            if (! this.canBeEvicted())
+            {
+                return false;
+            }
+            this.evicted = true;
+            return true;
+        }
+    }
+
+    /**
+     * Invoked when chunk load request for this chunk is created, chunk will not be evicted until it is finished.
+     *
+     * @return false if chunk was already evicted, so new instance must be used for loading.
+     */
+    public boolean onLoadQueued()
+    {
+        synchronized (this.lock)
+        {
+            if (this.evicted)
+            {
+                return false;
+            }
+            this.pendingLoads.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Invoked when chunk load request for this chunk is finished.
+     */
+    public void onLoadFinished()
+    {
+        this.pendingLoads.decrementAndGet();
+    }
+
+    /**
+     * Returns true if this chunk isn't loaded and isn't used, so it can be removed from chunk manager.
+     *
+     * @return true if this chunk can be removed from chunk manager.
+     */
+    public boolean canBeEvicted()
+    {
+        return ! this.isLoaded() && this.entities.isEmpty() && (this.pendingLoads.get() == 0);
+    }
+
+    /**
+     * Returns estimated amount of heap memory used by this chunk, in bytes.
+     *
+     * @return estimated amount of used memory.
+     */
+    public int getMemoryUsage()
+    {
+        return getMemoryUsage(this.chunkParts, this.biomes);
+    }
+
+    @SuppressWarnings("MagicNumber")
+    static int getMemoryUsage(final ChunkPartImpl[] chunkParts, final byte[] biomes)
+    {
+        int size = 128 + 16 + ((Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE) << 1);
+        if (biomes != null)
+        {
+            size += 16 + biomes.length;
+        }
+        if (chunkParts != null)
+        {
+            size += 16 + (chunkParts.length << 3);
+            for (final ChunkPartImpl chunkPart : chunkParts)
+            {
+                if (chunkPart != null)
+                {
+                    size += chunkPart.getMemoryUsage();
+                }
+            }
+        }
+        return size;
     }
 
     public Long2ObjectMap<TileEntityImpl> getTileEntities()
@@ -205,12 +367,103 @@ public class ChunkImpl implements Chunk
 
     public boolean removeEntity(final IEntity entity)
     {
-        return this.entities.remove(entity);
+        if (this.entities.remove(entity))
+        {
+            this.entityChanged(entity);
+            this.updateTicked();
+            return true;
+        }
+        return false;
     }
 
     public boolean addEntity(final IEntity entity)
     {
-        return this.entities.add(entity);
+        synchronized (this.lock)
+        {
+            if (! this.evicted)
+            {
+                if (! this.entities.add(entity))
+                {
+                    return false;
+                }
+                this.entityChanged(entity);
+            }
+        }
+        if (this.evicted)
+        {
+            // chunk was evicted after entity found it, so entity must be added to current instance of this chunk.
+            return this.getWorld().getChunkManager().getChunk(this.getX(), this.getZ()).addEntity(entity);
+        }
+        this.updateTicked();
+        return true;
+    }
+
+    private void entityChanged(final IEntity entity)
+    {
+        // players are not stored in chunks.
+        if (! (entity instanceof IPlayer))
+        {
+            this.modified.set(true);
+        }
+    }
+
+    /**
+     * Returns true if chunk was changed since it was loaded or saved, so it needs to be saved again.
+     *
+     * @return true if chunk was modified.
+     */
+    public boolean isModified()
+    {
+        return this.modified.get();
+    }
+
+    /**
+     * Mark chunk as modified, so it will be saved by next save of world. <br>
+     * Changes of blocks, biomes and entities are tracked by chunk itself, this method must be invoked after changes of
+     * light or tile entities done directly on chunk data.
+     */
+    public void setModified()
+    {
+        this.modified.set(true);
+    }
+
+    /**
+     * Mark chunk as saved, invoked before chunk data is written.
+     *
+     * @return true if chunk was modified.
+     */
+    public boolean popModified()
+    {
+        return this.modified.getAndSet(false);
+    }
+
+    /**
+     * Returns true if this chunk should be ticked, so if it is loaded or it contains any entities.
+     *
+     * @return true if this chunk should be ticked.
+     */
+    public boolean isTicked()
+    {
+        return this.isLoaded() || ! this.entities.isEmpty();
+    }
+
+    private void updateTicked()
+    {
+        final WorldImpl world = this.getWorld();
+        if (world != null)
+        {
+            world.getChunkManager().updateTicked(this);
+        }
+    }
+
+    private void loadChanged(final boolean wasLoaded, final boolean restored)
+    {
+        final boolean loaded = this.isLoaded();
+        final WorldImpl world = this.getWorld();
+        if ((wasLoaded != loaded) && (world != null))
+        {
+            world.getChunkManager().onChunkLoadChanged(this, loaded, restored);
+        }
     }
 
     @Override
@@ -222,6 +475,7 @@ public class ChunkImpl implements Chunk
     public void setPopulated(final boolean populated)
     {
         this.populated.set(populated);
+        this.modified.set(true);
     }
 
     @Override
@@ -233,6 +487,7 @@ public class ChunkImpl implements Chunk
             {
                 if (this.populated.compareAndSet(false, true))
                 {
+                    this.modified.set(true);
                     this.getWorld().getGenerator().getPopulators().forEach(pop -> pop.populate(this));
                     return true;
                 }
@@ -247,18 +502,24 @@ public class ChunkImpl implements Chunk
     {
         synchronized (this.lock)
         {
-            for (int x = 0; x < CHUNK_SIZE; x++)
+            this.initHeightMap(this.chunkParts);
+        }
+    }
+
+    private void initHeightMap(final ChunkPartImpl[] chunkParts)
+    {
+        for (int x = 0; x < CHUNK_SIZE; x++)
+        {
+            for (int z = 0; z < CHUNK_SIZE; z++)
             {
-                for (int z = 0; z < CHUNK_SIZE; z++)
+                this.heightMap[((z << 4) | x)] = - 1;
+                for (short y = Chunk.CHUNK_FULL_HEIGHT - 1; y >= 0; y--)
                 {
-                    this.heightMap[((z << 4) | x)] = - 1;
-                    for (short y = Chunk.CHUNK_FULL_HEIGHT - 1; y >= 0; y--)
+                    final ChunkPartImpl chunkPart = chunkParts[(y >> 4)];
+                    if ((chunkPart != null) && chunkPart.getBlockType(x, y % Chunk.CHUNK_PART_HEIGHT, z).isSolid())
                     {
-                        if (this.getBlockType(x, y, z).isSolid())
-                        {
-                            this.heightMap[((z << 4) | x)] = y;
-                            break;
-                        }
+                        this.heightMap[((z << 4) | x)] = y;
+                        break;
                     }
                 }
             }
@@ -294,6 +555,8 @@ public class ChunkImpl implements Chunk
         }
 //        ServerImpl.getInstance().getPlayersManager().forEach(p -> p.getPlayerChunks().getVisibleChunks().contains(this), new PacketPlayOutBlockChange(new BlockLocation(x + (this.pos.getX() << 4), y, z + (this.pos.getZ() << 4), this.getWorld()), materialData));
         this.checkPart(chunkPart);
+        this.modified.set(true);
+        this.invalidateMapChunkPacket();
         return prev;
     }
 
@@ -409,78 +672,57 @@ public class ChunkImpl implements Chunk
         final ChunkPartImpl[] sections = new ChunkPartImpl[16];
         for (final NbtTagCompound sectionTag : sectionList)
         {
-            final byte y = sectionTag.getByte("Y");
-            final byte[] rawTypes = sectionTag.getByteArray("Blocks");
-            final NibbleArray extTypes = sectionTag.containsTag("Add") ? new NibbleArray(sectionTag.getByteArray("Add")) : null;
-            final NibbleArray data = new NibbleArray(sectionTag.getByteArray("Data"));
-            final NibbleArray blockLight = new NibbleArray(sectionTag.getByteArray("BlockLight"));
-            final NibbleArray skyLight = new NibbleArray(sectionTag.getByteArray("SkyLight"));
-
-            final PaletteImpl palette = new PaletteImpl();
-            final int[] loading = new int[rawTypes.length];
-            for (int i = 0; i < rawTypes.length; i++)
-            {
-                int k = ((((extTypes == null) ? 0 : extTypes.get(i)) << 12) | ((rawTypes[i] & 0xff) << 4) | data.get(i));
-                if (Material.getByID(k >> 4, k & 15) == null)
-                {
-                    final Material material = Material.getByID(k >> 4);
-                    k = (material == null) ? 0 : material.getIdAndMeta();
-//                    throw new IllegalArgumentException("Unknown material: " + k + " (" + (k >> 4) + ":" + (k & 15) + ")");
-                }
-                loading[i] = k;
-            }
-            final ChunkBlockData cd = new ChunkBlockData(palette.bitsPerBlock(), ChunkPartImpl.CHUNK_DATA_SIZE);
-            int k = 0;
-            for (final int i : loading)
-            {
-                cd.set(k++, palette.put(i));
-            }
-            final ChunkPartImpl part = new ChunkPartImpl(cd, palette, skyLight, blockLight, y);
-            sections[y] = part;
+            final ChunkPartImpl part = ChunkPartSerializer.read(sectionTag);
+            part.recalculateBlockCount();
+            sections[part.getYPos()] = part;
         }
-        this.chunkParts = sections;
-        this.recalculateBlockCounts();
-
-        this.populated.set(tag.getBoolean("TerrainPopulated"));
-        // TODO: load tile entites and other entities
 
         final byte[] biomes = tag.getByteArray("Biomes");
-        if (biomes != null)
-        {
-            this.biomes = biomes;
-        }
-        else
-        {
-            this.biomes = new byte[CHUNK_BIOMES_SIZE];
-        }
-        final short[] heightMap = tag.getShortArray("Diorite.HeightMap");
-        if (vc || (heightMap == null))
+        final short[] heightMap = tag.getShortArray(ChunkPartSerializer.HEIGHT_MAP_TAG);
+        final int[] vanillaHeightMap = (vc || (heightMap == null)) ? tag.getIntArray("HeightMap") : null;
+
+        final boolean wasLoaded;
+        synchronized (this.lock)
         {
-            final int[] array = tag.getIntArray("HeightMap");
-            if (array != null)
+            wasLoaded = this.chunkParts != null;
+            this.biomes = (biomes != null) ? biomes : new byte[CHUNK_BIOMES_SIZE];
+            if (vanillaHeightMap != null)
             {
                 for (int i = 0; i < this.heightMap.length; i++)
                 {
-                    this.heightMap[i] = (short) array[i];
+                    this.heightMap[i] = (short) vanillaHeightMap[i];
                 }
             }
+            else if (heightMap != null)
+            {
+                System.arraycopy(heightMap, 0, this.heightMap, 0, this.heightMap.length);
+            }
             else
             {
-                this.initHeightMap();
+                this.initHeightMap(sections);
             }
-        }
-        else
-        {
-            System.arraycopy(heightMap, 0, this.heightMap, 0, this.heightMap.length);
-        }
+            this.populated.set(tag.getBoolean("TerrainPopulated"));
+            // TODO: load tile entites and other entities
+            this.modified.set(false); // chunk is the same as saved one.
 
+            // chunk parts are published last, so other threads never see loaded chunk without rest of its data.
+            this.chunkParts = sections;
+        }
         this.init();
+        this.invalidateMapChunkPacket();
+        this.updateTicked();
+        this.loadChanged(wasLoaded, false);
 //        tag.getBoolean("LightPopulated"); // TODO
 //        tag.getLong("InhabitedTime"); // TODO
     }
 
-    @SuppressWarnings("MagicNumber")
-    public NbtTagCompound writeTo(final NbtTagCompound tag)
+    /**
+     * Take a copy-on-write snapshot of this chunk, it can be used to save chunk from other thread without locking
+     * this chunk, as changes made to chunk after snapshot will not be visible in it.
+     *
+     * @return snapshot of this chunk, or null if chunk isn't loaded.
+     */
+    public ChunkSnapshotImpl snapshot()
     {
         synchronized (this.lock)
         {
@@ -488,89 +730,18 @@ public class ChunkImpl implements Chunk
             {
                 return null;
             }
-            final boolean vc = this.getWorld().isVanillaCompatible();
-
-            tag.setByte("V", 1);
-            tag.setInt("xPos", this.getX());
-            tag.setInt("zPos", this.getZ());
-            tag.setLong("LastUpdate", this.getWorld().getTime());
-
-            // TODO: add converter command/util, to convert worlds to diorite/vanilla type.
-            if (vc)
-            {
-                final int[] array = new int[this.heightMap.length];
-                for (int i = 0; i < this.heightMap.length; i++)
-                {
-                    array[i] = this.heightMap[i];
-                }
-                tag.setIntArray("HeightMap", array);
-            }
-            else
-            {
-                tag.setShortArray("Diorite.HeightMap", this.heightMap);
-            }
+            return new ChunkSnapshotImpl(this);
+        }
+    }
 
-            tag.setBoolean("TerrainPopulated", this.populated.get());
-            tag.setBoolean("LightPopulated", false); // TODO
-            tag.setLong("InhabitedTime", 0); // TODO: value used to set local difficulty based on play time
-            final List<NbtTag> sections = new ArrayList<>(16);
-            final boolean hasSkyLight = this.getWorld().getDimension().hasSkyLight();
-            for (final ChunkPartImpl chunkPart : this.chunkParts)
-            {
-                if (chunkPart == null)
-                {
-                    continue;
-                }
-                final NbtTagCompound sectionNBT = new NbtTagCompound();
-                sectionNBT.setByte("Y", chunkPart.getYPos());
-                final ChunkBlockData data = chunkPart.getBlockData();
-                final PaletteImpl palette = chunkPart.getPalette();
-                final byte[] blocksIDs = new byte[ChunkPartImpl.CHUNK_DATA_SIZE];
-                final org.diorite.impl.world.chunk.ChunkNibbleArray blocksMetaData = new org.diorite.impl.world.chunk.ChunkNibbleArray();
-                org.diorite.impl.world.chunk.ChunkNibbleArray additionalData = null;
-                for (int i = 0; i < ChunkPartImpl.CHUNK_DATA_SIZE; ++ i)
-                {
-                    final int block = data.getAsInt(i, palette);
-                    final int blockMeta = i & 15;
-                    final int blockData = (i >> 8) & 15;
-                    final int blockID = (i >> 4) & 15;
-                    if ((block >> 12) != 0)
-                    {
-                        if (additionalData == null)
-                        {
-                            additionalData = new ChunkNibbleArray();
-                        }
-                        additionalData.set(blockMeta, blockData, blockID, block >> 12);
-                    }
-                    blocksIDs[i] = (byte) ((block >> 4) & 255);
-                    blocksMetaData.set(blockMeta, blockData, blockID, block & 15);
-                }
-                sectionNBT.setByteArray("Blocks", blocksIDs);
-                sectionNBT.setByteArray("Data", blocksMetaData.getRawData());
-                if (additionalData != null)
-                {
-                    sectionNBT.setByteArray("Add", additionalData.getRawData());
-                }
-                sectionNBT.setByteArray("BlockLight", chunkPart.getBlockLight().getRawData());
-                if (hasSkyLight)
-                {
-                    sectionNBT.setByteArray("SkyLight", chunkPart.getSkyLight().getRawData());
-                }
-                else
-                {
-                    sectionNBT.setByteArray("SkyLight", new byte[chunkPart.getBlockLight().getRawData().length]);
-                }
-                sections.add(sectionNBT);
-            }
-            tag.setList("Sections", sections);
-            if (this.biomes != null)
-            {
-                tag.setByteArray("Biomes", this.biomes);
-            }
-            tag.setList("Entities", new ArrayList<>(1));
-            tag.setList("TileEntities", new ArrayList<>(1));
-            return tag;
+    public NbtTagCompound writeTo(final NbtTagCompound tag)
+    {
+        final ChunkSnapshotImpl snapshot = this.snapshot();
+        if (snapshot == null)
+        {
+            return null;
         }
+        return snapshot.writeTo(tag);
     }
 
     public byte[] getBiomes()
@@ -608,6 +779,90 @@ public class ChunkImpl implements Chunk
         return this.chunkParts;
     }
 
+    /**
+     * Returns full map chunk packet of this chunk, it is encoded and compressed only once and shared by all players
+     * until any block, biome or light of chunk is changed. <br>
+     * Returned packet is owned by chunk, it must not be released by caller.
+     *
+     * @return shared map chunk packet.
+     */
+    public BroadcastPacket getMapChunkPacket()
+    {
+        final ChunkManagerImpl chunkManager = this.getWorld().getChunkManager();
+        // version is read before data is encoded, so packet encoded while chunk is changed is never used again.
+        final int version = this.dataVersion.get();
+        MapChunkPacket cached = this.mapChunkPacket;
+        if ((cached != null) && (cached.version == version))
+        {
+            chunkManager.onMapChunkPacket(true);
+            return cached.packet;
+        }
+        synchronized (this.lock)
+        {
+            cached = this.mapChunkPacket;
+            if ((cached != null) && (cached.version == version))
+            {
+                chunkManager.onMapChunkPacket(true);
+                return cached.packet;
+            }
+            if (cached != null)
+            {
+                cached.packet.release();
+            }
+            cached = new MapChunkPacket(version, new BroadcastPacket(new PacketPlayClientboundMapChunk(true, this)));
+            this.mapChunkPacket = cached;
+            chunkManager.onMapChunkPacket(false);
+            return cached.packet;
+        }
+    }
+
+    /**
+     * Mark cached map chunk packet as outdated, must be invoked after any change of blocks, biomes or light in this
+     * chunk. <br>
+     * Lock of chunk is used only if there is cached packet to release.
+     */
+    public void invalidateMapChunkPacket()
+    {
+        this.dataVersion.incrementAndGet();
+        if (this.mapChunkPacket != null)
+        {
+            this.releaseMapChunkPacket();
+        }
+    }
+
+    /**
+     * Release cached map chunk packet, invoked when there is no more players viewing this chunk, so chunks that
+     * aren't sent to anyone don't keep encoded data in memory.
+     */
+    public void releaseMapChunkPacket()
+    {
+        final MapChunkPacket cached;
+        synchronized (this.lock)
+        {
+            cached = this.mapChunkPacket;
+            this.mapChunkPacket = null;
+        }
+        if (cached != null)
+        {
+            cached.packet.release();
+        }
+    }
+
+    /**
+     * Encoded map chunk packet with version of chunk data that it was encoded from.
+     */
+    private static final class MapChunkPacket
+    {
+        private final int             version;
+        private final BroadcastPacket packet;
+
+        private MapChunkPacket(final int version, final BroadcastPacket packet)
+        {
+            this.version = version;
+            this.packet = packet;
+        }
+    }
+
     @Override
     public String toString()
     {
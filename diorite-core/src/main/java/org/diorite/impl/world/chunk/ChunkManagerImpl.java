@@ -24,13 +24,10 @@
 
 package org.diorite.impl.world.chunk;
 
-import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
@@ -43,10 +40,12 @@ import org.diorite.impl.world.WorldImpl;
 import org.diorite.impl.world.generator.ChunkBuilderImpl;
 import org.diorite.impl.world.io.ChunkIOService;
 import org.diorite.impl.world.io.requests.ChunkLoadRequest;
+import org.diorite.impl.world.io.requests.ChunkSaveRequest;
 import org.diorite.event.EventType;
 import org.diorite.event.chunk.ChunkGenerateEvent;
 import org.diorite.event.chunk.ChunkLoadEvent;
 import org.diorite.event.chunk.ChunkPopulateEvent;
+import org.diorite.utils.collections.maps.ConcurrentLong2ObjectHashMap;
 import org.diorite.utils.math.endian.BigEndianUtils;
 import org.diorite.world.chunk.Chunk;
 import org.diorite.world.chunk.ChunkManager;
@@ -54,11 +53,26 @@ import org.diorite.world.chunk.ChunkPos;
 import org.diorite.world.generator.WorldGenerator;
 import org.diorite.world.generator.maplayer.MapLayer;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
 
 public class ChunkManagerImpl implements ChunkManager, Tickable
 {
+    /**
+     * Default amount of recently unloaded chunks kept in memory.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    /**
+     * Default time in seconds for which chunks without tickets are kept loaded.
+     */
+    public static final int DEFAULT_UNLOAD_DELAY = 10;
+
+    private static final ChunkImpl[] EMPTY_CHUNKS = new ChunkImpl[0];
 
     /**
      * Core instance.
@@ -89,12 +103,65 @@ public class ChunkManagerImpl implements ChunkManager, Tickable
     /**
      * A map of chunks currently loaded in memory.
      */
-    private final ConcurrentMap<Long, ChunkImpl> chunks = new ConcurrentHashMap<>(1000, .25f, 8);
+    private final ConcurrentLong2ObjectHashMap<ChunkImpl> chunks = new ConcurrentLong2ObjectHashMap<>(1000, 8);
+
+    /**
+     * Tickets of chunks which are being kept loaded by players or other factors, and chunks without tickets that are
+     * waiting for unload delay to elapse.
+     */
+    private final ConcurrentLong2ObjectHashMap<ChunkTickets> tickets = new ConcurrentLong2ObjectHashMap<>(1000, 8);
+
+    /**
+     * Tickets of chunks that are forced to stay loaded.
+     */
+    private final ChunkLock forcedLock;
+
+    /**
+     * Time in nanoseconds for which chunks without tickets are kept loaded, so chunks on border of view distance of
+     * players moving back and forth aren't loaded and unloaded all the time.
+     */
+    private volatile long unloadDelay = TimeUnit.SECONDS.toNanos(DEFAULT_UNLOAD_DELAY);
 
     /**
-     * A map of chunks which are being kept loaded by players or other factors.
+     * Loaded chunks and chunks with entities, in order of loading, maintained by chunks when they are loaded, unloaded or
+     * their entities change, so tick groups don't need to scan all stored chunks every tick.
      */
-    private final ConcurrentMap<Long, Set<ChunkLock>> locks = new ConcurrentHashMap<>(1000, .25f, 8);
+    private final ObjectLinkedOpenHashSet<ChunkImpl> tickedChunks = new ObjectLinkedOpenHashSet<>(1000, .5f);
+
+    /**
+     * Array of {@link #tickedChunks} returned to tick groups, recreated only when ticked chunks change.
+     */
+    private volatile ChunkImpl[] tickedSnapshot = EMPTY_CHUNKS;
+
+    /**
+     * Data of recently unloaded chunks, from least to most recently unloaded, so chunks loaded again soon don't need to be read from disk.
+     */
+    private final Long2ObjectLinkedOpenHashMap<CachedChunk> cache = new Long2ObjectLinkedOpenHashMap<>(DEFAULT_CACHE_SIZE);
+
+    /**
+     * Last queued and not yet finished save request of each chunk, cached chunk with pending save can't be removed
+     * from {@link #cache}, as loading it from disk before it is saved would read outdated data.
+     */
+    private final ConcurrentLong2ObjectHashMap<ChunkSaveRequest> pendingSaves = new ConcurrentLong2ObjectHashMap<>(100, 8);
+
+    /**
+     * Max amount of chunks in {@link #cache}, cache might be bigger if saves of cached chunks aren't finished yet.
+     */
+    private volatile int  cacheSize = DEFAULT_CACHE_SIZE;
+    private          long cacheMemory;
+
+    /**
+     * Amount of map chunk packets reused from chunk and amount of map chunk packets that needed to be encoded.
+     */
+    private final LongAdder mapChunkPacketHits   = new LongAdder();
+    private final LongAdder mapChunkPacketMisses = new LongAdder();
+
+    /**
+     * Amount of loaded chunks, loaded chunks restored from cache of recently unloaded chunks, and unloaded chunks.
+     */
+    private final LongAdder chunkLoads    = new LongAdder();
+    private final LongAdder chunkRestores = new LongAdder();
+    private final LongAdder chunkUnloads  = new LongAdder();
 
     public ChunkManagerImpl(final DioriteCore core, final WorldImpl world, final ChunkIOService service, final WorldGenerator generator)
     {
@@ -103,6 +170,7 @@ public class ChunkManagerImpl implements ChunkManager, Tickable
         this.service = service;
         this.generator = generator;
         this.biomeGrid = MapLayer.initialize(world.getSeed(), world.getDimension(), world.getWorldType());
+        this.forcedLock = new ChunkLock(this, ChunkTicketType.FORCED, world.getName() + ": forced chunks");
     }
 
     public WorldGenerator getGenerator()
@@ -115,6 +183,40 @@ public class ChunkManagerImpl implements ChunkManager, Tickable
         return this.service;
     }
 
+    public int getCacheSize()
+    {
+        return this.cacheSize;
+    }
+
+    public void setCacheSize(final int cacheSize)
+    {
+        this.cacheSize = Math.max(cacheSize, 0);
+        synchronized (this.cache)
+        {
+            this.trimCache();
+        }
+    }
+
+    /**
+     * Returns time in seconds for which chunks without tickets are kept loaded.
+     *
+     * @return unload delay in seconds.
+     */
+    public int getUnloadDelay()
+    {
+        return (int) TimeUnit.NANOSECONDS.toSeconds(this.unloadDelay);
+    }
+
+    /**
+     * Set time in seconds for which chunks without tickets are kept loaded.
+     *
+     * @param unloadDelay unload delay in seconds, 0 to unload chunks on next check.
+     */
+    public void setUnloadDelay(final int unloadDelay)
+    {
+        this.unloadDelay = TimeUnit.SECONDS.toNanos(Math.max(unloadDelay, 0));
+    }
+
     public MapLayer[] getBiomeGrid()
     {
         return this.biomeGrid;
@@ -134,63 +236,186 @@ public class ChunkManagerImpl implements ChunkManager, Tickable
     @Override
     public ChunkImpl getChunk(final int x, final int z)
     {
-        final Long key = BigEndianUtils.toLong(x, z);
-        if (this.chunks.containsKey(key))
-        {
-            return this.chunks.get(key);
-        }
-        else
+        // only create chunk if it's not in the map already, lookup of existing chunk doesn't lock.
+        return this.chunks.computeIfAbsent(BigEndianUtils.toLong(x, z), key -> new ChunkImpl(new ChunkPos(x, z, this.world)));
+    }
+
+    /**
+     * Returns chunk at given coordinates marked as being loaded, so it can't be evicted until {@link ChunkImpl#onLoadFinished()}
+     * is invoked.
+     *
+     * @param x x coordinate of chunk.
+     * @param z z coordinate of chunk.
+     *
+     * @return pinned chunk at given coordinates.
+     */
+    public ChunkImpl getChunkForLoad(final int x, final int z)
+    {
+        while (true)
         {
-            // only create chunk if it's not in the map already
-            final ChunkImpl chunk = new ChunkImpl(new ChunkPos(x, z, this.world));
-            final ChunkImpl prev = this.chunks.putIfAbsent(key, chunk);
-            // if it was created in the intervening time, the earlier one wins
-            return (prev == null) ? chunk : prev;
+            final ChunkImpl chunk = this.getChunk(x, z);
+            if (chunk.onLoadQueued())
+            {
+                return chunk;
+            }
+            // chunk was evicted right after lookup, next lookup will find or create new instance.
         }
     }
 
+    /**
+     * Returns chunk with given key (see {@link BigEndianUtils#toLong(int, int)}) only if it is loaded, new chunk is never created.
+     *
+     * @param key key of chunk.
+     *
+     * @return loaded chunk, or null.
+     */
+    public ChunkImpl getLoadedChunk(final long key)
+    {
+        final ChunkImpl chunk = this.chunks.get(key);
+        return ((chunk != null) && chunk.isLoaded()) ? chunk : null;
+    }
+
+    /**
+     * Returns chunk with given key (see {@link BigEndianUtils#toLong(int, int)}) only if it is {@link ChunkImpl#isTicked() ticked},
+     * so it is loaded or contains entities, new chunk is never created.
+     *
+     * @param key key of chunk.
+     *
+     * @return ticked chunk, or null.
+     */
+    public ChunkImpl getTickedChunk(final long key)
+    {
+        final ChunkImpl chunk = this.chunks.get(key);
+        return ((chunk != null) && chunk.isTicked()) ? chunk : null;
+    }
+
     @Override
     public boolean isChunkLoaded(final int x, final int z)
     {
-        final Long key = BigEndianUtils.toLong(x, z);
-        final ChunkImpl chunk = this.chunks.get(key);
+        final ChunkImpl chunk = this.chunks.get(BigEndianUtils.toLong(x, z));
         return (chunk != null) && chunk.isLoaded();
     }
 
     @Override
     public boolean isChunkInUse(final int x, final int z)
     {
-        final Long key = BigEndianUtils.toLong(x, z);
-        final Set<ChunkLock> lockSet = this.locks.get(key);
-        return (lockSet != null) && ! lockSet.isEmpty();
+        final ChunkTickets chunkTickets = this.tickets.get(BigEndianUtils.toLong(x, z));
+        return (chunkTickets != null) && chunkTickets.isInUse();
     }
 
-    public void loadChunkAsync(final int x, final int z, final boolean generate, final BiConsumer<ChunkImpl, Boolean> onEnd)
+    /**
+     * Returns amount of tickets of given type on given chunk.
+     *
+     * @param x    x coordinate of chunk.
+     * @param z    z coordinate of chunk.
+     * @param type type of tickets.
+     *
+     * @return amount of tickets of given type.
+     */
+    public int getTickets(final int x, final int z, final ChunkTicketType type)
     {
-        final ChunkImpl chunk = this.getChunk(x, z);
-        if (chunk.isLoaded())
+        final ChunkTickets chunkTickets = this.tickets.get(BigEndianUtils.toLong(x, z));
+        return (chunkTickets == null) ? 0 : chunkTickets.get(type);
+    }
+
+    @Override
+    public void addChunkTicket(final int x, final int z, final int radius)
+    {
+        for (int cx = x - radius; cx <= (x + radius); cx++)
+        {
+            for (int cz = z - radius; cz <= (z + radius); cz++)
+            {
+                this.addTicket(BigEndianUtils.toLong(cx, cz), ChunkTicketType.PLUGIN);
+            }
+        }
+    }
+
+    @Override
+    public void removeChunkTicket(final int x, final int z, final int radius)
+    {
+        for (int cx = x - radius; cx <= (x + radius); cx++)
+        {
+            for (int cz = z - radius; cz <= (z + radius); cz++)
+            {
+                this.removeTicket(BigEndianUtils.toLong(cx, cz), ChunkTicketType.PLUGIN);
+            }
+        }
+    }
+
+    @Override
+    public void setForceLoaded(final int x, final int z, final boolean forced)
+    {
+        final long key = BigEndianUtils.toLong(x, z);
+        if (! forced)
         {
-            onEnd.accept(chunk, false);
+            this.forcedLock.release(key);
             return;
         }
-        final ChunkLoadRequest chunkLoadRequest = new ChunkLoadRequest(ChunkIOService.INSTANT_PRIORITY, chunk, x, z);
-        chunkLoadRequest.addOnEnd(r -> {
-            ChunkImpl loadedChunk = r.get();
-            if (generate && (loadedChunk == null))
+        // ticket is added before load, so chunk can't be unloaded right after it.
+        this.forcedLock.acquire(key);
+        if (! this.isChunkLoaded(x, z))
+        {
+            this.loadChunkAsync(x, z, true, (c, loaded) -> {});
+        }
+    }
+
+    @Override
+    public boolean isForceLoaded(final int x, final int z)
+    {
+        return this.getTickets(x, z, ChunkTicketType.FORCED) > 0;
+    }
+
+    public void loadChunkAsync(final int x, final int z, final boolean generate, final BiConsumer<ChunkImpl, Boolean> onEnd)
+    {
+        final ChunkImpl chunk = this.getChunkForLoad(x, z);
+        try
+        {
+            if (chunk.isLoaded())
             {
-                this.core.sync(() -> {
-                    final ChunkGenerateEvent genEvt = new ChunkGenerateEvent(chunk);
-                    EventType.callEvent(genEvt);
-                });
-                loadedChunk = chunk;
+                onEnd.accept(chunk, false);
+                return;
             }
-            else if (loadedChunk == null)
+            if (this.restoreCached(chunk))
             {
-                loadedChunk = chunk;
+                onEnd.accept(chunk, true);
+                return;
             }
-            onEnd.accept(loadedChunk, true);
-        });
-        this.service.queue(chunkLoadRequest);
+            final ChunkLoadRequest chunkLoadRequest = new ChunkLoadRequest(ChunkIOService.INSTANT_PRIORITY, chunk, x, z);
+            chunkLoadRequest.addOnEnd(r -> {
+                if (r.getError() != null)
+                {
+                    // chunk can't be read, it must not be generated again over existing data.
+                    onEnd.accept(chunk, false);
+                    return;
+                }
+                ChunkImpl loadedChunk = r.get();
+                if (generate && (loadedChunk == null))
+                {
+                    // request is still running, so chunk is pinned and it can be pinned again until it is generated.
+                    chunk.onLoadQueued();
+                    this.core.sync(() -> {
+                        try
+                        {
+                            final ChunkGenerateEvent genEvt = new ChunkGenerateEvent(chunk);
+                            EventType.callEvent(genEvt);
+                        } finally
+                        {
+                            chunk.onLoadFinished();
+                        }
+                    });
+                    loadedChunk = chunk;
+                }
+                else if (loadedChunk == null)
+                {
+                    loadedChunk = chunk;
+                }
+                onEnd.accept(loadedChunk, true);
+            });
+            this.service.queue(chunkLoadRequest);
+        } finally
+        {
+            chunk.onLoadFinished();
+        }
     }
 
     @Override
@@ -213,35 +438,344 @@ public class ChunkManagerImpl implements ChunkManager, Tickable
         {
             return false;
         }
+        if (! chunk.onLoadQueued())
+        {
+            // chunk was evicted before it was generated, so load it again.
+            return this.loadChunk(x, z, true);
+        }
 
         // get generating
-        final ChunkGenerateEvent genEvt = new ChunkGenerateEvent(chunk);
-        EventType.callEvent(genEvt);
-        return ! genEvt.isCancelled();
+        try
+        {
+            final ChunkGenerateEvent genEvt = new ChunkGenerateEvent(chunk);
+            EventType.callEvent(genEvt);
+            return ! genEvt.isCancelled();
+        } finally
+        {
+            chunk.onLoadFinished();
+        }
     }
 
+    /**
+     * Unload chunks without tickets, loaded chunks are unloaded only if they didn't have any ticket for at least
+     * {@link #getUnloadDelay()} seconds.
+     */
     @Override
     public void unloadOldChunks()
     {
-        for (final Map.Entry<Long, ChunkImpl> entry : this.chunks.entrySet())
+        final long now = System.nanoTime();
+        final long delay = this.unloadDelay;
+        for (final Iterator<Long2ObjectMap.Entry<ChunkImpl>> it = this.chunks.entryIterator(); it.hasNext(); )
         {
-            final Set<ChunkLock> lockSet = this.locks.get(entry.getKey());
-            if ((lockSet == null) || lockSet.isEmpty())
+            final Long2ObjectMap.Entry<ChunkImpl> entry = it.next();
+            final long key = entry.getLongKey();
+            final ChunkImpl chunk = entry.getValue();
+            if (chunk.isLoaded())
             {
-                if (! entry.getValue().unload(true, true))
+                // chunks are unused since last release of ticket, or since first check that found them without tickets.
+                // tickets are checked under lock of map segment, and tickets added while chunk is unloading are
+                // handled after unload.
+                final ChunkTickets chunkTickets = this.tickets.compute(key, t -> {
+                    final ChunkTickets result = (t == null) ? new ChunkTickets(now) : t;
+                    result.tryStartUnload(now, delay);
+                    return result;
+                });
+                if (! chunkTickets.isUnloading())
+                {
+                    continue;
+                }
+                final boolean unloaded = chunk.unload(true, true);
+                final ChunkTickets afterUnload = this.tickets.computeIfPresent(key, t -> {
+                    t.finishUnload();
+                    return t;
+                });
+                if (! unloaded)
                 {
-                    System.err.println("[ChunkIO] Failed to unload chunk " + this.world.getName() + ":" + entry.getKey());
+                    System.err.println("[ChunkIO] Failed to unload chunk " + this.world.getName() + ":" + key);
+                    continue;
                 }
+                if ((afterUnload != null) && afterUnload.isInUse())
+                {
+                    // ticket was added while chunk was unloading, so its owner may think that chunk is still loaded.
+                    this.loadChunkAsync(chunk.getX(), chunk.getZ(), true, (c, loaded) -> {});
+                    continue;
+                }
+            }
+            else if (this.isChunkInUse(key))
+            {
+                continue;
             }
-            // cannot remove old chunks from cache - Block and BlockState keep references.
-            // they must either be changed to look up the chunk again all the time, or this code left out.
-            /*if (!entry.getValue().isLoaded()) {
-                chunks.entrySet().remove(entry);
-                locks.remove(entry.getKey());
-            }*/
+            this.tickets.computeIfPresent(key, t -> t.isInUse() ? t : null);
+            // Block looks up chunk again when it is evicted, so unused chunks can be removed.
+            // chunk is evicted under lock of its map segment, so it can't be found and pinned by other thread in the meantime.
+            this.chunks.computeIfPresent(key, c -> ((c == chunk) && chunk.tryEvict()) ? null : c);
         }
     }
 
+    private boolean isChunkInUse(final long key)
+    {
+        final ChunkTickets chunkTickets = this.tickets.get(key);
+        return (chunkTickets != null) && chunkTickets.isInUse();
+    }
+
+    /**
+     * Add or remove chunk from ticked chunks, invoked by chunk when it is loaded, unloaded or when its entities change.
+     *
+     * @param chunk updated chunk.
+     */
+    void updateTicked(final ChunkImpl chunk)
+    {
+        synchronized (this.tickedChunks)
+        {
+            // detached and evicted chunks are never ticked.
+            final boolean ticked = chunk.isTicked() && ! chunk.isEvicted() && (this.chunks.get(BigEndianUtils.toLong(chunk.getX(), chunk.getZ())) == chunk);
+            if (ticked ? this.tickedChunks.add(chunk) : this.tickedChunks.remove(chunk))
+            {
+                this.tickedSnapshot = null;
+            }
+        }
+    }
+
+    /**
+     * Returns array of loaded chunks and chunks with entities. <br>
+     * Returned array is shared and must not be modified, new array is only created when ticked chunks changed since
+     * last invocation, so it can be used every tick without creating garbage.
+     *
+     * @return array of ticked chunks.
+     */
+    public ChunkImpl[] getTickedChunks()
+    {
+        ChunkImpl[] snapshot = this.tickedSnapshot;
+        if (snapshot != null)
+        {
+            return snapshot;
+        }
+        synchronized (this.tickedChunks)
+        {
+            snapshot = this.tickedSnapshot;
+            if (snapshot == null)
+            {
+                snapshot = this.tickedChunks.isEmpty() ? EMPTY_CHUNKS : this.tickedChunks.toArray(new ChunkImpl[this.tickedChunks.size()]);
+                this.tickedSnapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Store data of chunk that is being unloaded, so it can be restored without reading it from disk.
+     *
+     * @param chunk chunk to cache.
+     */
+    public void cacheUnloaded(final ChunkImpl chunk)
+    {
+        final long key = BigEndianUtils.toLong(chunk.getX(), chunk.getZ());
+        if (((this.cacheSize == 0) && ! this.pendingSaves.containsKey(key)) || (chunk.getChunkParts() == null))
+        {
+            return;
+        }
+        final CachedChunk cached = new CachedChunk(chunk.getChunkParts(), chunk.getBiomes(), chunk.getHeightMap(), chunk.isPopulated(), chunk.isModified());
+        synchronized (this.cache)
+        {
+            final CachedChunk prev = this.cache.putAndMoveToLast(key, cached);
+            if (prev != null)
+            {
+                this.cacheMemory -= prev.memory;
+            }
+            this.cacheMemory += cached.memory;
+            this.trimCache();
+        }
+    }
+
+    private void trimCache()
+    {
+        // least recently unloaded chunks are removed first, skipping chunks that are still being saved.
+        for (final LongIterator it = this.cache.keySet().iterator(); (this.cache.size() > this.cacheSize) && it.hasNext(); )
+        {
+            final long key = it.nextLong();
+            if (! this.pendingSaves.containsKey(key))
+            {
+                this.cacheMemory -= this.cache.get(key).memory;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Restore data of given chunk from cache of recently unloaded chunks.
+     *
+     * @param chunk chunk to restore.
+     *
+     * @return true if chunk was cached and it is now loaded.
+     */
+    public boolean restoreCached(final ChunkImpl chunk)
+    {
+        final CachedChunk cached;
+        synchronized (this.cache)
+        {
+            cached = this.cache.remove(BigEndianUtils.toLong(chunk.getX(), chunk.getZ()));
+            if (cached == null)
+            {
+                return false;
+            }
+            this.cacheMemory -= cached.memory;
+        }
+        chunk.restore(cached.chunkParts, cached.biomes, cached.heightMap, cached.populated, cached.modified);
+        return true;
+    }
+
+    /**
+     * Remove given chunk from cache of recently unloaded chunks.
+     *
+     * @param x x coordinate of chunk.
+     * @param z z coordinate of chunk.
+     */
+    public void invalidateCached(final int x, final int z)
+    {
+        synchronized (this.cache)
+        {
+            final CachedChunk cached = this.cache.remove(BigEndianUtils.toLong(x, z));
+            if (cached != null)
+            {
+                this.cacheMemory -= cached.memory;
+            }
+        }
+    }
+
+    /**
+     * Returns amount of chunks stored in manager, including not loaded ones.
+     *
+     * @return amount of stored chunks.
+     */
+    public int getChunksCount()
+    {
+        return this.chunks.size();
+    }
+
+    public int getCachedChunksCount()
+    {
+        synchronized (this.cache)
+        {
+            return this.cache.size();
+        }
+    }
+
+    /**
+     * Returns estimated amount of heap memory used by recently unloaded chunks, in bytes.
+     *
+     * @return estimated amount of memory used by cached chunks.
+     */
+    public long getCachedChunksMemory()
+    {
+        synchronized (this.cache)
+        {
+            return this.cacheMemory;
+        }
+    }
+
+    /**
+     * Invoked by chunk when it is loaded or unloaded.
+     *
+     * @param chunk    loaded or unloaded chunk.
+     * @param loaded   if chunk was loaded.
+     * @param restored if chunk was loaded from cache of recently unloaded chunks.
+     */
+    void onChunkLoadChanged(final ChunkImpl chunk, final boolean loaded, final boolean restored)
+    {
+        if (! loaded)
+        {
+            this.chunkUnloads.increment();
+            return;
+        }
+        this.chunkLoads.increment();
+        // unload delay of chunk without tickets starts when it is loaded.
+        final long now = System.nanoTime();
+        this.tickets.computeIfPresent(BigEndianUtils.toLong(chunk.getX(), chunk.getZ()), t -> {
+            t.touch(now);
+            return t;
+        });
+        if (restored)
+        {
+            this.chunkRestores.increment();
+        }
+    }
+
+    /**
+     * Returns amount of chunks loaded since start of server, including chunks restored from cache.
+     *
+     * @return amount of loaded chunks.
+     */
+    public long getChunkLoads()
+    {
+        return this.chunkLoads.sum();
+    }
+
+    /**
+     * Returns amount of chunks restored from cache of recently unloaded chunks, as they were loaded again soon after
+     * unload.
+     *
+     * @return amount of restored chunks.
+     */
+    public long getChunkRestores()
+    {
+        return this.chunkRestores.sum();
+    }
+
+    /**
+     * Returns amount of chunks unloaded since start of server.
+     *
+     * @return amount of unloaded chunks.
+     */
+    public long getChunkUnloads()
+    {
+        return this.chunkUnloads.sum();
+    }
+
+    /**
+     * Invoked by chunk when its map chunk packet is requested.
+     *
+     * @param hit if packet was already encoded.
+     */
+    void onMapChunkPacket(final boolean hit)
+    {
+        (hit ? this.mapChunkPacketHits : this.mapChunkPacketMisses).increment();
+    }
+
+    /**
+     * Returns amount of map chunk packets sent without encoding chunk again.
+     *
+     * @return amount of reused map chunk packets.
+     */
+    public long getMapChunkPacketHits()
+    {
+        return this.mapChunkPacketHits.sum();
+    }
+
+    /**
+     * Returns amount of map chunk packets that needed to be encoded.
+     *
+     * @return amount of encoded map chunk packets.
+     */
+    public long getMapChunkPacketMisses()
+    {
+        return this.mapChunkPacketMisses.sum();
+    }
+
+    /**
+     * Returns estimated amount of heap memory used by stored chunks, in bytes.
+     *
+     * @return estimated amount of memory used by stored chunks.
+     */
+    public long getChunksMemory()
+    {
+        long memory = 0;
+        for (final ChunkImpl chunk : this.chunks.values())
+        {
+            memory += chunk.getMemoryUsage();
+        }
+        return memory;
+    }
+
     @Override
     public void populateChunk(final int x, final int z, final boolean force)
     {
@@ -281,6 +815,7 @@ public class ChunkManagerImpl implements ChunkManager, Tickable
         {
             return false;
         }
+        this.invalidateCached(x, z);
         chunk.setPopulated(false);
         try
         {
@@ -314,23 +849,58 @@ public class ChunkManagerImpl implements ChunkManager, Tickable
     @Override
     public boolean save(final Chunk chunk)
     {
-        if (chunk.isLoaded())
-        {
-            this.service.queueChunkSave((ChunkImpl) chunk, ChunkIOService.MEDIUM_PRIORITY);
-            return true;
-        }
-        return false;
+        return this.save(chunk, ChunkIOService.MEDIUM_PRIORITY);
     }
 
+    /**
+     * Queue save of given chunk, chunks that are not modified since last save are skipped.
+     *
+     * @param chunk    chunk to save.
+     * @param priority priority of save request.
+     *
+     * @return false if chunk isn't loaded.
+     */
     @Override
     public boolean save(final Chunk chunk, final int priority)
     {
-        if (chunk.isLoaded())
+        if (! chunk.isLoaded())
+        {
+            return false;
+        }
+        if (((ChunkImpl) chunk).isModified())
         {
-            this.service.queueChunkSave((ChunkImpl) chunk, priority);
-            return true;
+            this.queueSave((ChunkImpl) chunk, priority);
+        }
+        return true;
+    }
+
+    /**
+     * Queue save of given chunk, request is tracked until it is finished, so data of chunk unloaded in meantime is
+     * kept in cache of recently unloaded chunks and it isn't read from disk before it is saved.
+     *
+     * @param chunk    chunk to save.
+     * @param priority priority of save request.
+     *
+     * @return queued request.
+     */
+    public ChunkSaveRequest queueSave(final ChunkImpl chunk, final int priority)
+    {
+        final long key = BigEndianUtils.toLong(chunk.getX(), chunk.getZ());
+        final ChunkSaveRequest request = new ChunkSaveRequest(priority, chunk);
+        // callback is added before request is queued, so it can't be missed.
+        request.addOnEnd(r -> this.onSaveFinished(key, request));
+        this.pendingSaves.put(key, request);
+        return this.service.queue(request);
+    }
+
+    private void onSaveFinished(final long key, final ChunkSaveRequest request)
+    {
+        // compared by identity, as newer save of same chunk might be equal to this one.
+        this.pendingSaves.computeIfPresent(key, r -> (r == request) ? null : r);
+        synchronized (this.cache)
+        {
+            this.trimCache();
         }
-        return false;
     }
 
     public int[] getBiomeGridAtLowerRes(final int x, final int z, final int sizeX, final int sizeZ)
@@ -341,47 +911,200 @@ public class ChunkManagerImpl implements ChunkManager, Tickable
     @Override
     public void doTick(final int tps)
     {
-        this.chunks.values().stream().filter(ChunkImpl::isLoaded).forEach(c -> c.getTileEntities().forEach((l, t) -> t.doTick(tps)));
+        for (final ChunkImpl chunk : this.getTickedChunks())
+        {
+            if (chunk.isLoaded())
+            {
+                chunk.getTileEntities().forEach((l, t) -> t.doTick(tps));
+            }
+        }
     }
 
     /**
-     * Look up the set of locks on a given chunk.
+     * Add ticket of given type to a given chunk.
      *
-     * @param key The chunk key.
+     * @param key  The chunk key.
+     * @param type The type of ticket.
+     */
+    private void addTicket(final long key, final ChunkTicketType type)
+    {
+        this.tickets.compute(key, t -> {
+            final ChunkTickets result = (t == null) ? new ChunkTickets(0) : t;
+            result.add(type);
+            return result;
+        });
+    }
+
+    /**
+     * Remove ticket of given type from a given chunk, loaded chunk keeps time of release so it can be unloaded after
+     * unload delay, tickets of not loaded chunks are removed when there is no more tickets.
      *
-     * @return The set of locks for that chunk.
+     * @param key  The chunk key.
+     * @param type The type of ticket.
+     */
+    private void removeTicket(final long key, final ChunkTicketType type)
+    {
+        final long now = System.nanoTime();
+        final ChunkTickets chunkTickets = this.tickets.computeIfPresent(key, t -> (t.remove(type, now) || (this.getLoadedChunk(key) != null)) ? t : null);
+        if ((type == ChunkTicketType.PLAYER) && ((chunkTickets == null) || (chunkTickets.get(ChunkTicketType.PLAYER) == 0)))
+        {
+            // nobody views this chunk now, so its map chunk packet isn't needed.
+            final ChunkImpl chunk = this.chunks.get(key);
+            if (chunk != null)
+            {
+                chunk.releaseMapChunkPacket();
+            }
+        }
+    }
+
+    /**
+     * Reference counts of tickets of single chunk, all changes are done under lock of segment of tickets map.
+     */
+    static class ChunkTickets
+    {
+        private final    int[]   counts = new int[ChunkTicketType.values().length];
+        private volatile int     total;
+        private volatile long    releaseTime;
+        private volatile boolean unloading;
+
+        ChunkTickets(final long releaseTime)
+        {
+            this.releaseTime = releaseTime;
+        }
+
+        void add(final ChunkTicketType type)
+        {
+            this.counts[type.ordinal()]++;
+            this.total++;
+        }
+
+        /**
+         * Remove ticket of given type.
+         *
+         * @param type type of ticket.
+         * @param now  current time in nanoseconds.
+         *
+         * @return true if chunk still have any ticket.
+         */
+        boolean remove(final ChunkTicketType type, final long now)
+        {
+            if (this.counts[type.ordinal()] > 0)
+            {
+                this.counts[type.ordinal()]--;
+                if (--this.total == 0)
+                {
+                    this.releaseTime = now;
+                }
+            }
+            return this.total > 0;
+        }
+
+        void touch(final long now)
+        {
+            if (this.total == 0)
+            {
+                this.releaseTime = now;
+            }
+        }
+
+        /**
+         * Mark chunk as unloading if it doesn't have any ticket for at least given delay.
+         *
+         * @param now   current time in nanoseconds.
+         * @param delay unload delay in nanoseconds.
+         *
+         * @return true if chunk is now unloading.
+         */
+        boolean tryStartUnload(final long now, final long delay)
+        {
+            this.unloading = ! this.isInUse() && ((now - this.releaseTime) >= delay);
+            return this.unloading;
+        }
+
+        void finishUnload()
+        {
+            this.unloading = false;
+        }
+
+        boolean isUnloading()
+        {
+            return this.unloading;
+        }
+
+        int get(final ChunkTicketType type)
+        {
+            return this.counts[type.ordinal()];
+        }
+
+        boolean isInUse()
+        {
+            return this.total > 0;
+        }
+
+        long getReleaseTime()
+        {
+            return this.releaseTime;
+        }
+
+        @Override
+        public String toString()
+        {
+            return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("counts", this.counts).append("total", this.total).append("unloading", this.unloading).toString();
+        }
+    }
+
+    /**
+     * Data of recently unloaded chunk.
      */
-    private Collection<ChunkLock> getLockSet(final Long key)
+    private static class CachedChunk
     {
-        if (this.locks.containsKey(key))
+        private final ChunkPartImpl[] chunkParts;
+        private final byte[]          biomes;
+        private final short[]         heightMap;
+        private final boolean         populated;
+        private final boolean         modified;
+        private final int             memory;
+
+        private CachedChunk(final ChunkPartImpl[] chunkParts, final byte[] biomes, final short[] heightMap, final boolean populated, final boolean modified)
         {
-            return this.locks.get(key);
+            this.chunkParts = chunkParts;
+            this.biomes = biomes;
+            this.heightMap = heightMap;
+            this.populated = populated;
+            this.modified = modified;
+            this.memory = ChunkImpl.getMemoryUsage(chunkParts, biomes);
         }
-        else
+
+        @Override
+        public String toString()
         {
-            // only create chunk if it's not in the map already
-            final Set<ChunkLock> set = new HashSet<>(5);
-            final Set<ChunkLock> prev = this.locks.putIfAbsent(key, set);
-            // if it was created in the intervening time, the earlier one wins
-            return (prev == null) ? set : prev;
+            return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("populated", this.populated).append("modified", this.modified).append("memory", this.memory).toString();
         }
     }
 
     /**
-     * A group of locks on chunks to prevent them from being unloaded while in use.
+     * A group of tickets of single type on chunks to prevent them from being unloaded while in use, each lock holds at
+     * most one ticket on each chunk.
      */
     public static class ChunkLock
     {
         private final ChunkManagerImpl cm;
+        private final ChunkTicketType  type;
         private final String           desc;
         private final LongCollection keys = new LongOpenHashSet(3);
 
-        public ChunkLock(final ChunkManagerImpl cm, final String desc)
+        public ChunkLock(final ChunkManagerImpl cm, final ChunkTicketType type, final String desc)
         {
             this.cm = cm;
+            this.type = type;
             this.desc = desc;
         }
 
+        public ChunkTicketType getType()
+        {
+            return this.type;
+        }
+
         public synchronized void acquire(final long key)
         {
             if (this.keys.contains(key))
@@ -389,7 +1112,26 @@ public class ChunkManagerImpl implements ChunkManager, Tickable
                 return;
             }
             this.keys.add(key);
-            this.cm.getLockSet(key).add(this);
+            this.cm.addTicket(key, this.type);
+        }
+
+        /**
+         * Acquire tickets on all chunks in given radius around given chunk.
+         *
+         * @param key    key of center chunk.
+         * @param radius radius in chunks, 0 for only center chunk.
+         */
+        public synchronized void acquire(final long key, final int radius)
+        {
+            final int cx = BigEndianUtils.getIntA(key);
+            final int cz = BigEndianUtils.getIntB(key);
+            for (int x = cx - radius; x <= (cx + radius); x++)
+            {
+                for (int z = cz - radius; z <= (cz + radius); z++)
+                {
+                    this.acquire(BigEndianUtils.toLong(x, z));
+                }
+            }
         }
 
         public synchronized void release(final long key)
@@ -399,12 +1141,34 @@ public class ChunkManagerImpl implements ChunkManager, Tickable
                 return;
             }
             this.keys.remove(key);
-            this.cm.getLockSet(key).remove(this);
+            this.cm.removeTicket(key, this.type);
+        }
+
+        /**
+         * Release tickets on all chunks in given radius around given chunk.
+         *
+         * @param key    key of center chunk.
+         * @param radius radius in chunks, 0 for only center chunk.
+         */
+        public synchronized void release(final long key, final int radius)
+        {
+            final int cx = BigEndianUtils.getIntA(key);
+            final int cz = BigEndianUtils.getIntB(key);
+            for (int x = cx - radius; x <= (cx + radius); x++)
+            {
+                for (int z = cz - radius; z <= (cz + radius); z++)
+                {
+                    this.release(BigEndianUtils.toLong(x, z));
+                }
+            }
         }
 
         public synchronized void clear()
         {
-            this.keys.forEach(key -> this.cm.getLockSet(key).remove(this));
+            for (final LongIterator it = this.keys.iterator(); it.hasNext(); )
+            {
+                this.cm.removeTicket(it.nextLong(), this.type);
+            }
             this.keys.clear();
         }
 
@@ -416,7 +1180,7 @@ public class ChunkManagerImpl implements ChunkManager, Tickable
         @Override
         public String toString()
         {
-            return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("cm", this.cm).append("desc", this.desc).append("keys", this.keys).toString();
+            return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("cm", this.cm).append("type", this.type).append("desc", this.desc).append("keys", this.keys).toString();
         }
     }
 
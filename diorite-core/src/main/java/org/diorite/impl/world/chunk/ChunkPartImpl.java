@@ -38,12 +38,13 @@ import org.diorite.world.chunk.Chunk;
 public class ChunkPartImpl // part of chunk 16x16x16
 {
     public static final int CHUNK_DATA_SIZE = Chunk.CHUNK_SIZE * Chunk.CHUNK_PART_HEIGHT * Chunk.CHUNK_SIZE;
-    private final byte           yPos; // from 0 to 15
-    private final PaletteImpl    palette;
-    private final ChunkBlockData chunkBlockData;
-    private       NibbleArray    skyLight;
-    private       NibbleArray    blockLight;
-    private       int            nonEmptyBlockCount;
+    private final    byte           yPos; // from 0 to 15
+    private          PaletteImpl    palette;
+    private          ChunkBlockData chunkBlockData;
+    private          NibbleArray    skyLight;
+    private          NibbleArray    blockLight;
+    private          int            nonEmptyBlockCount;
+    private volatile boolean        shared; // if true, data is shared with snapshot and must be copied before next change
 
     public ChunkPartImpl(final byte yPos, final boolean hasSkyLight)
     {
@@ -115,22 +116,51 @@ public class ChunkPartImpl // part of chunk 16x16x16
     }
 
     /**
-     * Take a snapshot of this section which will not reflect future changes.
+     * Take a snapshot of this section which will not reflect future changes. <br>
+     * Snapshot is copy-on-write, it shares data with this section, and data is copied only when one of them is
+     * changed, so taking a snapshot is cheap.
      *
      * @return snapshot of this section which will not reflect future changes.
      */
-    public ChunkPartImpl snapshot()
+    public synchronized ChunkPartImpl snapshot()
     {
-        return new ChunkPartImpl(this.chunkBlockData.clone(), this.palette.clone(), this.skyLight.snapshot(), this.blockLight.snapshot(), this.yPos);
+        this.shared = true;
+        final ChunkPartImpl snapshot = new ChunkPartImpl(this.chunkBlockData, this.palette, this.skyLight, this.blockLight, this.yPos);
+        snapshot.nonEmptyBlockCount = this.nonEmptyBlockCount;
+        snapshot.shared = true;
+        return snapshot;
     }
 
-    public BlockMaterialData setBlock(final int x, final int y, final int z, final int id, final int meta)
+    /**
+     * Copy data shared with snapshot, invoked before each change of data.
+     */
+    private void unshare()
+    {
+        if (! this.shared)
+        {
+            return;
+        }
+        this.chunkBlockData = this.chunkBlockData.clone();
+        this.palette = this.palette.clone();
+        if (this.skyLight != null)
+        {
+            this.skyLight = this.skyLight.snapshot();
+        }
+        if (this.blockLight != null)
+        {
+            this.blockLight = this.blockLight.snapshot();
+        }
+        this.shared = false;
+    }
+
+    public synchronized BlockMaterialData setBlock(final int x, final int y, final int z, final int id, final int meta)
     {
         final BlockMaterialData old = this.getBlockType(x, y, z);
         if ((id == old.ordinal()) && (meta == old.getType()))
         {
             return old;
         }
+        this.unshare();
         this.chunkBlockData.set(toArrayIndex(x, y, z), this.palette.put(id, (byte) meta));
 
         if ((old.getId() == 0) && (id != 0))
@@ -145,8 +175,9 @@ public class ChunkPartImpl // part of chunk 16x16x16
         return old;
     }
 
-    public BlockMaterialData rawSetBlock(final int x, final int y, final int z, final int id, final int meta)
+    public synchronized BlockMaterialData rawSetBlock(final int x, final int y, final int z, final int id, final int meta)
     {
+        this.unshare();
         final BlockMaterialData type = this.chunkBlockData.getAndSet(toArrayIndex(x, y, z), this.palette.put(id, (byte) meta), this.palette);
         return (type == null) ? Material.AIR : type;
     }
@@ -192,6 +223,12 @@ public class ChunkPartImpl // part of chunk 16x16x16
         return this.nonEmptyBlockCount;
     }
 
+    /**
+     * Returns block light of this section, returned array may be shared with snapshot, so light should be changed
+     * by setting new array.
+     *
+     * @return block light of this section.
+     */
     public NibbleArray getBlockLight()
     {
         return this.blockLight;
@@ -222,6 +259,26 @@ public class ChunkPartImpl // part of chunk 16x16x16
         return this.nonEmptyBlockCount == 0;
     }
 
+    /**
+     * Returns estimated amount of heap memory used by this chunk part, in bytes.
+     *
+     * @return estimated amount of used memory.
+     */
+    @SuppressWarnings("MagicNumber")
+    public int getMemoryUsage()
+    {
+        int size = 64 + 16 + (this.chunkBlockData.getDataArray().length << 3) + 16 + (this.palette.size() << 3);
+        if (this.skyLight != null)
+        {
+            size += 32 + this.skyLight.byteSize();
+        }
+        if (this.blockLight != null)
+        {
+            size += 32 + this.blockLight.byteSize();
+        }
+        return size;
+    }
+
     @SuppressWarnings("MagicNumber")
     public static int toArrayIndex(final int x, final int y, final int z)
     {
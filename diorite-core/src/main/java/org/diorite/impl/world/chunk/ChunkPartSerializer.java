@@ -0,0 +1,285 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.chunk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.diorite.impl.world.chunk.palette.PaletteImpl;
+import org.diorite.material.Material;
+import org.diorite.nbt.NbtTag;
+import org.diorite.nbt.NbtTagCompound;
+import org.diorite.utils.collections.arrays.NibbleArray;
+
+/**
+ * Reads and writes chunk sections in nbt format used by anvil regions. <br>
+ * Two formats of block data are supported: <br>
+ * - vanilla one, with "Blocks", "Data" and optional "Add" nibble arrays, it needs to convert each block between
+ * paletted and vanilla layout, <br>
+ * - diorite one, with "Diorite.Palette" int array and "Diorite.Blocks" long array, it is copy of paletted data used
+ * in memory, so it is written and read as is, but vanilla servers can't read it. <br>
+ * Diorite format is used only by worlds that enable it with nativeChunkFormat option, both formats are always
+ * readable.
+ */
+public final class ChunkPartSerializer
+{
+    public static final String PALETTE_TAG    = "Diorite.Palette";
+    public static final String BLOCKS_TAG     = "Diorite.Blocks";
+    public static final String HEIGHT_MAP_TAG = "Diorite.HeightMap";
+
+    private ChunkPartSerializer()
+    {
+    }
+
+    /**
+     * Returns true if given section is saved in diorite format.
+     *
+     * @param tag nbt tag of section.
+     *
+     * @return true if given section is saved in diorite format.
+     */
+    public static boolean isNative(final NbtTagCompound tag)
+    {
+        return tag.containsTag(BLOCKS_TAG);
+    }
+
+    /**
+     * Read chunk section from given tag, in any of supported formats.
+     *
+     * @param tag nbt tag of section.
+     *
+     * @return loaded chunk section.
+     */
+    public static ChunkPartImpl read(final NbtTagCompound tag)
+    {
+        final byte y = tag.getByte("Y");
+        final NibbleArray blockLight = new NibbleArray(tag.getByteArray("BlockLight"));
+        final NibbleArray skyLight = new NibbleArray(tag.getByteArray("SkyLight"));
+        if (isNative(tag))
+        {
+            return readNative(tag, y, skyLight, blockLight);
+        }
+        return readVanilla(tag, y, skyLight, blockLight);
+    }
+
+    @SuppressWarnings("MagicNumber")
+    private static ChunkPartImpl readVanilla(final NbtTagCompound tag, final byte y, final NibbleArray skyLight, final NibbleArray blockLight)
+    {
+        final byte[] rawTypes = tag.getByteArray("Blocks");
+        final NibbleArray extTypes = tag.containsTag("Add") ? new NibbleArray(tag.getByteArray("Add")) : null;
+        final NibbleArray data = new NibbleArray(tag.getByteArray("Data"));
+
+        final PaletteImpl palette = new PaletteImpl();
+        final int[] loading = new int[rawTypes.length];
+        for (int i = 0; i < rawTypes.length; i++)
+        {
+            int k = ((((extTypes == null) ? 0 : extTypes.get(i)) << 12) | ((rawTypes[i] & 0xff) << 4) | data.get(i));
+            if (Material.getByID(k >> 4, k & 15) == null)
+            {
+                final Material material = Material.getByID(k >> 4);
+                k = (material == null) ? 0 : material.getIdAndMeta();
+//                throw new IllegalArgumentException("Unknown material: " + k + " (" + (k >> 4) + ":" + (k & 15) + ")");
+            }
+            loading[i] = palette.put(k);
+        }
+        final ChunkBlockData cd = new ChunkBlockData(palette.bitsPerBlock(), ChunkPartImpl.CHUNK_DATA_SIZE);
+        int k = 0;
+        for (final int i : loading)
+        {
+            cd.set(k++, i);
+        }
+        return new ChunkPartImpl(cd, palette, skyLight, blockLight, y);
+    }
+
+    private static ChunkPartImpl readNative(final NbtTagCompound tag, final byte y, final NibbleArray skyLight, final NibbleArray blockLight)
+    {
+        final int[] rawPalette = tag.getIntArray(PALETTE_TAG);
+        final long[] rawBlocks = tag.getLongArray(BLOCKS_TAG);
+        if ((rawPalette == null) || (rawBlocks == null) || (((rawBlocks.length * Long.SIZE) % ChunkPartImpl.CHUNK_DATA_SIZE) != 0))
+        {
+            throw new IllegalArgumentException("Invalid diorite section: " + y);
+        }
+        final int bitsPerBlock = (rawBlocks.length * Long.SIZE) / ChunkPartImpl.CHUNK_DATA_SIZE;
+
+        // palette is rebuilt from saved entries, if any entry gets other index than saved one, blocks must be remapped.
+        final PaletteImpl palette = new PaletteImpl();
+        final int[] mapping = new int[rawPalette.length];
+        boolean remap = false;
+        for (int i = 0; i < rawPalette.length; i++)
+        {
+            mapping[i] = palette.put(rawPalette[i]);
+            remap |= mapping[i] != i;
+        }
+        final ChunkBlockData saved = new ChunkBlockData(rawBlocks, bitsPerBlock, ChunkPartImpl.CHUNK_DATA_SIZE);
+        if (! remap && (palette.bitsPerBlock() <= bitsPerBlock))
+        {
+            return new ChunkPartImpl(saved, palette, skyLight, blockLight, y);
+        }
+        final ChunkBlockData cd = new ChunkBlockData(Math.max(palette.bitsPerBlock(), bitsPerBlock), ChunkPartImpl.CHUNK_DATA_SIZE);
+        for (int i = 0; i < ChunkPartImpl.CHUNK_DATA_SIZE; i++)
+        {
+            final int id = saved.get(i);
+            cd.set(i, (id < mapping.length) ? mapping[id] : 0);
+        }
+        return new ChunkPartImpl(cd, palette, skyLight, blockLight, y);
+    }
+
+    /**
+     * Write given chunk section to new nbt tag.
+     *
+     * @param part        chunk section to write.
+     * @param vanilla     if true, section is written in vanilla format, otherwise diorite one is used.
+     * @param hasSkyLight if section contains sky light, if false empty sky light is written.
+     *
+     * @return nbt tag of section.
+     */
+    public static NbtTagCompound write(final ChunkPartImpl part, final boolean vanilla, final boolean hasSkyLight)
+    {
+        final NbtTagCompound tag = new NbtTagCompound();
+        tag.setByte("Y", part.getYPos());
+        if (vanilla)
+        {
+            writeVanilla(part, tag);
+        }
+        else
+        {
+            writeNative(part, tag);
+        }
+        tag.setByteArray("BlockLight", part.getBlockLight().getRawData());
+        if (hasSkyLight && (part.getSkyLight() != null))
+        {
+            tag.setByteArray("SkyLight", part.getSkyLight().getRawData());
+        }
+        else
+        {
+            tag.setByteArray("SkyLight", new byte[part.getBlockLight().getRawData().length]);
+        }
+        return tag;
+    }
+
+    @SuppressWarnings("MagicNumber")
+    private static void writeVanilla(final ChunkPartImpl part, final NbtTagCompound tag)
+    {
+        final ChunkBlockData data = part.getBlockData();
+        final PaletteImpl palette = part.getPalette();
+        final byte[] blocksIDs = new byte[ChunkPartImpl.CHUNK_DATA_SIZE];
+        final ChunkNibbleArray blocksMetaData = new ChunkNibbleArray();
+        ChunkNibbleArray additionalData = null;
+        for (int i = 0; i < ChunkPartImpl.CHUNK_DATA_SIZE; ++ i)
+        {
+            final int block = data.getAsInt(i, palette);
+            final int blockMeta = i & 15;
+            final int blockData = (i >> 8) & 15;
+            final int blockID = (i >> 4) & 15;
+            if ((block >> 12) != 0)
+            {
+                if (additionalData == null)
+                {
+                    additionalData = new ChunkNibbleArray();
+                }
+                additionalData.set(blockMeta, blockData, blockID, block >> 12);
+            }
+            blocksIDs[i] = (byte) ((block >> 4) & 255);
+            blocksMetaData.set(blockMeta, blockData, blockID, block & 15);
+        }
+        tag.setByteArray("Blocks", blocksIDs);
+        tag.setByteArray("Data", blocksMetaData.getRawData());
+        if (additionalData != null)
+        {
+            tag.setByteArray("Add", additionalData.getRawData());
+        }
+    }
+
+    private static void writeNative(final ChunkPartImpl part, final NbtTagCompound tag)
+    {
+        final PaletteImpl palette = part.getPalette();
+        final int[] rawPalette = new int[palette.size()];
+        for (int i = 0; i < rawPalette.length; i++)
+        {
+            rawPalette[i] = palette.getAsInt(i);
+        }
+        tag.setIntArray(PALETTE_TAG, rawPalette);
+        tag.setLongArray(BLOCKS_TAG, part.getBlockData().getDataArray());
+    }
+
+    /**
+     * Convert sections and height map of given chunk "Level" tag to selected format.
+     *
+     * @param level   nbt tag of chunk.
+     * @param vanilla if true, chunk is converted to vanilla format, otherwise to diorite one.
+     *
+     * @return true if anything was changed.
+     */
+    public static boolean convert(final NbtTagCompound level, final boolean vanilla)
+    {
+        boolean changed = false;
+        final List<NbtTagCompound> sections = level.getList("Sections", NbtTagCompound.class);
+        if (sections != null)
+        {
+            final List<NbtTag> converted = new ArrayList<>(sections.size());
+            for (final NbtTagCompound section : sections)
+            {
+                if (isNative(section) == vanilla)
+                {
+                    converted.add(write(read(section), vanilla, true));
+                    changed = true;
+                }
+                else
+                {
+                    converted.add(section);
+                }
+            }
+            if (changed)
+            {
+                level.setList("Sections", converted);
+            }
+        }
+        if (vanilla && level.containsTag(HEIGHT_MAP_TAG))
+        {
+            final short[] heightMap = level.getShortArray(HEIGHT_MAP_TAG);
+            final int[] array = new int[heightMap.length];
+            for (int i = 0; i < heightMap.length; i++)
+            {
+                array[i] = heightMap[i];
+            }
+            level.setIntArray("HeightMap", array);
+            level.removeTag(HEIGHT_MAP_TAG);
+            changed = true;
+        }
+        else if (! vanilla && level.containsTag("HeightMap"))
+        {
+            final int[] array = level.getIntArray("HeightMap");
+            final short[] heightMap = new short[array.length];
+            for (int i = 0; i < array.length; i++)
+            {
+                heightMap[i] = (short) array[i];
+            }
+            level.setShortArray(HEIGHT_MAP_TAG, heightMap);
+            level.removeTag("HeightMap");
+            changed = true;
+        }
+        return changed;
+    }
+}
@@ -24,11 +24,17 @@
 
 package org.diorite.impl.world.chunk;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
+import org.diorite.impl.world.WorldImpl;
 import org.diorite.material.BlockMaterialData;
 import org.diorite.material.blocks.AirMat;
+import org.diorite.nbt.NbtTag;
+import org.diorite.nbt.NbtTagCompound;
 import org.diorite.world.Biome;
 import org.diorite.world.World;
 import org.diorite.world.chunk.Chunk;
@@ -43,16 +49,25 @@ public class ChunkSnapshotImpl implements ChunkSnapshot
 
     private final ChunkPartImpl[] sections;
 
-    private final byte[]   height;
+    private final short[]  height;
     private final double[] temp, humid;
     private final byte[] biomes;
 
-    public ChunkSnapshotImpl(final int x, final int z, final World world, final ChunkPartImpl[] sections, final byte[] height, final byte[] biomes, final boolean svTemp)
+    private final boolean populated;
+    private final boolean vanillaCompatible;
+    private final boolean nativeSections;
+    private final boolean skyLight;
+
+    public ChunkSnapshotImpl(final int x, final int z, final World world, final ChunkPartImpl[] sections, final short[] height, final byte[] biomes, final boolean svTemp)
     {
         this.x = x;
         this.z = z;
         this.world = world.getName();
         this.time = world.getTime();
+        this.populated = false;
+        this.vanillaCompatible = world.isVanillaCompatible();
+        this.nativeSections = (world instanceof WorldImpl) && ((WorldImpl) world).isNativeChunkFormat();
+        this.skyLight = world.getDimension().hasSkyLight();
 
         final int numSections = (sections != null) ? sections.length : 0;
         this.sections = new ChunkPartImpl[numSections];
@@ -88,6 +103,95 @@ public class ChunkSnapshotImpl implements ChunkSnapshot
         }
     }
 
+    /**
+     * Construct snapshot of given chunk, used to save chunk without locking it. <br>
+     * Chunk lock must be held by caller.
+     *
+     * @param chunk chunk to snapshot.
+     */
+    ChunkSnapshotImpl(final ChunkImpl chunk)
+    {
+        final WorldImpl world = chunk.getWorld();
+        this.x = chunk.getX();
+        this.z = chunk.getZ();
+        this.world = world.getName();
+        this.time = world.getTime();
+        this.populated = chunk.isPopulated();
+        this.vanillaCompatible = world.isVanillaCompatible();
+        this.nativeSections = world.isNativeChunkFormat();
+        this.skyLight = world.getDimension().hasSkyLight();
+
+        final ChunkPartImpl[] sections = chunk.getChunkParts();
+        this.sections = new ChunkPartImpl[sections.length];
+        for (int i = 0; i < sections.length; ++ i)
+        {
+            if (sections[i] != null)
+            {
+                this.sections[i] = sections[i].snapshot();
+            }
+        }
+        this.height = chunk.getHeightMap().clone();
+        final byte[] biomes = chunk.getBiomes();
+        this.biomes = (biomes == null) ? null : biomes.clone();
+        this.temp = this.humid = null;
+    }
+
+    /**
+     * Write this snapshot to given nbt tag, in anvil chunk format.
+     *
+     * @param tag tag to write to.
+     *
+     * @return given tag.
+     */
+    @SuppressWarnings("MagicNumber")
+    public NbtTagCompound writeTo(final NbtTagCompound tag)
+    {
+        tag.setByte("V", 1);
+        tag.setInt("xPos", this.x);
+        tag.setInt("zPos", this.z);
+        tag.setLong("LastUpdate", this.time);
+
+        // worlds can be converted between formats by AnvilFormatConverter.
+        if (this.vanillaCompatible)
+        {
+            tag.setIntArray("HeightMap", this.getRawHeightmap());
+        }
+        else
+        {
+            tag.setShortArray(ChunkPartSerializer.HEIGHT_MAP_TAG, this.height);
+        }
+
+        tag.setBoolean("TerrainPopulated", this.populated);
+        tag.setBoolean("LightPopulated", false); // TODO
+        tag.setLong("InhabitedTime", 0); // TODO: value used to set local difficulty based on play time
+        final List<NbtTag> sections = new ArrayList<>(16);
+        for (final ChunkPartImpl chunkPart : this.sections)
+        {
+            if (chunkPart != null)
+            {
+                sections.add(ChunkPartSerializer.write(chunkPart, ! this.nativeSections, this.skyLight));
+            }
+        }
+        tag.setList("Sections", sections);
+        if (this.biomes != null)
+        {
+            tag.setByteArray("Biomes", this.biomes);
+        }
+        tag.setList("Entities", new ArrayList<>(1));
+        tag.setList("TileEntities", new ArrayList<>(1));
+        return tag;
+    }
+
+    /**
+     * Returns true if snapshotted chunk was populated.
+     *
+     * @return true if snapshotted chunk was populated.
+     */
+    public boolean isPopulated()
+    {
+        return this.populated;
+    }
+
     private ChunkPartImpl getSection(final int y)
     {
         final int idx = y >> 4;
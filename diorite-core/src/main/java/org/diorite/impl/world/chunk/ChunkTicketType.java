@@ -0,0 +1,55 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.chunk;
+
+/**
+ * Types of tickets keeping chunks loaded, see {@link ChunkManagerImpl.ChunkLock}. <br>
+ * Each chunk have separate reference count for each type of ticket, chunk can be unloaded only when all counts are
+ * zero and unload delay of chunk manager elapsed.
+ */
+public enum ChunkTicketType
+{
+    /**
+     * Chunks visible to players.
+     */
+    PLAYER,
+    /**
+     * Chunks around spawn of world.
+     */
+    SPAWN,
+    /**
+     * Chunks kept loaded by plugins, see {@link org.diorite.world.chunk.ChunkManager#addChunkTicket(int, int, int)}.
+     */
+    PLUGIN,
+    /**
+     * Chunks that should be always loaded, until ticket is released, see
+     * {@link org.diorite.world.chunk.ChunkManager#setForceLoaded(int, int, boolean)}.
+     */
+    FORCED,
+    /**
+     * Chunks used by pending chunk io requests.
+     */
+    IO
+}
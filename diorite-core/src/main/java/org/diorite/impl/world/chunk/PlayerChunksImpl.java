@@ -24,45 +24,94 @@
 
 package org.diorite.impl.world.chunk;
 
-import java.util.Collection;
-import java.util.Deque;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
+import org.diorite.impl.DioriteCore;
 import org.diorite.impl.Tickable;
+import org.diorite.impl.connection.CoreNetworkManager;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundChunkUnload;
-import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundMapChunk;
 import org.diorite.impl.entity.IPlayer;
 import org.diorite.impl.world.chunk.ChunkManagerImpl.ChunkLock;
-import org.diorite.utils.math.geometry.LookupShape;
-import org.diorite.utils.collections.sets.ConcurrentSet;
 import org.diorite.utils.math.endian.BigEndianUtils;
 import org.diorite.world.chunk.ChunkPos;
 
-import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.AbstractLongComparator;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongComparator;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 
+/**
+ * Sends chunks around player, chunks are queued by distance from player and view direction, and only limited amount of
+ * chunks is sent and loaded in each tick, so moving players don't get huge bursts of chunks.
+ */
 public class PlayerChunksImpl implements Tickable
 {
     public static final int CHUNK_BULK_SIZE = 4;
 
-    private final IPlayer player;
-    private final LongSet visibleChunks = new LongOpenHashSet(400);
-    private final ChunkLock chunkLock;
-    private       boolean   logout;
-    private       ChunkPos  lastUpdate;
-    private       byte      lastUpdateR;
+    /**
+     * Size of yaw sector in degrees, queue is sorted again after player rotates to other sector.
+     */
+    private static final int YAW_SECTOR = 45;
+
+    /**
+     * Time in milliseconds after which chunk that couldn't be loaded is requested again.
+     */
+    private static final long FAILED_RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+
+    private final IPlayer        player;
+    private final LongSet        visibleChunks = new LongOpenHashSet(400);
+    private final ChunkLock      chunkLock;
+    /**
+     * Chunks that should be sent to player, from most to least important.
+     */
+    private final LongArrayList  sendQueue     = new LongArrayList(400);
+    /**
+     * Chunks requested to load by this player, that didn't finish loading yet.
+     */
+    private final LongSet        loading       = new LongOpenHashSet(32);
+    /**
+     * Keys of chunks that finished loading, added by chunk io threads.
+     */
+    private final Queue<Long>    loaded        = new ConcurrentLinkedQueue<>();
+    /**
+     * Keys of chunks that couldn't be loaded, added by chunk io threads before key is added to {@link #loaded}.
+     */
+    private final Queue<Long>    failedLoads   = new ConcurrentLinkedQueue<>();
+    /**
+     * Chunks that couldn't be loaded, mapped to time when they can be requested again, they are not queued until then.
+     */
+    private final Long2LongMap   failed        = new Long2LongOpenHashMap(8);
+    private final LongComparator priority      = new AbstractLongComparator()
+    {
+        @Override
+        public int compare(final long a, final long b)
+        {
+            return Float.compare(PlayerChunksImpl.this.getPriority(a), PlayerChunksImpl.this.getPriority(b));
+        }
+    };
+    private       boolean        logout;
+    private       ChunkPos       lastUpdate;
+    private       byte           lastUpdateR;
+    private       int            lastYawSector;
+    private       float          lookX;
+    private       float          lookZ;
     private long lastUnload = System.currentTimeMillis();
 
     public PlayerChunksImpl(final IPlayer player)
     {
         this.player = player;
-        this.chunkLock = player.getWorld().createLock(player.getName());
+        this.chunkLock = player.getWorld().createLock(ChunkTicketType.PLAYER, player.getName());
     }
 
     public byte getRenderDistance()
@@ -85,6 +134,16 @@ public class PlayerChunksImpl implements Tickable
         return this.player;
     }
 
+    /**
+     * Returns amount of chunks waiting to be sent to player.
+     *
+     * @return amount of queued chunks.
+     */
+    public int getQueuedChunks()
+    {
+        return this.sendQueue.size();
+    }
+
     public void logout()
     {
         this.logout = true;
@@ -94,6 +153,8 @@ public class PlayerChunksImpl implements Tickable
             this.chunkLock.release(key);
         }
         this.visibleChunks.clear();
+        this.sendQueue.clear();
+        this.failed.clear();
     }
 
     private void checkOld()
@@ -120,76 +181,183 @@ public class PlayerChunksImpl implements Tickable
         }
     }
 
-    private void continueUpdate()
+    private void updateLook()
     {
-        final byte render = this.getRenderDistance();
-        final byte view = this.getViewDistance();
-        if ((this.lastUpdateR >= view) || (this.lastUpdateR >= render))
+        final float yaw = this.player.getYaw();
+        this.lastYawSector = (int) Math.floor(yaw / YAW_SECTOR);
+        final double rad = Math.toRadians(yaw);
+        this.lookX = (float) - Math.sin(rad);
+        this.lookZ = (float) Math.cos(rad);
+    }
+
+    /**
+     * Priority of chunk, lower is more important, chunks behind player are up to two times less important than chunks
+     * in same distance in front of player.
+     *
+     * @param key key of chunk.
+     *
+     * @return priority of chunk.
+     */
+    private float getPriority(final long key)
+    {
+        final int dx = BigEndianUtils.getIntA(key) - this.lastUpdate.getX();
+        final int dz = BigEndianUtils.getIntB(key) - this.lastUpdate.getZ();
+        final int dist = (dx * dx) + (dz * dz);
+        if (dist <= 2)
         {
-            return;
+            return dist;
         }
-        final LongCollection oldChunks = new LongOpenHashSet(this.visibleChunks);
-        final Collection<ChunkImpl> chunksToSent = new ConcurrentSet<>();
-        final int r = this.lastUpdateR++;
-        final ChunkManagerImpl impl = this.player.getWorld().getChunkManager();
+        final float cos = ((dx * this.lookX) + (dz * this.lookZ)) / (float) Math.sqrt(dist);
+        return dist * (1.5F - (cos * 0.5F));
+    }
+
+    private void sortQueue()
+    {
+        this.updateLook();
+        LongArrays.quickSort(this.sendQueue.elements(), 0, this.sendQueue.size(), this.priority);
+    }
 
+    /**
+     * Rebuild queue of chunks to send, chunks that are no longer in range are removed from queue.
+     */
+    private void rebuildQueue()
+    {
+        final int r = Math.min(this.getViewDistance(), this.getRenderDistance());
+        this.lastUpdateR = (byte) r;
         final int cx = this.lastUpdate.getX();
         final int cz = this.lastUpdate.getZ();
-
+        this.sendQueue.clear();
+        for (int x = - r; x <= r; x++)
         {
-            final Deque<ChunkImpl> toProcess = this.toProcess;
-            ChunkImpl chunk;
-            while ((chunk = toProcess.poll()) != null)
+            for (int z = - r; z <= r; z++)
             {
-                this.processChunk(chunk, cx, cz, view, impl, oldChunks, chunksToSent);
+                final long key = BigEndianUtils.toLong(cx + x, cz + z);
+                if (! this.visibleChunks.contains(key) && ! this.failed.containsKey(key))
+                {
+                    this.sendQueue.add(key);
+                }
             }
         }
+        this.sortQueue();
+    }
+
+    /**
+     * Handle chunks loaded since last tick, loaded chunks that are not longer needed by anyone are unloaded by chunk
+     * manager after unload delay, so they aren't loaded again when player comes back.
+     */
+    private void processLoaded()
+    {
+        Long key;
+        while ((key = this.failedLoads.poll()) != null)
+        {
+            // don't request it again in every tick, each failed read prints error.
+            this.failed.put(key.longValue(), System.currentTimeMillis() + FAILED_RETRY_DELAY);
+            this.sendQueue.rem(key.longValue());
+        }
+        while ((key = this.loaded.poll()) != null)
+        {
+            this.loading.remove(key.longValue());
+        }
+    }
 
-        if (r == 0)
+    /**
+     * Queue again chunks that failed to load, if their retry delay elapsed.
+     */
+    private void retryFailed()
+    {
+        if (this.failed.isEmpty())
         {
-            this.processChunk(cx, cz, cx, cz, view, impl, oldChunks, chunksToSent);
+            return;
         }
-        else
+        final long now = System.currentTimeMillis();
+        boolean expired = false;
+        for (final Iterator<Long2LongMap.Entry> it = this.failed.long2LongEntrySet().iterator(); it.hasNext(); )
         {
-            for (int x = - r; x <= r; x++)
+            if (it.next().getLongValue() <= now)
             {
-                if ((x == r) || (x == - r))
-                {
-                    for (int z = - r; z <= r; z++)
-                    {
-                        this.processChunk(cx + x, cz + z, cx, cz, view, impl, oldChunks, chunksToSent);
-                    }
-                }
-                this.processChunk(cx + x, cz + r, cx, cz, view, impl, oldChunks, chunksToSent);
-                this.processChunk(cx + x, cz - r, cx, cz, view, impl, oldChunks, chunksToSent);
+                it.remove();
+                expired = true;
             }
         }
+        if (expired && (this.lastUpdate != null))
+        {
+            this.rebuildQueue();
+        }
+    }
 
-        if (chunksToSent.isEmpty() /*&& oldChunks.isEmpty()*/)
+    /**
+     * Send queued chunks that are already loaded and request loading of next chunks, in order of queue. <br>
+     * Amount of sent chunks is limited by config and by writability of connection, amount of loaded chunks is limited
+     * by amount of chunks that can be sent in 2 ticks.
+     */
+    private void sendQueued()
+    {
+        if (this.sendQueue.isEmpty())
         {
             return;
         }
-
-        final PacketPlayClientboundMapChunk[] packets = new PacketPlayClientboundMapChunk[chunksToSent.size()];
+        final CoreNetworkManager networkManager = this.player.getNetworkManager();
+        final int rate = DioriteCore.getInstance().getConfig().getChunkSendRate();
+        int toSend = networkManager.isWritable() ? rate : 0;
+        int toLoad = (rate << 1) - this.loading.size();
+        final ChunkManagerImpl impl = this.player.getWorld().getChunkManager();
+        final long[] queue = this.sendQueue.elements();
+        final int size = this.sendQueue.size();
+        int kept = 0;
         int i = 0;
-        for (final ChunkImpl chunk : chunksToSent)
+        for (; (i < size) && ((toSend > 0) || (toLoad > 0)); i++)
         {
-            packets[i++] = new PacketPlayClientboundMapChunk(true, chunk);
+            final long key = queue[i];
+            final int cx = BigEndianUtils.getIntA(key);
+            final int cz = BigEndianUtils.getIntB(key);
+            if (impl.isChunkLoaded(cx, cz))
+            {
+                if (toSend <= 0)
+                {
+                    queue[kept++] = key;
+                    continue;
+                }
+                toSend--;
+                impl.populateChunk(cx, cz, false);
+                this.visibleChunks.add(key);
+                this.chunkLock.acquire(key);
+                // map chunk packets are encoded once per chunk and shared with other players.
+                networkManager.sendPacket(impl.getChunk(cx, cz).getMapChunkPacket());
+                continue;
+            }
+            queue[kept++] = key;
+            if ((toLoad > 0) && this.loading.add(key))
+            {
+                toLoad--;
+                // TODO: fix chunk load event.
+                impl.loadChunkAsync(cx, cz, true, (chunk, s) -> {
+                    if (! s && ! chunk.isLoaded())
+                    {
+                        this.failedLoads.offer(key);
+                    }
+                    this.loaded.offer(key);
+                });
+            }
         }
-        this.player.getNetworkManager().sendPackets(packets);
+        if (kept == i)
+        {
+            return;
+        }
+        System.arraycopy(queue, i, queue, kept, size - i);
+        this.sendQueue.size(kept + (size - i));
     }
 
     @Override
     public String toString()
     {
-        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("player", this.player).toString();
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("player", this.player).append("queued", this.sendQueue.size()).toString();
     }
 
     public void reRun(final ChunkPos center)
     {
-        this.lastUpdateR = 0;
         this.lastUpdate = center;
-        this.continueUpdate();
+        this.rebuildQueue();
+        this.sendQueued();
         this.checkOld();
     }
 
@@ -200,86 +368,19 @@ public class PlayerChunksImpl implements Tickable
         {
             return;
         }
+        this.processLoaded();
+        this.retryFailed();
         final ChunkPos center = this.player.getLocation().getChunkPos();
-        if (center.equals(this.lastUpdate))
-        {
-            this.continueUpdate();
-            return;
-        }
-        this.reRun(center);
-    }
-
-    private final Deque<ChunkImpl> toProcess = new ConcurrentLinkedDeque<>();
-
-    private void processChunk(final ChunkImpl chunk, final int centerX, final int centerZ, final int radius, final ChunkManagerImpl impl, final LongCollection oldChunks, final Collection<ChunkImpl> chunksToSent)
-    {
-        final int cx = chunk.getX();
-        final int cz = chunk.getZ();
-        if (! LookupShape.RECTANGLE.isNotOutside(centerX, 0, centerZ, radius, cx, 0, cz))
+        if (! center.equals(this.lastUpdate) || (Math.min(this.getViewDistance(), this.getRenderDistance()) != this.lastUpdateR))
         {
-            if (chunk.isLoaded() && ! impl.isChunkInUse(cx, cz))
-            {
-                chunk.unload();
-            }
+            this.reRun(center);
             return;
         }
-        if (chunk.isLoaded())
+        if (((int) Math.floor(this.player.getYaw() / YAW_SECTOR)) != this.lastYawSector)
         {
-            impl.populateChunk(cx, cz, false);
-            final long key = BigEndianUtils.toLong(cx, cz);
-            if (this.visibleChunks.contains(key))
-            {
-                oldChunks.remove(key);
-            }
-            else
-            {
-                this.visibleChunks.add(key);
-                this.chunkLock.acquire(key);
-                chunksToSent.add(chunk);
-            }
-        }
-        else
-        {
-            impl.loadChunkAsync(cx, cz, true, (loadedChunk, s) -> {
-                if (s && (loadedChunk != null))
-                {
-                    this.toProcess.offer(loadedChunk);
-                }
-            });
-        }
-    }
-
-    private void processChunk(final int cx, final int cz, final int centerX, final int centerZ, final int radius, final ChunkManagerImpl impl, final LongCollection oldChunks, final Collection<ChunkImpl> chunksToSent)
-    {
-        if (! LookupShape.RECTANGLE.isNotOutside(centerX, 0, centerZ, radius, cx, 0, cz))
-        {
-            return;
-        }
-        if (impl.isChunkLoaded(cx, cz))
-        {
-            impl.populateChunk(cx, cz, false);
-            final long key = BigEndianUtils.toLong(cx, cz);
-            if (this.visibleChunks.contains(key))
-            {
-                oldChunks.remove(key);
-            }
-            else
-            {
-                this.visibleChunks.add(key);
-                this.chunkLock.acquire(key);
-                chunksToSent.add(impl.getChunk(cx, cz));
-            }
-        }
-        else
-        {
-            // TODO: fix chunk load event.
-            impl.loadChunkAsync(cx, cz, true, (chunk, s) -> {
-                if (s && (chunk != null))
-                {
-                    this.toProcess.offer(chunk);
-                }
-            });
+            this.sortQueue();
         }
+        this.sendQueued();
     }
 
     public void reset()
@@ -289,7 +390,8 @@ public class PlayerChunksImpl implements Tickable
             this.player.getNetworkManager().sendPacket(new PacketPlayClientboundChunkUnload(ChunkPos.fromLong(visibleChunk)));
         }
         this.visibleChunks.clear();
-        this.toProcess.clear();
+        this.sendQueue.clear();
+        this.failed.clear();
         this.lastUpdate = null;
         this.lastUpdateR = 0;
     }
@@ -46,9 +46,10 @@ public class ArrayPaletteImpl implements PaletteData
         this.pattern[0] = Material.AIR;
     }
 
-    private ArrayPaletteImpl(final BlockMaterialData[] pattern)
+    private ArrayPaletteImpl(final BlockMaterialData[] pattern, final int lastIndex)
     {
         this.pattern = pattern;
+        this.lastIndex = lastIndex;
     }
 
     @Override
@@ -206,7 +207,7 @@ public class ArrayPaletteImpl implements PaletteData
     @Override
     public ArrayPaletteImpl clone()
     {
-        return new ArrayPaletteImpl(this.pattern.clone());
+        return new ArrayPaletteImpl(this.pattern.clone(), this.lastIndex);
     }
 
 //    @Override
@@ -56,7 +56,9 @@ public class MapPaletteImpl implements PaletteData
     private MapPaletteImpl(final Int2IntMap pattern, final Int2IntMap mirror, final int lastUsed)
     {
         this.pattern = new Int2IntOpenHashMap(pattern);
+        this.pattern.defaultReturnValue(0);
         this.mirror = new Int2IntOpenHashMap(mirror);
+        this.mirror.defaultReturnValue(- 1);
         this.lastUsed = lastUsed;
     }
 
@@ -99,15 +101,18 @@ public class MapPaletteImpl implements PaletteData
     @Override
     public int put(final int minecraftIDandData)
     {
-        if (this.pattern.containsValue(minecraftIDandData))
+        final int sectionID = this.mirror.get(minecraftIDandData);
+        if (sectionID != - 1)
         {
-            return this.mirror.get(minecraftIDandData);
+            return sectionID;
         }
         if (this.lastUsed >= GLOBAL_SIZE_DOWN)
         {
             return - 1;
         }
         this.pattern.put(this.lastUsed, minecraftIDandData);
+        this.mirror.put(minecraftIDandData, this.lastUsed);
+        this.ref = null;
         return this.lastUsed++;
     }
 
@@ -28,6 +28,7 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 import org.diorite.impl.world.chunk.ChunkImpl;
+import org.diorite.impl.world.chunk.ChunkSnapshotImpl;
 
 public abstract class ChunkIO
 {
@@ -42,10 +43,38 @@ public abstract class ChunkIO
 
     public abstract boolean deleteChunk(int x, int z);
 
-    public abstract void saveChunk(ChunkImpl chunk);
+    public abstract void saveChunk(ChunkSnapshotImpl chunk);
 
     protected abstract ChunkRegion getChunkRegion(int chunkX, int chunkZ);
 
+    /**
+     * Rewrites file of given region without unused sectors.
+     *
+     * @param regionX x coordinate of region.
+     * @param regionZ z coordinate of region.
+     *
+     * @return amount of reclaimed sectors.
+     *
+     * @throws RuntimeException if region file can't be compacted.
+     */
+    public abstract int compactRegion(int regionX, int regionZ);
+
+    /**
+     * Writes all pending changes of cached regions to disk.
+     */
+    public void flush()
+    {
+        this.cache.flush();
+    }
+
+    /**
+     * Invoked by IO thread when there are no more queued requests.
+     */
+    public void onBatchEnd()
+    {
+        this.cache.onBatchEnd();
+    }
+
     public void close()
     {
         this.cache.clear();
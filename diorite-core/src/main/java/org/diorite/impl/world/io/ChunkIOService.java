@@ -25,6 +25,8 @@
 package org.diorite.impl.world.io;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 
@@ -33,6 +35,7 @@ import org.diorite.impl.world.chunk.ChunkImpl;
 import org.diorite.impl.world.io.requests.ChunkDeleteRequest;
 import org.diorite.impl.world.io.requests.ChunkLoadRequest;
 import org.diorite.impl.world.io.requests.ChunkSaveRequest;
+import org.diorite.impl.world.io.requests.RegionCompactRequest;
 import org.diorite.impl.world.io.requests.Request;
 
 public interface ChunkIOService
@@ -93,6 +96,43 @@ public interface ChunkIOService
         return this.queueAndGet(new ChunkDeleteRequest(priority, chunk.getX(), chunk.getZ()));
     }
 
+    default RegionCompactRequest queueRegionCompact(final int regionX, final int regionZ, final int priority)
+    {
+        return this.queue(new RegionCompactRequest(priority, regionX, regionZ));
+    }
+
+    /**
+     * Queue compaction of all region files of world.
+     *
+     * @param priority priority of requests.
+     *
+     * @return queued requests.
+     */
+    default Collection<RegionCompactRequest> queueRegionsCompact(final int priority)
+    {
+        final File[] files = new File(this.getWorldDataFolder(), "region").listFiles();
+        if (files == null)
+        {
+            return new ArrayList<>(0);
+        }
+        final Collection<RegionCompactRequest> requests = new ArrayList<>(files.length);
+        for (final File file : files)
+        {
+            final String[] parts = file.getName().split("\\.");
+            if ((parts.length != 4) || ! parts[0].equals("r") || ! parts[3].equals("mca"))
+            {
+                continue;
+            }
+            try
+            {
+                requests.add(this.queueRegionCompact(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), priority));
+            } catch (final NumberFormatException ignored)
+            {
+            }
+        }
+        return requests;
+    }
+
     default <OUT, T extends Request<OUT>> T queueAndAwait(T request)
     {
         request = this.queue(request);
@@ -103,7 +143,12 @@ public interface ChunkIOService
     default <OUT, T extends Request<OUT>> OUT queueAndGet(T request)
     {
         request = this.queue(request);
-        return request.await();
+        final OUT result = request.await();
+        if (request.getError() != null)
+        {
+            throw new RuntimeException("Request failed: " + request, request.getError());
+        }
+        return result;
     }
 
     void start(WorldImpl world);
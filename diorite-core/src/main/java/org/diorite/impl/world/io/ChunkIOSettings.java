@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.io;
+
+import java.util.zip.Deflater;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Settings of chunk IO for single world.
+ */
+public class ChunkIOSettings
+{
+    public static final int DEFAULT_FLUSH_INTERVAL    = 1000;
+    public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+
+    private Durability durability;
+    private int        flushInterval;
+    private boolean    memoryMapped;
+    private int        compressionLevel;
+
+    public ChunkIOSettings()
+    {
+        this.durability = Durability.PER_BATCH;
+        this.flushInterval = DEFAULT_FLUSH_INTERVAL;
+        this.compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+    }
+
+    public ChunkIOSettings(final Durability durability, final int flushInterval, final boolean memoryMapped, final int compressionLevel)
+    {
+        this.durability = (durability == null) ? Durability.PER_BATCH : durability;
+        this.flushInterval = flushInterval;
+        this.memoryMapped = memoryMapped;
+        this.setCompressionLevel(compressionLevel);
+    }
+
+    /**
+     * Returns when region files are forced to disk.
+     *
+     * @return when region files are forced to disk.
+     */
+    public Durability getDurability()
+    {
+        return this.durability;
+    }
+
+    public void setDurability(final Durability durability)
+    {
+        this.durability = durability;
+    }
+
+    /**
+     * Returns max time in milliseconds that region may keep not flushed writes in {@link Durability#PER_BATCH} mode, or
+     * not flushed writes that released sectors in {@link Durability#ON_CLOSE} mode.
+     *
+     * @return max time in milliseconds between region flushes.
+     */
+    public int getFlushInterval()
+    {
+        return this.flushInterval;
+    }
+
+    public void setFlushInterval(final int flushInterval)
+    {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Returns if region files should be memory mapped for reading.
+     *
+     * @return if region files should be memory mapped for reading.
+     */
+    public boolean isMemoryMapped()
+    {
+        return this.memoryMapped;
+    }
+
+    public void setMemoryMapped(final boolean memoryMapped)
+    {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Returns zlib compression level used for saved chunks, from 0 (no compression) to 9 (best compression).
+     *
+     * @return compression level used for saved chunks.
+     */
+    public int getCompressionLevel()
+    {
+        return this.compressionLevel;
+    }
+
+    public void setCompressionLevel(final int compressionLevel)
+    {
+        Validate.inclusiveBetween(Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION, compressionLevel, "Compression level must be between 0 and 9.");
+        this.compressionLevel = compressionLevel;
+    }
+
+    public enum Durability
+    {
+        /**
+         * Every saved chunk is forced to disk before next request is processed.
+         */
+        PER_CHUNK,
+        /**
+         * Saved chunks are forced to disk once the IO queue is empty, or when flush interval elapsed.
+         */
+        PER_BATCH,
+        /**
+         * Saved chunks are forced to disk only when region is closed, or after flush interval when moved chunks released
+         * sectors that can't be reused before header is written.
+         */
+        ON_CLOSE
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("durability", this.durability).append("flushInterval", this.flushInterval).append("memoryMapped", this.memoryMapped).append("compressionLevel", this.compressionLevel).toString();
+    }
+}
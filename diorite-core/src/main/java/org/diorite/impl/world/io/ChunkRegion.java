@@ -57,10 +57,33 @@ public abstract class ChunkRegion
 
     public abstract void close();
 
+    /**
+     * Writes all pending changes of this region to disk.
+     */
+    public void flush()
+    {
+    }
+
+    /**
+     * Invoked by IO thread when there are no more queued requests, region may flush pending changes here.
+     */
+    public void onBatchEnd()
+    {
+    }
+
     public abstract ChunkImpl loadChunk(final int x, final int z, final ChunkImpl chunk); // local cords, like from 0 to 31 on default anvil
 
     public abstract boolean deleteChunk(final int x, final int z);
 
+    /**
+     * Save given chunk data in this region.
+     *
+     * @param x    local x coordinate of chunk.
+     * @param z    local z coordinate of chunk.
+     * @param data data of chunk.
+     *
+     * @throws RuntimeException if chunk can't be written.
+     */
     public abstract void saveChunk(final int x, final int z, final NbtTagCompound data);
 
     @Override
@@ -25,8 +25,6 @@
 package org.diorite.impl.world.io;
 
 import java.io.File;
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
@@ -34,12 +32,12 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 import org.diorite.utils.math.endian.BigEndianUtils;
 
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectMap.Entry;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 public abstract class ChunkRegionCache
 {
-    protected final Long2ObjectMap<Reference<ChunkRegion>> cache = new Long2ObjectOpenHashMap<>(100);
+    // regions are kept by strong references, as they may contain not flushed changes.
+    protected final Long2ObjectMap<ChunkRegion> cache = new Long2ObjectOpenHashMap<>(100);
 
     protected final String extension;
     protected final File   regionDir;
@@ -57,16 +55,21 @@ public abstract class ChunkRegionCache
         return this.regionDir;
     }
 
+    public File getRegionFile(final int regionX, final int regionZ)
+    {
+        return new File(this.regionDir, "r." + regionX + "." + regionZ + this.extension);
+    }
+
     public ChunkRegion getChunkRegion(final int regionX, final int regionZ)
     {
         final long key = BigEndianUtils.toLong(regionX, regionZ);
-        final File file = new File(this.regionDir, "r." + regionX + "." + regionZ + this.extension);
+        final File file = this.getRegionFile(regionX, regionZ);
 
-        final Reference<ChunkRegion> ref = this.cache.get(key);
+        final ChunkRegion cached = this.cache.get(key);
 
-        if ((ref != null) && (ref.get() != null))
+        if (cached != null)
         {
-            return ref.get();
+            return cached;
         }
 
         if (! this.regionDir.isDirectory() && ! this.regionDir.mkdirs())
@@ -82,25 +85,53 @@ public abstract class ChunkRegionCache
         final ChunkRegion reg = this.createNewRegion(file, regionX, regionZ);
         synchronized (this.cache)
         {
-            this.cache.put(key, new SoftReference<>(reg));
+            this.cache.put(key, reg);
         }
         return reg;
     }
 
     public abstract ChunkRegion createNewRegion(final File file, final int regionX, final int regionZ);
 
+    public void flush()
+    {
+        synchronized (this.cache)
+        {
+            this.cache.values().forEach(ChunkRegion::flush);
+        }
+    }
+
+    public void onBatchEnd()
+    {
+        synchronized (this.cache)
+        {
+            this.cache.values().forEach(ChunkRegion::onBatchEnd);
+        }
+    }
+
+    /**
+     * Flush and close given region if it is cached, so file of it can be safely modified.
+     *
+     * @param regionX x coordinate of region.
+     * @param regionZ z coordinate of region.
+     */
+    public void close(final int regionX, final int regionZ)
+    {
+        final ChunkRegion region;
+        synchronized (this.cache)
+        {
+            region = this.cache.remove(BigEndianUtils.toLong(regionX, regionZ));
+        }
+        if (region != null)
+        {
+            region.close();
+        }
+    }
+
     public synchronized void clear()
     {
         synchronized (this.cache)
         {
-            for (final Entry<Reference<ChunkRegion>> entry : this.cache.long2ObjectEntrySet())
-            {
-                final ChunkRegion value = entry.getValue().get();
-                if (value != null)
-                {
-                    value.close();
-                }
-            }
+            this.cache.values().forEach(ChunkRegion::close);
             this.cache.clear();
         }
     }
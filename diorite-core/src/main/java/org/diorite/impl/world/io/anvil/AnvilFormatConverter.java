@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.io.anvil;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.diorite.impl.world.chunk.ChunkPartSerializer;
+import org.diorite.impl.world.io.ChunkIOSettings;
+import org.diorite.nbt.NbtTagCompound;
+
+/**
+ * Converts chunks in region files between vanilla and diorite block format, see {@link ChunkPartSerializer}. <br>
+ * Worlds are readable in both formats, so conversion is only needed before world is used by vanilla server, or to
+ * avoid converting old chunks on each load after world stopped being vanilla compatible. <br>
+ * Region must not be opened while it is converted, so it should be used offline, when server is stopped:
+ * {@code java -cp diorite.jar org.diorite.impl.world.io.anvil.AnvilFormatConverter <vanilla|diorite> <region dir or file>...}
+ */
+public final class AnvilFormatConverter
+{
+    private AnvilFormatConverter()
+    {
+    }
+
+    /**
+     * Convert all chunks of given region file.
+     *
+     * @param file    region file to convert.
+     * @param vanilla if true, chunks are converted to vanilla format, otherwise to diorite one.
+     *
+     * @return amount of converted chunks.
+     *
+     * @throws IOException if file can't be read or written.
+     */
+    public static int convert(final File file, final boolean vanilla) throws IOException
+    {
+        final String[] parts = file.getName().split("\\.");
+        if ((parts.length != 4) || ! parts[0].equals("r"))
+        {
+            throw new IOException("Invalid name of region file: " + file.getPath());
+        }
+        final AnvilRegion region = new AnvilRegion(file, Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), new ChunkIOSettings());
+        int converted = 0;
+        try
+        {
+            for (int z = 0; z < AnvilIO.REGION_SIZE; z++)
+            {
+                for (int x = 0; x < AnvilIO.REGION_SIZE; x++)
+                {
+                    final NbtTagCompound data = region.readChunk(x, z);
+                    if ((data == null) || ! ChunkPartSerializer.convert(data.getCompound("Level"), vanilla))
+                    {
+                        continue;
+                    }
+                    region.saveChunk(x, z, data);
+                    converted++;
+                }
+            }
+        } finally
+        {
+            region.close();
+        }
+        return converted;
+    }
+
+    public static void main(final String[] args) throws IOException
+    {
+        if ((args.length < 2) || (! args[0].equalsIgnoreCase("vanilla") && ! args[0].equalsIgnoreCase("diorite")))
+        {
+            System.out.println("Usage: AnvilFormatConverter <vanilla|diorite> <region dir or file>...");
+            return;
+        }
+        final boolean vanilla = args[0].equalsIgnoreCase("vanilla");
+        long total = 0;
+        for (int i = 1; i < args.length; i++)
+        {
+            final File path = new File(args[i]);
+            final File[] files = path.isDirectory() ? path.listFiles(RegionCompactor.REGION_FILTER) : new File[]{path};
+            if (files == null)
+            {
+                continue;
+            }
+            for (final File file : files)
+            {
+                final int converted = convert(file, vanilla);
+                total += converted;
+                System.out.println(file.getPath() + ": converted " + converted + " chunks.");
+            }
+        }
+        System.out.println("Converted " + total + " chunks, region files can be compacted now.");
+    }
+}
@@ -25,12 +25,15 @@
 package org.diorite.impl.world.io.anvil;
 
 import java.io.File;
+import java.io.IOException;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 import org.diorite.impl.world.chunk.ChunkImpl;
+import org.diorite.impl.world.chunk.ChunkSnapshotImpl;
 import org.diorite.impl.world.io.ChunkIO;
+import org.diorite.impl.world.io.ChunkIOSettings;
 import org.diorite.impl.world.io.ChunkRegion;
 import org.diorite.nbt.NbtTagCompound;
 
@@ -38,14 +41,14 @@ public class AnvilIO extends ChunkIO
 {
     public static final int REGION_SIZE = 32;
 
-    protected AnvilIO(final File basePath, final String extension, final int maxCacheSize)
+    protected AnvilIO(final File basePath, final String extension, final int maxCacheSize, final ChunkIOSettings settings)
     {
-        super(new AnvilRegionCache(basePath, extension, maxCacheSize));
+        super(new AnvilRegionCache(basePath, extension, maxCacheSize, settings));
     }
 
-    protected AnvilIO(final File basePath)
+    protected AnvilIO(final File basePath, final ChunkIOSettings settings)
     {
-        super(new AnvilRegionCache(basePath));
+        super(new AnvilRegionCache(basePath, settings));
     }
 
     public File getWorldDataFolder()
@@ -68,18 +71,31 @@ public class AnvilIO extends ChunkIO
     }
 
     @Override
-    public void saveChunk(final ChunkImpl chunk)
+    public void saveChunk(final ChunkSnapshotImpl chunk)
     {
         final ChunkRegion region = this.getChunkRegion(chunk.getX(), chunk.getZ());
-        NbtTagCompound lvl = new NbtTagCompound("Level");
         final NbtTagCompound top = new NbtTagCompound();
-        lvl = chunk.writeTo(lvl);
-        if (lvl == null)
+        top.addTag(chunk.writeTo(new NbtTagCompound("Level")));
+        region.saveChunk(this.getLocalFromRegion(chunk.getX()), this.getLocalFromRegion(chunk.getZ()), top); // TODO, not sure about nbt tag
+    }
+
+    @Override
+    public int compactRegion(final int regionX, final int regionZ)
+    {
+        final File file = this.cache.getRegionFile(regionX, regionZ);
+        if (! file.isFile())
         {
-            return;
+            return 0;
+        }
+        this.cache.close(regionX, regionZ);
+        try
+        {
+            return RegionCompactor.compact(file);
+        } catch (final IOException e)
+        {
+            // request must fail, so it isn't reported as compacted region with nothing to reclaim.
+            throw new RuntimeException("Region \"" + file.getPath() + "\": can't be compacted.", e);
         }
-        top.addTag(lvl);
-        region.saveChunk(this.getLocalFromRegion(chunk.getX()), this.getLocalFromRegion(chunk.getZ()), top); // TODO, not sure about nbt tag
     }
 
     @Override
@@ -24,29 +24,28 @@
 
 package org.diorite.impl.world.io.anvil;
 
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
+import java.util.BitSet;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
-import java.util.zip.InflaterInputStream;
-
-import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.apache.commons.lang3.builder.ToStringStyle;
 
 import org.diorite.impl.world.chunk.ChunkImpl;
+import org.diorite.impl.world.io.ChunkIOSettings;
+import org.diorite.impl.world.io.ChunkIOSettings.Durability;
 import org.diorite.impl.world.io.ChunkRegion;
+import org.diorite.impl.world.io.anvil.RegionBuffers.ChunkBuffer;
 import org.diorite.nbt.NbtInputStream;
 import org.diorite.nbt.NbtLimiter;
 import org.diorite.nbt.NbtOutputStream;
 import org.diorite.nbt.NbtTagCompound;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+
 /**
  * Every region contains up to 32x32 chunks, up to 1024 chunks per fire.<br>
  * Every file is divided into sectors, each sector have 4096 bytes (4KiB)<br>
@@ -59,25 +58,39 @@ import org.diorite.nbt.NbtTagCompound;
  * </ol>
  * Data of every chunks is stored in comppressed (mode=1 for GZip, mode=2 for Zlib, minecraft use only mode=2) NBT. <br>
  * Every chunk data starts with 5 byte header, first 4 bytes for length (in bytes + 1 byte for compression mode), and last byte for compression mode. <br>
+ * <br>
+ * Changes of location and timestamp tables are buffered and written when region is flushed, after chunk sectors are forced to disk,
+ * so header never points to sectors that aren't written yet. Sectors released by moved or removed chunks are reused only after
+ * new header is written. When region is flushed depends on {@link Durability} from {@link ChunkIOSettings}.<br>
+ * Free sectors are tracked by {@link SectorAllocator}, so finding space for chunk does not scan whole file.
  */
 @SuppressWarnings({"ClassHasNoToStringMethod", "MagicNumber"})
 class AnvilRegion extends ChunkRegion
 {
-    private static final int    SECTOR_BYTES    = 4096;
-    private static final int    SECTOR_INTS     = SECTOR_BYTES / 4;
-    private static final byte   VERSION_GZIP    = 1;
-    private static final byte   VERSION_DEFLATE = 2;
-    private static final byte[] emptySector     = new byte[SECTOR_BYTES];
-
-    private final int[] locations = new int[SECTOR_INTS];
-
-    protected final   RandomAccessFile raf;
-    private final     SectorsBitSet    freeSectors;
-    private transient FileChannel      channel;
-
-    AnvilRegion(final File file, final int x, final int z)
+    protected static final int    SECTOR_BYTES    = 4096;
+    protected static final int    SECTOR_INTS     = SECTOR_BYTES / 4;
+    protected static final byte   VERSION_GZIP    = 1;
+    protected static final byte   VERSION_DEFLATE = 2;
+    private static final   byte[] emptySector     = new byte[SECTOR_BYTES];
+
+    private final int[]      locations    = new int[SECTOR_INTS];
+    private final int[]      timestamps   = new int[SECTOR_INTS];
+    private final BitSet     dirtyHeader  = new BitSet(SECTOR_INTS);
+    private final IntList    pendingFree  = new IntArrayList(10); // pairs of offset and size
+    private final ByteBuffer headerBuffer = ByteBuffer.allocate(SECTOR_BYTES);
+
+    protected final     RandomAccessFile raf;
+    private final       SectorAllocator  allocator;
+    private final       ChunkIOSettings  settings;
+    protected transient FileChannel      channel;
+    private             boolean          dataDirty;
+    private             boolean          grown;
+    private             long             dirtySince;
+
+    AnvilRegion(final File file, final int x, final int z, final ChunkIOSettings settings)
     {
         super(file, x, z);
+        this.settings = settings;
         try
         {
             if (! file.exists())
@@ -86,6 +99,7 @@ class AnvilRegion extends ChunkRegion
                 file.createNewFile();
             }
             this.raf = new RandomAccessFile(file, "rw");
+            this.channel = this.raf.getChannel();
             if (this.raf.length() < (SECTOR_BYTES << 1))
             {
                 this.raf.seek(0);
@@ -93,42 +107,38 @@ class AnvilRegion extends ChunkRegion
                 this.raf.write(emptySector);
             }
             final int nSectors = (int) (this.file.length() / SECTOR_BYTES);
-            this.freeSectors = new SectorsBitSet(nSectors);
-            for (int i = 2; i < nSectors; ++ i)
-            {
-                this.freeSectors.set(i, true);
-            }
-            this.freeSectors.set(0, false);
-            this.freeSectors.set(1, false);
+            final BitSet usedSectors = new BitSet(nSectors);
+            usedSectors.set(0, 2);
 
 
-            // read locations from offset table
-            this.raf.seek(0);
+            // read locations and timestamps tables at once
+            final ByteBuffer header = ByteBuffer.allocate(SECTOR_BYTES << 1);
+            while (header.hasRemaining())
+            {
+                if (this.channel.read(header, header.position()) == - 1)
+                {
+                    throw new IOException("Unexpected end of region header.");
+                }
+            }
+            header.flip();
+            header.asIntBuffer().get(this.locations).get(this.timestamps);
             for (int i = 0; i < SECTOR_INTS; ++ i)
             {
-                final int location = this.raf.readInt();
-                this.locations[i] = location;
+                final int location = this.locations[i];
 
                 final int offset = (location >> 8);
                 final int size = (location & 0xff);
 
-                if ((location != 0) && (offset >= 0) && ((offset + size) <= this.freeSectors.getLargestIndex()))
+                if ((location != 0) && (offset >= 2) && ((offset + size) <= nSectors))
                 {
-                    for (int sectorNum = 0; sectorNum < size; ++ sectorNum)
-                    {
-                        this.freeSectors.set(offset + sectorNum, false);
-                    }
+                    usedSectors.set(offset, offset + size);
                 }
                 else if (location != 0)
                 {
                     System.err.println("[ChunkIO] Region \"" + file.getPath() + "\": locations[" + i + "] = " + location + " -> " + offset + ", " + size + " does not fit");
                 }
             }
-            // time stamps are not used at all.
-//            for (int i = 0; i < SECTOR_INTS; ++ i)
-//            {
-//                this.timestamps[i] = this.raf.readInt();
-//            }
+            this.allocator = new SectorAllocator(usedSectors, nSectors);
         } catch (final IOException e)
         {
             throw new RuntimeException("Can't create AnvilRegion(" + x + ", " + z + ") file: " + file.getPath(), e);
@@ -138,6 +148,7 @@ class AnvilRegion extends ChunkRegion
     @Override
     public void close()
     {
+        this.flush();
         try
         {
             this.raf.close();
@@ -149,31 +160,127 @@ class AnvilRegion extends ChunkRegion
     }
 
     @Override
-    public ChunkImpl loadChunk(final int x, final int z, final ChunkImpl chunk)
+    public void flush()
     {
+        if (! this.dataDirty && this.dirtyHeader.isEmpty())
+        {
+            return;
+        }
         try
         {
-            final int location = this.getLocation(x, z);
-            if (location == 0)
+            if (this.dataDirty)
             {
-                return null;
+                // sectors must be on disk before header can point to them.
+                this.channel.force(this.grown);
+                this.dataDirty = false;
+                this.grown = false;
             }
-            final int offset = location >> 8;
-            final int size = location & 0xFF;
-            if ((offset + size) > this.freeSectors.getLargestIndex())
+            if (! this.dirtyHeader.isEmpty())
             {
-                throw new RuntimeException("Invalid sector: " + offset + "+" + size + " > " + this.freeSectors.getLargestIndex());
+                final int from = this.dirtyHeader.nextSetBit(0);
+                final int to = this.dirtyHeader.length();
+                this.writeHeader(this.locations, 0, from, to);
+                this.writeHeader(this.timestamps, SECTOR_BYTES, from, to);
+                this.channel.force(false);
+                this.dirtyHeader.clear();
             }
-            this.raf.seek(offset * SECTOR_BYTES);
-            final int length = this.raf.readInt();
-            if (length > (SECTOR_BYTES * size))
+            for (int i = 0, size = this.pendingFree.size(); i < size; i += 2)
             {
-                throw new RuntimeException("Invalid length: " + length + " > " + (SECTOR_BYTES * size));
+                this.allocator.free(this.pendingFree.getInt(i), this.pendingFree.getInt(i + 1));
             }
-            try (final NbtInputStream stream = this.getInputStream(length, this.raf.readByte()))
+            this.pendingFree.clear();
+            this.dirtySince = 0;
+        } catch (final IOException e)
+        {
+            System.err.println("[ChunkIO] Region \"" + this.file.getPath() + "\": can't be flushed.");
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void onBatchEnd()
+    {
+        if (this.settings.getDurability() == Durability.PER_BATCH)
+        {
+            this.flush();
+        }
+    }
+
+    private void writeHeader(final int[] table, final int position, final int from, final int to) throws IOException
+    {
+        final ByteBuffer buffer = this.headerBuffer;
+        buffer.clear();
+        buffer.asIntBuffer().put(table, from, to - from);
+        buffer.limit((to - from) << 2);
+        long pos = position + (from << 2);
+        while (buffer.hasRemaining())
+        {
+            pos += this.channel.write(buffer, pos);
+        }
+    }
+
+    private void markDirty(final int key, final int location)
+    {
+        this.locations[key] = location;
+        this.timestamps[key] = (int) (System.currentTimeMillis() / 1000);
+        this.dirtyHeader.set(key);
+        if (this.dirtySince == 0)
+        {
+            this.dirtySince = System.currentTimeMillis();
+        }
+    }
+
+    private void commit()
+    {
+        switch (this.settings.getDurability())
+        {
+            case PER_CHUNK:
+                this.flush();
+                break;
+            case PER_BATCH:
+                if (this.isFlushIntervalElapsed())
+                {
+                    this.flush();
+                }
+                break;
+            case ON_CLOSE:
+                // released sectors can be reused only after new header is written, so region would grow forever.
+                if (! this.pendingFree.isEmpty() && this.isFlushIntervalElapsed())
+                {
+                    this.flush();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean isFlushIntervalElapsed()
+    {
+        return (this.dirtySince != 0) && ((System.currentTimeMillis() - this.dirtySince) >= this.settings.getFlushInterval());
+    }
+
+    private void releaseSectors(final int offset, final int size)
+    {
+        if ((offset == 0) || (size == 0))
+        {
+            return;
+        }
+        this.pendingFree.add(offset);
+        this.pendingFree.add(size);
+    }
+
+    @Override
+    public ChunkImpl loadChunk(final int x, final int z, final ChunkImpl chunk)
+    {
+        try
+        {
+            final NbtTagCompound data = this.readChunk(x, z);
+            if (data == null)
             {
-                chunk.loadFrom(((NbtTagCompound) stream.readTag(NbtLimiter.getUnlimited())).getCompound("Level"));
+                return null;
             }
+            chunk.loadFrom(data.getCompound("Level"));
             return chunk;
         } catch (final IOException e)
         {
@@ -183,33 +290,75 @@ class AnvilRegion extends ChunkRegion
         }
     }
 
-    private NbtInputStream getInputStream(final int length, final byte version) throws IOException
+    /**
+     * Reads nbt data of chunk at given local coordinates.
+     *
+     * @param x local x coordinate of chunk.
+     * @param z local z coordinate of chunk.
+     *
+     * @return nbt data of chunk, or null if there is no such chunk.
+     *
+     * @throws IOException if data can't be read.
+     */
+    public NbtTagCompound readChunk(final int x, final int z) throws IOException
     {
-        if (version == VERSION_GZIP)
+        final int location = this.getLocation(x, z);
+        if (location == 0)
         {
-            final byte[] data = new byte[length - 1];
-            this.raf.read(data);
-            return new NbtInputStream(new GZIPInputStream(new ByteArrayInputStream(data)));
+            return null;
         }
-        if (version == VERSION_DEFLATE)
+        final int offset = location >> 8;
+        final int size = location & 0xFF;
+        if ((offset + size) > this.allocator.getSize())
         {
-            final byte[] data = new byte[length - 1];
-            this.raf.read(data);
-            return new NbtInputStream(new InflaterInputStream(new ByteArrayInputStream(data)));
+            throw new RuntimeException("Invalid sector: " + offset + "+" + size + " > " + this.allocator.getSize());
+        }
+        try (final NbtInputStream stream = this.openChunk(offset, size))
+        {
+            return (NbtTagCompound) stream.readTag(NbtLimiter.getUnlimited());
         }
-        throw new RuntimeException("Unknown version: " + version);
     }
 
-    private NbtOutputStream getOutputStream(final int x, final int z, final byte version) throws IOException
+    /**
+     * Opens stream with data of chunk stored in given sectors.
+     *
+     * @param offset  offset of first sector of chunk.
+     * @param sectors amount of sectors used by chunk.
+     *
+     * @return stream with chunk data.
+     *
+     * @throws IOException if data can't be read.
+     */
+    protected NbtInputStream openChunk(final int offset, final int sectors) throws IOException
+    {
+        this.raf.seek(offset * SECTOR_BYTES);
+        final int length = this.raf.readInt();
+        checkLength(length, sectors);
+        return this.getInputStream(length, this.raf.readByte());
+    }
+
+    protected static void checkLength(final int length, final int sectors)
+    {
+        if (length > (SECTOR_BYTES * sectors))
+        {
+            throw new RuntimeException("Invalid length: " + length + " > " + (SECTOR_BYTES * sectors));
+        }
+    }
+
+    private NbtInputStream getInputStream(final int length, final byte version) throws IOException
     {
-        this.checkBounds(x, z);
         if (version == VERSION_GZIP)
         {
-            return new NbtOutputStream(new BufferedOutputStream(new GZIPOutputStream(new ChunkBuffer(x, z))));
+            final byte[] data = new byte[length - 1];
+            this.raf.read(data);
+            return new NbtInputStream(new GZIPInputStream(new ByteArrayInputStream(data)));
         }
         if (version == VERSION_DEFLATE)
         {
-            return new NbtOutputStream(new BufferedOutputStream(new DeflaterOutputStream(new ChunkBuffer(x, z), new Deflater(Deflater.BEST_SPEED))));
+            final RegionBuffers buffers = RegionBuffers.get();
+            final byte[] data = buffers.getReadBuffer(length - 1);
+            this.raf.readFully(data, 0, length - 1);
+            return new NbtInputStream(buffers.inflate(ByteBuffer.wrap(data, 0, length - 1)));
         }
         throw new RuntimeException("Unknown version: " + version);
     }
@@ -229,15 +378,20 @@ class AnvilRegion extends ChunkRegion
     @Override
     public void saveChunk(final int x, final int z, final NbtTagCompound data)
     {
+        this.checkBounds(x, z);
         try
         {
-            try (final NbtOutputStream stream = this.getOutputStream(x, z, VERSION_DEFLATE))
+            final RegionBuffers buffers = RegionBuffers.get();
+            final ChunkBuffer raw = buffers.getRawBuffer();
+            try (final NbtOutputStream stream = new NbtOutputStream(raw))
             {
                 stream.write(data);
             }
+            final ChunkBuffer compressed = buffers.deflate(raw, this.settings.getCompressionLevel());
+            this.write(x, z, compressed.getBuffer(), compressed.size());
         } catch (final IOException e)
         {
-            System.err.println("[ChunkIO] Region \"" + this.file.getPath() + "\": can't be loaded. region(" + this.x + ", " + this.z + "), local chunk(" + x + ", " + z + "), map chunk(" + ((this.x << 5) + x) + ", " + ((this.z << 5) + z) + ")");
+            throw new RuntimeException("Can't save chunk, region file \"" + this.file.getPath() + "\", region(" + this.x + ", " + this.z + "), local chunk(" + x + ", " + z + "), map chunk(" + ((this.x << 5) + x) + ", " + ((this.z << 5) + z) + ")", e);
         }
     }
 
@@ -262,66 +416,21 @@ class AnvilRegion extends ChunkRegion
     public boolean removeChunk(final int x, final int z) throws IOException
     {
         final int key = (x + (z << 5));
-        if (this.locations[key] == 0)
+        final int location = this.locations[key];
+        if (location == 0)
         {
             return false;
         }
-        this.locations[(x + (z << 5))] = 0;
-        this.raf.seek(key >> 1);
-        this.raf.writeInt(0);
+        this.markDirty(key, 0);
+        this.releaseSectors(location >> 8, location & 0xFF);
+        this.commit();
         return true;
     }
 
-    private void setLocation(final int x, final int z, final int location) throws IOException
-    {
-        final int key = (x + (z << 5));
-        this.locations[key] = location;
-        this.raf.seek(key << 2);
-        this.raf.writeInt(location);
-    }
-
-    private void setTimestamp(final int x, final int z, final int value) throws IOException
-    {
-        final int key = (x + (z << 5));
-//        this.timestamps[key] = value;
-        this.raf.seek(SECTOR_BYTES + (key << 2));
-        this.raf.writeInt(value);
-    }
-
-    class ChunkBuffer extends ByteArrayOutputStream
-    {
-        private static final int SIZE = 8096;
-        private final int x, z;
-
-        ChunkBuffer(final int x, final int z)
-        {
-            super(SIZE); // initialize to 8KB
-            this.x = x;
-            this.z = z;
-        }
-
-        @Override
-        public void close() throws IOException
-        {
-            try
-            {
-                AnvilRegion.this.write(this.x, this.z, this.buf, this.count);
-            } finally
-            {
-                super.close();
-            }
-        }
-
-        @Override
-        public String toString()
-        {
-            return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("x", this.x).append("z", this.z).toString();
-        }
-    }
-
     protected void write(final int x, final int z, final byte[] data, final int length) throws IOException
     {
-        final int location = this.getLocation(x, z);
+        final int key = (x + (z << 5));
+        final int location = this.locations[key];
         int offset = location >> 8;
         final int oldSize = location & 0xFF;
         final int newSize = ((length + 5) / SECTOR_BYTES) + 1;
@@ -332,76 +441,20 @@ class AnvilRegion extends ChunkRegion
             throw new RuntimeException("Chunk is bigger than 1MiB! (" + (1024 - (newSize << 2)) + " KiB bigger) region(" + this.x + ", " + this.z + "), local chunk(" + x + ", " + z + "), map chunk(" + ((this.x << 5) + x) + ", " + ((this.z << 5) + z) + ")");
         }
 
-        if ((offset != 0) && (oldSize == newSize)) // match old chunk sectors
-        {
-            this.write(offset, data, length);
-        }
-        else
-        {
-            for (int i = 0; i < oldSize; ++ i) // old sectors are now free
-            {
-                this.freeSectors.set(offset + i, true);
-            }
-
-            int runStart = this.freeSectors.nextSetBit(0);
-            int runLength = 0;
-            if (runStart != - 1)
-            {
-                for (int i = runStart; i < this.freeSectors.getLargestIndex(); ++ i)
-                {
-                    if (runLength != 0)
-                    {
-                        if (this.freeSectors.get(i))
-                        {
-                            runLength++;
-                        }
-                        else
-                        {
-                            runLength = 0;
-                        }
-                    }
-                    else if (this.freeSectors.get(i))
-                    {
-                        runStart = i;
-                        runLength = 1;
-                    }
-                    if (runLength >= newSize)
-                    {
-                        break;
-                    }
-                }
-            }
+        // chunk is never written over sectors used by last saved header, even if size didn't change, so crash before
+        // header is flushed leaves old chunk readable. Old sectors will be free after new location is written to header.
+        this.releaseSectors(offset, oldSize);
 
-            if (runLength >= newSize) // we found space to save this chunk
-            {
-                offset = runStart;
-                this.setLocation(x, z, (offset << 8) | newSize);
-                for (int i = 0; i < newSize; ++ i) // mark sectors as used
-                {
-                    this.freeSectors.set(offset + i, false);
-                }
-                this.write(offset, data, length);
-            }
-            else // file is too small, we need make it bigger
-            {
-                this.raf.seek(this.raf.length());
-                offset = this.freeSectors.getLargestIndex();
-                for (int i = 0; i < newSize; ++ i)
-                {
-                    this.raf.write(emptySector);
-                    this.freeSectors.clear(offset + i);
-                }
-
-                this.write(offset, data, length);
-                this.setLocation(x, z, (offset << 8) | newSize);
-            }
-        }
-        this.setTimestamp(x, z, (int) (System.currentTimeMillis() / 1000));
-        if (this.channel == null)
+        offset = this.allocator.allocate(newSize);
+        final long end = ((long) (offset + newSize)) * SECTOR_BYTES;
+        if (end > this.raf.length()) // file is too small, we need make it bigger
         {
-            this.channel = this.raf.getChannel();
+            this.raf.setLength(end);
+            this.grown = true;
         }
-        this.channel.force(true);
+        this.write(offset, data, length);
+        this.markDirty(key, (offset << 8) | newSize);
+        this.commit();
     }
 
     private void write(final int offset, final byte[] data, final int length) throws IOException
@@ -410,5 +463,6 @@ class AnvilRegion extends ChunkRegion
         this.raf.writeInt(length + 1);
         this.raf.writeByte(VERSION_DEFLATE);
         this.raf.write(data, 0, length);
+        this.dataDirty = true;
     }
 }
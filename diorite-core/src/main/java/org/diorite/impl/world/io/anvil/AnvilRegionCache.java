@@ -26,6 +26,7 @@ package org.diorite.impl.world.io.anvil;
 
 import java.io.File;
 
+import org.diorite.impl.world.io.ChunkIOSettings;
 import org.diorite.impl.world.io.ChunkRegion;
 import org.diorite.impl.world.io.ChunkRegionCache;
 
@@ -33,19 +34,26 @@ class AnvilRegionCache extends ChunkRegionCache
 {
     public static final int DEFAULT_MAX_CACHE_SIZE = 255;
 
-    AnvilRegionCache(final File basePath, final String extension, final int maxCacheSize)
+    private final ChunkIOSettings settings;
+
+    AnvilRegionCache(final File basePath, final String extension, final int maxCacheSize, final ChunkIOSettings settings)
     {
         super(basePath, extension, maxCacheSize);
+        this.settings = settings;
     }
 
-    AnvilRegionCache(final File basePath)
+    AnvilRegionCache(final File basePath, final ChunkIOSettings settings)
     {
-        super(basePath, ".mca", DEFAULT_MAX_CACHE_SIZE);
+        this(basePath, ".mca", DEFAULT_MAX_CACHE_SIZE, settings);
     }
 
     @Override
     public ChunkRegion createNewRegion(final File file, final int regionX, final int regionZ)
     {
-        return new AnvilRegion(file, regionX, regionZ);
+        if (this.settings.isMemoryMapped())
+        {
+            return new MappedAnvilRegion(file, regionX, regionZ, this.settings);
+        }
+        return new AnvilRegion(file, regionX, regionZ, this.settings);
     }
 }
@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.io.anvil;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import org.diorite.impl.world.io.ChunkIOSettings;
+import org.diorite.nbt.NbtInputStream;
+import org.diorite.utils.DioriteUtils;
+
+/**
+ * Anvil region that reads chunks from memory mapped file, instead of seeking and copying data of each chunk. <br>
+ * Data is inflated directly from mapped buffer using inflater and buffers of current IO thread, see {@link RegionBuffers#inflate(ByteBuffer)}. <br>
+ * Writes are still done by {@link AnvilRegion}, file is mapped again when chunk outside of current mapping is requested.
+ * Old mapping is unmapped right away, as region is used by single IO thread and streams of chunks are closed before
+ * next chunk is read, so nothing can use it anymore.
+ */
+class MappedAnvilRegion extends AnvilRegion
+{
+    private static final Method invokeCleaner; // Unsafe.invokeCleaner(ByteBuffer), java 9+
+    private static final Method cleaner; // DirectBuffer.cleaner(), java 8
+    private static final Method clean; // Cleaner.clean(), java 8
+
+    static
+    {
+        Method invoke = null;
+        Method getCleaner = null;
+        Method doClean = null;
+        try
+        {
+            invoke = DioriteUtils.getUnsafe().getClass().getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (final NoSuchMethodException ignored)
+        {
+            try
+            {
+                getCleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                doClean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            } catch (final ReflectiveOperationException e)
+            {
+                System.err.println("[ChunkIO] Mapped region files can't be unmapped, they will be unmapped by GC.");
+                e.printStackTrace();
+            }
+        }
+        invokeCleaner = invoke;
+        cleaner = getCleaner;
+        clean = doClean;
+    }
+
+    private MappedByteBuffer mapped;
+
+    MappedAnvilRegion(final File file, final int x, final int z, final ChunkIOSettings settings)
+    {
+        super(file, x, z, settings);
+    }
+
+    private ByteBuffer map(final long requiredSize) throws IOException
+    {
+        if ((this.mapped == null) || (this.mapped.capacity() < requiredSize))
+        {
+            this.unmap();
+            this.mapped = this.channel.map(MapMode.READ_ONLY, 0, this.channel.size());
+            if (this.mapped.capacity() < requiredSize)
+            {
+                throw new EOFException("Region file is smaller than expected: " + this.mapped.capacity() + " < " + requiredSize);
+            }
+        }
+        return this.mapped.duplicate();
+    }
+
+    @Override
+    protected NbtInputStream openChunk(final int offset, final int sectors) throws IOException
+    {
+        final long start = (long) offset * SECTOR_BYTES;
+        final ByteBuffer data = this.map(start + (sectors * SECTOR_BYTES));
+        data.position((int) start);
+        final int length = data.getInt();
+        checkLength(length, sectors);
+        final byte version = data.get();
+        data.limit(data.position() + (length - 1));
+        if (version == VERSION_DEFLATE)
+        {
+            return new NbtInputStream(RegionBuffers.get().inflate(data));
+        }
+        if (version == VERSION_GZIP)
+        {
+            final byte[] bytes = new byte[length - 1];
+            data.get(bytes);
+            return new NbtInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)));
+        }
+        throw new RuntimeException("Unknown version: " + version);
+    }
+
+    /**
+     * Release current mapping of file, so its address space is freed and file can be truncated or deleted.
+     */
+    private void unmap()
+    {
+        final MappedByteBuffer buffer = this.mapped;
+        if (buffer == null)
+        {
+            return;
+        }
+        this.mapped = null;
+        try
+        {
+            if (invokeCleaner != null)
+            {
+                invokeCleaner.invoke(DioriteUtils.getUnsafe(), buffer);
+            }
+            else if (cleaner != null)
+            {
+                final Object bufferCleaner = cleaner.invoke(buffer);
+                if (bufferCleaner != null)
+                {
+                    clean.invoke(bufferCleaner);
+                }
+            }
+        } catch (final ReflectiveOperationException e)
+        {
+            System.err.println("[ChunkIO] Region \"" + this.file.getPath() + "\": can't be unmapped.");
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        this.unmap();
+        super.close();
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("mapped", this.mapped).toString();
+    }
+}
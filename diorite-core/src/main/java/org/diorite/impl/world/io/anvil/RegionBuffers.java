@@ -0,0 +1,269 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.io.anvil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Compression objects and buffers reused by single IO thread. <br>
+ * Each IO thread have own instance, so deflater, inflater and buffers are never created again for each chunk,
+ * and native zlib memory is allocated only once per thread.
+ */
+final class RegionBuffers
+{
+    private static final int BUFFER_SIZE       = 8192;
+    private static final int CHUNK_BUFFER_SIZE = 32768;
+
+    private static final ThreadLocal<RegionBuffers> buffers = ThreadLocal.withInitial(RegionBuffers::new);
+
+    private final Inflater    inflater   = new Inflater();
+    private final Deflater    deflater   = new Deflater(Deflater.BEST_SPEED);
+    private final byte[]      input      = new byte[BUFFER_SIZE];
+    private final byte[]      output     = new byte[BUFFER_SIZE];
+    private final ChunkBuffer raw        = new ChunkBuffer(CHUNK_BUFFER_SIZE);
+    private final ChunkBuffer compressed = new ChunkBuffer(CHUNK_BUFFER_SIZE);
+    private       int         level      = Deflater.BEST_SPEED;
+
+    private RegionBuffers()
+    {
+    }
+
+    /**
+     * Returns buffers of current thread.
+     *
+     * @return buffers of current thread.
+     */
+    static RegionBuffers get()
+    {
+        return buffers.get();
+    }
+
+    /**
+     * Returns empty buffer for uncompressed chunk data.
+     *
+     * @return empty buffer for uncompressed chunk data.
+     */
+    ChunkBuffer getRawBuffer()
+    {
+        this.raw.reset();
+        return this.raw;
+    }
+
+    /**
+     * Returns buffer with at least given capacity, used to read compressed chunk data.
+     *
+     * @param size required capacity.
+     *
+     * @return buffer with at least given capacity.
+     */
+    byte[] getReadBuffer(final int size)
+    {
+        this.compressed.reset();
+        this.compressed.ensureCapacity(size);
+        return this.compressed.getBuffer();
+    }
+
+    /**
+     * Compress data from given buffer using deflater of this thread.
+     *
+     * @param data  data to compress.
+     * @param level compression level.
+     *
+     * @return buffer with compressed data, valid until next usage of this object.
+     */
+    ChunkBuffer deflate(final ChunkBuffer data, final int level)
+    {
+        final Deflater deflater = this.deflater;
+        deflater.reset();
+        if (this.level != level)
+        {
+            deflater.setLevel(level);
+            this.level = level;
+        }
+        deflater.setInput(data.getBuffer(), 0, data.size());
+        deflater.finish();
+        final ChunkBuffer out = this.compressed;
+        out.reset();
+        while (! deflater.finished())
+        {
+            out.ensureCapacity(out.size() + BUFFER_SIZE);
+            out.skip(deflater.deflate(out.getBuffer(), out.size(), out.getBuffer().length - out.size()));
+        }
+        return out;
+    }
+
+    /**
+     * Returns stream that inflates data from given buffer using inflater and buffers of this thread. <br>
+     * Only one such stream can be used at once by single thread.
+     *
+     * @param data compressed data.
+     *
+     * @return stream with inflated data.
+     */
+    InputStream inflate(final ByteBuffer data)
+    {
+        this.inflater.reset();
+        return new InflatingStream(data);
+    }
+
+    /**
+     * Growable buffer with access to its internal array.
+     */
+    static class ChunkBuffer extends ByteArrayOutputStream
+    {
+        ChunkBuffer(final int size)
+        {
+            super(size);
+        }
+
+        byte[] getBuffer()
+        {
+            return this.buf;
+        }
+
+        void ensureCapacity(final int capacity)
+        {
+            if (capacity > this.buf.length)
+            {
+                this.buf = Arrays.copyOf(this.buf, Math.max(capacity, this.buf.length << 1));
+            }
+        }
+
+        void skip(final int length)
+        {
+            this.count += length;
+        }
+
+        @Override
+        public String toString()
+        {
+            return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("capacity", this.buf.length).append("count", this.count).toString();
+        }
+    }
+
+    private class InflatingStream extends InputStream
+    {
+        private final ByteBuffer data;
+        private       int        outputPos;
+        private       int        outputLength;
+
+        InflatingStream(final ByteBuffer data)
+        {
+            this.data = data;
+        }
+
+        private boolean fill() throws IOException
+        {
+            final Inflater inflater = RegionBuffers.this.inflater;
+            final byte[] input = RegionBuffers.this.input;
+            try
+            {
+                while (true)
+                {
+                    final int inflated = inflater.inflate(RegionBuffers.this.output);
+                    if (inflated > 0)
+                    {
+                        this.outputPos = 0;
+                        this.outputLength = inflated;
+                        return true;
+                    }
+                    if (inflater.finished() || inflater.needsDictionary())
+                    {
+                        return false;
+                    }
+                    if (inflater.needsInput())
+                    {
+                        if (! this.data.hasRemaining())
+                        {
+                            throw new EOFException("Unexpected end of chunk data.");
+                        }
+                        final int length = Math.min(input.length, this.data.remaining());
+                        this.data.get(input, 0, length);
+                        inflater.setInput(input, 0, length);
+                    }
+                }
+            } catch (final DataFormatException e)
+            {
+                throw new IOException("Invalid chunk data.", e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if ((this.outputPos >= this.outputLength) && ! this.fill())
+            {
+                return - 1;
+            }
+            return RegionBuffers.this.output[this.outputPos++] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException
+        {
+            if (len == 0)
+            {
+                return 0;
+            }
+            if ((this.outputPos >= this.outputLength) && ! this.fill())
+            {
+                return - 1;
+            }
+            final int read = Math.min(len, this.outputLength - this.outputPos);
+            System.arraycopy(RegionBuffers.this.output, this.outputPos, b, off, read);
+            this.outputPos += read;
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException
+        {
+            return this.outputLength - this.outputPos;
+        }
+
+        @Override
+        public String toString()
+        {
+            return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("data", this.data).append("outputPos", this.outputPos).append("outputLength", this.outputLength).toString();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("level", this.level).append("raw", this.raw).append("compressed", this.compressed).toString();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.io.anvil;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Rewrites region files without unused sectors. <br>
+ * Chunks are copied one after another to new file, in order of their location in old file,
+ * and new file replaces old one only after it is fully written to disk. <br>
+ * Region must not be opened while it is compacted, so online compaction must be done from IO thread
+ * that owns region, after closing it, see {@link AnvilIO#compactRegion(int, int)}. <br>
+ * Can be also used offline, when server is stopped: {@code java -cp diorite.jar org.diorite.impl.world.io.anvil.RegionCompactor <region dir or file>...}
+ */
+public final class RegionCompactor
+{
+    public static final FilenameFilter REGION_FILTER = (dir, name) -> name.startsWith("r.") && name.endsWith(".mca");
+
+    private static final int SECTOR_BYTES = AnvilRegion.SECTOR_BYTES;
+    private static final int SECTOR_INTS  = AnvilRegion.SECTOR_INTS;
+    private static final int HEADER_BYTES = SECTOR_BYTES << 1;
+
+    private RegionCompactor()
+    {
+    }
+
+    /**
+     * Compact given region file.
+     *
+     * @param file region file to compact.
+     *
+     * @return amount of reclaimed sectors.
+     *
+     * @throws IOException if file can't be read or written.
+     */
+    public static int compact(final File file) throws IOException
+    {
+        if (file.length() < HEADER_BYTES)
+        {
+            return 0;
+        }
+        final File tmp = new File(file.getPath() + ".tmp");
+        final int oldSectors;
+        int newSectors = 2;
+        try (final FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             final FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            oldSectors = (int) ((in.size() + SECTOR_BYTES - 1) / SECTOR_BYTES);
+            final int[] locations = new int[SECTOR_INTS];
+            final int[] timestamps = new int[SECTOR_INTS];
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(in, header, 0);
+            header.flip();
+            header.asIntBuffer().get(locations).get(timestamps);
+
+            // copy chunks in order of their offsets, so old file is read sequentially.
+            final long[] order = new long[SECTOR_INTS];
+            int chunks = 0;
+            for (int i = 0; i < SECTOR_INTS; ++ i)
+            {
+                if (locations[i] != 0)
+                {
+                    order[chunks++] = (((long) (locations[i] >>> 8)) << 32) | i;
+                }
+            }
+            Arrays.sort(order, 0, chunks);
+
+            final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+            final ByteBuffer data = ByteBuffer.allocate(255 * SECTOR_BYTES);
+            for (int i = 0; i < chunks; ++ i)
+            {
+                final int key = (int) order[i];
+                final int offset = locations[key] >>> 8;
+                final int size = locations[key] & 0xFF;
+                lengthBuffer.clear();
+                if ((offset < 2) || ((offset + size) > oldSectors) || (in.read(lengthBuffer, offset * (long) SECTOR_BYTES) != 4))
+                {
+                    System.err.println("[ChunkIO] Region \"" + file.getPath() + "\": dropping invalid location of chunk " + key + ": " + offset + ", " + size);
+                    locations[key] = 0;
+                    timestamps[key] = 0;
+                    continue;
+                }
+                final int length = lengthBuffer.getInt(0);
+                if ((length <= 0) || ((length + 4) > (size * SECTOR_BYTES)))
+                {
+                    System.err.println("[ChunkIO] Region \"" + file.getPath() + "\": dropping chunk " + key + " with invalid length: " + length);
+                    locations[key] = 0;
+                    timestamps[key] = 0;
+                    continue;
+                }
+                final int sectors = ((length + 4) + SECTOR_BYTES - 1) / SECTOR_BYTES;
+                data.clear();
+                data.limit(sectors * SECTOR_BYTES);
+                readFully(in, data, offset * (long) SECTOR_BYTES);
+                data.flip();
+                // zero unused tail of last sector, so old data isn't copied.
+                for (int j = length + 4, limit = data.limit(); j < limit; ++ j)
+                {
+                    data.put(j, (byte) 0);
+                }
+                writeFully(out, data, newSectors * (long) SECTOR_BYTES);
+                locations[key] = (newSectors << 8) | sectors;
+                newSectors += sectors;
+            }
+
+            header.clear();
+            header.asIntBuffer().put(locations).put(timestamps);
+            writeFully(out, header, 0);
+            out.force(true);
+        } catch (final IOException e)
+        {
+            Files.deleteIfExists(tmp.toPath());
+            throw e;
+        }
+        try
+        {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e)
+        {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return oldSectors - newSectors;
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            final int read = channel.read(buffer, position);
+            if (read == - 1)
+            {
+                throw new IOException("Unexpected end of region file.");
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    public static void main(final String[] args) throws IOException
+    {
+        if (args.length == 0)
+        {
+            System.out.println("Usage: RegionCompactor <region dir or file>...");
+            return;
+        }
+        long total = 0;
+        for (final String arg : args)
+        {
+            final File path = new File(arg);
+            final File[] files = path.isDirectory() ? path.listFiles(REGION_FILTER) : new File[]{path};
+            if (files == null)
+            {
+                continue;
+            }
+            for (final File file : files)
+            {
+                final int reclaimed = compact(file);
+                total += reclaimed;
+                System.out.println(file.getPath() + ": reclaimed " + reclaimed + " sectors.");
+            }
+        }
+        System.out.println("Reclaimed " + ((total * SECTOR_BYTES) >> 10) + " KiB.");
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.io.anvil;
+
+import java.util.BitSet;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongRBTreeSet;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+
+/**
+ * Allocator of region file sectors. <br>
+ * Free sectors are stored as extents (runs of free sectors), sorted by length and offset,
+ * so best-fit allocation is O(log n), and freed extents are coalesced with neighbours in O(log n).
+ */
+class SectorAllocator
+{
+    private static final int NONE = - 1;
+
+    /**
+     * Free extents, sorted by length and then by offset, see {@link #key(int, int)}
+     */
+    private final LongSortedSet bySize = new LongRBTreeSet();
+    /**
+     * Offset of free extent -> length of it.
+     */
+    private final Int2IntMap    starts = new Int2IntOpenHashMap(16);
+    /**
+     * End (exclusive) of free extent -> offset of it.
+     */
+    private final Int2IntMap    ends   = new Int2IntOpenHashMap(16);
+
+    private int size;
+    private int freeSectors;
+
+    /**
+     * Construct new allocator for file with given amount of sectors, where only given sectors are used.
+     *
+     * @param used bit set of used sectors.
+     * @param size amount of sectors in file.
+     */
+    SectorAllocator(final BitSet used, final int size)
+    {
+        this.starts.defaultReturnValue(NONE);
+        this.ends.defaultReturnValue(NONE);
+        this.size = size;
+        int start = used.nextClearBit(0);
+        while (start < size)
+        {
+            int end = used.nextSetBit(start);
+            if ((end == NONE) || (end > size))
+            {
+                end = size;
+            }
+            this.addExtent(start, end - start);
+            start = used.nextClearBit(end);
+        }
+    }
+
+    private static long key(final int offset, final int length)
+    {
+        return (((long) length) << 32) | offset;
+    }
+
+    private void addExtent(final int offset, final int length)
+    {
+        this.bySize.add(key(offset, length));
+        this.starts.put(offset, length);
+        this.ends.put(offset + length, offset);
+        this.freeSectors += length;
+    }
+
+    private void removeExtent(final int offset, final int length)
+    {
+        this.bySize.remove(key(offset, length));
+        this.starts.remove(offset);
+        this.ends.remove(offset + length);
+        this.freeSectors -= length;
+    }
+
+    /**
+     * Returns amount of sectors in file, including free ones.
+     *
+     * @return amount of sectors in file.
+     */
+    int getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * Returns amount of free sectors.
+     *
+     * @return amount of free sectors.
+     */
+    int getFreeSectors()
+    {
+        return this.freeSectors;
+    }
+
+    /**
+     * Returns amount of free extents, each extent is continuous run of free sectors.
+     *
+     * @return amount of free extents.
+     */
+    int getFreeExtents()
+    {
+        return this.starts.size();
+    }
+
+    /**
+     * Allocate given amount of continuous sectors, using smallest free extent that is big enough. <br>
+     * If there is no such extent, file size is increased, reusing free extent at end of file if possible.
+     *
+     * @param length amount of sectors.
+     *
+     * @return offset of first allocated sector.
+     */
+    int allocate(final int length)
+    {
+        final LongSortedSet fits = this.bySize.tailSet(key(0, length));
+        if (! fits.isEmpty())
+        {
+            final long key = fits.firstLong();
+            final int offset = (int) key;
+            final int extentLength = (int) (key >>> 32);
+            this.removeExtent(offset, extentLength);
+            if (extentLength > length)
+            {
+                this.addExtent(offset + length, extentLength - length);
+            }
+            return offset;
+        }
+        int offset = this.size;
+        final int lastFree = this.ends.get(this.size);
+        if (lastFree != NONE)
+        {
+            this.removeExtent(lastFree, this.starts.get(lastFree));
+            offset = lastFree;
+        }
+        this.size = offset + length;
+        return offset;
+    }
+
+    /**
+     * Mark given sectors as free, and merge them with neighbouring free extents.
+     *
+     * @param offset offset of first sector.
+     * @param length amount of sectors.
+     */
+    void free(final int offset, final int length)
+    {
+        if (length <= 0)
+        {
+            return;
+        }
+        int start = offset;
+        int extentLength = length;
+        final int prev = this.ends.get(offset);
+        if (prev != NONE)
+        {
+            final int prevLength = this.starts.get(prev);
+            this.removeExtent(prev, prevLength);
+            start = prev;
+            extentLength += prevLength;
+        }
+        final int nextLength = this.starts.get(offset + length);
+        if (nextLength != NONE)
+        {
+            this.removeExtent(offset + length, nextLength);
+            extentLength += nextLength;
+        }
+        this.addExtent(start, extentLength);
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("size", this.size).append("freeSectors", this.freeSectors).append("freeExtents", this.starts.size()).toString();
+    }
+}
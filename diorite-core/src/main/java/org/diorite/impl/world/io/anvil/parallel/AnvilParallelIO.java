@@ -26,17 +26,18 @@ package org.diorite.impl.world.io.anvil.parallel;
 
 import java.io.File;
 
+import org.diorite.impl.world.io.ChunkIOSettings;
 import org.diorite.impl.world.io.anvil.AnvilIO;
 
 public class AnvilParallelIO extends AnvilIO
 {
-    AnvilParallelIO(final File basePath, final String extension, final int maxCacheSize)
+    AnvilParallelIO(final File basePath, final String extension, final int maxCacheSize, final ChunkIOSettings settings)
     {
-        super(basePath, extension, maxCacheSize);
+        super(basePath, extension, maxCacheSize, settings);
     }
 
-    AnvilParallelIO(final File basePath)
+    AnvilParallelIO(final File basePath, final ChunkIOSettings settings)
     {
-        super(basePath);
+        super(basePath, settings);
     }
 }
@@ -25,19 +25,59 @@
 package org.diorite.impl.world.io.anvil.parallel;
 
 import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 import org.diorite.impl.world.WorldImpl;
+import org.diorite.impl.world.chunk.ChunkManagerImpl.ChunkLock;
+import org.diorite.impl.world.chunk.ChunkTicketType;
+import org.diorite.impl.world.io.ChunkIOSettings;
 import org.diorite.impl.world.io.ParallelChunkIOService;
+import org.diorite.impl.world.io.requests.ChunkSaveRequest;
 import org.diorite.impl.world.io.requests.Request;
 
+/**
+ * Chunk IO service using multiple {@link IOGroup} threads.<br>
+ * Requests are assigned to groups by region coordinates, so one region file is always handled by single thread,
+ * and requests inside group are still processed by priority.
+ */
 public class AnvilParallelIOService implements ParallelChunkIOService
 {
-    private int maxThreads = 3;
+    public static final int DEFAULT_MAX_THREADS = 3;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final    File                      basePath;
+    private final    String                    worldName;
+    private final    Supplier<AnvilParallelIO> ioSupplier;
+    private          int                       maxThreads;
+    private volatile IOGroup[]                 groups;
+    private          ChunkLock                 lock;
+
+    public AnvilParallelIOService(final File basePath, final String worldName, final String extension, final int maxCacheSize, final int maxThreads, final ChunkIOSettings settings)
+    {
+        this.basePath = basePath;
+        this.worldName = worldName;
+        this.maxThreads = maxThreads;
+        this.ioSupplier = () -> new AnvilParallelIO(basePath, extension, maxCacheSize, settings);
+    }
+
+    public AnvilParallelIOService(final File basePath, final String worldName, final int maxThreads, final ChunkIOSettings settings)
+    {
+        this.basePath = basePath;
+        this.worldName = worldName;
+        this.maxThreads = maxThreads;
+        this.ioSupplier = () -> new AnvilParallelIO(basePath, settings);
+    }
+
+    public AnvilParallelIOService(final File basePath, final String worldName)
+    {
+        this(basePath, worldName, DEFAULT_MAX_THREADS, new ChunkIOSettings());
+    }
 
     @Override
     public int getMaxThreads()
@@ -45,45 +85,151 @@ public class AnvilParallelIOService implements ParallelChunkIOService
         return this.maxThreads;
     }
 
+    /**
+     * Set amount of IO threads, can't be changed after service is started.
+     *
+     * @param threads new amount of threads.
+     */
     @Override
     public void setMaxThreads(final int threads)
     {
+        if (this.groups != null)
+        {
+            throw new IllegalStateException("Can't change amount of threads of already started service.");
+        }
         this.maxThreads = threads;
     }
 
     @Override
-    public void start(final WorldImpl world)
+    public synchronized void start(final WorldImpl world)
     {
+        if (this.groups != null)
+        {
+            throw new IllegalStateException("Service is already started.");
+        }
+        this.lock = world.createLock(ChunkTicketType.IO, "ChunkIO");
+        final IOGroup[] groups = new IOGroup[Math.max(1, this.maxThreads)];
+        for (int i = 0; i < groups.length; i++)
+        {
+            groups[i] = new IOGroup(this, this.ioSupplier.get(), "ChunkIO-" + this.worldName + "-" + i);
+            groups[i].start();
+        }
+        this.groups = groups;
+    }
 
+    private IOGroup getGroup(final Request<?> request)
+    {
+        final IOGroup[] groups = this.groups;
+        if (groups == null)
+        {
+            throw new IllegalStateException("Service isn't started yet.");
+        }
+        final int regionX = request.getX() >> 5;
+        final int regionZ = request.getZ() >> 5;
+        return groups[Math.floorMod((31 * regionX) + regionZ, groups.length)];
     }
 
     @Override
     public <OUT, T extends Request<OUT>> T queue(final T request, final Consumer<Request<OUT>> callback)
     {
-        return null;
+        final IOGroup group = this.getGroup(request);
+        if (request instanceof ChunkSaveRequest)
+        {
+            final ChunkSaveRequest req = (ChunkSaveRequest) request;
+            final long key = req.getData().getPos().asLong();
+            this.lock.acquire(key);
+            req.addOnEnd(r -> this.lock.release(key));
+        }
+        if (callback != null)
+        {
+            request.addOnEnd(callback);
+        }
+        this.pending.incrementAndGet();
+        group.add(request);
+        return request;
+    }
+
+    void done()
+    {
+        if (this.pending.decrementAndGet() == 0)
+        {
+            synchronized (this.pending)
+            {
+                this.pending.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Returns amount of requests that are queued or being processed.
+     *
+     * @return amount of pending requests.
+     */
+    public int getPendingRequests()
+    {
+        return this.pending.get();
     }
 
     @Override
     public void await(final IntConsumer rest, final int timer)
     {
-        // TODO
+        synchronized (this.pending)
+        {
+            while (this.pending.get() > 0)
+            {
+                try
+                {
+                    this.pending.wait(timer);
+                } catch (final InterruptedException ignored)
+                {
+                }
+                final int left = this.pending.get();
+                if ((rest != null) && (left > 0))
+                {
+                    rest.accept(left);
+                }
+            }
+        }
+        if (rest != null)
+        {
+            rest.accept(0);
+        }
     }
 
     @Override
     public File getWorldDataFolder()
     {
-        return null;
+        return this.basePath.getAbsoluteFile();
     }
 
     @Override
-    public void close(final IntConsumer rest)
+    public synchronized void close(final IntConsumer rest)
     {
-
+        this.await(rest);
+        final IOGroup[] groups = this.groups;
+        if (groups == null)
+        {
+            return;
+        }
+        for (final IOGroup group : groups)
+        {
+            group.shutdown();
+        }
+        for (final IOGroup group : groups)
+        {
+            try
+            {
+                group.join();
+            } catch (final InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+        }
     }
 
     @Override
     public String toString()
     {
-        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("maxThreads", this.maxThreads).toString();
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("maxThreads", this.maxThreads).append("pending", this.pending.get()).append("worldName", this.worldName).toString();
     }
 }
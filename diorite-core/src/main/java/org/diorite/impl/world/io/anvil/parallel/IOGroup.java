@@ -24,7 +24,101 @@
 
 package org.diorite.impl.world.io.anvil.parallel;
 
-public class IOGroup
+import java.util.concurrent.PriorityBlockingQueue;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import org.diorite.impl.world.io.requests.Request;
+
+/**
+ * Single worker of {@link AnvilParallelIOService}.<br>
+ * Each region file is always handled by the same group, so region files are never accessed by two threads at once,
+ * and every group have own region cache.
+ */
+public class IOGroup extends Thread
 {
+    private final PriorityBlockingQueue<Request<?>> queue = new PriorityBlockingQueue<>(20);
+    private final    AnvilParallelIOService service;
+    private final    AnvilParallelIO        io;
+    private volatile boolean                running;
+
+    IOGroup(final AnvilParallelIOService service, final AnvilParallelIO io, final String name)
+    {
+        super(name);
+        this.setDaemon(true);
+        this.service = service;
+        this.io = io;
+    }
+
+    void add(final Request<?> request)
+    {
+        this.queue.add(request);
+    }
+
+    public int getQueueSize()
+    {
+        return this.queue.size();
+    }
+
+    public AnvilParallelIO getIO()
+    {
+        return this.io;
+    }
+
+    @Override
+    public synchronized void start()
+    {
+        this.running = true;
+        super.start();
+    }
+
+    void shutdown()
+    {
+        this.running = false;
+        this.interrupt();
+    }
+
+    @Override
+    public void run()
+    {
+        while (this.running)
+        {
+            final Request<?> r;
+            try
+            {
+                r = this.queue.take();
+            } catch (final InterruptedException ignored)
+            {
+                continue;
+            }
+            try
+            {
+                r.run(this.io);
+                if (this.queue.isEmpty())
+                {
+                    this.io.onBatchEnd();
+                }
+            } catch (final Throwable e)
+            {
+                System.err.println("[ChunkIO] Error while processing request: " + r);
+                e.printStackTrace();
+                if (! r.isFinished())
+                {
+                    // complete request, so nothing waits for it forever and io lock of chunk is released.
+                    r.setFailed(e);
+                }
+            } finally
+            {
+                this.service.done();
+            }
+        }
+        this.io.close();
+    }
 
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("queue", this.queue.size()).append("io", this.io).toString();
+    }
 }
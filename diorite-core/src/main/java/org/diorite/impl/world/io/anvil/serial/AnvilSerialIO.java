@@ -26,17 +26,18 @@ package org.diorite.impl.world.io.anvil.serial;
 
 import java.io.File;
 
+import org.diorite.impl.world.io.ChunkIOSettings;
 import org.diorite.impl.world.io.anvil.AnvilIO;
 
 public class AnvilSerialIO extends AnvilIO
 {
-    AnvilSerialIO(final File basePath, final String extension, final int maxCacheSize)
+    AnvilSerialIO(final File basePath, final String extension, final int maxCacheSize, final ChunkIOSettings settings)
     {
-        super(basePath, extension, maxCacheSize);
+        super(basePath, extension, maxCacheSize, settings);
     }
 
-    AnvilSerialIO(final File basePath)
+    AnvilSerialIO(final File basePath, final ChunkIOSettings settings)
     {
-        super(basePath);
+        super(basePath, settings);
     }
 }
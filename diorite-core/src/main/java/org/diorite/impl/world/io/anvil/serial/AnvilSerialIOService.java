@@ -26,6 +26,7 @@ package org.diorite.impl.world.io.anvil.serial;
 
 import java.io.File;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 
@@ -34,6 +35,8 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 
 import org.diorite.impl.world.WorldImpl;
 import org.diorite.impl.world.chunk.ChunkManagerImpl.ChunkLock;
+import org.diorite.impl.world.chunk.ChunkTicketType;
+import org.diorite.impl.world.io.ChunkIOSettings;
 import org.diorite.impl.world.io.SerialChunkIOService;
 import org.diorite.impl.world.io.anvil.AnvilIO;
 import org.diorite.impl.world.io.requests.ChunkSaveRequest;
@@ -41,28 +44,37 @@ import org.diorite.impl.world.io.requests.Request;
 
 public class AnvilSerialIOService extends Thread implements SerialChunkIOService
 {
-    private final PriorityBlockingQueue<Request<?>> queue = new PriorityBlockingQueue<>(20);
-    private final AnvilIO   io;
-    private       ChunkLock lock;
+    private final PriorityBlockingQueue<Request<?>> queue   = new PriorityBlockingQueue<>(20);
+    /**
+     * Amount of requests that are queued or being processed, request is removed from queue before it is processed.
+     */
+    private final AtomicInteger                     pending = new AtomicInteger();
+    private final AnvilIO                           io;
+    private       ChunkLock                         lock;
 
-    public AnvilSerialIOService(final File basePath, final String worldName, final String extension, final int maxCacheSize)
+    public AnvilSerialIOService(final File basePath, final String worldName, final String extension, final int maxCacheSize, final ChunkIOSettings settings)
     {
         super("ChunkIO-" + worldName);
         this.setDaemon(true);
-        this.io = new AnvilSerialIO(basePath, extension, maxCacheSize);
+        this.io = new AnvilSerialIO(basePath, extension, maxCacheSize, settings);
     }
 
-    public AnvilSerialIOService(final File basePath, final String worldName)
+    public AnvilSerialIOService(final File basePath, final String worldName, final ChunkIOSettings settings)
     {
         super("ChunkIO-" + worldName);
         this.setDaemon(true);
-        this.io = new AnvilSerialIO(basePath);
+        this.io = new AnvilSerialIO(basePath, settings);
+    }
+
+    public AnvilSerialIOService(final File basePath, final String worldName)
+    {
+        this(basePath, worldName, new ChunkIOSettings());
     }
 
     @Override
     public void start(final WorldImpl world)
     {
-        this.lock = world.createLock("ChunkIO");
+        this.lock = world.createLock(ChunkTicketType.IO, "ChunkIO");
         this.start();
     }
 
@@ -80,6 +92,7 @@ public class AnvilSerialIOService extends Thread implements SerialChunkIOService
         {
             request.addOnEnd(callback);
         }
+        this.pending.incrementAndGet();
         this.queue.add(request);
         synchronized (this.queue)
         {
@@ -88,18 +101,51 @@ public class AnvilSerialIOService extends Thread implements SerialChunkIOService
         return request;
     }
 
+    private void done()
+    {
+        if (this.pending.decrementAndGet() == 0)
+        {
+            synchronized (this.pending)
+            {
+                this.pending.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Returns amount of requests that are queued or being processed.
+     *
+     * @return amount of pending requests.
+     */
+    public int getPendingRequests()
+    {
+        return this.pending.get();
+    }
+
     @Override
     public void await(final IntConsumer rest, final int timer)
     {
-        try
+        // waits also for request that is being processed, so region files can be closed after it.
+        synchronized (this.pending)
         {
-            //noinspection StatementWithEmptyBody
-            while (this.await_(rest, timer))
+            while (this.pending.get() > 0)
             {
+                try
+                {
+                    this.pending.wait(timer);
+                } catch (final InterruptedException ignored)
+                {
+                }
+                final int left = this.pending.get();
+                if ((rest != null) && (left > 0))
+                {
+                    rest.accept(left);
+                }
             }
-        } catch (final InterruptedException ignored)
+        }
+        if (rest != null)
         {
-            this.await(rest);
+            rest.accept(0);
         }
     }
 
@@ -116,27 +162,6 @@ public class AnvilSerialIOService extends Thread implements SerialChunkIOService
         this.io.close();
     }
 
-    private boolean await_(final IntConsumer rest, final int timer) throws InterruptedException
-    {
-        if (this.queue.isEmpty())
-        {
-            if (rest != null)
-            {
-                rest.accept(0);
-            }
-            return false;
-        }
-        synchronized (this.queue)
-        {
-            this.queue.wait(timer);
-        }
-        if (rest != null)
-        {
-            rest.accept(this.queue.size());
-        }
-        return true;
-    }
-
     @SuppressWarnings("InfiniteLoopStatement")
     @Override
     public void run()
@@ -146,7 +171,26 @@ public class AnvilSerialIOService extends Thread implements SerialChunkIOService
             final Request<?> r = this.queue.poll();
             if (r != null)
             {
-                r.run(this.io);
+                try
+                {
+                    r.run(this.io);
+                    if (this.queue.isEmpty())
+                    {
+                        this.io.onBatchEnd();
+                    }
+                } catch (final Throwable e)
+                {
+                    System.err.println("[ChunkIO] Error while processing request: " + r);
+                    e.printStackTrace();
+                    if (! r.isFinished())
+                    {
+                        // complete request, so nothing waits for it forever and io lock of chunk is released.
+                        r.setFailed(e);
+                    }
+                } finally
+                {
+                    this.done();
+                }
                 continue;
             }
             try
@@ -164,6 +208,6 @@ public class AnvilSerialIOService extends Thread implements SerialChunkIOService
     @Override
     public String toString()
     {
-        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("queue", this.queue).append("io", this.io).toString();
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("queue", this.queue).append("pending", this.pending.get()).append("io", this.io).toString();
     }
 }
@@ -42,18 +42,25 @@ public class ChunkLoadRequest extends Request<ChunkImpl>
         this.unloadedChunk = unloadedChunk;
         this.x = x;
         this.z = z;
+        unloadedChunk.onLoadQueued();
     }
 
     @Override
     public void run(final ChunkIO io)
     {
-        if (! this.unloadedChunk.isLoaded())
+        try
         {
-            this.setResult(io.loadChunk(this.x, this.z, this.unloadedChunk));
-        }
-        else
+            if (! this.unloadedChunk.isLoaded())
+            {
+                this.setResult(io.loadChunk(this.x, this.z, this.unloadedChunk));
+            }
+            else
+            {
+                this.setResult(this.unloadedChunk);
+            }
+        } finally
         {
-            this.setResult(this.unloadedChunk);
+            this.unloadedChunk.onLoadFinished();
         }
     }
 
@@ -28,16 +28,20 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 import org.diorite.impl.world.chunk.ChunkImpl;
+import org.diorite.impl.world.chunk.ChunkSnapshotImpl;
 import org.diorite.impl.world.io.ChunkIO;
 
 public class ChunkSaveRequest extends Request<Void>
 {
-    private final ChunkImpl data;
+    private final ChunkImpl         data;
+    private final ChunkSnapshotImpl snapshot;
 
     public ChunkSaveRequest(final int priority, final ChunkImpl data)
     {
         super(priority);
         this.data = data;
+        // chunk is marked as saved before snapshot is taken, so changes done in meantime will be saved next time.
+        this.snapshot = data.popModified() ? data.snapshot() : null;
     }
 
     public ChunkImpl getData()
@@ -45,12 +49,31 @@ public class ChunkSaveRequest extends Request<Void>
         return this.data;
     }
 
+    /**
+     * Returns snapshot of chunk taken when request was created, or null if chunk wasn't modified.
+     *
+     * @return snapshot of chunk to save.
+     */
+    public ChunkSnapshotImpl getSnapshot()
+    {
+        return this.snapshot;
+    }
+
     @Override
     public void run(final ChunkIO io)
     {
-        if (this.data.isLoaded())
+        try
+        {
+            if (this.snapshot != null)
+            {
+                io.saveChunk(this.snapshot);
+            }
+        } catch (final RuntimeException e)
         {
-            io.saveChunk(this.data);
+            // chunk must be saved again, so it isn't lost when it is unloaded.
+            this.data.setModified();
+            // request is still unfinished here, so IO thread can mark it as failed.
+            throw e;
         }
         this.setResult(null);
     }
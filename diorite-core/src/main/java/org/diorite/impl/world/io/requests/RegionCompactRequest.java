@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.io.requests;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import org.diorite.impl.world.io.ChunkIO;
+
+/**
+ * Request to compact region file, result is amount of reclaimed sectors.
+ */
+public class RegionCompactRequest extends Request<Integer>
+{
+    private final int regionX;
+    private final int regionZ;
+
+    public RegionCompactRequest(final int priority, final int regionX, final int regionZ)
+    {
+        super(priority);
+        this.regionX = regionX;
+        this.regionZ = regionZ;
+    }
+
+    public int getRegionX()
+    {
+        return this.regionX;
+    }
+
+    public int getRegionZ()
+    {
+        return this.regionZ;
+    }
+
+    @Override
+    public void run(final ChunkIO io)
+    {
+        this.setResult(io.compactRegion(this.regionX, this.regionZ));
+    }
+
+    @Override
+    public int getX()
+    {
+        return this.regionX << 5;
+    }
+
+    @Override
+    public int getZ()
+    {
+        return this.regionZ << 5;
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (! (o instanceof RegionCompactRequest))
+        {
+            return false;
+        }
+        if (! super.equals(o))
+        {
+            return false;
+        }
+
+        final RegionCompactRequest that = (RegionCompactRequest) o;
+
+        return (this.regionX == that.regionX) && (this.regionZ == that.regionZ);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = super.hashCode();
+        result = (31 * result) + this.regionX;
+        result = (31 * result) + this.regionZ;
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("regionX", this.regionX).append("regionZ", this.regionZ).toString();
+    }
+}
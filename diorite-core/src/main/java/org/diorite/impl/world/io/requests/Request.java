@@ -38,6 +38,7 @@ public abstract class Request<OUT> implements Comparable<Request<?>>
     protected final Object lock = new Object();
 
     private volatile OUT                         result;
+    private volatile Throwable                   error;
     private volatile boolean                     finished;
     private final    int                         priority;
     private          Set<Consumer<Request<OUT>>> onEnd;
@@ -53,7 +54,17 @@ public abstract class Request<OUT> implements Comparable<Request<?>>
         this.finished = true;
         if (this.onEnd != null)
         {
-            this.onEnd.forEach(r -> r.accept(this));
+            // every callback must be invoked, as some of them release locks of chunks.
+            for (final Consumer<Request<OUT>> consumer : this.onEnd)
+            {
+                try
+                {
+                    consumer.accept(this);
+                } catch (final Throwable e)
+                {
+                    e.printStackTrace();
+                }
+            }
         }
         synchronized (this.lock)
         {
@@ -61,6 +72,32 @@ public abstract class Request<OUT> implements Comparable<Request<?>>
         }
     }
 
+    /**
+     * Finish this request with null result, after error in processing of it.
+     *
+     * @param error cause of failure.
+     */
+    public void setFailed(final Throwable error)
+    {
+        this.error = error;
+        this.setResult(null);
+    }
+
+    /**
+     * Returns error that caused failure of this request, or null if request didn't fail.
+     *
+     * @return cause of failure or null.
+     */
+    public Throwable getError()
+    {
+        return this.error;
+    }
+
+    public boolean isFinished()
+    {
+        return this.finished;
+    }
+
     public synchronized void addOnEnd(final Consumer<Request<OUT>> onEnd)
     {
         if (this.onEnd == null)
@@ -82,17 +119,18 @@ public abstract class Request<OUT> implements Comparable<Request<?>>
         {
             return this.result;
         }
-        while (! this.finished)
+        synchronized (this.lock)
         {
-            try
+            // finished is checked under lock, so notification sent after check can't be missed.
+            while (! this.finished)
             {
-                synchronized (this.lock)
+                try
                 {
                     this.lock.wait();
+                } catch (final InterruptedException e)
+                {
+                    e.printStackTrace();
                 }
-            } catch (final InterruptedException e)
-            {
-                e.printStackTrace();
             }
         }
         return this.result;
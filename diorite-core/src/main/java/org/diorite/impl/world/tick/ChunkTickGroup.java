@@ -27,9 +27,9 @@ package org.diorite.impl.world.tick;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
+import org.diorite.impl.world.WorldImpl;
 import org.diorite.impl.world.chunk.ChunkImpl;
 import org.diorite.impl.world.chunk.ChunkManagerImpl;
-import org.diorite.utils.math.endian.BigEndianUtils;
 import org.diorite.world.World;
 
 import it.unimi.dsi.fastutil.longs.LongIterator;
@@ -43,6 +43,11 @@ public class ChunkTickGroup implements TickGroupImpl
         this.chunks = chunks;
     }
 
+    public ChunkGroup getChunks()
+    {
+        return this.chunks;
+    }
+
     @Override
     public void doTick(final int tps)
     {
@@ -53,18 +58,22 @@ public class ChunkTickGroup implements TickGroupImpl
         final ChunkManagerImpl cm = this.chunks.getWorld().getChunkManager();
         for (final LongIterator it = this.chunks.getChunks().iterator(); it.hasNext(); )
         {
-            final long key = it.next();
-            final int x = BigEndianUtils.getIntA(key);
-            final int z = BigEndianUtils.getIntB(key);
-            final ChunkImpl chunk = cm.getChunk(x, z);
-            if ((chunk == null) || ! chunk.isLoaded())
+            final ChunkImpl chunk = cm.getTickedChunk(it.nextLong());
+            if (chunk == null)
             {
-                return;
+                continue;
             }
             this.tickChunk(chunk, tps);
         }
     }
 
+    @Override
+    public String getName()
+    {
+        final WorldImpl world = this.chunks.getWorld();
+        return "chunks:" + ((world == null) ? "-" : world.getName()) + "(" + this.chunks.getChunks().size() + ")";
+    }
+
     @Override
     public String toString()
     {
@@ -32,7 +32,6 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 
 import org.diorite.impl.world.chunk.ChunkImpl;
 import org.diorite.impl.world.chunk.ChunkManagerImpl;
-import org.diorite.utils.math.endian.BigEndianUtils;
 import org.diorite.world.World;
 
 import it.unimi.dsi.fastutil.longs.LongIterator;
@@ -53,19 +52,27 @@ public class ChunksTickGroup implements TickGroupImpl
             final ChunkManagerImpl cm = chunks.getWorld().getChunkManager();
             for (final LongIterator it = chunks.getChunks().iterator(); it.hasNext(); )
             {
-                final long key = it.next();
-                final int x = BigEndianUtils.getIntA(key);
-                final int z = BigEndianUtils.getIntB(key);
-                final ChunkImpl chunk = cm.getChunk(x, z);
-                if ((chunk == null) || ! chunk.isLoaded())
+                final ChunkImpl chunk = cm.getTickedChunk(it.nextLong());
+                if (chunk == null)
                 {
-                    return;
+                    continue;
                 }
                 this.tickChunk(chunk, tps);
             }
         });
     }
 
+    @Override
+    public String getName()
+    {
+        int size = 0;
+        for (final ChunkGroup group : this.chunks)
+        {
+            size += group.getChunks().size();
+        }
+        return "chunks:" + this.chunks.size() + " groups(" + size + ")";
+    }
+
     @Override
     public String toString()
     {
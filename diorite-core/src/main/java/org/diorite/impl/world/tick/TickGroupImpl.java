@@ -55,8 +55,25 @@ public interface TickGroupImpl extends Tickable, TickGroup
         // TODO random block update and other shit
     }
 
+    /**
+     * Invoked from main thread after all groups finished their tick, so group can do work that needs all chunks of its
+     * worlds to be idle.
+     *
+     * @param tps current tps.
+     */
+    default void afterTick(final int tps)
+    {
+    }
+
     boolean removeWorld(World world);
 
+    /**
+     * Returns name of this group, used in tick time statistics.
+     *
+     * @return name of this group.
+     */
+    String getName();
+
     boolean isEmpty();
 
     class ChunkGroup
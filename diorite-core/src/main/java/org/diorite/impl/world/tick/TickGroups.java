@@ -26,9 +26,12 @@ package org.diorite.impl.world.tick;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -47,6 +50,24 @@ public class TickGroups implements Tickable
     protected final DioriteCore core;
     private Collection<TickGroupImpl> groups = new ConcurrentSet<>(10);
 
+    /**
+     * Tick times of groups, updated after every tick of group.
+     */
+    private final Map<TickGroupImpl, TickTime> tickTimes = new ConcurrentHashMap<>(10);
+
+    /**
+     * Pool used to tick groups in parallel, it is created once and reused by all ticks.
+     */
+    private ForkJoinPool pool;
+    private int          poolSize;
+
+    /**
+     * Splits and merges groups based on their tick times, every {@link TickGroupsBalancer#BALANCE_INTERVAL} ticks.
+     */
+    private final TickGroupsBalancer balancer = new TickGroupsBalancer(this);
+    private       boolean            balancing = true;
+    private       int                ticksToBalance = TickGroupsBalancer.BALANCE_INTERVAL;
+
     public TickGroups(final DioriteCore core)
     {
         this.core = core;
@@ -62,8 +83,111 @@ public class TickGroups implements Tickable
         this.groups = groups;
     }
 
+    /**
+     * Returns tick times of current groups.
+     *
+     * @return tick times of current groups.
+     */
+    public Map<TickGroupImpl, TickTime> getTickTimes()
+    {
+        return this.tickTimes;
+    }
+
+    /**
+     * Set amount of threads used to tick groups, pool is recreated on next tick if needed.
+     *
+     * @param poolSize amount of threads, or 0 to use amount of available processors.
+     */
+    public synchronized void setPoolSize(final int poolSize)
+    {
+        this.poolSize = Math.max(poolSize, 0);
+        if ((this.pool != null) && (this.pool.getParallelism() != this.getParallelism()))
+        {
+            this.pool.shutdown();
+            this.pool = null;
+        }
+    }
+
+    private int getParallelism()
+    {
+        return (this.poolSize == 0) ? Runtime.getRuntime().availableProcessors() : this.poolSize;
+    }
+
+    private ForkJoinPool getPool()
+    {
+        if (this.pool == null)
+        {
+            final AtomicInteger i = new AtomicInteger(0);
+            this.pool = new ForkJoinPool(this.getParallelism(), p -> new NamedForkJoinWorkerThread(p, i.getAndIncrement()), (t, e) -> {
+                // TODO: maybe add some pretty error priting
+                System.err.println("Error in tick thread: " + t.getName());
+                e.printStackTrace();
+            }, false);
+        }
+        return this.pool;
+    }
+
+    public boolean isBalancing()
+    {
+        return this.balancing;
+    }
+
+    /**
+     * Enable or disable splitting and merging of tick groups based on their tick times.
+     *
+     * @param balancing if tick groups should be balanced.
+     */
+    public void setBalancing(final boolean balancing)
+    {
+        this.balancing = balancing;
+    }
+
+    /**
+     * Stop tick threads, awaiting end of current tick.
+     */
+    public synchronized void shutdown()
+    {
+        if (this.pool == null)
+        {
+            return;
+        }
+        this.pool.shutdown();
+        try
+        {
+            this.pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (final InterruptedException e)
+        {
+            e.printStackTrace();
+        }
+        this.pool = null;
+    }
+
+    private void tickGroup(final TickGroupImpl tickGroup, final int tps)
+    {
+        final long start = System.nanoTime();
+        try
+        {
+            tickGroup.doTick(tps);
+        } finally
+        {
+            this.tickTimes.computeIfAbsent(tickGroup, g -> new TickTime()).update(System.nanoTime() - start);
+        }
+    }
+
     @Override
     public synchronized void doTick(final int tps)
+    {
+        try
+        {
+            this.tickGroups(tps);
+        } finally
+        {
+            // tick threads are idle now, so tasks that wasn't executed by them can be executed here.
+            this.core.getSyncQueue().runAll();
+        }
+    }
+
+    private void tickGroups(final int tps)
     {
         if (this.groups.isEmpty())
         {
@@ -73,32 +197,30 @@ public class TickGroups implements Tickable
             }
             return;
         }
+        if (this.balancing && (--this.ticksToBalance <= 0))
+        {
+            this.ticksToBalance = TickGroupsBalancer.BALANCE_INTERVAL;
+            try
+            {
+                this.balancer.balance(tps, this.getParallelism());
+            } catch (final Throwable throwable)
+            {
+                throwable.printStackTrace();
+            }
+        }
         if (this.groups.size() == 1)
         {
-            /**
-             * TODO count time of execution and split if needed.
-             */
             try
             {
-                this.groups.iterator().next().doTick(tps);
+                this.tickGroup(this.groups.iterator().next(), tps);
             } catch (final Throwable throwable)
             {
                 throwable.printStackTrace();
             }
+            this.afterTick(tps);
             return;
         }
-        final AtomicInteger i = new AtomicInteger(0);
-        final ForkJoinPool pool = new ForkJoinPool(this.groups.size(), p -> new NamedForkJoinWorkerThread(p, i.getAndIncrement()), (t, e) -> {
-            // TODO: maybe add some pretty error priting
-            System.err.println("Error in tick thread: " + t.getName());
-            e.printStackTrace();
-        }, false);
-
-        /**
-         * TODO count time of execution for all groups.
-         * if any group is creating lags, try split it. (should not count single-time lags?)
-         * if two grups can be join, try join them.
-         */
+        final ForkJoinPool pool = this.getPool();
         final CountDownLatch latch = new CountDownLatch(this.groups.size());
         for (final Iterator<TickGroupImpl> it = this.groups.iterator(); it.hasNext(); )
         {
@@ -106,13 +228,14 @@ public class TickGroups implements Tickable
             if (tickGroup.isEmpty())
             {
                 it.remove();
+                this.tickTimes.remove(tickGroup);
                 latch.countDown();
                 continue;
             }
-            pool.submit(() -> {
+            pool.execute(() -> {
                 try
                 {
-                    tickGroup.doTick(tps);
+                    this.tickGroup(tickGroup, tps);
                     this.core.runScheduler(false);
                     this.core.runSync();
                 } finally
@@ -128,6 +251,21 @@ public class TickGroups implements Tickable
         {
             e.printStackTrace();
         }
+        this.afterTick(tps);
+    }
+
+    private void afterTick(final int tps)
+    {
+        for (final TickGroupImpl tickGroup : this.groups)
+        {
+            try
+            {
+                tickGroup.afterTick(tps);
+            } catch (final Throwable throwable)
+            {
+                throwable.printStackTrace();
+            }
+        }
     }
 
     @Override
@@ -136,6 +274,69 @@ public class TickGroups implements Tickable
         return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("groups", this.groups).toString();
     }
 
+    /**
+     * Tick time statistics of single tick group, all times are in nanoseconds.
+     */
+    public static class TickTime
+    {
+        private static final double SMOOTHING = 0.05; // weight of last tick in average
+
+        private volatile long   last;
+        private volatile long   max;
+        private volatile double average;
+
+        public void update(final long time)
+        {
+            this.last = time;
+            if (time > this.max)
+            {
+                this.max = time;
+            }
+            this.average = (this.average == 0) ? time : ((this.average * (1 - SMOOTHING)) + (time * SMOOTHING));
+        }
+
+        /**
+         * Returns time of last tick.
+         *
+         * @return time of last tick.
+         */
+        public long getLast()
+        {
+            return this.last;
+        }
+
+        /**
+         * Returns longest tick time since last reset.
+         *
+         * @return longest tick time.
+         */
+        public long getMax()
+        {
+            return this.max;
+        }
+
+        /**
+         * Returns exponential moving average of tick times.
+         *
+         * @return average tick time.
+         */
+        public double getAverage()
+        {
+            return this.average;
+        }
+
+        public void reset()
+        {
+            this.max = 0;
+        }
+
+        @Override
+        public String toString()
+        {
+            return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("last", this.last).append("max", this.max).append("average", this.average).toString();
+        }
+    }
+
     private static class NamedForkJoinWorkerThread extends ForkJoinWorkerThread
     {
         private NamedForkJoinWorkerThread(final ForkJoinPool p, final int i)
@@ -0,0 +1,294 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.tick;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import org.diorite.impl.world.WorldImpl;
+import org.diorite.impl.world.chunk.ChunkImpl;
+import org.diorite.impl.world.tick.TickGroupImpl.ChunkGroup;
+import org.diorite.impl.world.tick.TickGroups.TickTime;
+import org.diorite.utils.math.endian.BigEndianUtils;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+/**
+ * Re-partitions tick groups using measured tick times. <br>
+ * <ul>
+ * <li>World group that uses too much of tick time is split, chunks of it are divided by regions between
+ * {@link ChunkTickGroup}s, so their tick cost is similar, and world group only ticks world and chunks loaded after split.
+ * Entity trackers and chunk unloading of split world are done after all groups end tick, see
+ * {@link TickGroupImpl#afterTick(int)}. Split world is divided again only when one of its groups is over budget and
+ * much more expensive than the others, so new chunks are also spread.</li>
+ * <li>Split world that is cheap again is merged back to single group.</li>
+ * <li>Idle world groups are merged to single {@link WorldsTickGroup}, that is split back when it starts lagging.</li>
+ * </ul>
+ * Balancing is done between ticks, so every chunk is ticked by single group at once, and tasks synchronized to chunk
+ * follow it to new tick thread after next tick.
+ */
+class TickGroupsBalancer
+{
+    /**
+     * Amount of ticks between balancing.
+     */
+    static final         int    BALANCE_INTERVAL = 100;
+    /**
+     * Group using more than that part of tick time is split.
+     */
+    private static final double SPLIT_THRESHOLD  = 0.5;
+    /**
+     * Split world using less than that part of tick time is merged back.
+     */
+    private static final double MERGE_THRESHOLD  = 0.1;
+    /**
+     * World groups using less than that part of tick time are merged together.
+     */
+    private static final double IDLE_THRESHOLD   = 0.02;
+    /**
+     * Split world is divided again if its most expensive group costs more than that times average cost of its groups.
+     */
+    private static final double IMBALANCE_RATIO  = 1.5;
+
+    private final TickGroups                                  tickGroups;
+    private final Map<WorldTickGroup, List<ChunkTickGroup>> splits = new IdentityHashMap<>(4);
+
+    TickGroupsBalancer(final TickGroups tickGroups)
+    {
+        this.tickGroups = tickGroups;
+    }
+
+    private double getAverage(final TickGroupImpl group)
+    {
+        final TickTime time = this.tickGroups.getTickTimes().get(group);
+        return (time == null) ? 0 : time.getAverage();
+    }
+
+    /**
+     * Re-partition groups, must be invoked between ticks.
+     *
+     * @param tps     current tps limit.
+     * @param threads amount of tick threads.
+     */
+    void balance(final int tps, final int threads)
+    {
+        final double tickTime = 1_000_000_000.0 / tps;
+        final Collection<TickGroupImpl> groups = this.tickGroups.getGroups();
+
+        // forget splits of removed worlds.
+        for (final Iterator<Map.Entry<WorldTickGroup, List<ChunkTickGroup>>> it = this.splits.entrySet().iterator(); it.hasNext(); )
+        {
+            final Map.Entry<WorldTickGroup, List<ChunkTickGroup>> entry = it.next();
+            if (entry.getKey().isEmpty() || ! groups.contains(entry.getKey()))
+            {
+                this.removeGroups(entry.getValue());
+                it.remove();
+            }
+        }
+
+        final List<WorldTickGroup> idle = new ArrayList<>(groups.size());
+        for (final TickGroupImpl group : new ArrayList<>(groups))
+        {
+            if (group instanceof WorldTickGroup)
+            {
+                final WorldTickGroup worldGroup = (WorldTickGroup) group;
+                final List<ChunkTickGroup> split = this.splits.get(worldGroup);
+                double cost = this.getAverage(worldGroup);
+                if (split != null)
+                {
+                    for (final ChunkTickGroup chunkGroup : split)
+                    {
+                        cost += this.getAverage(chunkGroup);
+                    }
+                    if (cost < (tickTime * MERGE_THRESHOLD))
+                    {
+                        this.merge(worldGroup);
+                    }
+                    else if (this.isUnbalanced(worldGroup, split, tickTime))
+                    {
+                        this.split(worldGroup, threads);
+                    }
+                }
+                else if (cost > (tickTime * SPLIT_THRESHOLD))
+                {
+                    this.split(worldGroup, threads);
+                }
+                else if ((cost > 0) && (cost < (tickTime * IDLE_THRESHOLD)))
+                {
+                    idle.add(worldGroup);
+                }
+            }
+            else if (group instanceof WorldsTickGroup)
+            {
+                final WorldsTickGroup worldsGroup = (WorldsTickGroup) group;
+                if ((this.getAverage(worldsGroup) > (tickTime * SPLIT_THRESHOLD)) && (worldsGroup.getWorlds().size() > 1))
+                {
+                    groups.remove(worldsGroup);
+                    this.tickGroups.getTickTimes().remove(worldsGroup);
+                    worldsGroup.getWorlds().forEach(w -> groups.add(new WorldTickGroup(w)));
+                }
+            }
+        }
+        if (idle.size() > 1)
+        {
+            final Collection<WorldImpl> worlds = new ArrayList<>(idle.size());
+            for (final WorldTickGroup worldGroup : idle)
+            {
+                final WorldImpl world = worldGroup.getWorld();
+                if (world != null)
+                {
+                    worlds.add(world);
+                }
+            }
+            this.removeGroups(idle);
+            groups.add(new WorldsTickGroup(worlds));
+        }
+    }
+
+    /**
+     * Returns true if most expensive group of split world is over budget, and it is much more expensive than average
+     * group of that world, so dividing world again can help.
+     *
+     * @param worldGroup group of split world, it ticks chunks loaded after split.
+     * @param split      chunk groups of split world.
+     * @param tickTime   time of single tick in nanoseconds.
+     *
+     * @return true if world should be divided again.
+     */
+    private boolean isUnbalanced(final WorldTickGroup worldGroup, final Collection<ChunkTickGroup> split, final double tickTime)
+    {
+        double max = this.getAverage(worldGroup);
+        double sum = max;
+        for (final ChunkTickGroup chunkGroup : split)
+        {
+            final double cost = this.getAverage(chunkGroup);
+            sum += cost;
+            if (cost > max)
+            {
+                max = cost;
+            }
+        }
+        return (max > (tickTime * SPLIT_THRESHOLD)) && (max > ((sum / (split.size() + 1)) * IMBALANCE_RATIO));
+    }
+
+    private void removeGroups(final Collection<? extends TickGroupImpl> toRemove)
+    {
+        for (final TickGroupImpl group : toRemove)
+        {
+            this.tickGroups.getGroups().remove(group);
+            this.tickGroups.getTickTimes().remove(group);
+        }
+    }
+
+    private void merge(final WorldTickGroup worldGroup)
+    {
+        this.removeGroups(this.splits.remove(worldGroup));
+        worldGroup.setClaimed(null);
+    }
+
+    private void split(final WorldTickGroup worldGroup, final int threads)
+    {
+        final WorldImpl world = worldGroup.getWorld();
+        if (world == null)
+        {
+            return;
+        }
+
+        // cost of region is estimated from amount of chunks, entities and tile entities in it.
+        // not loaded chunks with entities are ticked too, so they are claimed by the same groups.
+        final Long2IntMap regions = new Long2IntOpenHashMap(32);
+        final ChunkImpl[] chunks = world.getChunkManager().getTickedChunks();
+        for (final ChunkImpl chunk : chunks)
+        {
+            final long region = BigEndianUtils.toLong(chunk.getX() >> 5, chunk.getZ() >> 5);
+            regions.put(region, regions.get(region) + 1 + chunk.getEntities().size() + chunk.getTileEntities().size());
+        }
+        final int parts = Math.min(threads, regions.size());
+        if (parts < 2)
+        {
+            if (this.splits.containsKey(worldGroup))
+            {
+                this.merge(worldGroup);
+            }
+            return;
+        }
+
+        // longest processing time first: biggest regions are assigned to least loaded group.
+        final List<Long2IntMap.Entry> sorted = new ArrayList<>(regions.long2IntEntrySet());
+        sorted.sort((a, b) -> Integer.compare(b.getIntValue(), a.getIntValue()));
+        final Long2IntMap regionGroups = new Long2IntOpenHashMap(regions.size());
+        final int[] loads = new int[parts];
+        for (final Long2IntMap.Entry entry : sorted)
+        {
+            int min = 0;
+            for (int i = 1; i < parts; i++)
+            {
+                if (loads[i] < loads[min])
+                {
+                    min = i;
+                }
+            }
+            loads[min] += entry.getIntValue();
+            regionGroups.put(entry.getLongKey(), min);
+        }
+
+        final List<ChunkTickGroup> newGroups = new ArrayList<>(parts);
+        for (int i = 0; i < parts; i++)
+        {
+            newGroups.add(new ChunkTickGroup(new ChunkGroup(world)));
+        }
+        final LongSet claimed = new LongOpenHashSet(chunks.length);
+        for (final ChunkImpl chunk : chunks)
+        {
+            final long key = BigEndianUtils.toLong(chunk.getX(), chunk.getZ());
+            newGroups.get(regionGroups.get(BigEndianUtils.toLong(chunk.getX() >> 5, chunk.getZ() >> 5))).getChunks().getChunks().add(key);
+            claimed.add(key);
+        }
+
+        final List<ChunkTickGroup> old = this.splits.put(worldGroup, newGroups);
+        if (old != null)
+        {
+            this.removeGroups(old);
+        }
+        worldGroup.setClaimed(claimed);
+        this.tickGroups.getGroups().addAll(newGroups);
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("splits", this.splits.size()).toString();
+    }
+}
@@ -30,17 +30,40 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 import org.diorite.impl.world.WorldImpl;
+import org.diorite.impl.world.chunk.ChunkImpl;
+import org.diorite.utils.math.endian.BigEndianUtils;
 import org.diorite.world.World;
 
+import it.unimi.dsi.fastutil.longs.LongSet;
+
 public class WorldTickGroup implements TickGroupImpl
 {
     private final WeakReference<WorldImpl> world;
+    /**
+     * Chunks ticked by other groups, after world was split by {@link TickGroupsBalancer}, changed only between ticks.
+     */
+    private       LongSet                  claimed;
 
     public WorldTickGroup(final WorldImpl world)
     {
         this.world = new WeakReference<>(world);
     }
 
+    public WorldImpl getWorld()
+    {
+        return this.world.get();
+    }
+
+    public LongSet getClaimed()
+    {
+        return this.claimed;
+    }
+
+    public void setClaimed(final LongSet claimed)
+    {
+        this.claimed = claimed;
+    }
+
     @Override
     public void doTick(final int tps)
     {
@@ -48,7 +71,30 @@ public class WorldTickGroup implements TickGroupImpl
         if (impl != null)
         {
             impl.doTick(tps);
-            impl.getChunkManager().getLoadedChunks().stream().filter(c -> c.isLoaded() || ! c.getEntities().isEmpty()).forEach(c -> this.tickChunk(c, tps));
+            final LongSet claimed = this.claimed;
+            for (final ChunkImpl chunk : impl.getChunkManager().getTickedChunks())
+            {
+                if (chunk.isTicked() && ((claimed == null) || ! claimed.contains(BigEndianUtils.toLong(chunk.getX(), chunk.getZ()))))
+                {
+                    this.tickChunk(chunk, tps);
+                }
+            }
+            if (claimed == null)
+            {
+                // this group is only one ticking this world.
+                impl.doPostTick(tps);
+            }
+        }
+    }
+
+    @Override
+    public void afterTick(final int tps)
+    {
+        final WorldImpl impl = this.world.get();
+        if ((impl != null) && (this.claimed != null))
+        {
+            // chunks of split world are ticked by other groups, so world can be post-ticked only when all of them end.
+            impl.doPostTick(tps);
         }
     }
 
@@ -63,6 +109,13 @@ public class WorldTickGroup implements TickGroupImpl
         return false;
     }
 
+    @Override
+    public String getName()
+    {
+        final WorldImpl impl = this.world.get();
+        return "world:" + ((impl == null) ? "-" : impl.getName());
+    }
+
     @Override
     public boolean isEmpty()
     {
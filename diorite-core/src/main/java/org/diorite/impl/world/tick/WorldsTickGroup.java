@@ -49,12 +49,28 @@ public class WorldsTickGroup implements TickGroupImpl
         return this.worlds;
     }
 
+    @Override
+    public String getName()
+    {
+        final StringBuilder sb = new StringBuilder(64).append("worlds:");
+        this.worlds.forEach(w -> sb.append(w.getName()).append(','));
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+
     @Override
     public void doTick(final int tps)
     {
         this.worlds.forEach(w -> {
             w.doTick(tps);
-            w.getChunkManager().getLoadedChunks().stream().filter(ChunkImpl::isLoaded).forEach(c -> this.tickChunk(c, tps));
+            for (final ChunkImpl chunk : w.getChunkManager().getTickedChunks())
+            {
+                if (chunk.isTicked())
+                {
+                    this.tickChunk(chunk, tps);
+                }
+            }
+            w.doPostTick(tps);
         });
     }
 
@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.auth;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.diorite.impl.auth.exceptions.AuthenticationUnavailableException;
+import org.diorite.impl.auth.yggdrasil.YggdrasilSessionService;
+import org.diorite.auth.GameProfile;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+public class CachedSessionServiceTest extends TestCase
+{
+    private static final UUID   UUID_1   = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+    private static final String UUID_1_S = "069a79f444e94726a5befca90e38aaf5";
+    private static final String NAME_1   = "Notch";
+
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>(4);
+    private volatile boolean              failing;
+    private          HttpServer           server;
+    private          CachedSessionService service;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/session/hasJoined", e -> this.respond(e, "hasJoined", "{\"id\":\"" + UUID_1_S + "\"}"));
+        this.server.createContext("/session/profile/", e -> {
+            final boolean known = e.getRequestURI().getPath().endsWith(UUID_1_S);
+            this.respond(e, "profile", known ? ("{\"id\":\"" + UUID_1_S + "\",\"name\":\"" + NAME_1 + "\"}") : "");
+        });
+        this.server.start();
+        final String base = "http://127.0.0.1:" + this.server.getAddress().getPort() + "/";
+        this.service = new CachedSessionService(new YggdrasilSessionService(Proxy.NO_PROXY, "test", base + "session/", base + "api/"), 60);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        this.server.stop(0);
+    }
+
+    private void respond(final HttpExchange exchange, final String type, final String body) throws IOException
+    {
+        this.requests.computeIfAbsent(type, k -> new AtomicInteger()).incrementAndGet();
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(this.failing ? 500 : 200, bytes.length == 0 ? - 1 : bytes.length);
+        try (final OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+
+    private int getRequests(final String type)
+    {
+        final AtomicInteger counter = this.requests.get(type);
+        return (counter == null) ? 0 : counter.get();
+    }
+
+    @org.junit.Test
+    public void testProfileIsCached() throws Exception
+    {
+        final GameProfile first = this.service.getGameProfile(UUID_1);
+        assertNotNull(first);
+        assertEquals(NAME_1, first.getName());
+        assertSame(first, this.service.getGameProfile(UUID_1));
+        assertEquals(1, this.getRequests("profile"));
+
+        this.service.invalidateAll();
+        assertNotNull(this.service.getGameProfile(UUID_1));
+        assertEquals(2, this.getRequests("profile"));
+    }
+
+    @org.junit.Test
+    public void testMissingProfileIsNotCached() throws Exception
+    {
+        final UUID unknown = UUID.randomUUID();
+        assertNull(this.service.getGameProfile(unknown));
+        assertNull(this.service.getGameProfile(unknown));
+        assertEquals(2, this.getRequests("profile"));
+    }
+
+    @org.junit.Test
+    public void testFailureIsNotCached() throws Exception
+    {
+        this.failing = true;
+        try
+        {
+            this.service.getGameProfile(UUID_1);
+            fail("Expected exception when session server fails.");
+        } catch (final AuthenticationUnavailableException ignored)
+        {
+        }
+        this.failing = false;
+        assertNotNull(this.service.getGameProfile(UUID_1));
+        assertEquals(2, this.getRequests("profile"));
+    }
+
+    @org.junit.Test
+    public void testHasJoinedIsNotCached() throws Exception
+    {
+        final GameProfileImpl login = new GameProfileImpl(null, NAME_1);
+        final GameProfileImpl first = this.service.hasJoinedServer(login, "server-1");
+        assertNotNull(first);
+        assertEquals(UUID_1, first.getId());
+        assertNotNull(this.service.hasJoinedServer(login, "server-1"));
+        final GameProfileImpl last = this.service.hasJoinedServer(login, "server-2");
+        assertNotNull(last);
+        assertEquals("Each join must be verified by session server", 3, this.getRequests("hasJoined"));
+
+        // but verified profile is reused by other lookups.
+        assertSame(last, this.service.getGameProfile(UUID_1));
+        assertEquals(0, this.getRequests("profile"));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.connection.packets;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.diorite.impl.connection.EnumProtocol;
+import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundCustomPayload;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Compares cost of sending one packet to many connections when it is encoded and compressed separately for each
+ * connection (as packet encoder, compressor and sizer in netty pipeline of each connection do), and when it is encoded
+ * once by {@link BroadcastPacket} and shared by all connections. <br>
+ * Encryption is done per connection in both cases, so it is not measured. <br>
+ * Run: {@code java -cp <test classpath> org.diorite.impl.connection.packets.BroadcastPacketBenchmark [payload bytes]}
+ */
+public final class BroadcastPacketBenchmark
+{
+    private static final int   COMPRESSION_THRESHOLD = 256;
+    private static final int[] RECEIVERS             = {1, 2, 8, 32, 100};
+    private static final int   WARMUP                = 200;
+    private static final int   ROUNDS                = 200;
+
+    private BroadcastPacketBenchmark()
+    {
+    }
+
+    /**
+     * Payload that compresses similar to chunk data: runs of repeated bytes mixed with random ones.
+     */
+    private static ByteBuf createPayload(final int size)
+    {
+        final Random random = new Random(1);
+        final byte[] bytes = new byte[size];
+        for (int i = 0; i < size; )
+        {
+            final byte value = (byte) random.nextInt(16);
+            final int run = 1 + random.nextInt(32);
+            for (int j = 0; (j < run) && (i < size); j++, i++)
+            {
+                bytes[i] = value;
+            }
+        }
+        return Unpooled.wrappedBuffer(bytes);
+    }
+
+    private static PacketPlayClientboundCustomPayload createPacket(final ByteBuf payload)
+    {
+        return new PacketPlayClientboundCustomPayload("DIORITE|Bench", new PacketDataSerializer(payload.duplicate()));
+    }
+
+    /**
+     * Each receiver gets own copy of packet, encoded only for it.
+     */
+    private static long perConnection(final ByteBuf payload, final int receivers) throws IOException
+    {
+        long bytes = 0;
+        for (int i = 0; i < receivers; i++)
+        {
+            final BroadcastPacket packet = new BroadcastPacket(createPacket(payload));
+            final ByteBuf encoded = packet.retainEncoded(COMPRESSION_THRESHOLD);
+            bytes += encoded.readableBytes();
+            encoded.release();
+            packet.release();
+        }
+        return bytes;
+    }
+
+    /**
+     * Packet is encoded once and all receivers get retained duplicate of the same buffer.
+     */
+    private static long shared(final ByteBuf payload, final int receivers) throws IOException
+    {
+        long bytes = 0;
+        final BroadcastPacket packet = new BroadcastPacket(createPacket(payload));
+        try
+        {
+            for (int i = 0; i < receivers; i++)
+            {
+                final ByteBuf encoded = packet.retainEncoded(COMPRESSION_THRESHOLD);
+                bytes += encoded.readableBytes();
+                encoded.release();
+            }
+        } finally
+        {
+            packet.release();
+        }
+        return bytes;
+    }
+
+    private interface Sender
+    {
+        long send(ByteBuf payload, int receivers) throws IOException;
+    }
+
+    private static long measure(final Sender sender, final ByteBuf payload, final int receivers) throws IOException
+    {
+        long blackhole = 0;
+        for (int i = 0; i < WARMUP; i++)
+        {
+            blackhole += sender.send(payload, receivers);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++)
+        {
+            blackhole += sender.send(payload, receivers);
+        }
+        final long time = (System.nanoTime() - start) / ROUNDS;
+        if (blackhole == 0)
+        {
+            throw new AssertionError("Nothing was encoded.");
+        }
+        return time;
+    }
+
+    public static void main(final String[] args) throws IOException
+    {
+        final int size = (args.length == 0) ? 16384 : Integer.parseInt(args[0]);
+        EnumProtocol.init(PacketPlayClientboundCustomPayload.class);
+        final ByteBuf payload = createPayload(size);
+        System.out.println("Payload: " + size + " bytes, compression threshold: " + COMPRESSION_THRESHOLD);
+        for (final int receivers : RECEIVERS)
+        {
+            final long perConnection = measure(BroadcastPacketBenchmark::perConnection, payload, receivers);
+            final long shared = measure(BroadcastPacketBenchmark::shared, payload, receivers);
+            System.out.println(String.format("%4d receivers: per connection %,10dns, shared %,10dns (%.1fx)", receivers, perConnection, shared, perConnection / (double) shared));
+        }
+    }
+}
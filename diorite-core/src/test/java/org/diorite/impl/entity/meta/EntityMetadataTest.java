@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.entity.meta;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.diorite.impl.entity.meta.entry.EntityMetadataByteEntry;
+import org.diorite.impl.entity.meta.entry.EntityMetadataEntry;
+
+import junit.framework.TestCase;
+
+public class EntityMetadataTest extends TestCase
+{
+    @org.junit.Test
+    public void testEncodedCache() throws Exception
+    {
+        final EntityMetadata meta = new EntityMetadata(4);
+        meta.add(new EntityMetadataByteEntry(0, (byte) 1));
+
+        final byte[] first = meta.getEncodedEntries();
+        assertSame("Encoded block is cached until metadata is changed", first, meta.getEncodedEntries());
+
+        meta.setByte((byte) 0, (byte) 2);
+        final byte[] second = meta.getEncodedEntries();
+        assertNotSame(first, second);
+        assertFalse(Arrays.equals(first, second));
+
+        // value set to the same one is still a change, as other thread may read it while it is set.
+        meta.setByte((byte) 0, (byte) 2);
+        assertNotSame(second, meta.getEncodedEntries());
+    }
+
+    @org.junit.Test
+    public void testEntriesCache() throws Exception
+    {
+        final EntityMetadata meta = new EntityMetadata(4);
+        meta.add(new EntityMetadataByteEntry(2, (byte) 1));
+        final List<EntityMetadataEntry<?>> first = meta.getEntries();
+        assertEquals(1, first.size());
+
+        meta.setByte((byte) 2, (byte) 3);
+        assertSame("Entries are cached until entry is added", first, meta.getEntries());
+
+        meta.add(new EntityMetadataByteEntry(0, (byte) 1));
+        final List<EntityMetadataEntry<?>> second = meta.getEntries();
+        assertEquals(2, second.size());
+        assertEquals(0, second.get(0).getIndex());
+        assertEquals(2, second.get(1).getIndex());
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.entity.tracker;
+
+import javax.vecmath.Vector3f;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientbound;
+import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityTeleport;
+import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundRelEntityMove;
+import org.diorite.impl.entity.IEntity;
+import org.diorite.impl.entity.IPlayer;
+
+import junit.framework.TestCase;
+
+public class BaseTrackerTest extends TestCase
+{
+    private static final PacketPlayClientbound[] SPAWN_PACKETS = new PacketPlayClientbound[0];
+
+    /**
+     * Creates entity with given id at location stored in given array, so entity can be moved by changing it.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends IEntity> T createEntity(final Class<T> type, final int id, final double[] location)
+    {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName())
+            {
+                case "getId":
+                    return id;
+                case "getX":
+                    return location[0];
+                case "getY":
+                    return location[1];
+                case "getZ":
+                    return location[2];
+                case "getYaw":
+                case "getPitch":
+                case "getHeadPitch":
+                    return 0F;
+                case "isOnGround":
+                    return true;
+                case "getVelocity":
+                    return new Vector3f();
+                case "getSpawnPackets":
+                    return SPAWN_PACKETS;
+                case "getTrackRange":
+                    return 64;
+                case "getMetadata":
+                    return null;
+                case "hashCode":
+                    return id;
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName() + "#" + id;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static class RecordingTracker extends EntityTracker
+    {
+        private final Map<PlayerTracker, List<PacketPlayClientbound>> sent = new HashMap<>(2);
+
+        private RecordingTracker(final IEntity entity)
+        {
+            super(entity);
+        }
+
+        private List<PacketPlayClientbound> getSent(final PlayerTracker player)
+        {
+            return this.sent.getOrDefault(player, Collections.emptyList());
+        }
+
+        @Override
+        protected void sendPacket(final PlayerTracker player, final PacketPlayClientbound packet)
+        {
+            this.sent.computeIfAbsent(player, p -> new ArrayList<>(5)).add(packet);
+        }
+
+        @Override
+        protected void sendPackets(final PlayerTracker player, final PacketPlayClientbound[] packets)
+        {
+            final List<PacketPlayClientbound> list = this.sent.computeIfAbsent(player, p -> new ArrayList<>(5));
+            Collections.addAll(list, packets);
+        }
+    }
+
+    private static int countMoves(final List<PacketPlayClientbound> packets)
+    {
+        int moves = 0;
+        for (final PacketPlayClientbound packet : packets)
+        {
+            if (packet instanceof PacketPlayClientboundRelEntityMove)
+            {
+                moves++;
+            }
+        }
+        return moves;
+    }
+
+    @org.junit.Test
+    public void testNoRelativeMoveAfterSpawn() throws Exception
+    {
+        final double[] location = {0, 64, 0};
+        final RecordingTracker tracker = new RecordingTracker(createEntity(IEntity.class, 1, location));
+        final PlayerTracker player = new PlayerTracker(createEntity(IPlayer.class, 2, new double[]{0, 64, 0}));
+        tracker.cell = 0;
+        player.cell = 0;
+
+        // first tick sends teleport to nobody and sets last sent location.
+        tracker.tick(20);
+
+        // entity moves, and player starts tracking it in the same tick, so spawn packets contain new location.
+        location[0] = 1;
+        tracker.updatePlayer(player);
+        assertTrue(tracker.getTracked().contains(player));
+        tracker.tick(20);
+        assertEquals("Player that received spawn packets in this tick must not receive relative move", 0, countMoves(tracker.getSent(player)));
+
+        // next move is relative to location from spawn packets.
+        location[0] = 2;
+        tracker.tick(20);
+        assertEquals(1, countMoves(tracker.getSent(player)));
+        final PacketPlayClientbound last = tracker.getSent(player).get(tracker.getSent(player).size() - 1);
+        assertTrue(last instanceof PacketPlayClientboundRelEntityMove);
+        assertEquals(32, ((PacketPlayClientboundRelEntityMove) last).getDeltaX());
+    }
+
+    @org.junit.Test
+    public void testTrackedPlayerReceivesMove() throws Exception
+    {
+        final double[] location = {0, 64, 0};
+        final RecordingTracker tracker = new RecordingTracker(createEntity(IEntity.class, 1, location));
+        final PlayerTracker player = new PlayerTracker(createEntity(IPlayer.class, 2, new double[]{0, 64, 0}));
+        tracker.cell = 0;
+        player.cell = 0;
+
+        tracker.updatePlayer(player);
+        tracker.tick(20);
+        boolean teleported = false;
+        for (final PacketPlayClientbound packet : tracker.getSent(player))
+        {
+            teleported |= packet instanceof PacketPlayClientboundEntityTeleport;
+        }
+        assertTrue("First tick of tracker sends location of entity", teleported);
+
+        location[0] = 1;
+        tracker.tick(20);
+        assertEquals(1, countMoves(tracker.getSent(player)));
+    }
+}
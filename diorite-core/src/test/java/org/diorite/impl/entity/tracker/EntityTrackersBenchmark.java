@@ -0,0 +1,265 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.entity.tracker;
+
+import javax.vecmath.Vector3f;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientbound;
+import org.diorite.impl.entity.IEntity;
+import org.diorite.impl.entity.IPlayer;
+import org.diorite.entity.EntityType;
+
+/**
+ * Measures cost of updating tracked players in {@link EntityTrackers#doTick(int)} with cell index, and compares it
+ * with checking every tracker against every player in world on each tick (as trackers did before cell index). <br>
+ * Entities and players are spread over area that grows with amount of players, part of them walks in random
+ * directions every tick, so they cross cells from time to time. Ticking entities and sending packets is skipped. <br>
+ * Run: {@code java -cp <test classpath> org.diorite.impl.entity.tracker.EntityTrackersBenchmark}
+ */
+public final class EntityTrackersBenchmark
+{
+    private static final int[]  PLAYERS             = {50, 150, 500};
+    private static final int    ENTITIES_PER_PLAYER = 20;
+    private static final int    AREA_PER_PLAYER     = 128 * 128;
+    private static final double MOVING              = 0.1;
+    private static final double SPEED               = 0.3;
+    private static final int    TRACK_RANGE         = 48;
+    private static final long   WARMUP              = 1_000_000_000L;
+    private static final long   MEASURE             = 2_000_000_000L;
+
+    private static final PacketPlayClientbound[] SPAWN_PACKETS = new PacketPlayClientbound[0];
+
+    private EntityTrackersBenchmark()
+    {
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends IEntity> T createEntity(final Class<T> type, final int id, final double[] location)
+    {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName())
+            {
+                case "getId":
+                    return id;
+                case "getX":
+                    return location[0];
+                case "getY":
+                    return 64D;
+                case "getZ":
+                    return location[1];
+                case "getYaw":
+                case "getPitch":
+                case "getHeadPitch":
+                    return 0F;
+                case "isOnGround":
+                    return true;
+                case "getVelocity":
+                    return new Vector3f();
+                case "getType":
+                    return (type == IPlayer.class) ? EntityType.PLAYER : EntityType.CREEPER;
+                case "getSpawnPackets":
+                    return SPAWN_PACKETS;
+                case "getTrackRange":
+                    return TRACK_RANGE;
+                case "removeEntityFromView":
+                    return null;
+                case "hashCode":
+                    return id;
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName() + "#" + id;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * Trackers that only update tracked players, without ticking entities and sending packets.
+     */
+    private static class BenchmarkTrackers extends EntityTrackers
+    {
+        private BenchmarkTrackers()
+        {
+            super(null);
+        }
+
+        @Override
+        protected PlayerTracker createTracker(final IPlayer trackable)
+        {
+            return new PlayerTracker(trackable)
+            {
+                @Override
+                public void tick(final int tps)
+                {
+                }
+
+                @Override
+                protected void sendPackets(final PlayerTracker player, final PacketPlayClientbound[] packets)
+                {
+                }
+            };
+        }
+
+        @Override
+        protected EntityTracker createTracker(final IEntity trackable)
+        {
+            return new EntityTracker(trackable)
+            {
+                @Override
+                public void tick(final int tps)
+                {
+                }
+
+                @Override
+                protected void sendPackets(final PlayerTracker player, final PacketPlayClientbound[] packets)
+                {
+                }
+            };
+        }
+    }
+
+    private static final class World
+    {
+        private final EntityTrackers      trackers  = new BenchmarkTrackers();
+        private final List<BaseTracker<?>> all       = new ArrayList<>(1000);
+        private final List<PlayerTracker> players   = new ArrayList<>(100);
+        private final List<double[]>      moving    = new ArrayList<>(100);
+        private final List<double[]>      direction = new ArrayList<>(100);
+        private final Random              random    = new Random(1);
+
+        private World(final int players)
+        {
+            final int size = (int) Math.sqrt((double) players * AREA_PER_PLAYER);
+            int id = 1;
+            for (int i = 0; i < players; i++)
+            {
+                final PlayerTracker player = this.trackers.addTracked(createEntity(IPlayer.class, id++, this.location(size)));
+                this.players.add(player);
+                this.all.add(player);
+            }
+            for (int i = 0, entities = players * ENTITIES_PER_PLAYER; i < entities; i++)
+            {
+                this.all.add(this.trackers.addTracked(createEntity(IEntity.class, id++, this.location(size))));
+            }
+            this.trackers.doTick(20);
+        }
+
+        private double[] location(final int size)
+        {
+            final double[] location = {this.random.nextInt(size), this.random.nextInt(size)};
+            if (this.random.nextDouble() < MOVING)
+            {
+                final double angle = this.random.nextDouble() * Math.PI * 2;
+                this.moving.add(location);
+                this.direction.add(new double[]{Math.cos(angle) * SPEED, Math.sin(angle) * SPEED});
+            }
+            return location;
+        }
+
+        private void move()
+        {
+            for (int i = 0, size = this.moving.size(); i < size; i++)
+            {
+                final double[] location = this.moving.get(i);
+                final double[] direction = this.direction.get(i);
+                location[0] += direction[0];
+                location[1] += direction[1];
+            }
+        }
+
+        /**
+         * Tick with cell index, only trackers that changed cell are checked.
+         */
+        private void tickIndexed()
+        {
+            this.move();
+            this.trackers.doTick(20);
+        }
+
+        /**
+         * Tick that checks every tracker against every player.
+         */
+        private void tickAllPairs()
+        {
+            this.move();
+            this.trackers.doTick(20);
+            for (final BaseTracker<?> tracker : this.all)
+            {
+                for (final PlayerTracker player : this.players)
+                {
+                    tracker.updatePlayer(player);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs ticks for given time, returns average time of tick in nanoseconds.
+     */
+    private static long run(final Runnable tick, final long time)
+    {
+        final long start = System.nanoTime();
+        long ticks = 0;
+        long elapsed;
+        do
+        {
+            tick.run();
+            ticks++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < time);
+        return elapsed / ticks;
+    }
+
+    private static long measure(final Runnable tick)
+    {
+        run(tick, WARMUP);
+        return run(tick, MEASURE);
+    }
+
+    public static void main(final String[] args)
+    {
+        System.out.println("Entities per player: " + ENTITIES_PER_PLAYER + ", moving: " + (int) (MOVING * 100) + "%, track range: " + TRACK_RANGE);
+        for (final int players : PLAYERS)
+        {
+            final World indexedWorld = new World(players);
+            final long indexed = measure(indexedWorld::tickIndexed);
+            final World allPairsWorld = new World(players);
+            final long allPairs = measure(allPairsWorld::tickAllPairs);
+            int viewed = 0;
+            for (final PlayerTracker player : indexedWorld.players)
+            {
+                viewed += player.getViewed().size();
+            }
+            System.out.println(String.format("%4d players, %6d trackers: cell index %,12dns, all pairs %,12dns (%.1fx), viewed per player: %d", players, indexedWorld.all.size(), indexed, allPairs, allPairs / (double) indexed, viewed / players));
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.entity.tracker;
+
+import javax.vecmath.Vector3f;
+
+import java.lang.reflect.Proxy;
+
+import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientbound;
+import org.diorite.impl.entity.IEntity;
+import org.diorite.impl.entity.IPlayer;
+import org.diorite.entity.EntityType;
+
+import junit.framework.TestCase;
+
+public class EntityTrackersTest extends TestCase
+{
+    /**
+     * Track range of test entities, 4 cells.
+     */
+    private static final int TRACK_RANGE = 64;
+    private static final int CELL_SIZE   = 1 << EntityTrackers.CELL_SHIFT;
+
+    private static final PacketPlayClientbound[] SPAWN_PACKETS = new PacketPlayClientbound[0];
+
+    /**
+     * Creates entity with given id at location stored in given array, so entity can be moved by changing it.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends IEntity> T createEntity(final Class<T> type, final int id, final double[] location)
+    {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName())
+            {
+                case "getId":
+                    return id;
+                case "getX":
+                    return location[0];
+                case "getY":
+                    return 64D;
+                case "getZ":
+                    return location[1];
+                case "getYaw":
+                case "getPitch":
+                case "getHeadPitch":
+                    return 0F;
+                case "isOnGround":
+                    return true;
+                case "getVelocity":
+                    return new Vector3f();
+                case "getType":
+                    return (type == IPlayer.class) ? EntityType.PLAYER : EntityType.CREEPER;
+                case "getSpawnPackets":
+                    return SPAWN_PACKETS;
+                case "getTrackRange":
+                    return TRACK_RANGE;
+                case "removeEntityFromView":
+                    return null;
+                case "hashCode":
+                    return id;
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName() + "#" + id;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * Trackers that only update tracked players, without ticking entities and sending packets.
+     */
+    private static class TestTrackers extends EntityTrackers
+    {
+        private TestTrackers()
+        {
+            super(null);
+        }
+
+        @Override
+        protected PlayerTracker createTracker(final IPlayer trackable)
+        {
+            return new PlayerTracker(trackable)
+            {
+                @Override
+                public void tick(final int tps)
+                {
+                }
+
+                @Override
+                protected void sendPackets(final PlayerTracker player, final PacketPlayClientbound[] packets)
+                {
+                }
+            };
+        }
+
+        @Override
+        protected EntityTracker createTracker(final IEntity trackable)
+        {
+            return new EntityTracker(trackable)
+            {
+                @Override
+                public void tick(final int tps)
+                {
+                }
+
+                @Override
+                protected void sendPackets(final PlayerTracker player, final PacketPlayClientbound[] packets)
+                {
+                }
+            };
+        }
+    }
+
+    private static void assertTracks(final BaseTracker<?> tracker, final PlayerTracker player)
+    {
+        assertTrue(tracker + " should track " + player, tracker.getTracked().contains(player));
+        assertTrue(player + " should view " + tracker, player.getViewed().contains(tracker));
+    }
+
+    private static void assertNotTracks(final BaseTracker<?> tracker, final PlayerTracker player)
+    {
+        assertFalse(tracker + " should not track " + player, tracker.getTracked().contains(player));
+        assertFalse(player + " should not view " + tracker, player.getViewed().contains(tracker));
+    }
+
+    @org.junit.Test
+    public void testChangesAreAppliedOnTick() throws Exception
+    {
+        final EntityTrackers trackers = new TestTrackers();
+        final PlayerTracker player = trackers.addTracked(createEntity(IPlayer.class, 1, new double[]{0, 0}));
+        final EntityTracker entity = trackers.addTracked(createEntity(IEntity.class, 2, new double[]{0, 0}));
+        assertEquals("Trackers are added on tick", 0, trackers.size());
+
+        trackers.doTick(20);
+        assertEquals(2, trackers.size());
+        assertTracks(entity, player);
+    }
+
+    @org.junit.Test
+    public void testEntityCrossesCells() throws Exception
+    {
+        final EntityTrackers trackers = new TestTrackers();
+        final PlayerTracker player = trackers.addTracked(createEntity(IPlayer.class, 1, new double[]{0, 0}));
+        final double[] location = {0, 0};
+        final EntityTracker entity = trackers.addTracked(createEntity(IEntity.class, 2, location));
+        trackers.doTick(20);
+        assertTracks(entity, player);
+
+        // moves to cell just outside of track range.
+        location[0] = (entity.getCellRange() + 1) * CELL_SIZE;
+        trackers.doTick(20);
+        assertNotTracks(entity, player);
+
+        // back to last cell in range.
+        location[0] = entity.getCellRange() * CELL_SIZE;
+        trackers.doTick(20);
+        assertTracks(entity, player);
+
+        // negative direction, on other axis.
+        location[0] = 0;
+        location[1] = - ((entity.getCellRange() + 1) * CELL_SIZE) - 1;
+        trackers.doTick(20);
+        assertNotTracks(entity, player);
+        location[1] = - 1;
+        trackers.doTick(20);
+        assertTracks(entity, player);
+    }
+
+    @org.junit.Test
+    public void testPlayerCrossesCells() throws Exception
+    {
+        final EntityTrackers trackers = new TestTrackers();
+        final double[] location = {0, 0};
+        final PlayerTracker player = trackers.addTracked(createEntity(IPlayer.class, 1, location));
+        final PlayerTracker other = trackers.addTracked(createEntity(IPlayer.class, 2, new double[]{0, 0}));
+        final EntityTracker entity = trackers.addTracked(createEntity(IEntity.class, 3, new double[]{0, 0}));
+        trackers.doTick(20);
+        assertTracks(entity, player);
+        assertTracks(other, player);
+        assertTracks(player, other);
+
+        location[0] = (entity.getCellRange() + 1) * CELL_SIZE;
+        trackers.doTick(20);
+        assertNotTracks(entity, player);
+        assertNotTracks(other, player);
+        assertNotTracks(player, other);
+        assertTracks(entity, other);
+
+        location[0] = (entity.getCellRange() * CELL_SIZE) + 1;
+        trackers.doTick(20);
+        assertTracks(entity, player);
+        assertTracks(other, player);
+        assertTracks(player, other);
+    }
+
+    @org.junit.Test
+    public void testManyCells() throws Exception
+    {
+        // more cells than cells in track range, so only cells in range are checked.
+        final EntityTrackers trackers = new TestTrackers();
+        final int cells = 100;
+        final EntityTracker[] entities = new EntityTracker[cells];
+        for (int i = 0; i < cells; i++)
+        {
+            entities[i] = trackers.addTracked(createEntity(IEntity.class, i + 10, new double[]{i * CELL_SIZE, 0}));
+        }
+        final double[] location = {50 * CELL_SIZE, 0};
+        final PlayerTracker player = trackers.addTracked(createEntity(IPlayer.class, 1, location));
+        trackers.doTick(20);
+        final int range = entities[0].getCellRange();
+        for (int i = 0; i < cells; i++)
+        {
+            if (Math.abs(i - 50) <= range)
+            {
+                assertTracks(entities[i], player);
+            }
+            else
+            {
+                assertNotTracks(entities[i], player);
+            }
+        }
+
+        location[0] = 10 * CELL_SIZE;
+        trackers.doTick(20);
+        for (int i = 0; i < cells; i++)
+        {
+            if (Math.abs(i - 10) <= range)
+            {
+                assertTracks(entities[i], player);
+            }
+            else
+            {
+                assertNotTracks(entities[i], player);
+            }
+        }
+        assertEquals((range << 1) + 1, player.getViewed().size());
+    }
+
+    @org.junit.Test
+    public void testRemovePlayer() throws Exception
+    {
+        final EntityTrackers trackers = new TestTrackers();
+        final IPlayer playerEntity = createEntity(IPlayer.class, 1, new double[]{0, 0});
+        final PlayerTracker player = trackers.addTracked(playerEntity);
+        final PlayerTracker other = trackers.addTracked(createEntity(IPlayer.class, 2, new double[]{0, 0}));
+        final EntityTracker[] entities = new EntityTracker[5];
+        for (int i = 0; i < entities.length; i++)
+        {
+            entities[i] = trackers.addTracked(createEntity(IEntity.class, i + 10, new double[]{i * CELL_SIZE, 0}));
+        }
+        trackers.doTick(20);
+        for (final EntityTracker entity : entities)
+        {
+            assertTracks(entity, player);
+        }
+        assertTracks(other, player);
+        assertTracks(player, other);
+
+        trackers.removeTracked(playerEntity);
+        trackers.doTick(20);
+        assertEquals(entities.length + 1, trackers.size());
+        assertNull(trackers.getTracker(playerEntity));
+        for (final EntityTracker entity : entities)
+        {
+            assertFalse(entity.getTracked().contains(player));
+            assertTrue(entity.getTracked().contains(other));
+        }
+        assertFalse(other.getTracked().contains(player));
+        assertTrue("Removed player must not view anything", player.getViewed().isEmpty());
+        assertTrue(player.getTracked().isEmpty());
+        assertFalse(other.getViewed().contains(player));
+    }
+
+    @org.junit.Test
+    public void testRemoveEntity() throws Exception
+    {
+        final EntityTrackers trackers = new TestTrackers();
+        final PlayerTracker player = trackers.addTracked(createEntity(IPlayer.class, 1, new double[]{0, 0}));
+        final IEntity entity = createEntity(IEntity.class, 2, new double[]{0, 0});
+        final EntityTracker tracker = trackers.addTracked(entity);
+        trackers.doTick(20);
+        assertTracks(tracker, player);
+
+        trackers.removeTracked(entity);
+        trackers.doTick(20);
+        assertNotTracks(tracker, player);
+        assertEquals(1, trackers.size());
+    }
+}
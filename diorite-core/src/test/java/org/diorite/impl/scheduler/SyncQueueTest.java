@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.scheduler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class SyncQueueTest extends TestCase
+{
+    private ExecutorService threadA;
+    private ExecutorService threadB;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        this.threadA = Executors.newSingleThreadExecutor();
+        this.threadB = Executors.newSingleThreadExecutor();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        this.threadA.shutdownNow();
+        this.threadB.shutdownNow();
+    }
+
+    private Thread threadOf(final ExecutorService executor) throws Exception
+    {
+        return executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+    }
+
+    private void tick(final ExecutorService executor, final SyncQueue queue) throws Exception
+    {
+        executor.submit(queue::runPending).get(5, TimeUnit.SECONDS);
+    }
+
+    @org.junit.Test
+    public void testOwnerMovedToThreadThatDoesNotTick() throws Exception
+    {
+        final SyncQueue queue = new SyncQueue();
+        final Owner owner = new Owner();
+        final AtomicInteger executed = new AtomicInteger();
+
+        owner.lastTickThread = this.threadOf(this.threadA);
+        queue.add(executed::incrementAndGet, owner);
+
+        // owner is now ticked by group on other thread, and first thread doesn't tick any group.
+        owner.lastTickThread = this.threadOf(this.threadB);
+        this.tick(this.threadB, queue);
+        assertEquals("Task can't be executed by thread that doesn't own its queue", 0, executed.get());
+
+        // end of tick on main thread.
+        queue.runAll();
+        assertEquals("Task must be executed at end of tick", 1, executed.get());
+        assertEquals(0, queue.getPendingTasks());
+
+        // mailbox must be scheduled again after it was drained.
+        queue.add(executed::incrementAndGet, owner);
+        this.tick(this.threadB, queue);
+        assertEquals("Task must be executed by new tick thread of owner", 2, executed.get());
+        assertEquals(0, queue.getPendingTasks());
+    }
+
+    @org.junit.Test
+    public void testOwnerMovedBetweenTwoGroups() throws Exception
+    {
+        final SyncQueue queue = new SyncQueue();
+        final Owner owner = new Owner();
+        final AtomicReference<Thread> executedBy = new AtomicReference<>();
+        final Thread a = this.threadOf(this.threadA);
+        final Thread b = this.threadOf(this.threadB);
+
+        owner.lastTickThread = a;
+        queue.add(() -> executedBy.set(Thread.currentThread()), owner);
+        owner.lastTickThread = b;
+
+        // both groups are ticked, first thread moves mailbox to queue of second one.
+        this.tick(this.threadA, queue);
+        assertNull("Task can't be executed by old tick thread of owner", executedBy.get());
+        this.tick(this.threadB, queue);
+        assertSame("Task must be executed by current tick thread of owner", b, executedBy.get());
+
+        // and back to first group, with many tasks.
+        owner.lastTickThread = a;
+        final AtomicInteger executed = new AtomicInteger();
+        for (int i = 0; i < 100; i++)
+        {
+            queue.add(executed::incrementAndGet, owner);
+        }
+        this.tick(this.threadB, queue);
+        this.tick(this.threadA, queue);
+        queue.runAll();
+        assertEquals(100, executed.get());
+        assertEquals(0, queue.getPendingTasks());
+    }
+
+    @org.junit.Test
+    public void testOwnerWithoutTickThread() throws Exception
+    {
+        final SyncQueue queue = new SyncQueue();
+        final Owner owner = new Owner();
+        final AtomicInteger executed = new AtomicInteger();
+        queue.add(executed::incrementAndGet, owner);
+
+        queue.scheduleWaiting();
+        assertEquals(0, executed.get());
+        queue.runAll();
+        assertEquals(1, executed.get());
+        assertEquals(0, queue.getPendingTasks());
+    }
+
+    private static class Owner implements ISynchronizable
+    {
+        private final    SyncMailbox mailbox = new SyncMailbox(this);
+        private volatile Thread      lastTickThread;
+
+        @Override
+        public SyncMailbox getMailbox()
+        {
+            return this.mailbox;
+        }
+
+        @Override
+        public Thread getLastTickThread()
+        {
+            return this.lastTickThread;
+        }
+
+        @Override
+        public boolean isValidSynchronizable()
+        {
+            return true;
+        }
+    }
+}
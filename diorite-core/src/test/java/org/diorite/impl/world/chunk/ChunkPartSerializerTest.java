@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.chunk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.diorite.material.BlockMaterialData;
+import org.diorite.material.Material;
+import org.diorite.nbt.NbtTagCompound;
+import org.diorite.world.chunk.Chunk;
+
+import junit.framework.TestCase;
+
+public class ChunkPartSerializerTest extends TestCase
+{
+    private final List<BlockMaterialData> materials = new ArrayList<>(128);
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        for (final Material material : Material.values())
+        {
+            if ((material instanceof BlockMaterialData) && (material.getId() != 0) && (material.getId() < 256))
+            {
+                this.materials.add((BlockMaterialData) material);
+            }
+        }
+    }
+
+    /**
+     * Creates vanilla section tag with given amount of different blocks, so it is loaded with matching palette.
+     */
+    @SuppressWarnings("MagicNumber")
+    private NbtTagCompound vanillaSection(final byte y, final int types)
+    {
+        final byte[] blocks = new byte[ChunkPartImpl.CHUNK_DATA_SIZE];
+        final ChunkNibbleArray data = new ChunkNibbleArray();
+        final ChunkNibbleArray light = new ChunkNibbleArray();
+        for (int i = 0; i < blocks.length; i++)
+        {
+            // first type is air, so section with one type is empty.
+            final int type = i % types;
+            if (type != 0)
+            {
+                final BlockMaterialData material = this.materials.get(type - 1);
+                blocks[i] = (byte) material.getId();
+                data.set(i & 15, (i >> 8) & 15, (i >> 4) & 15, material.getType());
+            }
+            light.set(i & 15, (i >> 8) & 15, (i >> 4) & 15, (i + y) & 15);
+        }
+        final NbtTagCompound tag = new NbtTagCompound();
+        tag.setByte("Y", y);
+        tag.setByteArray("Blocks", blocks);
+        tag.setByteArray("Data", data.getRawData());
+        tag.setByteArray("BlockLight", light.getRawData());
+        tag.setByteArray("SkyLight", light.getRawData());
+        return tag;
+    }
+
+    private static void assertSameBlocks(final ChunkPartImpl expected, final ChunkPartImpl actual)
+    {
+        assertEquals(expected.getYPos(), actual.getYPos());
+        for (int y = 0; y < Chunk.CHUNK_PART_HEIGHT; y++)
+        {
+            for (int z = 0; z < Chunk.CHUNK_SIZE; z++)
+            {
+                for (int x = 0; x < Chunk.CHUNK_SIZE; x++)
+                {
+                    assertEquals("Block at " + x + ", " + y + ", " + z, expected.getBlockType(x, y, z).getIdAndMeta(), actual.getBlockType(x, y, z).getIdAndMeta());
+                }
+            }
+        }
+        assertEquals(expected.recalculateBlockCount(), actual.recalculateBlockCount());
+    }
+
+    private void testRoundTrip(final int types) throws Exception
+    {
+        final ChunkPartImpl part = ChunkPartSerializer.read(this.vanillaSection((byte) 3, types));
+        assertEquals(types, part.getPalette().size());
+
+        final NbtTagCompound nativeTag = ChunkPartSerializer.write(part, false, true);
+        assertTrue(ChunkPartSerializer.isNative(nativeTag));
+        final ChunkPartImpl fromNative = ChunkPartSerializer.read(nativeTag);
+        assertSameBlocks(part, fromNative);
+
+        final NbtTagCompound vanillaTag = ChunkPartSerializer.write(fromNative, true, true);
+        assertFalse(ChunkPartSerializer.isNative(vanillaTag));
+        final ChunkPartImpl fromVanilla = ChunkPartSerializer.read(vanillaTag);
+        assertSameBlocks(part, fromVanilla);
+        assertEquals(types > 1, ! fromVanilla.isEmpty());
+
+        final NbtTagCompound source = this.vanillaSection((byte) 3, types);
+        assertArrayEquals(source.getByteArray("Blocks"), vanillaTag.getByteArray("Blocks"));
+        assertArrayEquals(source.getByteArray("Data"), vanillaTag.getByteArray("Data"));
+        assertArrayEquals(source.getByteArray("BlockLight"), vanillaTag.getByteArray("BlockLight"));
+        assertArrayEquals(source.getByteArray("SkyLight"), vanillaTag.getByteArray("SkyLight"));
+    }
+
+    private static void assertArrayEquals(final byte[] expected, final byte[] actual)
+    {
+        assertNotNull(actual);
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals("Byte " + i, expected[i], actual[i]);
+        }
+    }
+
+    @org.junit.Test
+    public void testEmptySection() throws Exception
+    {
+        this.testRoundTrip(1);
+    }
+
+    @org.junit.Test
+    public void testSmallPalette() throws Exception
+    {
+        this.testRoundTrip(2);
+        this.testRoundTrip(16);
+    }
+
+    @org.junit.Test
+    public void testLargePalette() throws Exception
+    {
+        this.testRoundTrip(17);
+        this.testRoundTrip(Math.min(100, this.materials.size() + 1));
+    }
+
+    @org.junit.Test
+    public void testNewSection() throws Exception
+    {
+        final ChunkPartImpl part = new ChunkPartImpl((byte) 0, true);
+        assertTrue(part.isEmpty());
+        assertSameBlocks(part, ChunkPartSerializer.read(ChunkPartSerializer.write(part, false, true)));
+        assertSameBlocks(part, ChunkPartSerializer.read(ChunkPartSerializer.write(part, true, true)));
+    }
+
+    @org.junit.Test
+    public void testSkyLight() throws Exception
+    {
+        final NbtTagCompound source = this.vanillaSection((byte) 5, 4);
+        final ChunkPartImpl part = ChunkPartSerializer.read(source);
+        for (final boolean vanilla : new boolean[]{true, false})
+        {
+            final NbtTagCompound withSky = ChunkPartSerializer.write(part, vanilla, true);
+            assertArrayEquals(source.getByteArray("SkyLight"), withSky.getByteArray("SkyLight"));
+            assertArrayEquals(source.getByteArray("BlockLight"), withSky.getByteArray("BlockLight"));
+
+            // world without sky light still writes empty array, like vanilla does.
+            final NbtTagCompound withoutSky = ChunkPartSerializer.write(part, vanilla, false);
+            assertArrayEquals(new byte[source.getByteArray("SkyLight").length], withoutSky.getByteArray("SkyLight"));
+            assertArrayEquals(source.getByteArray("BlockLight"), withoutSky.getByteArray("BlockLight"));
+            assertSameBlocks(part, ChunkPartSerializer.read(withoutSky));
+        }
+    }
+}
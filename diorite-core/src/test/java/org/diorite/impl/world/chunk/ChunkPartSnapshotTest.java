@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.chunk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.diorite.material.BlockMaterialData;
+import org.diorite.material.Material;
+import org.diorite.world.chunk.Chunk;
+
+import junit.framework.TestCase;
+
+public class ChunkPartSnapshotTest extends TestCase
+{
+    private static final int WRITERS   = 4;
+    private static final int ROUNDS    = 4;
+    private static final int MATERIALS = 15; // with air it fills whole array palette, setBlock doesn't resize section yet
+
+    private final List<BlockMaterialData> materials = new ArrayList<>(MATERIALS);
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        for (final Material material : Material.values())
+        {
+            if ((material instanceof BlockMaterialData) && (material.getId() != 0))
+            {
+                this.materials.add((BlockMaterialData) material);
+                if (this.materials.size() == MATERIALS)
+                {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static BlockMaterialData[] read(final ChunkPartImpl part)
+    {
+        final BlockMaterialData[] data = new BlockMaterialData[ChunkPartImpl.CHUNK_DATA_SIZE];
+        for (int y = 0; y < Chunk.CHUNK_PART_HEIGHT; y++)
+        {
+            for (int z = 0; z < Chunk.CHUNK_SIZE; z++)
+            {
+                for (int x = 0; x < Chunk.CHUNK_SIZE; x++)
+                {
+                    data[ChunkPartImpl.toArrayIndex(x, y, z)] = part.getBlockType(x, y, z);
+                }
+            }
+        }
+        return data;
+    }
+
+    private BlockMaterialData expected(final int index, final int round)
+    {
+        return this.materials.get((index + round) % this.materials.size());
+    }
+
+    @org.junit.Test
+    public void testSnapshotIsolation() throws Exception
+    {
+        final ChunkPartImpl part = new ChunkPartImpl((byte) 0, true);
+        final BlockMaterialData[] before = read(part);
+        final ChunkPartImpl snapshot = part.snapshot();
+
+        part.setBlock(1, 2, 3, this.materials.get(0));
+
+        assertSame(Material.AIR, snapshot.getBlockType(1, 2, 3));
+        assertEquals(this.materials.get(0), part.getBlockType(1, 2, 3));
+        assertEquals(0, snapshot.getBlocksCount());
+        assertEquals(1, part.getBlocksCount());
+        for (int i = 0; i < before.length; i++)
+        {
+            assertEquals(before[i], read(snapshot)[i]);
+        }
+    }
+
+    @org.junit.Test
+    public void testConcurrentWritersWithSnapshots() throws Exception
+    {
+        final ChunkPartImpl part = new ChunkPartImpl((byte) 0, true);
+        final ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        final List<ChunkPartImpl> snapshots = new ArrayList<>(100);
+        final List<BlockMaterialData[]> snapshotData = new ArrayList<>(100);
+        try
+        {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>(WRITERS);
+            for (int t = 0; t < WRITERS; t++)
+            {
+                final int writer = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < ROUNDS; round++)
+                    {
+                        for (int y = 0; y < Chunk.CHUNK_PART_HEIGHT; y++)
+                        {
+                            for (int z = 0; z < Chunk.CHUNK_SIZE; z++)
+                            {
+                                for (int x = 0; x < Chunk.CHUNK_SIZE; x++)
+                                {
+                                    final int index = ChunkPartImpl.toArrayIndex(x, y, z);
+                                    // each block is owned by single writer, so final state is known.
+                                    if ((index % WRITERS) == writer)
+                                    {
+                                        part.setBlock(x, y, z, this.expected(index, round));
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            while (! futures.stream().allMatch(Future::isDone) && (snapshots.size() < 100))
+            {
+                final ChunkPartImpl snapshot = part.snapshot();
+                snapshots.add(snapshot);
+                snapshotData.add(read(snapshot));
+            }
+            for (final Future<?> future : futures)
+            {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally
+        {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < snapshots.size(); i++)
+        {
+            final BlockMaterialData[] now = read(snapshots.get(i));
+            final BlockMaterialData[] then = snapshotData.get(i);
+            for (int j = 0; j < now.length; j++)
+            {
+                assertEquals("Snapshot " + i + " was changed by writers at " + j, then[j], now[j]);
+            }
+        }
+        final BlockMaterialData[] result = read(part);
+        for (int i = 0; i < result.length; i++)
+        {
+            assertEquals("Write to block " + i + " was lost", this.expected(i, ROUNDS - 1), result[i]);
+        }
+        assertEquals(ChunkPartImpl.CHUNK_DATA_SIZE, part.getBlocksCount());
+        assertEquals(ChunkPartImpl.CHUNK_DATA_SIZE, part.recalculateBlockCount());
+    }
+}
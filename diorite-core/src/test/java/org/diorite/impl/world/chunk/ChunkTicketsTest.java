@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.chunk;
+
+import java.util.concurrent.TimeUnit;
+
+import org.diorite.impl.world.chunk.ChunkManagerImpl.ChunkTickets;
+
+import junit.framework.TestCase;
+
+public class ChunkTicketsTest extends TestCase
+{
+    private static final long DELAY = TimeUnit.SECONDS.toNanos(10);
+
+    @org.junit.Test
+    public void testReferenceCounting() throws Exception
+    {
+        final ChunkTickets tickets = new ChunkTickets(0);
+        assertFalse(tickets.isInUse());
+
+        tickets.add(ChunkTicketType.PLAYER);
+        tickets.add(ChunkTicketType.PLAYER);
+        tickets.add(ChunkTicketType.IO);
+        assertEquals(2, tickets.get(ChunkTicketType.PLAYER));
+        assertEquals(1, tickets.get(ChunkTicketType.IO));
+        assertEquals(0, tickets.get(ChunkTicketType.SPAWN));
+
+        assertTrue(tickets.remove(ChunkTicketType.PLAYER, 100));
+        assertTrue(tickets.remove(ChunkTicketType.IO, 200));
+        // ticket of type that chunk doesn't have can't release other types.
+        assertTrue(tickets.remove(ChunkTicketType.SPAWN, 300));
+        assertEquals(1, tickets.get(ChunkTicketType.PLAYER));
+        assertEquals(0, tickets.getReleaseTime());
+
+        assertFalse(tickets.remove(ChunkTicketType.PLAYER, 400));
+        assertFalse(tickets.isInUse());
+        assertEquals("Release time is set by last released ticket", 400, tickets.getReleaseTime());
+
+        assertFalse(tickets.remove(ChunkTicketType.PLAYER, 500));
+        assertEquals(0, tickets.get(ChunkTicketType.PLAYER));
+        assertEquals(400, tickets.getReleaseTime());
+    }
+
+    @org.junit.Test
+    public void testTypesAreSeparate() throws Exception
+    {
+        for (final ChunkTicketType type : ChunkTicketType.values())
+        {
+            final ChunkTickets tickets = new ChunkTickets(0);
+            tickets.add(type);
+            for (final ChunkTicketType other : ChunkTicketType.values())
+            {
+                if (other != type)
+                {
+                    assertTrue("Ticket of type " + other + " released ticket of type " + type, tickets.remove(other, 100));
+                    assertEquals(0, tickets.get(other));
+                }
+            }
+            assertEquals(1, tickets.get(type));
+            assertFalse("Chunk with " + type + " ticket can't be unloaded", tickets.tryStartUnload(DELAY * 2, DELAY));
+            assertFalse(tickets.remove(type, 200));
+            assertFalse(tickets.isInUse());
+        }
+    }
+
+    @org.junit.Test
+    public void testPluginAndForcedTickets() throws Exception
+    {
+        final ChunkTickets tickets = new ChunkTickets(0);
+        tickets.add(ChunkTicketType.PLUGIN);
+        tickets.add(ChunkTicketType.PLUGIN);
+        tickets.add(ChunkTicketType.FORCED);
+        assertEquals(2, tickets.get(ChunkTicketType.PLUGIN));
+        assertEquals(1, tickets.get(ChunkTicketType.FORCED));
+
+        assertTrue(tickets.remove(ChunkTicketType.FORCED, 100));
+        assertTrue("Plugin tickets keep chunk loaded after forced ticket is released", tickets.isInUse());
+        assertTrue(tickets.remove(ChunkTicketType.PLUGIN, 200));
+        assertFalse(tickets.remove(ChunkTicketType.PLUGIN, 300));
+        assertEquals(300, tickets.getReleaseTime());
+    }
+
+    @org.junit.Test
+    public void testTouch() throws Exception
+    {
+        final ChunkTickets tickets = new ChunkTickets(0);
+        tickets.touch(100);
+        assertEquals(100, tickets.getReleaseTime());
+
+        tickets.add(ChunkTicketType.SPAWN);
+        tickets.touch(200);
+        assertEquals("Chunk in use keeps release time", 100, tickets.getReleaseTime());
+    }
+
+    @org.junit.Test
+    public void testGracePeriod() throws Exception
+    {
+        final long released = 1000;
+        final ChunkTickets tickets = new ChunkTickets(0);
+        tickets.add(ChunkTicketType.PLAYER);
+        assertFalse("Chunk with ticket can't be unloaded", tickets.tryStartUnload(released + (DELAY * 2), DELAY));
+
+        tickets.remove(ChunkTicketType.PLAYER, released);
+        assertFalse("Chunk can't be unloaded before unload delay", tickets.tryStartUnload((released + DELAY) - 1, DELAY));
+        assertFalse(tickets.isUnloading());
+
+        assertTrue(tickets.tryStartUnload(released + DELAY, DELAY));
+        assertTrue(tickets.isUnloading());
+        tickets.finishUnload();
+        assertFalse(tickets.isUnloading());
+    }
+
+    @org.junit.Test
+    public void testTicketAddedWhileUnloading() throws Exception
+    {
+        final ChunkTickets tickets = new ChunkTickets(0);
+        assertTrue(tickets.tryStartUnload(DELAY, DELAY));
+
+        tickets.add(ChunkTicketType.PLAYER);
+        tickets.finishUnload();
+        assertTrue("Ticket added while chunk was unloading must be visible after unload", tickets.isInUse());
+        assertFalse(tickets.tryStartUnload(DELAY * 2, DELAY));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.io.anvil;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.diorite.impl.world.io.ChunkIOSettings;
+import org.diorite.nbt.NbtTagCompound;
+
+import junit.framework.TestCase;
+
+public class RegionCompactorTest extends TestCase
+{
+    private File dir;
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        this.dir = File.createTempFile("diorite", "region");
+        this.dir.delete();
+        this.dir.mkdirs();
+        this.file = new File(this.dir, "r.0.0.mca");
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        this.file.delete();
+        new File(this.file.getPath() + ".tmp").delete();
+        this.dir.delete();
+    }
+
+    private static NbtTagCompound createChunk(final Random random, final int size)
+    {
+        // random data can't be compressed, so size of chunk in file is known.
+        final byte[] data = new byte[size];
+        random.nextBytes(data);
+        final NbtTagCompound tag = new NbtTagCompound("");
+        tag.setByteArray("data", data);
+        return tag;
+    }
+
+    private static void assertChunk(final NbtTagCompound expected, final NbtTagCompound actual)
+    {
+        assertNotNull(actual);
+        assertTrue(Arrays.equals(expected.getByteArray("data"), actual.getByteArray("data")));
+    }
+
+    @org.junit.Test
+    public void testRoundTrip() throws Exception
+    {
+        final Random random = new Random(7);
+        final NbtTagCompound[] chunks = new NbtTagCompound[5];
+        final AnvilRegion region = new AnvilRegion(this.file, 0, 0, new ChunkIOSettings());
+        for (int i = 0; i < chunks.length; i++)
+        {
+            chunks[i] = createChunk(random, 6000);
+            region.saveChunk(i, 0, chunks[i]);
+        }
+        // leave holes in file: bigger chunk is moved to new sectors, and other one is removed.
+        chunks[1] = createChunk(random, 10000);
+        region.saveChunk(1, 0, chunks[1]);
+        assertTrue(region.deleteChunk(3, 0));
+        region.close();
+
+        final long oldLength = this.file.length();
+        final int reclaimed = RegionCompactor.compact(this.file);
+        assertTrue("Holes must be reclaimed", reclaimed > 0);
+        assertEquals(oldLength - (reclaimed * (long) AnvilRegion.SECTOR_BYTES), this.file.length());
+        assertFalse(new File(this.file.getPath() + ".tmp").exists());
+
+        final AnvilRegion compacted = new AnvilRegion(this.file, 0, 0, new ChunkIOSettings());
+        try
+        {
+            for (int i = 0; i < chunks.length; i++)
+            {
+                if (i == 3)
+                {
+                    assertNull(compacted.readChunk(i, 0));
+                    continue;
+                }
+                assertChunk(chunks[i], compacted.readChunk(i, 0));
+            }
+        } finally
+        {
+            compacted.close();
+        }
+        assertEquals("Compacted file has nothing to reclaim", 0, RegionCompactor.compact(this.file));
+    }
+
+    @org.junit.Test
+    public void testCompactedRegionIsWritable() throws Exception
+    {
+        final Random random = new Random(11);
+        final AnvilRegion region = new AnvilRegion(this.file, 0, 0, new ChunkIOSettings());
+        final NbtTagCompound first = createChunk(random, 6000);
+        region.saveChunk(0, 0, first);
+        region.saveChunk(1, 0, createChunk(random, 6000));
+        assertTrue(region.deleteChunk(1, 0));
+        region.close();
+        RegionCompactor.compact(this.file);
+
+        final AnvilRegion compacted = new AnvilRegion(this.file, 0, 0, new ChunkIOSettings());
+        final NbtTagCompound second = createChunk(random, 6000);
+        try
+        {
+            compacted.saveChunk(2, 0, second);
+            assertChunk(first, compacted.readChunk(0, 0));
+            assertChunk(second, compacted.readChunk(2, 0));
+        } finally
+        {
+            compacted.close();
+        }
+    }
+}
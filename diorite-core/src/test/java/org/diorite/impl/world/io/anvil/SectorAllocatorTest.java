@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.io.anvil;
+
+import java.util.BitSet;
+
+import junit.framework.TestCase;
+
+public class SectorAllocatorTest extends TestCase
+{
+    private static SectorAllocator create(final int size, final int... freeSectors)
+    {
+        final BitSet used = new BitSet(size);
+        used.set(0, size);
+        for (final int sector : freeSectors)
+        {
+            used.clear(sector);
+        }
+        return new SectorAllocator(used, size);
+    }
+
+    @org.junit.Test
+    public void testAllocateAtEnd() throws Exception
+    {
+        final SectorAllocator allocator = create(2);
+        assertEquals(0, allocator.getFreeSectors());
+        assertEquals(2, allocator.allocate(3));
+        assertEquals(5, allocator.getSize());
+        assertEquals(5, allocator.allocate(1));
+        assertEquals(6, allocator.getSize());
+    }
+
+    @org.junit.Test
+    public void testBestFit() throws Exception
+    {
+        // free extents: 2-4 (3 sectors), 6 (1 sector)
+        final SectorAllocator allocator = create(8, 2, 3, 4, 6);
+        assertEquals(2, allocator.getFreeExtents());
+        assertEquals(4, allocator.getFreeSectors());
+
+        assertEquals("Smallest extent that is big enough must be used", 6, allocator.allocate(1));
+        assertEquals(2, allocator.allocate(2));
+        assertEquals(1, allocator.getFreeExtents());
+        assertEquals(1, allocator.getFreeSectors());
+        assertEquals(4, allocator.allocate(1));
+        assertEquals(0, allocator.getFreeSectors());
+        assertEquals(8, allocator.getSize());
+    }
+
+    @org.junit.Test
+    public void testFreeCoalesces() throws Exception
+    {
+        final SectorAllocator allocator = create(10);
+        allocator.free(3, 2);
+        allocator.free(7, 1);
+        assertEquals(2, allocator.getFreeExtents());
+
+        // fills gap between both extents, so all of them must be merged.
+        allocator.free(5, 2);
+        assertEquals(1, allocator.getFreeExtents());
+        assertEquals(5, allocator.getFreeSectors());
+        assertEquals(3, allocator.allocate(5));
+        assertEquals(0, allocator.getFreeExtents());
+        assertEquals(10, allocator.getSize());
+    }
+
+    @org.junit.Test
+    public void testAllocateExtendsFreeTail() throws Exception
+    {
+        final SectorAllocator allocator = create(10, 7, 8, 9);
+        assertEquals("Free extent at end of file must be reused when file grows", 7, allocator.allocate(5));
+        assertEquals(12, allocator.getSize());
+        assertEquals(0, allocator.getFreeSectors());
+        assertEquals(0, allocator.getFreeExtents());
+    }
+
+    @org.junit.Test
+    public void testFreeAndAllocateAgain() throws Exception
+    {
+        final SectorAllocator allocator = create(2);
+        final int a = allocator.allocate(2);
+        final int b = allocator.allocate(3);
+        allocator.allocate(1);
+        allocator.free(a, 2);
+        allocator.free(b, 3);
+        assertEquals(1, allocator.getFreeExtents());
+        assertEquals(5, allocator.getFreeSectors());
+        assertEquals(a, allocator.allocate(4));
+        assertEquals(1, allocator.getFreeSectors());
+        assertEquals(8, allocator.getSize());
+    }
+}
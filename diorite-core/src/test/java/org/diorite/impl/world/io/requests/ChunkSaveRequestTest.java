@@ -0,0 +1,167 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.world.io.requests;
+
+import java.lang.reflect.Proxy;
+
+import org.diorite.impl.world.chunk.ChunkImpl;
+import org.diorite.impl.world.chunk.ChunkSnapshotImpl;
+import org.diorite.impl.world.io.ChunkIO;
+import org.diorite.impl.world.io.ChunkRegion;
+import org.diorite.world.Dimension;
+import org.diorite.world.World;
+import org.diorite.world.chunk.Chunk;
+import org.diorite.world.chunk.ChunkPos;
+
+import junit.framework.TestCase;
+
+public class ChunkSaveRequestTest extends TestCase
+{
+    private static World createWorld()
+    {
+        return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[]{World.class}, (proxy, method, args) -> {
+            switch (method.getName())
+            {
+                case "getName":
+                    return "test";
+                case "getTime":
+                    return 0L;
+                case "isVanillaCompatible":
+                    return true;
+                case "getDimension":
+                    return Dimension.OVERWORLD;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static ChunkImpl createChunk()
+    {
+        final ChunkSnapshotImpl snapshot = new ChunkSnapshotImpl(0, 0, createWorld(), null, new short[Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE], null, false);
+        final ChunkImpl chunk = new ChunkImpl(new ChunkPos(0, 0))
+        {
+            @Override
+            public ChunkSnapshotImpl snapshot()
+            {
+                return snapshot;
+            }
+        };
+        chunk.setModified();
+        return chunk;
+    }
+
+    private static class TestChunkIO extends ChunkIO
+    {
+        private final RuntimeException error;
+        private       int              saved;
+
+        private TestChunkIO(final RuntimeException error)
+        {
+            super(null);
+            this.error = error;
+        }
+
+        @Override
+        public ChunkImpl loadChunk(final int x, final int z, final ChunkImpl chunk)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean deleteChunk(final int x, final int z)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void saveChunk(final ChunkSnapshotImpl chunk)
+        {
+            if (this.error != null)
+            {
+                throw this.error;
+            }
+            this.saved++;
+        }
+
+        @Override
+        protected ChunkRegion getChunkRegion(final int chunkX, final int chunkZ)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int compactRegion(final int regionX, final int regionZ)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Runs request in the same way as IO threads do.
+     */
+    private static void process(final Request<?> request, final ChunkIO io)
+    {
+        try
+        {
+            request.run(io);
+        } catch (final Throwable e)
+        {
+            if (! request.isFinished())
+            {
+                request.setFailed(e);
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void testSave() throws Exception
+    {
+        final ChunkImpl chunk = createChunk();
+        final TestChunkIO io = new TestChunkIO(null);
+        final ChunkSaveRequest request = new ChunkSaveRequest(0, chunk);
+        assertFalse(chunk.isModified());
+
+        process(request, io);
+        assertTrue(request.isFinished());
+        assertNull(request.getError());
+        assertEquals(1, io.saved);
+        assertFalse(chunk.isModified());
+    }
+
+    @org.junit.Test
+    public void testFailedSave() throws Exception
+    {
+        final ChunkImpl chunk = createChunk();
+        final RuntimeException error = new IllegalStateException("disk is full");
+        final ChunkSaveRequest request = new ChunkSaveRequest(0, chunk);
+
+        process(request, new TestChunkIO(error));
+        assertTrue("Failed request must be finished, so nothing waits for it", request.isFinished());
+        assertSame("Failure of save must be visible to callers of request", error, request.getError());
+        assertNull(request.await());
+        assertTrue("Chunk that wasn't saved must be saved again", chunk.isModified());
+    }
+}
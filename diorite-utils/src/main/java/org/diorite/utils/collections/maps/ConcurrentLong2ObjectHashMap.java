@@ -0,0 +1,610 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.utils.collections.maps;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+
+/**
+ * Concurrent hash map with primitive long keys, keys are never boxed. <br>
+ * Map is divided into segments, each segment is open addressing hash table. <br>
+ * Reads are lock-free, writes lock only one segment. Entries never move inside table,
+ * removed entries are replaced by tombstones that are dropped when table is rebuilt,
+ * so reader never misses entry that was present for whole lookup. <br>
+ * Null values aren't supported. Iterators are weakly consistent, like in {@link java.util.concurrent.ConcurrentHashMap}.
+ *
+ * @param <V> type of values.
+ */
+public class ConcurrentLong2ObjectHashMap<V>
+{
+    private static final int   DEFAULT_CAPACITY          = 16;
+    private static final int   DEFAULT_CONCURRENCY_LEVEL = 16;
+    private static final int   MIN_SEGMENT_CAPACITY      = 4;
+    private static final float LOAD_FACTOR               = .5f;
+
+    @SuppressWarnings("rawtypes")
+    private static final Node TOMBSTONE = new Node<>(0, null);
+
+    private final Segment<V>[] segments;
+    private final int          segmentShift;
+
+    public ConcurrentLong2ObjectHashMap()
+    {
+        this(DEFAULT_CAPACITY, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public ConcurrentLong2ObjectHashMap(final int capacity)
+    {
+        this(capacity, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Construct new map.
+     *
+     * @param capacity         expected amount of entries.
+     * @param concurrencyLevel expected amount of threads modifying map at once, rounded up to power of two.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLong2ObjectHashMap(final int capacity, final int concurrencyLevel)
+    {
+        Validate.isTrue(capacity >= 0, "Capacity can't be negative: ", capacity);
+        Validate.isTrue(concurrencyLevel > 0, "Concurrency level must be positive: ", concurrencyLevel);
+        final int segmentsCount = HashCommon.nextPowerOfTwo(concurrencyLevel);
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentsCount);
+        this.segments = new Segment[segmentsCount];
+        final int segmentCapacity = Math.max(MIN_SEGMENT_CAPACITY, HashCommon.arraySize((capacity + segmentsCount - 1) / segmentsCount, LOAD_FACTOR));
+        for (int i = 0; i < segmentsCount; i++)
+        {
+            this.segments[i] = new Segment<>(segmentCapacity);
+        }
+    }
+
+    private Segment<V> segmentFor(final long hash)
+    {
+        // segments use highest bits of hash, tables use lowest ones.
+        return (this.segments.length == 1) ? this.segments[0] : this.segments[(int) (hash >>> this.segmentShift)];
+    }
+
+    /**
+     * Returns value for given key, or null if there is no value for it.
+     *
+     * @param key key of value.
+     *
+     * @return value for given key, or null.
+     */
+    public V get(final long key)
+    {
+        final long hash = HashCommon.mix(key);
+        return this.segmentFor(hash).get(key, (int) hash);
+    }
+
+    public boolean containsKey(final long key)
+    {
+        return this.get(key) != null;
+    }
+
+    /**
+     * Put value for given key, replacing old one.
+     *
+     * @param key   key of value.
+     * @param value value to put, can't be null.
+     *
+     * @return previous value for given key, or null.
+     */
+    public V put(final long key, final V value)
+    {
+        Validate.notNull(value, "Value can't be null.");
+        final long hash = HashCommon.mix(key);
+        return this.segmentFor(hash).put(key, (int) hash, value, false);
+    }
+
+    /**
+     * Put value for given key, only if there is no value for it.
+     *
+     * @param key   key of value.
+     * @param value value to put, can't be null.
+     *
+     * @return current value for given key, or null if given value was added.
+     */
+    public V putIfAbsent(final long key, final V value)
+    {
+        Validate.notNull(value, "Value can't be null.");
+        final long hash = HashCommon.mix(key);
+        return this.segmentFor(hash).put(key, (int) hash, value, true);
+    }
+
+    /**
+     * Returns value for given key, if there is no value for it, new one is created by given function
+     * and added to map atomically, function is invoked at most once.
+     *
+     * @param key      key of value.
+     * @param function function used to create value, can't return null.
+     *
+     * @return value for given key.
+     */
+    public V computeIfAbsent(final long key, final LongFunction<? extends V> function)
+    {
+        final long hash = HashCommon.mix(key);
+        final Segment<V> segment = this.segmentFor(hash);
+        final V value = segment.get(key, (int) hash);
+        if (value != null)
+        {
+            return value;
+        }
+        return segment.compute(key, (int) hash, v -> (v == null) ? Validate.notNull(function.apply(key), "Function can't return null.") : v);
+    }
+
+    /**
+     * Atomically compute new value for given key. <br>
+     * Function gets current value (or null if there is no value) and returns new one,
+     * if it returns null, value is removed.
+     *
+     * @param key      key of value.
+     * @param function function used to compute value, invoked under segment lock.
+     *
+     * @return new value for given key, or null.
+     */
+    public V compute(final long key, final Function<? super V, ? extends V> function)
+    {
+        final long hash = HashCommon.mix(key);
+        return this.segmentFor(hash).compute(key, (int) hash, function);
+    }
+
+    /**
+     * Atomically compute new value for given key, only if there is value for it. <br>
+     * If function returns null, value is removed.
+     *
+     * @param key      key of value.
+     * @param function function used to compute value, invoked under segment lock.
+     *
+     * @return new value for given key, or null.
+     */
+    public V computeIfPresent(final long key, final Function<? super V, ? extends V> function)
+    {
+        final long hash = HashCommon.mix(key);
+        final Segment<V> segment = this.segmentFor(hash);
+        if (segment.get(key, (int) hash) == null)
+        {
+            return null;
+        }
+        return segment.compute(key, (int) hash, v -> (v == null) ? null : function.apply(v));
+    }
+
+    /**
+     * Remove value for given key.
+     *
+     * @param key key of value.
+     *
+     * @return removed value, or null.
+     */
+    public V remove(final long key)
+    {
+        final long hash = HashCommon.mix(key);
+        return this.segmentFor(hash).remove(key, (int) hash, null);
+    }
+
+    /**
+     * Remove value for given key, only if it is given value.
+     *
+     * @param key   key of value.
+     * @param value expected value.
+     *
+     * @return true if value was removed.
+     */
+    public boolean remove(final long key, final V value)
+    {
+        if (value == null)
+        {
+            return false;
+        }
+        final long hash = HashCommon.mix(key);
+        return this.segmentFor(hash).remove(key, (int) hash, value) != null;
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for (final Segment<V> segment : this.segments)
+        {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        for (final Segment<V> segment : this.segments)
+        {
+            if (segment.size != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clear()
+    {
+        for (final Segment<V> segment : this.segments)
+        {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns weakly consistent iterator over entries of this map, {@link Iterator#remove()} removes entry
+     * only if it still has the same value.
+     *
+     * @return iterator over entries of this map.
+     */
+    public Iterator<Long2ObjectMap.Entry<V>> entryIterator()
+    {
+        return new EntryIterator();
+    }
+
+    /**
+     * Returns view of values of this map, iterators of it are weakly consistent.
+     *
+     * @return view of values of this map.
+     */
+    public Collection<V> values()
+    {
+        return new AbstractCollection<V>()
+        {
+            @Override
+            public Iterator<V> iterator()
+            {
+                final Iterator<Long2ObjectMap.Entry<V>> it = ConcurrentLong2ObjectHashMap.this.entryIterator();
+                return new Iterator<V>()
+                {
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public V next()
+                    {
+                        return it.next().getValue();
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        it.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return ConcurrentLong2ObjectHashMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("segments", this.segments.length).append("size", this.size()).toString();
+    }
+
+    private static final class Node<V> implements Long2ObjectMap.Entry<V>
+    {
+        private final long key;
+        private volatile V value;
+
+        private Node(final long key, final V value)
+        {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public long getLongKey()
+        {
+            return this.key;
+        }
+
+        @Override
+        @Deprecated
+        public Long getKey()
+        {
+            return this.key;
+        }
+
+        @Override
+        public V getValue()
+        {
+            return this.value;
+        }
+
+        @Override
+        public V setValue(final V value)
+        {
+            throw new UnsupportedOperationException("Use map to change values.");
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.key + "=" + this.value;
+        }
+    }
+
+    private static final class Segment<V>
+    {
+        private volatile AtomicReferenceArray<Node<V>> table;
+        private volatile int                           size;
+        private          int                           used; // entries and tombstones
+
+        private Segment(final int capacity)
+        {
+            this.table = new AtomicReferenceArray<>(capacity);
+        }
+
+        private V get(final long key, final int hash)
+        {
+            final AtomicReferenceArray<Node<V>> table = this.table;
+            final int mask = table.length() - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask)
+            {
+                final Node<V> node = table.get(i);
+                if (node == null)
+                {
+                    return null;
+                }
+                if ((node != TOMBSTONE) && (node.key == key))
+                {
+                    return node.value;
+                }
+            }
+        }
+
+        private synchronized V put(final long key, final int hash, final V value, final boolean onlyIfAbsent)
+        {
+            final AtomicReferenceArray<Node<V>> table = this.table;
+            final int mask = table.length() - 1;
+            int free = - 1;
+            int i = hash & mask;
+            for (Node<V> node; (node = table.get(i)) != null; i = (i + 1) & mask)
+            {
+                if (node == TOMBSTONE)
+                {
+                    if (free == - 1)
+                    {
+                        free = i;
+                    }
+                }
+                else if (node.key == key)
+                {
+                    final V prev = node.value;
+                    if (! onlyIfAbsent)
+                    {
+                        node.value = value;
+                    }
+                    return prev;
+                }
+            }
+            this.insert(table, (free == - 1) ? i : free, free == - 1, new Node<>(key, value));
+            return null;
+        }
+
+        private synchronized V compute(final long key, final int hash, final Function<? super V, ? extends V> function)
+        {
+            final AtomicReferenceArray<Node<V>> table = this.table;
+            final int mask = table.length() - 1;
+            int free = - 1;
+            int i = hash & mask;
+            for (Node<V> node; (node = table.get(i)) != null; i = (i + 1) & mask)
+            {
+                if (node == TOMBSTONE)
+                {
+                    if (free == - 1)
+                    {
+                        free = i;
+                    }
+                }
+                else if (node.key == key)
+                {
+                    final V value = function.apply(node.value);
+                    if (value == null)
+                    {
+                        this.delete(table, i);
+                    }
+                    else
+                    {
+                        node.value = value;
+                    }
+                    return value;
+                }
+            }
+            final V value = function.apply(null);
+            if (value != null)
+            {
+                this.insert(table, (free == - 1) ? i : free, free == - 1, new Node<>(key, value));
+            }
+            return value;
+        }
+
+        private synchronized V remove(final long key, final int hash, final V expected)
+        {
+            final AtomicReferenceArray<Node<V>> table = this.table;
+            final int mask = table.length() - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask)
+            {
+                final Node<V> node = table.get(i);
+                if (node == null)
+                {
+                    return null;
+                }
+                if ((node != TOMBSTONE) && (node.key == key))
+                {
+                    final V value = node.value;
+                    if ((expected != null) && (expected != value))
+                    {
+                        return null;
+                    }
+                    this.delete(table, i);
+                    return value;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void delete(final AtomicReferenceArray<Node<V>> table, final int index)
+        {
+            table.set(index, TOMBSTONE);
+            this.size--;
+        }
+
+        private void insert(final AtomicReferenceArray<Node<V>> table, final int index, final boolean newSlot, final Node<V> node)
+        {
+            table.set(index, node);
+            this.size++;
+            if (newSlot && (++ this.used >= (table.length() * LOAD_FACTOR)))
+            {
+                this.rehash(table);
+            }
+        }
+
+        private void rehash(final AtomicReferenceArray<Node<V>> table)
+        {
+            // table is rebuilt without tombstones, so it grows only if most of used slots are live entries.
+            final AtomicReferenceArray<Node<V>> newTable = new AtomicReferenceArray<>(Math.max(MIN_SEGMENT_CAPACITY, HashCommon.arraySize(this.size + 1, LOAD_FACTOR)));
+            final int mask = newTable.length() - 1;
+            for (int j = 0, length = table.length(); j < length; j++)
+            {
+                final Node<V> node = table.get(j);
+                if ((node == null) || (node == TOMBSTONE))
+                {
+                    continue;
+                }
+                int i = ((int) HashCommon.mix(node.key)) & mask;
+                while (newTable.get(i) != null)
+                {
+                    i = (i + 1) & mask;
+                }
+                newTable.set(i, node);
+            }
+            this.used = this.size;
+            this.table = newTable;
+        }
+
+        private synchronized void clear()
+        {
+            this.table = new AtomicReferenceArray<>(MIN_SEGMENT_CAPACITY);
+            this.size = 0;
+            this.used = 0;
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Long2ObjectMap.Entry<V>>
+    {
+        private int                           segment = - 1;
+        private AtomicReferenceArray<Node<V>> table;
+        private int                           index;
+        private Node<V>                       next;
+        private Node<V>                       last;
+        private V                             lastValue; // value of last entry when it was returned
+
+        private EntryIterator()
+        {
+            this.advance();
+        }
+
+        private void advance()
+        {
+            final Segment<V>[] segments = ConcurrentLong2ObjectHashMap.this.segments;
+            while (true)
+            {
+                if (this.table != null)
+                {
+                    while (this.index < this.table.length())
+                    {
+                        final Node<V> node = this.table.get(this.index++);
+                        if ((node != null) && (node != TOMBSTONE))
+                        {
+                            this.next = node;
+                            return;
+                        }
+                    }
+                }
+                if (++ this.segment >= segments.length)
+                {
+                    this.next = null;
+                    return;
+                }
+                this.table = segments[this.segment].table;
+                this.index = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.next != null;
+        }
+
+        @Override
+        public Long2ObjectMap.Entry<V> next()
+        {
+            if (this.next == null)
+            {
+                throw new NoSuchElementException();
+            }
+            this.last = this.next;
+            this.lastValue = this.last.value;
+            this.advance();
+            return this.last;
+        }
+
+        @Override
+        public void remove()
+        {
+            if (this.last == null)
+            {
+                throw new IllegalStateException();
+            }
+            ConcurrentLong2ObjectHashMap.this.remove(this.last.key, this.lastValue);
+            this.last = null;
+            this.lastValue = null;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.utils.collections.maps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import junit.framework.TestCase;
+
+public class ConcurrentLong2ObjectHashMapTest extends TestCase
+{
+    private static final int THREADS = 8;
+
+    @org.junit.Test
+    public void testPutGetRemove() throws Exception
+    {
+        final ConcurrentLong2ObjectHashMap<String> map = new ConcurrentLong2ObjectHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1, "a"));
+        assertNull(map.put(- 1, "b"));
+        assertNull(map.put(Long.MIN_VALUE, "c"));
+        assertEquals("a", map.put(1, "d"));
+        assertEquals(3, map.size());
+
+        assertEquals("d", map.get(1));
+        assertEquals("b", map.get(- 1));
+        assertEquals("c", map.get(Long.MIN_VALUE));
+        assertNull(map.get(2));
+        assertTrue(map.containsKey(1));
+        assertFalse(map.containsKey(2));
+
+        assertEquals("d", map.putIfAbsent(1, "e"));
+        assertNull(map.putIfAbsent(2, "e"));
+        assertEquals("e", map.get(2));
+
+        assertFalse(map.remove(1, "a"));
+        assertTrue(map.remove(1, "d"));
+        assertNull(map.get(1));
+        assertEquals("b", map.remove(- 1));
+        assertNull(map.remove(- 1));
+        assertEquals(2, map.size());
+
+        // removed key can be added again after tombstone.
+        assertNull(map.put(1, "f"));
+        assertEquals("f", map.get(1));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(Long.MIN_VALUE));
+    }
+
+    @org.junit.Test
+    public void testCompute() throws Exception
+    {
+        final ConcurrentLong2ObjectHashMap<Integer> map = new ConcurrentLong2ObjectHashMap<>();
+        assertEquals(Integer.valueOf(1), map.compute(5, v -> (v == null) ? 1 : (v + 1)));
+        assertEquals(Integer.valueOf(2), map.compute(5, v -> (v == null) ? 1 : (v + 1)));
+        assertNull(map.compute(5, v -> null));
+        assertNull(map.get(5));
+        assertTrue(map.isEmpty());
+        assertNull("Returning null for missing key doesn't add it", map.compute(6, v -> null));
+        assertTrue(map.isEmpty());
+    }
+
+    @org.junit.Test
+    public void testComputeIfAbsent() throws Exception
+    {
+        final ConcurrentLong2ObjectHashMap<Integer> map = new ConcurrentLong2ObjectHashMap<>();
+        final AtomicInteger calls = new AtomicInteger();
+        assertEquals(Integer.valueOf(7), map.computeIfAbsent(3, k -> {
+            calls.incrementAndGet();
+            return 7;
+        }));
+        assertEquals(Integer.valueOf(7), map.computeIfAbsent(3, k -> {
+            calls.incrementAndGet();
+            return 8;
+        }));
+        assertEquals(1, calls.get());
+        try
+        {
+            map.computeIfAbsent(4, k -> null);
+            fail("Function of computeIfAbsent can't return null");
+        } catch (final NullPointerException ignored)
+        {
+        }
+        assertFalse(map.containsKey(4));
+        assertEquals(1, map.size());
+    }
+
+    @org.junit.Test
+    public void testComputeIfPresent() throws Exception
+    {
+        final ConcurrentLong2ObjectHashMap<Integer> map = new ConcurrentLong2ObjectHashMap<>();
+        assertNull(map.computeIfPresent(1, v -> v + 1));
+        assertFalse(map.containsKey(1));
+
+        map.put(1, 1);
+        assertEquals(Integer.valueOf(2), map.computeIfPresent(1, v -> v + 1));
+        assertEquals(Integer.valueOf(2), map.get(1));
+        assertNull(map.computeIfPresent(1, v -> null));
+        assertFalse(map.containsKey(1));
+        assertTrue(map.isEmpty());
+    }
+
+    @org.junit.Test
+    public void testRehash() throws Exception
+    {
+        // small segments, so every segment is rebuilt many times.
+        final ConcurrentLong2ObjectHashMap<Long> map = new ConcurrentLong2ObjectHashMap<>(0, 4);
+        final int count = 20000;
+        for (long i = 0; i < count; i++)
+        {
+            map.put(i * 31, i);
+        }
+        assertEquals(count, map.size());
+        for (long i = 0; i < count; i++)
+        {
+            assertEquals(Long.valueOf(i), map.get(i * 31));
+        }
+        // tables full of tombstones are rebuilt too.
+        for (long i = 0; i < count; i += 2)
+        {
+            assertEquals(Long.valueOf(i), map.remove(i * 31));
+        }
+        for (long i = count; i < (count * 2); i++)
+        {
+            map.put(i * 31, i);
+        }
+        assertEquals(count + (count / 2), map.size());
+        for (long i = 0; i < (count * 2); i++)
+        {
+            if ((i < count) && ((i % 2) == 0))
+            {
+                assertNull(map.get(i * 31));
+            }
+            else
+            {
+                assertEquals(Long.valueOf(i), map.get(i * 31));
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void testIteratorRemove() throws Exception
+    {
+        final ConcurrentLong2ObjectHashMap<Long> map = new ConcurrentLong2ObjectHashMap<>(0, 4);
+        for (long i = 0; i < 1000; i++)
+        {
+            map.put(i, i);
+        }
+        int iterated = 0;
+        for (final Iterator<Long2ObjectMap.Entry<Long>> it = map.entryIterator(); it.hasNext(); )
+        {
+            final Long2ObjectMap.Entry<Long> entry = it.next();
+            assertEquals(entry.getLongKey(), entry.getValue().longValue());
+            iterated++;
+            if ((entry.getLongKey() % 2) == 0)
+            {
+                it.remove();
+            }
+        }
+        assertEquals(1000, iterated);
+        assertEquals(500, map.size());
+        for (long i = 0; i < 1000; i++)
+        {
+            assertEquals((i % 2) != 0, map.containsKey(i));
+        }
+
+        // entry replaced after it was returned by iterator isn't removed.
+        final Iterator<Long2ObjectMap.Entry<Long>> it = map.entryIterator();
+        final Long2ObjectMap.Entry<Long> entry = it.next();
+        map.put(entry.getLongKey(), - 1L);
+        it.remove();
+        assertEquals(Long.valueOf(- 1), map.get(entry.getLongKey()));
+
+        final Collection<Long> values = map.values();
+        for (final Iterator<Long> valuesIt = values.iterator(); valuesIt.hasNext(); )
+        {
+            valuesIt.next();
+            valuesIt.remove();
+        }
+        assertTrue(map.isEmpty());
+        assertTrue(values.isEmpty());
+    }
+
+    @org.junit.Test
+    public void testConcurrentCompute() throws Exception
+    {
+        final ConcurrentLong2ObjectHashMap<Integer> map = new ConcurrentLong2ObjectHashMap<>(0, 2);
+        final int keys = 64;
+        final int increments = 20000;
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try
+        {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++)
+            {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < increments; i++)
+                    {
+                        final long key = (i + thread) % keys;
+                        map.compute(key, v -> (v == null) ? 1 : (v + 1));
+                        // keys added and removed at once by all threads, so segments are rebuilt while others compute.
+                        final long tmp = keys + (thread * increments) + i;
+                        map.put(tmp, 0);
+                        map.computeIfPresent(tmp, v -> null);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (final Future<?> future : futures)
+            {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally
+        {
+            executor.shutdownNow();
+        }
+        assertEquals(keys, map.size());
+        int sum = 0;
+        for (long key = 0; key < keys; key++)
+        {
+            sum += map.get(key);
+        }
+        assertEquals("Concurrent compute lost updates", THREADS * increments, sum);
+    }
+}
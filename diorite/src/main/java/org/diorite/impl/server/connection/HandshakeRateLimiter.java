@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.server.connection;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import org.diorite.impl.DioriteCore;
+
+/**
+ * Limits amount of connections from single address in one second, used to close connections of abusive pingers before
+ * anything is created for them.
+ */
+public class HandshakeRateLimiter
+{
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    private final DioriteCore             core;
+    private final Map<InetAddress, Entry> entries = new ConcurrentHashMap<>(100, 0.75f, 8);
+
+    public HandshakeRateLimiter(final DioriteCore core)
+    {
+        this.core = core;
+    }
+
+    /**
+     * Count new connection from given address and check if it should be accepted, loopback addresses are never
+     * limited.
+     *
+     * @param address address of connection.
+     *
+     * @return true if connection should be accepted.
+     */
+    public boolean tryAcquire(final InetAddress address)
+    {
+        final int limit = this.core.getConfig().getHandshakeRateLimit();
+        if ((limit <= 0) || (address == null) || address.isLoopbackAddress())
+        {
+            return true;
+        }
+        return this.entries.computeIfAbsent(address, k -> new Entry()).tryAcquire(System.nanoTime(), limit);
+    }
+
+    /**
+     * Removes addresses that didn't connect in last second.
+     */
+    public void cleanup()
+    {
+        final long now = System.nanoTime();
+        this.entries.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("entries", this.entries.size()).toString();
+    }
+
+    private static class Entry
+    {
+        private long windowStart = System.nanoTime();
+        private int  count;
+
+        private synchronized boolean tryAcquire(final long now, final int limit)
+        {
+            if ((now - this.windowStart) >= WINDOW)
+            {
+                this.windowStart = now;
+                this.count = 0;
+            }
+            return ++this.count <= limit;
+        }
+
+        private synchronized boolean isExpired(final long now)
+        {
+            return (now - this.windowStart) >= WINDOW;
+        }
+    }
+}
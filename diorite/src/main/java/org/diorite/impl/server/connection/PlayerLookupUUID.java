@@ -40,16 +40,17 @@ import org.diorite.impl.connection.MinecraftEncryption;
 import org.diorite.impl.server.connection.listeners.LoginListener;
 import org.diorite.cfg.DioriteConfig.OnlineMode;
 
-public class ThreadPlayerLookupUUID extends Thread
+/**
+ * Authorizes player with session server, executed by authentication executor of {@link ServerConnection}, or directly
+ * when server isn't in online mode, as then it doesn't need to connect to anything.
+ */
+public class PlayerLookupUUID implements Runnable
 {
     private final LoginListener loginListener;
-    private final Runnable      onSuccess;
 
-    public ThreadPlayerLookupUUID(final LoginListener loginListener, final String name, final Runnable onSuccess)
+    public PlayerLookupUUID(final LoginListener loginListener)
     {
-        super(name);
         this.loginListener = loginListener;
-        this.onSuccess = onSuccess;
     }
 
     @Override
@@ -103,7 +104,7 @@ public class ThreadPlayerLookupUUID extends Thread
         //noinspection ObjectToString
         this.loginListener.getLogger().info("Player " + profile.getName() + " (" + profile.getId() + ") [" + this.loginListener.getNetworkManager().getSocketAddress() + "] connected to server! (online-mode: " + this.loginListener.getOnlineMode() + ")");
         this.loginListener.setProtocolState(LoginListener.ProtocolState.READY_TO_ACCEPT);
-        this.onSuccess.run();
+        this.loginListener.acceptPlayer();
     }
 
     public LoginListener getLoginListener()
@@ -28,6 +28,10 @@ import java.net.InetAddress;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -64,6 +68,15 @@ public class ServerConnection extends Thread implements ConnectionHandler
     private final DioriteCore   core;
     private       ChannelFuture channelFuture;
 
+    /**
+     * Executor used to authorize players with session server, it have limited amount of threads and limited queue,
+     * so flood of logins can't create unlimited amount of threads or pending requests.
+     */
+    private final ThreadPoolExecutor authExecutor;
+
+    private final StatusResponseCache  statusResponseCache;
+    private final HandshakeRateLimiter handshakeRateLimiter;
+
     @SuppressWarnings("resource")
     public ServerConnection(final DioriteCore core)
     {
@@ -73,6 +86,56 @@ public class ServerConnection extends Thread implements ConnectionHandler
         final int threads = core.getConfig().getNettyThreads();
         this.nioEventLoopGroupLazyValue = new LazyValue<>(() -> new NioEventLoopGroup(threads, new ThreadFactoryBuilder().setNameFormat("Diorite-Netty#%d").setDaemon(true).build()));
         this.epollEventLoopGroupLazyValue = new LazyValue<>(() -> new EpollEventLoopGroup(threads, new ThreadFactoryBuilder().setNameFormat("Diorite-Netty-Epoll#%d").setDaemon(true).build()));
+        this.authExecutor = createAuthExecutor(core.getConfig().getAuthThreads(), core.getConfig().getAuthQueueSize());
+        this.statusResponseCache = new StatusResponseCache(core);
+        this.handshakeRateLimiter = new HandshakeRateLimiter(core);
+    }
+
+    /**
+     * Create executor used for authorization of players, with fixed amount of threads and bounded queue, so tasks
+     * over queue limit are rejected instead of creating more threads.
+     *
+     * @param threads   amount of authenticator threads.
+     * @param queueSize max amount of waiting tasks.
+     *
+     * @return created executor.
+     */
+    static ThreadPoolExecutor createAuthExecutor(final int threads, final int queueSize)
+    {
+        final int authThreads = Math.max(threads, 1);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(authThreads, authThreads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(queueSize, 1)), new ThreadFactoryBuilder().setNameFormat("Diorite User Authenticator #%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Try to queue authorization of player, if queue of authenticator is full this method will return false, and
+     * caller should try again later.
+     *
+     * @param task authorization task.
+     *
+     * @return true if task was queued.
+     */
+    public boolean authenticate(final Runnable task)
+    {
+        try
+        {
+            this.authExecutor.execute(task);
+            return true;
+        } catch (final RejectedExecutionException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Returns amount of authorization tasks waiting for free authenticator thread.
+     *
+     * @return amount of queued authorization tasks.
+     */
+    public int getPendingAuthentications()
+    {
+        return this.authExecutor.getQueue().size();
     }
 
     @Override
@@ -110,6 +173,7 @@ public class ServerConnection extends Thread implements ConnectionHandler
     @Override
     public void close()
     {
+        this.authExecutor.shutdownNow();
         try
         {
             this.channelFuture.channel().close().sync();
@@ -142,6 +206,7 @@ public class ServerConnection extends Thread implements ConnectionHandler
 
     public void update()
     {
+        this.handshakeRateLimiter.cleanup();
         final Iterator<NetworkManager> iterator = this.connections.iterator();
         while (iterator.hasNext())
         {
@@ -181,6 +246,16 @@ public class ServerConnection extends Thread implements ConnectionHandler
         return this.connections;
     }
 
+    public StatusResponseCache getStatusResponseCache()
+    {
+        return this.statusResponseCache;
+    }
+
+    public HandshakeRateLimiter getHandshakeRateLimiter()
+    {
+        return this.handshakeRateLimiter;
+    }
+
     @Override
     public String toString()
     {
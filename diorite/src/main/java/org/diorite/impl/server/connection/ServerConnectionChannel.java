@@ -24,6 +24,8 @@
 
 package org.diorite.impl.server.connection;
 
+import java.net.InetSocketAddress;
+
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
@@ -51,6 +53,13 @@ public class ServerConnectionChannel extends ChannelInitializer<Channel>
     @Override
     protected void initChannel(final Channel channel) throws Exception
     {
+        final InetSocketAddress address = (InetSocketAddress) channel.remoteAddress();
+        if ((address != null) && ! this.serverConnection.getHandshakeRateLimiter().tryAcquire(address.getAddress()))
+        {
+            // too many connections from this address, close it before any handler or network manager is created.
+            channel.close();
+            return;
+        }
         try
         {
             channel.config().setOption(ChannelOption.IP_TOS, IP_TOS);
@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.server.connection;
+
+import java.util.Objects;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import org.diorite.impl.DioriteCore;
+import org.diorite.impl.cfg.DioriteConfigImpl;
+import org.diorite.impl.connection.packets.status.clientbound.PacketStatusClientboundServerInfo;
+import org.diorite.impl.connection.ping.ServerPing;
+import org.diorite.impl.connection.ping.ServerPingPlayerSample;
+import org.diorite.impl.connection.ping.ServerPingServerData;
+import org.diorite.impl.server.connection.listeners.HandshakeListener;
+import org.diorite.Core;
+import org.diorite.chat.ChatColor;
+
+/**
+ * Cache of server list status response, response is created and encoded to json only when motd or player counts
+ * are changed, so server list spam doesn't need to serialize it again for each request.
+ */
+public class StatusResponseCache
+{
+    private final    DioriteCore core;
+    private volatile Response    response;
+
+    public StatusResponseCache(final DioriteCore core)
+    {
+        this.core = core;
+    }
+
+    /**
+     * Returns new status response packet, using cached and already encoded server ping if nothing changed.
+     *
+     * @return status response packet.
+     */
+    public PacketStatusClientboundServerInfo getResponse()
+    {
+        final DioriteConfigImpl cfg = this.core.getConfig();
+        final String motd = cfg.getMotd();
+        final int maxPlayers = cfg.getMaxPlayers();
+        final int onlinePlayers = this.core.getPlayersManager().getRawPlayers().size();
+
+        Response response = this.response;
+        if ((response == null) || ! response.matches(motd, maxPlayers, onlinePlayers))
+        {
+            final ServerPing ping = new ServerPing();
+            ping.setFavicon(null);
+            ping.setMotd(ChatColor.translateAlternateColorCodes(motd));
+            ping.setPlayerData(new ServerPingPlayerSample(maxPlayers, onlinePlayers));
+            ping.setServerData(new ServerPingServerData(Core.NAME + " " + this.core.getVersion(), HandshakeListener.CURRENT_PROTOCOL));
+            response = new Response(motd, maxPlayers, onlinePlayers, ping, PacketStatusClientboundServerInfo.encode(ping));
+            this.response = response;
+        }
+        return new PacketStatusClientboundServerInfo(response.ping, response.encoded);
+    }
+
+    /**
+     * Removes cached response, so it will be created again on next request.
+     */
+    public void invalidate()
+    {
+        this.response = null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("response", this.response).toString();
+    }
+
+    private static class Response
+    {
+        private final String     motd;
+        private final int        maxPlayers;
+        private final int        onlinePlayers;
+        private final ServerPing ping;
+        private final byte[]     encoded;
+
+        private Response(final String motd, final int maxPlayers, final int onlinePlayers, final ServerPing ping, final byte[] encoded)
+        {
+            this.motd = motd;
+            this.maxPlayers = maxPlayers;
+            this.onlinePlayers = onlinePlayers;
+            this.ping = ping;
+            this.encoded = encoded;
+        }
+
+        private boolean matches(final String motd, final int maxPlayers, final int onlinePlayers)
+        {
+            return (this.maxPlayers == maxPlayers) && (this.onlinePlayers == onlinePlayers) && Objects.equals(this.motd, motd);
+        }
+
+        @Override
+        public String toString()
+        {
+            return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).appendSuper(super.toString()).append("motd", this.motd).append("maxPlayers", this.maxPlayers).append("onlinePlayers", this.onlinePlayers).append("encoded", this.encoded.length).toString();
+        }
+    }
+}
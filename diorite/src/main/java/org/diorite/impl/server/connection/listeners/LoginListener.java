@@ -30,7 +30,7 @@ import java.security.PrivateKey;
 import java.util.Arrays;
 import java.util.Random;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -51,7 +51,8 @@ import org.diorite.impl.connection.packets.login.clientbound.PacketLoginClientbo
 import org.diorite.impl.connection.packets.login.clientbound.PacketLoginClientboundSuccess;
 import org.diorite.impl.entity.IPlayer;
 import org.diorite.impl.server.connection.NetworkManager;
-import org.diorite.impl.server.connection.ThreadPlayerLookupUUID;
+import org.diorite.impl.server.connection.PlayerLookupUUID;
+import org.diorite.impl.server.connection.ServerConnection;
 import org.diorite.cfg.DioriteConfig.OnlineMode;
 import org.diorite.chat.component.BaseComponent;
 import org.diorite.chat.component.TextComponent;
@@ -60,19 +61,20 @@ public class LoginListener implements PacketLoginServerboundListener
 {
     private static final int TIMEOUT_TICKS = 600;
 
-    private static final Random        random  = new Random();
-    private static final AtomicInteger counter = new AtomicInteger();
+    private static final Random random = new Random();
 
     private final Logger logger;
     private final byte[] token = new byte[4];
-    private final DioriteCore        core;
-    private final CoreNetworkManager networkManager;
-    private       GameProfileImpl    gameProfile;
-    private       SecretKey          secretKey;
-    private       String             hostname;
-    private       ProtocolState      protocolState;
-    private       OnlineMode         onlineMode;
-    private       int                ticks;
+    private final    DioriteCore        core;
+    private final    CoreNetworkManager networkManager;
+    private          GameProfileImpl    gameProfile;
+    private          SecretKey          secretKey;
+    private          String             hostname;
+    private volatile ProtocolState      protocolState;
+    private          OnlineMode         onlineMode;
+    private          int                ticks;
+
+    private final AtomicReference<PlayerLookupUUID> pendingLookup = new AtomicReference<>(); // authorization waiting for free place in queue of authenticator.
 
     private String serverID = ""; // unused?
 
@@ -104,6 +106,10 @@ public class LoginListener implements PacketLoginServerboundListener
         {
             this.acceptPlayer();
         }
+        else if (this.pendingLookup.get() != null)
+        {
+            this.queueLookup();
+        }
         if (this.ticks++ >= this.getTimeoutTicks())
         {
             this.disconnect("Took too long to log in");
@@ -122,7 +128,8 @@ public class LoginListener implements PacketLoginServerboundListener
         }
         else
         {
-            new ThreadPlayerLookupUUID(this, "Diorite User Authenticator (" + this.gameProfile.getName() + ") #0 (cracked)", this::acceptPlayer).start();
+            // offline player don't need any request to session server, so there is no need to use authenticator.
+            new PlayerLookupUUID(this).run();
         }
     }
 
@@ -138,11 +145,29 @@ public class LoginListener implements PacketLoginServerboundListener
         this.secretKey = MinecraftEncryption.createKeySpec(privateKey, packet.getSharedSecret());
         this.protocolState = ProtocolState.AUTHENTICATING;
         this.networkManager.enableEncryption(this.secretKey);
-        new ThreadPlayerLookupUUID(this, "Diorite User Authenticator (" + this.gameProfile.getName() + ") #" + counter.incrementAndGet(), this::acceptPlayer).start();
+        this.pendingLookup.set(new PlayerLookupUUID(this));
+        this.queueLookup();
+    }
+
+    private void queueLookup()
+    {
+        // lookup is taken before it is submitted, so netty thread and tick of listener can't submit it twice.
+        final PlayerLookupUUID lookup = this.pendingLookup.getAndSet(null);
+        if ((lookup != null) && ! ((ServerConnection) this.core.getConnectionHandler()).authenticate(lookup))
+        {
+            // authenticator is busy, it will be queued again in next tick of listener, until login timeout.
+            this.pendingLookup.compareAndSet(null, lookup);
+        }
     }
 
-    public void acceptPlayer()
+    public synchronized void acceptPlayer()
     {
+        // player can be accepted by authenticator thread or by tick of listener, but only once.
+        if (this.protocolState == ProtocolState.ACCEPTED)
+        {
+            return;
+        }
+        this.protocolState = ProtocolState.ACCEPTED;
         if (this.core.getCompressionThreshold() >= 0)
         {
             this.networkManager.sendPacket(new PacketLoginClientboundSetCompression(this.core.getCompressionThreshold()), future -> this.networkManager.setCompression(this.core.getCompressionThreshold()));
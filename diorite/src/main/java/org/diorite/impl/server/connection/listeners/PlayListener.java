@@ -130,47 +130,19 @@ public class PlayListener implements PacketPlayServerboundListener
     @Override
     public void handle(final PacketPlayServerboundPositionLook packet)
     {
-        // TODO: don't sync packets when client sends too much of them
-        final IPlayer player = this.player;
-        if ((player.getX() == packet.getX()) && (player.getY() == packet.getY()) && (player.getZ() == packet.getZ()))
-        {
-            if ((player.getYaw() == packet.getYaw()) && (player.getPitch() == packet.getPitch()))
-            {
-                return;
-            }
-            this.core.sync(() -> player.setRotation(packet.getYaw(), packet.getPitch()), player);
-            return;
-        }
-        if ((player.getYaw() == packet.getYaw()) && (player.getPitch() == packet.getPitch()))
-        {
-            this.core.sync(() -> player.setPosition(packet.getX(), packet.getY(), packet.getZ()), player);
-            return;
-        }
-        this.core.sync(() -> player.setPositionAndRotation(packet.getX(), packet.getY(), packet.getZ(), packet.getYaw(), packet.getPitch()), player);
+        this.player.getPendingMovement().setPositionAndRotation(packet.getX(), packet.getY(), packet.getZ(), packet.getYaw(), packet.getPitch());
     }
 
     @Override
     public void handle(final PacketPlayServerboundPosition packet)
     {
-        final IPlayer player = this.player;
-        if ((player.getX() == packet.getX()) && (player.getY() == packet.getY()) && (player.getZ() == packet.getZ()))
-        {
-            return;
-        }
-        // TODO: don't sync packets when client sends too much of them
-        this.core.sync(() -> player.setPosition(packet.getX(), packet.getY(), packet.getZ()), player);
+        this.player.getPendingMovement().setPosition(packet.getX(), packet.getY(), packet.getZ());
     }
 
     @Override
     public void handle(final PacketPlayServerboundLook packet)
     {
-        final IPlayer player = this.player;
-        if ((player.getYaw() == packet.getYaw()) && (player.getPitch() == packet.getPitch()))
-        {
-            return;
-        }
-        // TODO: don't sync packets when client sends too much of them
-        this.core.sync(() -> player.setRotation(packet.getYaw(), packet.getPitch()), player);
+        this.player.getPendingMovement().setRotation(packet.getYaw(), packet.getPitch());
     }
 
     @Override
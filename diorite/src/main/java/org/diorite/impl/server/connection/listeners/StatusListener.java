@@ -29,18 +29,12 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 import org.slf4j.Logger;
 
 import org.diorite.impl.DioriteCore;
-import org.diorite.impl.cfg.DioriteConfigImpl;
 import org.diorite.impl.connection.CoreNetworkManager;
 import org.diorite.impl.connection.packets.status.PacketStatusServerboundListener;
 import org.diorite.impl.connection.packets.status.serverbound.PacketStatusServerboundPing;
 import org.diorite.impl.connection.packets.status.serverbound.PacketStatusServerboundStart;
 import org.diorite.impl.connection.packets.status.clientbound.PacketStatusClientboundPong;
-import org.diorite.impl.connection.packets.status.clientbound.PacketStatusClientboundServerInfo;
-import org.diorite.impl.connection.ping.ServerPing;
-import org.diorite.impl.connection.ping.ServerPingPlayerSample;
-import org.diorite.impl.connection.ping.ServerPingServerData;
-import org.diorite.Core;
-import org.diorite.chat.ChatColor;
+import org.diorite.impl.server.connection.ServerConnection;
 import org.diorite.chat.component.BaseComponent;
 import org.diorite.chat.component.TextComponent;
 
@@ -67,13 +61,7 @@ public class StatusListener implements PacketStatusServerboundListener
     @Override
     public void handle(final PacketStatusServerboundStart packet)
     {
-        final ServerPing ping = new ServerPing();
-        final DioriteConfigImpl cfg = DioriteCore.getInstance().getConfig();
-        ping.setFavicon(null);
-        ping.setMotd(ChatColor.translateAlternateColorCodes(cfg.getMotd()));
-        ping.setPlayerData(new ServerPingPlayerSample(cfg.getMaxPlayers(), DioriteCore.getInstance().getOnlinePlayers().size()));
-        ping.setServerData(new ServerPingServerData(Core.NAME + " " + this.core.getVersion(), HandshakeListener.CURRENT_PROTOCOL));
-        this.networkManager.sendPacket(new PacketStatusClientboundServerInfo(ping));
+        this.networkManager.sendPacket(((ServerConnection) this.core.getConnectionHandler()).getStatusResponseCache().getResponse());
     }
 
     @Override
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016. Diorite (by Bartłomiej Mazur (aka GotoFinal))
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.diorite.impl.server.connection;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class AuthExecutorTest extends TestCase
+{
+    @org.junit.Test
+    public void testQueueIsBounded() throws Exception
+    {
+        final ThreadPoolExecutor executor = ServerConnection.createAuthExecutor(2, 3);
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Runnable task = () -> {
+            started.countDown();
+            try
+            {
+                release.await();
+            } catch (final InterruptedException ignored)
+            {
+            }
+        };
+        try
+        {
+            for (int i = 0; i < 5; i++)
+            {
+                executor.execute(task);
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(2, executor.getPoolSize());
+            assertEquals(3, executor.getQueue().size());
+            try
+            {
+                executor.execute(task);
+                fail("Task over queue limit should be rejected.");
+            } catch (final RejectedExecutionException ignored)
+            {
+            }
+            assertEquals("Executor can't create more threads than configured", 2, executor.getPoolSize());
+
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(5, executor.getCompletedTaskCount());
+        } finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @org.junit.Test
+    public void testInvalidSizes() throws Exception
+    {
+        final ThreadPoolExecutor executor = ServerConnection.createAuthExecutor(0, 0);
+        try
+        {
+            assertEquals(1, executor.getCorePoolSize());
+            assertEquals(1, executor.getMaximumPoolSize());
+            assertEquals(1, executor.getQueue().remainingCapacity());
+        } finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -40,6 +40,7 @@ import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboun
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundDisconnect;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntity;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityDestroy;
+import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityHeadRotation;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityLook;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityMetadata;
 import org.diorite.impl.connection.packets.play.clientbound.PacketPlayClientboundEntityTeleport;
@@ -284,6 +285,12 @@ public class PlayListener implements PacketPlayClientboundListener
 
     }
 
+    @Override
+    public void handle(final PacketPlayClientboundEntityHeadRotation packet)
+    {
+
+    }
+
     @Override
     public void handle(final PacketPlayClientboundRelEntityMoveLook packet)
     {